@@ -0,0 +1,118 @@
+package bench;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import components.BrokerTopology;
+
+/**
+ * Compare les topologies de Brokers @see components.BrokerTopology : nombre de
+ * liens traversés par un message pour atteindre chaque Broker, et latence de
+ * bout en bout pour qu'un message atteigne tous les Brokers.
+ * 
+ * La latence est simulée : chaque Broker transmet aux fils que lui donne la
+ * topologie, et chaque lien ajoute {@link #HOP_DELAY_MS}, l'ordre de grandeur
+ * d'un appel entre deux jvms.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class BrokerTopologyBenchmark {
+
+	/**
+	 * Délai d'un lien entre deux Brokers en millisecondes
+	 */
+	protected static final long HOP_DELAY_MS = 2;
+
+	/**
+	 * Nombre de messages publiés par mesure de latence
+	 */
+	protected static final int MESSAGES = 20;
+
+	/**
+	 * Créer une topologie de Brokers
+	 * 
+	 * @param kind forme de la topologie
+	 * @param n    nombre de Brokers
+	 * @return la topologie
+	 */
+	static BrokerTopology topology(BrokerTopology.Kind kind, int n) {
+		String[] brokers = new String[n];
+		String[] pips = new String[n];
+		for (int i = 0; i < n; i++) {
+			brokers[i] = "broker" + i;
+			pips[i] = "pip" + i;
+		}
+		return BrokerTopology.create(kind, brokers, pips);
+	}
+
+	/**
+	 * Transmet un message reçu par un Broker à ses fils, après le délai du lien
+	 * 
+	 * @param topology  topologie des Brokers
+	 * @param scheduler planificateur qui simule les liens
+	 * @param broker    Broker qui a reçu le message
+	 * @param origin    Broker d'origine du message
+	 * @param arrivals  date d'arrivée du message sur chaque Broker
+	 * @param done      décompte des Brokers qui n'ont pas encore reçu le message
+	 */
+	static void receive(BrokerTopology topology, ScheduledExecutorService scheduler, String broker, String origin,
+			Map<String, Long> arrivals, CountDownLatch done) {
+		arrivals.put(broker, System.nanoTime());
+		done.countDown();
+		for (String next : topology.nextHops(broker, origin))
+			scheduler.schedule(() -> receive(topology, scheduler, next, origin, arrivals, done), HOP_DELAY_MS,
+					TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Point d'entré du benchmark
+	 * 
+	 * @param args arguments du programme
+	 */
+	public static void main(String[] args) throws Exception {
+		ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+		System.out.println("brokers\ttopology\tlinks\tavg hops\tmax hops\tlatency (ms)");
+		for (int n : new int[] { 2, 4, 8, 16, 32 }) {
+			for (BrokerTopology.Kind kind : BrokerTopology.Kind.values()) {
+				BrokerTopology topology = topology(kind, n);
+
+				// liens traversés depuis chaque Broker d'origine vers chaque autre Broker
+				long totalHops = 0;
+				int maxHops = 0, links = 0;
+				for (String origin : topology.getBrokers()) {
+					links += topology.getLinks(origin).size();
+					for (String broker : topology.getBrokers()) {
+						int hops = topology.hops(broker, origin);
+						totalHops += hops;
+						maxHops = Math.max(maxHops, hops);
+					}
+				}
+				double avgHops = totalHops / (double) (n * n);
+
+				// temps pour que chaque message atteigne tous les Brokers
+				String[] brokers = topology.getBrokers().toArray(new String[0]);
+				long totalLatency = 0;
+				for (int i = 0; i < MESSAGES; i++) {
+					String origin = brokers[i % n];
+					Map<String, Long> arrivals = new ConcurrentHashMap<>();
+					CountDownLatch done = new CountDownLatch(n);
+					long start = System.nanoTime();
+					receive(topology, scheduler, origin, origin, arrivals, done);
+					done.await();
+					long last = 0;
+					for (long arrival : arrivals.values())
+						last = Math.max(last, arrival);
+					totalLatency += last - start;
+				}
+				System.out.printf("%d\t%s\t%d\t%.2f\t%d\t%.2f%n", n, kind, links, avgHops, maxHops,
+						totalLatency / (double) MESSAGES / 1e6);
+			}
+		}
+		scheduler.shutdown();
+	}
+}
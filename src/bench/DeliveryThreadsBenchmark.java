@@ -0,0 +1,151 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import interfaces.MessageI;
+import message.Message;
+import message.Properties;
+import message.SubscriberQueue;
+import message.SubscriberQueue.OverflowPolicy;
+import utils.VirtualThreads;
+
+/**
+ * Compare l'envoi aux subscribers sur le pool d'envoi du Broker (4 threads),
+ * sur un thread par file (threads de plateforme) et sur des threads virtuels
+ * @see utils.VirtualThreads, quand des milliers de subscribers reçoivent des
+ * messages par un appel bloquant de quelques millisecondes (un appel RMI) :
+ * débit des messages livrés, nombre d'appels et attente des messages.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class DeliveryThreadsBenchmark {
+
+	/**
+	 * Nombre de tours de publication, chaque tour envoie un message à chaque
+	 * subscriber
+	 */
+	protected static final int ROUNDS = 20;
+
+	/**
+	 * Pause entre deux tours en millisecondes
+	 */
+	protected static final long PAUSE = 5;
+
+	/**
+	 * Durée d'un appel acceptMessage en millisecondes
+	 */
+	protected static final long CALL_LATENCY = 5;
+
+	/**
+	 * Nombre maximum de messages envoyés en un appel, comme le Broker
+	 */
+	protected static final int DELIVERY_BATCH_SIZE = 100;
+
+	/**
+	 * Nombre d'appels d'une tache sur un pool partagé avant de laisser la place
+	 * aux autres subscribers, comme le Broker
+	 */
+	protected static final int DRAIN_ROUNDS = 10;
+
+	// Propriété qui porte la date d'envoi d'un message
+	private static final String SENT = "sent";
+
+	/**
+	 * Envoie des messages à des subscribers et mesure leur livraison
+	 * 
+	 * @param subscribers nombre de subscribers
+	 * @param executor    threads qui vident les files
+	 * @param shared      vrai si les threads sont partagés entre les subscribers :
+	 *                    la tache est relancée après {@link #DRAIN_ROUNDS} appels
+	 * @return messages livrés par seconde, nombre d'appels, attente médiane et
+	 *         p99 en millisecondes
+	 */
+	static double[] measure(int subscribers, ExecutorService executor, boolean shared) throws Exception {
+		AtomicLong delivered = new AtomicLong();
+		AtomicLong calls = new AtomicLong();
+		long[] latencies = new long[subscribers * ROUNDS];
+		AtomicLong latencyCount = new AtomicLong();
+		List<SubscriberQueue> queues = new ArrayList<>();
+		for (int s = 0; s < subscribers; s++) {
+			SubscriberQueue[] queue = new SubscriberQueue[1];
+			Runnable[] drain = new Runnable[1];
+			drain[0] = () -> {
+				for (int i = 0; !shared || i < DRAIN_ROUNDS; i++) {
+					List<MessageI> ms = queue[0].poll(DELIVERY_BATCH_SIZE);
+					if (ms.isEmpty())
+						return;
+					try {
+						// appel bloquant vers le subscriber
+						Thread.sleep(CALL_LATENCY);
+						long now = System.nanoTime();
+						for (MessageI m : ms)
+							latencies[(int) latencyCount.getAndIncrement()] = now
+									- m.getProperties().getLongProp(SENT);
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+					calls.incrementAndGet();
+					delivered.addAndGet(ms.size());
+				}
+				executor.execute(drain[0]);
+			};
+			queue[0] = new SubscriberQueue(ROUNDS, OverflowPolicy.DROP_NEWEST, null, () -> executor.execute(drain[0]));
+			queues.add(queue[0]);
+		}
+
+		long start = System.nanoTime();
+		for (int round = 0; round < ROUNDS; round++) {
+			for (SubscriberQueue queue : queues) {
+				Properties p = new Properties();
+				p.putProp(SENT, System.nanoTime());
+				queue.offer(List.of(new Message(p, "m" + round)));
+			}
+			Thread.sleep(PAUSE);
+		}
+		while (delivered.get() < (long) subscribers * ROUNDS)
+			Thread.sleep(1);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		executor.shutdown();
+		executor.awaitTermination(10, TimeUnit.SECONDS);
+
+		long[] sorted = Arrays.copyOf(latencies, (int) latencyCount.get());
+		Arrays.sort(sorted);
+		return new double[] { delivered.get() / seconds, calls.get(), sorted[sorted.length / 2] / 1e6,
+				sorted[(int) (sorted.length * 0.99)] / 1e6 };
+	}
+
+	/**
+	 * Affiche une mesure
+	 * 
+	 * @param mode        threads utilisés
+	 * @param subscribers nombre de subscribers
+	 * @param res         résultat de la mesure
+	 */
+	static void print(String mode, int subscribers, double[] res) {
+		System.out.printf("%s\t%d\t%.0f\t%.0f\t%.1f\t%.1f%n", mode, subscribers, res[0], res[1], res[2], res[3]);
+	}
+
+	/**
+	 * Point d'entré du benchmark
+	 * 
+	 * @param args arguments du programme
+	 */
+	public static void main(String[] args) throws Exception {
+		System.out.println("threads\tsubscribers\tmsgs/s\tappels\tattente p50 ms\tattente p99 ms");
+		for (int subscribers : new int[] { 100, 1000, 2000 }) {
+			print("pool 4", subscribers, measure(subscribers, Executors.newFixedThreadPool(4), true));
+			print("plateforme", subscribers, measure(subscribers, Executors.newCachedThreadPool(), false));
+			if (VirtualThreads.isAvailable())
+				print("virtuels", subscribers, measure(subscribers, VirtualThreads.newExecutor("envoi-"), false));
+			else
+				System.out.println("virtuels\t" + subscribers + "\tindisponibles (JDK 21 requis)");
+		}
+	}
+}
@@ -0,0 +1,76 @@
+package bench;
+
+import java.net.InetAddress;
+import java.util.Date;
+
+import message.Message;
+import message.MessageFactory;
+import message.Properties;
+
+/**
+ * Compare la création des messages par le constructeur de Message, qui tire
+ * une URI aléatoire, et par une fabrique @see message.MessageFactory avec
+ * l'horloge murale ou l'horloge monotone : messages créés par seconde. Le
+ * constructeur est aussi mesuré avec la recherche du nom de la machine et la
+ * Date qu'il faisait pour chaque message.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class MessageFactoryBenchmark {
+
+	/**
+	 * Nombre de messages créés à chaque mesure
+	 */
+	protected static final int MESSAGES = 2_000_000;
+
+	/**
+	 * Nombre de mesures ignorées, le temps que le code soit compilé
+	 */
+	protected static final int WARMUP = 2;
+
+	/**
+	 * Crée des messages et renvoie le nombre de messages créés par seconde
+	 * 
+	 * @param factory fabrique des messages, null pour le constructeur de Message
+	 * @param legacy  ajoute au constructeur de Message la recherche du nom de la
+	 *                machine et la Date qu'il faisait avant
+	 * @return le nombre de messages créés par seconde, à la dernière mesure
+	 */
+	static double measure(MessageFactory factory, boolean legacy) throws Exception {
+		double rate = 0;
+		long sum = 0;
+		for (int run = 0; run <= WARMUP; run++) {
+			long start = System.nanoTime();
+			for (int i = 0; i < MESSAGES; i++) {
+				Properties p = new Properties();
+				p.putProp("sequence", i);
+				Message m = factory == null ? new Message(p, "mesure") : factory.create(p, "mesure");
+				if (legacy) {
+					m.getTimeStamp().setTime(new Date().getTime());
+					m.getTimeStamp().setTimeStamper(InetAddress.getLocalHost().toString());
+				}
+				sum += m.getURI().length() + m.getTimeStamp().getTime();
+			}
+			rate = MESSAGES / ((System.nanoTime() - start) / 1e9);
+		}
+		if (sum == 0)
+			System.out.println();
+		return rate;
+	}
+
+	/**
+	 * Point d'entré du benchmark
+	 * 
+	 * @param args arguments du programme
+	 */
+	public static void main(String[] args) throws Exception {
+		System.out.println("creation\tmsgs/s\turi");
+		System.out.printf("before\t%.0f\t%s%n", measure(null, true), new Message(null, null).getURI());
+		System.out.printf("constructor\t%.0f\t%s%n", measure(null, false), new Message(null, null).getURI());
+		MessageFactory wall = new MessageFactory("publisher1");
+		System.out.printf("wall clock\t%.0f\t%s%n", measure(wall, false), wall.nextURI());
+		MessageFactory monotonic = new MessageFactory("publisher1", MessageFactory.monotonicClock());
+		System.out.printf("monotonic\t%.0f\t%s%n", measure(monotonic, false), monotonic.nextURI());
+	}
+}
@@ -0,0 +1,154 @@
+package bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import message.Message;
+import message.Properties;
+
+/**
+ * Compare la sérialisation écrite à la main de Message @see message.Message
+ * avec la sérialisation par défaut des mêmes champs, reproduite ici par
+ * {@link LegacyMessage} : octets par message et temps de sérialisation puis de
+ * désérialisation par message. Chaque appel distant entre jvms utilise un
+ * nouveau flux : la mesure est faite pour un message seul par flux, et pour un
+ * tableau de messages par flux comme publish(MessageI[], String[]).
+ * 
+ * @author Bello Velly
+ *
+ */
+public class MessageSerializationBenchmark {
+
+	/**
+	 * Nombre de messages sérialisés à chaque mesure
+	 */
+	protected static final int MESSAGES = 200_000;
+
+	/**
+	 * Nombre de mesures ignorées, le temps que le code soit compilé
+	 */
+	protected static final int WARMUP = 2;
+
+	/**
+	 * Date d'un message sérialisée par défaut
+	 */
+	static class LegacyTimeStamp implements Serializable {
+		private static final long serialVersionUID = 1L;
+		long time;
+		String timestamper;
+	}
+
+	/**
+	 * Message sérialisé par défaut, avec les mêmes champs que Message
+	 */
+	static class LegacyMessage implements Serializable {
+		private static final long serialVersionUID = 1L;
+		String URI;
+		LegacyTimeStamp timeStamp;
+		HashMap<String, Object> properties;
+		Serializable payload;
+		String origin;
+
+		/**
+		 * Copie les champs d'un Message
+		 * 
+		 * @param m message copié
+		 */
+		LegacyMessage(Message m) {
+			URI = m.getURI();
+			timeStamp = new LegacyTimeStamp();
+			timeStamp.time = m.getTimeStamp().getTime();
+			timeStamp.timestamper = m.getTimeStamp().getTimeStamper();
+			properties = new HashMap<>();
+			for (String name : new String[] { "capteur", "temperature", "sequence" })
+				properties.put(name, m.getProperties().getProp(name));
+			payload = m.getPayload();
+			origin = m.getOrigin();
+		}
+	}
+
+	/**
+	 * Créer des messages semblables à ceux d'un capteur
+	 * 
+	 * @param n nombre de messages
+	 * @return les messages
+	 */
+	static Message[] messages(int n) {
+		Message[] ms = new Message[n];
+		for (int i = 0; i < n; i++) {
+			Properties p = new Properties();
+			p.putProp("capteur", "salle-" + (i % 4));
+			p.putProp("temperature", 18.0 + i % 10);
+			p.putProp("sequence", i);
+			ms[i] = new Message(p, "mesure de température numéro " + i);
+			ms[i].setOrigin("broker0");
+		}
+		return ms;
+	}
+
+	/**
+	 * Sérialise puis désérialise des objets, et affiche la taille et le temps par
+	 * message
+	 * 
+	 * @param name    nom de la mesure
+	 * @param objects objets à sérialiser, un par flux
+	 * @param perFlow nombre de messages dans chaque objet
+	 */
+	static void measure(String name, Object[] objects, int perFlow) throws Exception {
+		long writeTime = 0, readTime = 0, bytes = 0;
+		int rounds = Math.max(1, MESSAGES / (objects.length * perFlow));
+		for (int run = 0; run <= WARMUP; run++) {
+			writeTime = readTime = bytes = 0;
+			for (int r = 0; r < rounds; r++) {
+				for (Object o : objects) {
+					long start = System.nanoTime();
+					ByteArrayOutputStream out = new ByteArrayOutputStream();
+					try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+						oos.writeObject(o);
+					}
+					long written = System.nanoTime();
+					try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+						ois.readObject();
+					}
+					readTime += System.nanoTime() - written;
+					writeTime += written - start;
+					bytes += out.size();
+				}
+			}
+		}
+		long total = (long) rounds * objects.length * perFlow;
+		System.out.printf("%s\t%d\t%.1f\t%.0f\t%.0f%n", name, perFlow, bytes / (double) total,
+				writeTime / (double) total, readTime / (double) total);
+	}
+
+	/**
+	 * Point d'entré du benchmark
+	 * 
+	 * @param args arguments du programme
+	 */
+	public static void main(String[] args) throws Exception {
+		Message[] ms = messages(1000);
+		LegacyMessage[] legacy = new LegacyMessage[ms.length];
+		for (int i = 0; i < ms.length; i++)
+			legacy[i] = new LegacyMessage(ms[i]);
+
+		System.out.println("format\tmsgs/flow\tbytes/msg\twrite (ns/msg)\tread (ns/msg)");
+		measure("default", legacy, 1);
+		measure("externalizable", ms, 1);
+		for (int size : new int[] { 10, 100 }) {
+			Object[] legacyBatches = new Object[ms.length / size];
+			Object[] batches = new Object[ms.length / size];
+			for (int i = 0; i < batches.length; i++) {
+				legacyBatches[i] = Arrays.copyOfRange(legacy, i * size, (i + 1) * size);
+				batches[i] = Arrays.copyOfRange(ms, i * size, (i + 1) * size);
+			}
+			measure("default", legacyBatches, size);
+			measure("externalizable", batches, size);
+		}
+	}
+}
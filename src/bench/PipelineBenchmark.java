@@ -0,0 +1,250 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import interfaces.MessageI;
+import message.FilterIndex;
+import message.Message;
+import message.Properties;
+import message.RetentionPolicy;
+import message.RingBuffer;
+import message.SubscriberQueue;
+import message.SubscriberQueue.OverflowPolicy;
+import message.Topic;
+
+/**
+ * Compare le traitement des publications par des taches du pool de reception
+ * (une tache par publication, qui ajoute les messages au topic, cherche les
+ * subscribers et remplit leurs files) et par le pipeline du Broker @see
+ * message.RingBuffer (étages append, match et dispatch). Des publieurs publient
+ * chacun un message à la fois ; les files des subscribers sont vidées sur un
+ * pool d'envoi dans les deux cas. Mesure le débit à pleine charge, puis
+ * l'attente des messages jusqu'à leur envoi à débit fixé.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class PipelineBenchmark {
+
+	/**
+	 * Nombre de publieurs
+	 */
+	protected static final int PUBLISHERS = 4;
+
+	/**
+	 * Nombre de subscribers abonnés au topic
+	 */
+	protected static final int SUBSCRIBERS = 8;
+
+	/**
+	 * Nombre de messages publiés à chaque mesure
+	 */
+	protected static final int MESSAGES = 400_000;
+
+	/**
+	 * Débit des publications de la mesure d'attente, en messages par seconde
+	 */
+	protected static final int RATE = 100_000;
+
+	/**
+	 * Nombre de threads des pools de reception et d'envoi, comme le Broker
+	 */
+	protected static final int THREADS = 4;
+
+	/**
+	 * Nombre de cases de l'anneau du pipeline
+	 */
+	protected static final int RING_SIZE = 1024;
+
+	// Propriété qui porte la date de publication d'un message
+	private static final String SENT = "sent";
+
+	// Evénement du pipeline
+	private static class Event {
+		MessageI[] ms;
+		FilterIndex index;
+		final Map<String, List<MessageI>> matches = new LinkedHashMap<>();
+	}
+
+	/**
+	 * Traitement des publications mesuré
+	 */
+	interface Intake {
+		void publish(MessageI[] ms);
+
+		void stop() throws Exception;
+	}
+
+	/**
+	 * Publie des messages et mesure leur envoi
+	 * 
+	 * @param pipelined vrai pour traiter les publications par le pipeline
+	 * @param rate      débit des publications en messages par seconde, 0 pour
+	 *                  publier aussi vite que possible
+	 * @return messages envoyés par seconde, attentes médiane, p99 et p99.9 en
+	 *         microsecondes, et le nombre moyen de publications traitées ensemble
+	 */
+	static double[] measure(boolean pipelined, int rate) throws Exception {
+		ExecutorService envoie = Executors.newFixedThreadPool(THREADS);
+		Topic topic = new Topic(new RetentionPolicy(10_000, 0, 0));
+		AtomicLong delivered = new AtomicLong();
+		long[] latencies = new long[MESSAGES];
+		int[] latencyCount = new int[1];
+		Map<String, SubscriberQueue> queues = new LinkedHashMap<>();
+		for (int s = 0; s < SUBSCRIBERS; s++) {
+			// seule l'attente des messages du premier subscriber est mesurée
+			boolean measured = s == 0;
+			SubscriberQueue[] queue = new SubscriberQueue[1];
+			Runnable drain = () -> {
+				List<MessageI> ms;
+				while (!(ms = queue[0].poll(100)).isEmpty()) {
+					if (measured) {
+						long now = System.nanoTime();
+						for (MessageI m : ms) {
+							try {
+								latencies[latencyCount[0]++] = now - m.getProperties().getLongProp(SENT);
+							} catch (Exception e) {
+								e.printStackTrace();
+							}
+						}
+					}
+					delivered.addAndGet(ms.size());
+				}
+			};
+			queue[0] = new SubscriberQueue(MESSAGES, OverflowPolicy.BLOCK, null, () -> envoie.execute(drain));
+			queues.put("s" + s, queue[0]);
+			topic.addSubscription("s" + s, null);
+		}
+
+		Intake intake;
+		double[] batch = { 1 };
+		if (pipelined) {
+			RingBuffer<Event> ring = new RingBuffer<>(RING_SIZE, Event::new);
+			RingBuffer<Event>.Stage append = ring.addStage("append",
+					(e, sequence, end) -> e.index = topic.publish(e.ms));
+			RingBuffer<Event>.Stage match = ring.addStage("match", (e, sequence, end) -> {
+				e.matches.clear();
+				e.matches.putAll(e.index.match(e.ms));
+			}, append);
+			Map<String, List<MessageI>> pending = new LinkedHashMap<>();
+			ring.addStage("dispatch", (e, sequence, end) -> {
+				for (Map.Entry<String, List<MessageI>> m : e.matches.entrySet())
+					pending.computeIfAbsent(m.getKey(), k -> new ArrayList<>()).addAll(m.getValue());
+				if (end) {
+					for (Map.Entry<String, List<MessageI>> m : pending.entrySet())
+						queues.get(m.getKey()).offer(m.getValue());
+					pending.clear();
+				}
+			}, match);
+			ring.start("pipeline-");
+			intake = new Intake() {
+				@Override
+				public void publish(MessageI[] ms) {
+					long sequence = ring.next();
+					ring.get(sequence).ms = ms;
+					ring.publish(sequence);
+				}
+
+				@Override
+				public void stop() throws Exception {
+					ring.halt();
+					batch[0] = ring.getStages().get(2).getAverageBatchSize();
+				}
+			};
+		} else {
+			ExecutorService reception = Executors.newFixedThreadPool(THREADS);
+			intake = new Intake() {
+				@Override
+				public void publish(MessageI[] ms) {
+					reception.execute(() -> {
+						try {
+							for (Map.Entry<String, List<MessageI>> m : topic.publish(ms).match(ms).entrySet())
+								queues.get(m.getKey()).offer(m.getValue());
+						} catch (InterruptedException e) {
+							e.printStackTrace();
+						}
+					});
+				}
+
+				@Override
+				public void stop() throws Exception {
+					reception.shutdown();
+					reception.awaitTermination(10, TimeUnit.SECONDS);
+				}
+			};
+		}
+
+		long start = System.nanoTime();
+		List<Thread> publishers = new ArrayList<>();
+		for (int p = 0; p < PUBLISHERS; p++) {
+			Thread publisher = new Thread(() -> {
+				// intervalle entre deux publications d'un même publieur
+				long interval = rate == 0 ? 0 : 1_000_000_000L * PUBLISHERS / rate;
+				long next = System.nanoTime();
+				for (int i = 0; i < MESSAGES / PUBLISHERS; i++) {
+					if (interval > 0) {
+						next += interval;
+						while (System.nanoTime() < next)
+							Thread.onSpinWait();
+					}
+					Properties props = new Properties();
+					props.putProp(SENT, System.nanoTime());
+					intake.publish(new MessageI[] { new Message(props, null) });
+				}
+			});
+			publishers.add(publisher);
+			publisher.start();
+		}
+		for (Thread publisher : publishers)
+			publisher.join();
+		while (delivered.get() < (long) MESSAGES * SUBSCRIBERS)
+			Thread.sleep(1);
+		double seconds = (System.nanoTime() - start) / 1e9;
+		intake.stop();
+		envoie.shutdown();
+		envoie.awaitTermination(10, TimeUnit.SECONDS);
+
+		long[] sorted = Arrays.copyOf(latencies, latencyCount[0]);
+		Arrays.sort(sorted);
+		return new double[] { delivered.get() / seconds, PriorityBenchmark.percentile(sorted, 50) / 1e3,
+				PriorityBenchmark.percentile(sorted, 99) / 1e3, PriorityBenchmark.percentile(sorted, 99.9) / 1e3,
+				batch[0] };
+	}
+
+	/**
+	 * Affiche une mesure
+	 * 
+	 * @param mode traitement des publications
+	 * @param rate débit des publications, 0 à pleine charge
+	 * @param res  résultat de la mesure
+	 */
+	static void print(String mode, int rate, double[] res) {
+		System.out.printf("%s\t%s\t%.0f\t%.1f\t%.1f\t%.1f\t%.1f%n", mode, rate == 0 ? "max" : rate, res[0], res[1],
+				res[2], res[3], res[4]);
+	}
+
+	/**
+	 * Point d'entré du benchmark
+	 * 
+	 * @param args arguments du programme
+	 */
+	public static void main(String[] args) throws Exception {
+		// mesures ignorées, le temps que le code soit compilé
+		measure(false, 0);
+		measure(true, 0);
+		System.out.println(
+				"traitement\tdébit publié\tmsgs/s envoyés\tp50 us\tp99 us\tp99.9 us\tpublications par lot");
+		for (int rate : new int[] { 0, RATE }) {
+			print("taches", rate, measure(false, rate));
+			print("pipeline", rate, measure(true, rate));
+		}
+	}
+}
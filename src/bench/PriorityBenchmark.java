@@ -0,0 +1,174 @@
+package bench;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import interfaces.MessageI;
+import message.Message;
+import message.Priority;
+import message.Properties;
+import message.SubscriberQueue;
+import message.SubscriberQueue.OverflowPolicy;
+
+/**
+ * Mesure l'attente des messages dans la file d'un subscriber sous une charge
+ * mélangée : des rafales de messages de masse (LOW) avec quelques messages
+ * normaux, importants et urgents, envoyés par un subscriber qui coûte une
+ * microseconde par message. Les percentiles de l'attente de chaque priorité
+ * sont comparés pour une file FIFO (messages sans priorité), des priorités
+ * strictes et des priorités avec vieillissement @see message.AgingQueue
+ * 
+ * @author Bello Velly
+ *
+ */
+public class PriorityBenchmark {
+
+	/**
+	 * Nombre de rafales publiées à chaque mesure
+	 */
+	protected static final int BURSTS = 200;
+
+	/**
+	 * Nombre de messages d'une rafale
+	 */
+	protected static final int BURST_SIZE = 1000;
+
+	/**
+	 * Pause entre deux rafales en millisecondes, la charge est proche du débit
+	 * du subscriber
+	 */
+	protected static final long PAUSE = 2;
+
+	/**
+	 * Coût de l'envoi d'un message en nanosecondes
+	 */
+	protected static final long DELIVERY_COST = 1000;
+
+	/**
+	 * Délai de vieillissement des messages en millisecondes
+	 */
+	protected static final long AGING = 1;
+
+	// Propriété qui porte la classe de priorité d'un message, même dans la file
+	// FIFO
+	private static final String CLASS = "class";
+	// Propriété qui porte la date d'envoi d'un message
+	private static final String SENT = "sent";
+
+	/**
+	 * Renvoie la classe de priorité du i-ème message d'une rafale : 1% urgents, 4%
+	 * importants, 10% normaux, le reste de masse
+	 * 
+	 * @param i indice du message dans la rafale
+	 * @return la priorité du message
+	 */
+	static Priority classOf(int i) {
+		int r = i % 100;
+		return r == 0 ? Priority.URGENT : r < 5 ? Priority.HIGH : r < 15 ? Priority.NORMAL : Priority.LOW;
+	}
+
+	/**
+	 * Publie des rafales de messages dans une file et mesure l'attente des
+	 * messages jusqu'à leur envoi
+	 * 
+	 * @param prioritized vrai pour donner leur priorité aux messages
+	 * @param aging       délai de vieillissement en millisecondes
+	 * @return l'attente de chaque message en nanosecondes, par priorité
+	 */
+	static long[][] measure(boolean prioritized, long aging) throws Exception {
+		Priority[] priorities = Priority.values();
+		long[][] latencies = new long[priorities.length][BURSTS * BURST_SIZE];
+		int[] counts = new int[priorities.length];
+		ExecutorService executor = Executors.newSingleThreadExecutor();
+		SubscriberQueue[] queue = new SubscriberQueue[1];
+		Runnable drain = () -> {
+			List<MessageI> ms;
+			while (!(ms = queue[0].poll(100)).isEmpty()) {
+				for (MessageI m : ms) {
+					long start = System.nanoTime();
+					while (System.nanoTime() - start < DELIVERY_COST)
+						;
+					try {
+						Properties p = m.getProperties();
+						int c = p.getIntProp(CLASS);
+						latencies[c][counts[c]++] = System.nanoTime() - p.getLongProp(SENT);
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+			}
+		};
+		queue[0] = new SubscriberQueue(BURSTS * BURST_SIZE, OverflowPolicy.BLOCK, null, aging,
+				() -> executor.execute(drain));
+
+		for (int burst = 0; burst < BURSTS; burst++) {
+			MessageI[] ms = new MessageI[BURST_SIZE];
+			for (int i = 0; i < BURST_SIZE; i++) {
+				Properties p = new Properties();
+				Priority priority = classOf(i);
+				p.putProp(CLASS, priority.ordinal());
+				p.putProp(SENT, System.nanoTime());
+				if (prioritized)
+					priority.apply(p);
+				ms[i] = new Message(p, null);
+				// les messages sont publiés un par un, comme par des publieurs différents
+				queue[0].offer(List.of(ms[i]));
+			}
+			Thread.sleep(PAUSE);
+		}
+		while (queue[0].getDepth() > 0)
+			Thread.sleep(10);
+		executor.shutdown();
+		while (!executor.isTerminated())
+			Thread.sleep(10);
+		for (int c = 0; c < priorities.length; c++)
+			latencies[c] = Arrays.copyOf(latencies[c], counts[c]);
+		return latencies;
+	}
+
+	/**
+	 * Renvoie un percentile d'un échantillon trié
+	 * 
+	 * @param sorted     échantillon trié
+	 * @param percentile percentile entre 0 et 100
+	 * @return la valeur du percentile
+	 */
+	static long percentile(long[] sorted, double percentile) {
+		if (sorted.length == 0)
+			return 0;
+		int i = (int) Math.ceil(percentile / 100 * sorted.length) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, i))];
+	}
+
+	/**
+	 * Affiche les percentiles de l'attente de chaque priorité
+	 * 
+	 * @param mode      nom de la file mesurée
+	 * @param latencies attentes de chaque message par priorité
+	 */
+	static void print(String mode, long[][] latencies) {
+		for (Priority priority : Priority.values()) {
+			long[] l = latencies[priority.ordinal()];
+			Arrays.sort(l);
+			System.out.printf("%s\t%s\t%d\t%.1f\t%.1f\t%.1f\t%.1f%n", mode, priority, l.length,
+					percentile(l, 50) / 1e3, percentile(l, 99) / 1e3, percentile(l, 99.9) / 1e3,
+					l.length == 0 ? 0 : l[l.length - 1] / 1e3);
+		}
+	}
+
+	/**
+	 * Point d'entré du benchmark
+	 * 
+	 * @param args arguments du programme
+	 */
+	public static void main(String[] args) throws Exception {
+		// mesure ignorée, le temps que le code soit compilé
+		measure(true, AGING);
+		System.out.println("file\tpriorité\tmessages\tp50 us\tp99 us\tp99.9 us\tmax us");
+		print("fifo", measure(false, AGING));
+		print("strict", measure(true, 0));
+		print("aging", measure(true, AGING));
+	}
+}
@@ -0,0 +1,171 @@
+package bench;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+import message.Properties;
+import message.PropertyKey;
+
+/**
+ * Compare le rangement des propriétés d'un message @see message.Properties
+ * avec l'ancien rangement dans une HashMap de valeurs converties en objets,
+ * reproduit ici par {@link LegacyProperties} : octets alloués et temps par
+ * message, pour la création des propriétés puis leur lecture par les filtres
+ * de plusieurs abonnés, par leur nom ou par des clés @see message.PropertyKey
+ * 
+ * @author Bello Velly
+ *
+ */
+public class PropertiesBenchmark {
+
+	/**
+	 * Nombre de messages créés à chaque mesure
+	 */
+	protected static final int MESSAGES = 2_000_000;
+
+	/**
+	 * Nombre d'abonnés dont le filtre lit les propriétés de chaque message
+	 */
+	protected static final int SUBSCRIBERS = 10;
+
+	/**
+	 * Nombre de mesures ignorées, le temps que le code soit compilé
+	 */
+	protected static final int WARMUP = 2;
+
+	/**
+	 * Propriétés rangées dans une HashMap, comme avant
+	 */
+	static class LegacyProperties {
+		final Map<String, Object> properties = new HashMap<String, Object>();
+
+		void putProp(String name, Object v) {
+			properties.put(name, v);
+		}
+
+		int getIntProp(String name) {
+			Object res = properties.get(name);
+			if (res instanceof Integer)
+				return (int) res;
+			throw new IllegalStateException(name);
+		}
+
+		double getDoubleProp(String name) {
+			Object res = properties.get(name);
+			if (res instanceof Double)
+				return (double) res;
+			throw new IllegalStateException(name);
+		}
+
+		String getStringProp(String name) {
+			Object res = properties.get(name);
+			if (res instanceof String)
+				return (String) res;
+			throw new IllegalStateException(name);
+		}
+	}
+
+	/**
+	 * Renvoie le nombre d'octets alloués par le thread courant
+	 * 
+	 * @return le nombre d'octets alloués depuis le début du thread
+	 */
+	static long allocated() {
+		return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean())
+				.getThreadAllocatedBytes(Thread.currentThread().getId());
+	}
+
+	/**
+	 * Crée et lit les propriétés des messages avec le nouveau rangement
+	 * 
+	 * @param rooms noms des salles, pour ne pas mesurer la création des chaînes
+	 * @return une somme des valeurs lues, pour que le travail ne soit pas supprimé
+	 */
+	static long current(String[] rooms) {
+		long sum = 0;
+		for (int i = 0; i < MESSAGES; i++) {
+			Properties p = new Properties();
+			p.putProp("capteur", rooms[i & 3]);
+			p.putProp("sequence", i);
+			p.putProp("temperature", 18.5);
+			p.putProp("humidite", 40.0);
+			for (int s = 0; s < SUBSCRIBERS; s++)
+				sum += p.getIntProp("sequence") + (long) p.getDoubleProp("temperature")
+						+ p.getStringProp("capteur").length();
+		}
+		return sum;
+	}
+
+	/**
+	 * Crée et lit les propriétés des messages avec le nouveau rangement, par des
+	 * clés résolues une seule fois @see message.PropertyKey
+	 * 
+	 * @param rooms noms des salles, pour ne pas mesurer la création des chaînes
+	 * @return une somme des valeurs lues, pour que le travail ne soit pas supprimé
+	 */
+	static long keys(String[] rooms) {
+		PropertyKey capteur = PropertyKey.of("capteur");
+		PropertyKey sequence = PropertyKey.of("sequence");
+		PropertyKey temperature = PropertyKey.of("temperature");
+		PropertyKey humidite = PropertyKey.of("humidite");
+		long sum = 0;
+		for (int i = 0; i < MESSAGES; i++) {
+			Properties p = new Properties();
+			p.putProp(capteur, rooms[i & 3]);
+			p.putProp(sequence, i);
+			p.putProp(temperature, 18.5);
+			p.putProp(humidite, 40.0);
+			for (int s = 0; s < SUBSCRIBERS; s++)
+				sum += p.getIntProp(sequence) + (long) p.getDoubleProp(temperature)
+						+ p.getStringProp(capteur).length();
+		}
+		return sum;
+	}
+
+	/**
+	 * Crée et lit les propriétés des messages avec l'ancien rangement
+	 * 
+	 * @param rooms noms des salles, pour ne pas mesurer la création des chaînes
+	 * @return une somme des valeurs lues, pour que le travail ne soit pas supprimé
+	 */
+	static long legacy(String[] rooms) {
+		long sum = 0;
+		for (int i = 0; i < MESSAGES; i++) {
+			LegacyProperties p = new LegacyProperties();
+			p.putProp("capteur", rooms[i & 3]);
+			p.putProp("sequence", i);
+			p.putProp("temperature", 18.5);
+			p.putProp("humidite", 40.0);
+			for (int s = 0; s < SUBSCRIBERS; s++)
+				sum += p.getIntProp("sequence") + (long) p.getDoubleProp("temperature")
+						+ p.getStringProp("capteur").length();
+		}
+		return sum;
+	}
+
+	/**
+	 * Point d'entré du benchmark
+	 * 
+	 * @param args arguments du programme
+	 */
+	public static void main(String[] args) {
+		String[] rooms = { "salle-0", "salle-1", "salle-2", "salle-3" };
+		System.out.println("layout\tbytes/msg\tns/msg");
+		for (String layout : new String[] { "hashmap", "arrays", "keys" }) {
+			long bytes = 0, time = 0, sum = 0;
+			for (int run = 0; run <= WARMUP; run++) {
+				long before = allocated();
+				long start = System.nanoTime();
+				if (layout.equals("hashmap"))
+					sum += legacy(rooms);
+				else
+					sum += layout.equals("arrays") ? current(rooms) : keys(rooms);
+				time = System.nanoTime() - start;
+				bytes = allocated() - before;
+			}
+			System.out.printf("%s\t%.1f\t%.1f\t(%d)%n", layout, bytes / (double) MESSAGES, time / (double) MESSAGES,
+					sum);
+		}
+	}
+}
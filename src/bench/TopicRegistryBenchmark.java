@@ -0,0 +1,162 @@
+package bench;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import interfaces.MessageFilterI;
+import interfaces.MessageI;
+import message.Message;
+import message.Topic;
+
+/**
+ * Mesure le débit de publication du registre de topics du Broker selon le
+ * nombre de threads publieurs et le nombre de topics. On compare l'ancien
+ * registre (HashMap protégée par un verrou global) au registre actuel
+ * (ConcurrentHashMap, un verrou par Topic).
+ * 
+ * Chaque publication reproduit le chemin de Broker.publish : création du topic
+ * si nécéssaire, ajout des messages puis lecture des abonnements.
+ * 
+ * @author Bello Velly
+ * 
+ */
+public class TopicRegistryBenchmark {
+
+	/**
+	 * Durée de chaque mesure en millisecondes
+	 */
+	protected static final long DURATION_MS = 2000;
+
+	/**
+	 * Nombre de messages par publication
+	 */
+	protected static final int BATCH = 10;
+
+	/**
+	 * Nombre d'abonnés par topic
+	 */
+	protected static final int SUBSCRIBERS = 8;
+
+	/**
+	 * Chemin de publication d'un registre de topics
+	 */
+	interface Registry {
+		void publish(MessageI[] ms, String topic);
+	}
+
+	/**
+	 * Registre avec un verrou global, comme l'ancienne version du Broker
+	 */
+	static class GlobalLockRegistry implements Registry {
+		private final Map<String, Topic> topics = new HashMap<>();
+		private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+		@Override
+		public void publish(MessageI[] ms, String topic) {
+			this.lock.writeLock().lock();
+			try {
+				Topic t = topics.computeIfAbsent(topic, k -> newTopic());
+				t.addMessages(ms);
+				consume(t.getSubscriptions());
+			} finally {
+				this.lock.writeLock().unlock();
+			}
+		}
+	}
+
+	/**
+	 * Registre concurrent avec un verrou par topic, comme le Broker actuel
+	 */
+	static class PerTopicRegistry implements Registry {
+		private final Map<String, Topic> topics = new ConcurrentHashMap<>();
+
+		@Override
+		public void publish(MessageI[] ms, String topic) {
+			Topic t = topics.computeIfAbsent(topic, k -> newTopic());
+			t.addMessages(ms);
+			consume(t.getSubscriptions());
+		}
+	}
+
+	/**
+	 * Créer un topic avec {@link #SUBSCRIBERS} abonnés
+	 * 
+	 * @return le topic créé
+	 */
+	static Topic newTopic() {
+		Topic t = new Topic();
+		for (int i = 0; i < SUBSCRIBERS; i++)
+			t.addSubscription("sub" + i, null);
+		return t;
+	}
+
+	/**
+	 * Evite que la lecture des abonnements soit supprimée par le JIT
+	 */
+	static volatile int sink;
+
+	static void consume(Map<String, MessageFilterI> subscriptions) {
+		sink += subscriptions.size();
+	}
+
+	/**
+	 * Lance une mesure
+	 * 
+	 * @param registry registre à mesurer
+	 * @param threads  nombre de threads publieurs
+	 * @param nbTopics nombre de topics
+	 * @param ms       messages publiés à chaque appel
+	 * @return le nombre de messages publiés par seconde
+	 */
+	static double run(Registry registry, int threads, int nbTopics, MessageI[] ms) throws InterruptedException {
+		String[] topics = new String[nbTopics];
+		for (int i = 0; i < nbTopics; i++)
+			topics[i] = "topic" + i;
+
+		LongAdder published = new LongAdder();
+		AtomicBoolean running = new AtomicBoolean(true);
+		CountDownLatch done = new CountDownLatch(threads);
+		for (int i = 0; i < threads; i++) {
+			final int offset = i;
+			new Thread(() -> {
+				int n = offset;
+				while (running.get()) {
+					registry.publish(ms, topics[n++ % topics.length]);
+					published.add(ms.length);
+				}
+				done.countDown();
+			}).start();
+		}
+		Thread.sleep(DURATION_MS);
+		running.set(false);
+		done.await();
+		return published.sum() * 1000d / DURATION_MS;
+	}
+
+	/**
+	 * Point d'entré du benchmark
+	 * 
+	 * @param args arguments du programme
+	 */
+	public static void main(String[] args) throws Exception {
+		MessageI[] ms = new MessageI[BATCH];
+		for (int i = 0; i < BATCH; i++)
+			ms[i] = new Message(null, "bench " + i);
+
+		System.out.println("threads\ttopics\tglobal (msg/s)\tper-topic (msg/s)");
+		for (int threads : new int[] { 1, 2, 4, 8 }) {
+			for (int nbTopics : new int[] { 1, 4, 16, 64 }) {
+				// les registres sont recréés à chaque mesure pour que l'historique des topics
+				// ne fausse pas les résultats
+				double global = run(new GlobalLockRegistry(), threads, nbTopics, ms);
+				double perTopic = run(new PerTopicRegistry(), threads, nbTopics, ms);
+				System.out.printf("%d\t%d\t%.0f\t%.0f%n", threads, nbTopics, global, perTopic);
+			}
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package bench;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+
+import interfaces.MessageI;
+import interfaces.TopicStorageI;
+import message.MappedLogTopicStorage;
+import message.MemoryTopicStorage;
+import message.Message;
+import message.OffHeapArena;
+import message.OffHeapTopicStorage;
+import message.RetentionPolicy;
+
+/**
+ * Compare le stockage des messages d'un Topic en mémoire, dans un journal
+ * projeté en mémoire et hors du tas : débit d'ajout, débit de lecture de
+ * l'historique et tas occupé par les messages conservés.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TopicStorageBenchmark {
+
+	/**
+	 * Nombre de messages ajoutés à chaque mesure
+	 */
+	protected static final int MESSAGES = 200_000;
+
+	/**
+	 * Taille du contenu de chaque message en caractères
+	 */
+	protected static final int PAYLOAD_SIZE = 256;
+
+	/**
+	 * Nombre de messages lus à chaque appel à read
+	 */
+	protected static final int READ_BATCH = 1000;
+
+	/**
+	 * Fabrique d'un stockage à mesurer
+	 */
+	interface StorageFactory {
+		TopicStorageI create(RetentionPolicy policy) throws Exception;
+	}
+
+	/**
+	 * Renvoie le tas occupé après un ramasse miette
+	 * 
+	 * @return la mémoire utilisée en octets
+	 */
+	static long usedHeap() throws InterruptedException {
+		Runtime rt = Runtime.getRuntime();
+		for (int i = 0; i < 3; i++) {
+			System.gc();
+			Thread.sleep(50);
+		}
+		return rt.totalMemory() - rt.freeMemory();
+	}
+
+	/**
+	 * Lance une mesure et affiche ses résultats
+	 * 
+	 * @param name    nom du stockage
+	 * @param factory fabrique du stockage
+	 * @param policy  politique de rétention du stockage
+	 * @param payload contenu commun des messages
+	 */
+	static void run(String name, StorageFactory factory, RetentionPolicy policy, String payload) throws Exception {
+		long heapBefore = usedHeap();
+		TopicStorageI storage = factory.create(policy);
+
+		// les messages sont créés pendant la mesure : seuls ceux conservés par le
+		// stockage restent sur le tas
+		long start = System.nanoTime();
+		for (int i = 0; i < MESSAGES; i++)
+			storage.append(new Message(null, payload + i));
+		double appendRate = MESSAGES * 1e9 / (System.nanoTime() - start);
+		long heap = usedHeap() - heapBefore;
+
+		start = System.nanoTime();
+		long read = 0;
+		long offset = storage.getFirstOffset();
+		List<MessageI> batch = new ArrayList<>(READ_BATCH);
+		while (offset < storage.getNextOffset()) {
+			batch.clear();
+			offset = storage.read(offset, READ_BATCH, batch);
+			read += batch.size();
+		}
+		double readRate = read * 1e9 / (System.nanoTime() - start);
+
+		System.out.printf("%s\t%d\t%.0f\t%.0f\t%d%n", name, policy.getMaxCount(), appendRate, readRate,
+				heap / (1024 * 1024));
+		storage.delete();
+	}
+
+	/**
+	 * Point d'entré du benchmark
+	 * 
+	 * @param args arguments du programme
+	 */
+	public static void main(String[] args) throws Exception {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < PAYLOAD_SIZE; i++)
+			sb.append((char) ('a' + i % 26));
+
+		File root = Files.createTempDirectory("topic-storage-bench").toFile();
+		StorageFactory memory = policy -> new MemoryTopicStorage(policy);
+		StorageFactory mapped = policy -> new MappedLogTopicStorage(
+				Files.createTempDirectory(root.toPath(), "topic").toFile(), MappedLogTopicStorage.DEFAULT_SEGMENT_SIZE,
+				policy);
+		OffHeapArena arena = new OffHeapArena(1024L * 1024 * 1024, OffHeapArena.DEFAULT_CHUNK_SIZE);
+		StorageFactory offHeap = policy -> new OffHeapTopicStorage(arena, policy);
+
+		System.out.println("storage\tmaxCount\tappend (msg/s)\tread (msg/s)\theap (MB)");
+		for (RetentionPolicy policy : new RetentionPolicy[] { RetentionPolicy.UNLIMITED,
+				new RetentionPolicy(MESSAGES / 10, 0, 0) }) {
+			run("memory", memory, policy, sb.toString());
+			run("mapped", mapped, policy, sb.toString());
+			run("offheap", offHeap, policy, sb.toString());
+		}
+		root.delete();
+	}
+}
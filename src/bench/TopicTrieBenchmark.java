@@ -0,0 +1,152 @@
+package bench;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import interfaces.MessageFilterI;
+import message.FilterIndex;
+import message.SubscriptionTrie;
+
+/**
+ * Mesure le coût de la recherche des abonnés d'un topic selon le nombre
+ * d'abonnements. On compare le chemin exact du Broker (une table des topics),
+ * l'arbre des familles de topics @see message.SubscriptionTrie et un parcours
+ * de tous les abonnements avec jokers, qui serait nécéssaire sans l'arbre.
+ * 
+ * Les topics ont trois niveaux "regionR.siteS.capteurC", les familles sont de
+ * la forme "regionR.*.capteurC" ou "regionR.siteS.#".
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TopicTrieBenchmark {
+
+	/**
+	 * Nombre de recherches par mesure
+	 */
+	protected static final int LOOKUPS = 1_000_000;
+
+	/**
+	 * Nombre de valeurs du premier niveau des topics
+	 */
+	protected static final int REGIONS = 32;
+
+	/**
+	 * Nombre de valeurs du deuxième niveau des topics
+	 */
+	protected static final int SITES = 32;
+
+	/**
+	 * Nombre de valeurs du troisième niveau des topics
+	 */
+	protected static final int SENSORS = 32;
+
+	/**
+	 * Evite que les recherches soient supprimées par le JIT
+	 */
+	static volatile int sink;
+
+	/**
+	 * Créer un nom de topic aléatoire
+	 * 
+	 * @param random générateur aléatoire
+	 * @return le nom du topic
+	 */
+	static String topic(Random random) {
+		return "region" + random.nextInt(REGIONS) + ".site" + random.nextInt(SITES) + ".capteur"
+				+ random.nextInt(SENSORS);
+	}
+
+	/**
+	 * Créer une famille de topics aléatoire
+	 * 
+	 * @param random générateur aléatoire
+	 * @return le nom de la famille, avec des jokers
+	 */
+	static String pattern(Random random) {
+		if (random.nextBoolean())
+			return "region" + random.nextInt(REGIONS) + ".*.capteur" + random.nextInt(SENSORS);
+		return "region" + random.nextInt(REGIONS) + ".site" + random.nextInt(SITES) + ".#";
+	}
+
+	/**
+	 * Regarde si un topic fait partie d'une famille, niveau par niveau
+	 * 
+	 * @param pattern famille de topics
+	 * @param topic   topic
+	 * @return true si le topic fait partie de la famille
+	 */
+	static boolean matches(String[] pattern, String[] topic) {
+		for (int i = 0; i < pattern.length; i++) {
+			if (pattern[i].equals(SubscriptionTrie.MULTI_LEVEL))
+				return true;
+			if (i >= topic.length || !(pattern[i].equals(SubscriptionTrie.SINGLE_LEVEL) || pattern[i].equals(topic[i])))
+				return false;
+		}
+		return pattern.length == topic.length;
+	}
+
+	/**
+	 * Point d'entré du benchmark
+	 * 
+	 * @param args arguments du programme
+	 */
+	public static void main(String[] args) {
+		Random random = new Random(42);
+		String[] published = new String[1024];
+		for (int i = 0; i < published.length; i++)
+			published[i] = topic(random);
+
+		System.out.println("subscriptions\texact (ns)\ttrie (ns)\tscan (ns)");
+		for (int subscriptions : new int[] { 100, 1_000, 10_000, 100_000 }) {
+			// chemin exact : chaque abonné est abonné à un topic
+			Map<String, Map<String, MessageFilterI>> exact = new HashMap<>();
+			for (int i = 0; i < subscriptions; i++)
+				exact.computeIfAbsent(topic(random), k -> new HashMap<>()).put("sub" + i, null);
+			Map<String, FilterIndex> exactIndexes = new HashMap<>();
+			for (Map.Entry<String, Map<String, MessageFilterI>> e : exact.entrySet())
+				exactIndexes.put(e.getKey(), new FilterIndex(e.getValue()));
+
+			// familles de topics, dans l'arbre et dans une liste
+			SubscriptionTrie trie = new SubscriptionTrie();
+			List<String[]> scan = new ArrayList<>();
+			for (int i = 0; i < subscriptions; i++) {
+				String pattern = pattern(random);
+				trie.add(pattern, "sub" + i, null);
+				scan.add(SubscriptionTrie.levels(pattern));
+			}
+
+			// on mesure deux fois, la première sert à chauffer le JIT
+			long exactNs = 0, trieNs = 0, scanNs = 0;
+			for (int round = 0; round < 2; round++) {
+				long start = System.nanoTime();
+				for (int i = 0; i < LOOKUPS; i++) {
+					FilterIndex index = exactIndexes.get(published[i % published.length]);
+					sink += index == null ? 0 : 1;
+				}
+				exactNs = System.nanoTime() - start;
+
+				start = System.nanoTime();
+				for (int i = 0; i < LOOKUPS; i++)
+					sink += trie.match(published[i % published.length]).size();
+				trieNs = System.nanoTime() - start;
+
+				// le parcours est beaucoup plus lent, on fait moins de recherches
+				int scanLookups = Math.max(1000, LOOKUPS / subscriptions);
+				start = System.nanoTime();
+				for (int i = 0; i < scanLookups; i++) {
+					String[] levels = SubscriptionTrie.levels(published[i % published.length]);
+					for (String[] pattern : scan)
+						if (matches(pattern, levels))
+							sink++;
+				}
+				scanNs = (System.nanoTime() - start) * LOOKUPS / scanLookups;
+			}
+			System.out.printf("%d\t%.1f\t%.1f\t%.1f%n", subscriptions, exactNs / (double) LOOKUPS,
+					trieNs / (double) LOOKUPS, scanNs / (double) LOOKUPS);
+		}
+	}
+}
@@ -0,0 +1,120 @@
+package bench;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+
+import interfaces.MessageI;
+import message.BatchCodec;
+import message.BatchCodec.WireFormat;
+import message.Message;
+import message.Properties;
+
+/**
+ * Compare les formats d'envoi des lots entre Brokers @see message.BatchCodec :
+ * octets par message et temps d'encodage puis de décodage par message, pour
+ * plusieurs tailles de lots. Le format sérialisé est mesuré comme un appel
+ * distant le transmet : le tableau de messages et les topics dans un même flux.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class WireFormatBenchmark {
+
+	/**
+	 * Nombre de messages encodés à chaque mesure
+	 */
+	protected static final int MESSAGES = 200_000;
+
+	/**
+	 * Nombre de mesures ignorées, le temps que le code soit compilé
+	 */
+	protected static final int WARMUP = 2;
+
+	/**
+	 * Créer un lot de messages semblables à ceux d'un capteur
+	 * 
+	 * @param n nombre de messages
+	 * @return les messages
+	 */
+	static MessageI[] batch(int n) {
+		MessageI[] ms = new MessageI[n];
+		for (int i = 0; i < n; i++) {
+			Properties p = new Properties();
+			p.putProp("capteur", "salle-" + (i % 4));
+			p.putProp("temperature", 18.0 + i % 10);
+			p.putProp("sequence", i);
+			ms[i] = new Message(p, "mesure de température numéro " + i).setOrigin("broker0");
+		}
+		return ms;
+	}
+
+	/**
+	 * Encode un lot avec un format
+	 * 
+	 * @param format format d'encodage
+	 * @param ms     messages du lot
+	 * @param topics topics du lot
+	 * @return le lot encodé
+	 */
+	static byte[] encode(WireFormat format, MessageI[] ms, String[] topics) throws Exception {
+		if (format != WireFormat.SERIALIZED)
+			return BatchCodec.encode(ms, topics, format == WireFormat.COMPRESSED);
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+			oos.writeObject(ms);
+			oos.writeObject(topics);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Décode un lot avec un format
+	 * 
+	 * @param format format d'encodage
+	 * @param data   lot encodé
+	 * @return les messages du lot
+	 */
+	static MessageI[] decode(WireFormat format, byte[] data) throws Exception {
+		if (format != WireFormat.SERIALIZED)
+			return BatchCodec.decode(data).messages;
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+			MessageI[] ms = (MessageI[]) ois.readObject();
+			ois.readObject();
+			return ms;
+		}
+	}
+
+	/**
+	 * Point d'entré du benchmark
+	 * 
+	 * @param args arguments du programme
+	 */
+	public static void main(String[] args) throws Exception {
+		String[] topics = { "capteurs.temperature" };
+		System.out.println("batch\tformat\tbytes/msg\tencode (ns/msg)\tdecode (ns/msg)");
+		for (int size : new int[] { 1, 10, 100, 1000 }) {
+			MessageI[] ms = batch(size);
+			for (WireFormat format : WireFormat.values()) {
+				int rounds = MESSAGES / size;
+				long encodeTime = 0, decodeTime = 0, bytes = 0;
+				for (int run = 0; run <= WARMUP; run++) {
+					encodeTime = decodeTime = bytes = 0;
+					for (int i = 0; i < rounds; i++) {
+						long start = System.nanoTime();
+						byte[] data = encode(format, ms, topics);
+						long encoded = System.nanoTime();
+						decode(format, data);
+						decodeTime += System.nanoTime() - encoded;
+						encodeTime += encoded - start;
+						bytes += data.length;
+					}
+				}
+				long total = (long) rounds * size;
+				System.out.printf("%d\t%s\t%.1f\t%.0f\t%.0f%n", size, format, bytes / (double) total,
+						encodeTime / (double) total, decodeTime / (double) total);
+			}
+		}
+	}
+}
@@ -0,0 +1,241 @@
+package components;
+
+import java.util.ArrayDeque;
+
+import message.PoolStats;
+
+/**
+ * Limite le nombre de taches exécutées en même temps par un pool de threads
+ * d'un composant : un pool de threads BCM a une taille fixe, il est créé à la
+ * taille maximum et seuls {@link #getTarget()} de ses threads reçoivent des
+ * taches. Les taches en trop attendent dans une file, et chaque thread qui
+ * termine une tache prend la suivante sans repasser par le pool.
+ * 
+ * En mode adaptatif, {@link #adjust()} est appelée périodiquement et fait
+ * varier la taille cible selon la période écoulée : elle grandit quand des
+ * taches attendent plus longtemps qu'elles ne s'exécutent ou que la file
+ * dépasse la taille cible, et diminue vers le nombre de threads réellement
+ * occupés quand la file reste vide.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class AdaptivePool {
+
+	/**
+	 * Soumet une tache au pool de threads du composant
+	 */
+	public interface Dispatcher {
+		void dispatch(Runnable task) throws Exception;
+	}
+
+	// Tache en attente et sa date de soumission
+	private static class Pending {
+		final Runnable task;
+		final long submitted;
+
+		Pending(Runnable task, long submitted) {
+			this.task = task;
+			this.submitted = submitted;
+		}
+	}
+
+	/**
+	 * Nom du pool, pour les métriques
+	 */
+	protected final String name;
+
+	/**
+	 * Taille cible minimum
+	 */
+	protected final int min;
+
+	/**
+	 * Taille cible maximum : nombre de threads du pool de threads du composant
+	 */
+	protected final int max;
+
+	/**
+	 * Vrai si la taille cible varie avec la charge
+	 */
+	protected final boolean adaptive;
+
+	// Soumet les taches au pool de threads du composant
+	private final Dispatcher dispatcher;
+	// Taches en attente d'un thread
+	private final ArrayDeque<Pending> pending = new ArrayDeque<>();
+	// Nombre de threads qui peuvent recevoir des taches
+	private int target;
+	// Nombre de threads occupés par des taches
+	private int running;
+	// Plus grand nombre de threads occupés de la période
+	private int peakRunning;
+	// Nombre de taches exécutées
+	private long completed;
+	// Nombre de taches exécutées pendant la période
+	private long periodCompleted;
+	// Attente cumulée des taches de la période, en nanosecondes
+	private long periodWait;
+	// Durée cumulée des taches de la période, en nanosecondes
+	private long periodRun;
+	// Moyennes de la dernière période, en millisecondes
+	private double averageWait;
+	private double averageRun;
+
+	/**
+	 * Constructeur de AdaptivePool
+	 * 
+	 * @param name       @see {@link #name}
+	 * @param initial    taille cible initiale, la taille fixe si le pool n'est pas
+	 *                   adaptatif
+	 * @param min        @see {@link #min}
+	 * @param max        @see {@link #max}
+	 * @param adaptive   @see {@link #adaptive}
+	 * @param dispatcher soumet une tache au pool de threads du composant, qui doit
+	 *                   avoir au moins max threads
+	 */
+	public AdaptivePool(String name, int initial, int min, int max, boolean adaptive, Dispatcher dispatcher) {
+		assert name != null;
+		assert 0 < min && min <= initial && initial <= max;
+		assert dispatcher != null;
+		this.name = name;
+		this.min = min;
+		this.max = max;
+		this.adaptive = adaptive;
+		this.dispatcher = dispatcher;
+		this.target = initial;
+	}
+
+	/**
+	 * Exécute une tache dès qu'un des threads de la taille cible est libre
+	 * 
+	 * @param task tache à exécuter
+	 */
+	public void submit(Runnable task) {
+		Pending p = new Pending(task, System.nanoTime());
+		synchronized (this) {
+			if (running >= target) {
+				pending.add(p);
+				return;
+			}
+			running++;
+			peakRunning = Math.max(peakRunning, running);
+		}
+		start(p);
+	}
+
+	/**
+	 * Occupe un thread du pool du composant, qui exécute la tache puis les
+	 * taches en attente
+	 * 
+	 * @param first première tache du thread
+	 */
+	private void start(Pending first) {
+		try {
+			dispatcher.dispatch(() -> work(first));
+		} catch (Exception e) {
+			e.printStackTrace();
+			synchronized (this) {
+				running--;
+			}
+		}
+	}
+
+	/**
+	 * Exécute des taches tant qu'il y en a en attente et que le nombre de
+	 * threads occupés ne dépasse pas la taille cible
+	 * 
+	 * @param first première tache à exécuter
+	 */
+	private void work(Pending first) {
+		Pending p = first;
+		while (p != null) {
+			long start = System.nanoTime();
+			try {
+				p.task.run();
+			} catch (RuntimeException e) {
+				e.printStackTrace();
+			}
+			long end = System.nanoTime();
+			synchronized (this) {
+				completed++;
+				periodCompleted++;
+				periodWait += start - p.submitted;
+				periodRun += end - start;
+				if (running > target || pending.isEmpty()) {
+					running--;
+					p = null;
+				} else {
+					p = pending.poll();
+				}
+			}
+		}
+	}
+
+	/**
+	 * Fait varier la taille cible selon la charge de la période écoulée depuis
+	 * le dernier appel, ne fait que calculer les moyennes si le pool n'est pas
+	 * adaptatif
+	 * 
+	 * @return vrai si la taille cible a changé
+	 */
+	public boolean adjust() {
+		int toStart = 0;
+		boolean changed;
+		synchronized (this) {
+			int before = target;
+			if (periodCompleted > 0) {
+				averageWait = periodWait / 1e6 / periodCompleted;
+				averageRun = periodRun / 1e6 / periodCompleted;
+			}
+			if (adaptive) {
+				if (!pending.isEmpty() && (averageWait > averageRun || pending.size() >= target)) {
+					// les taches attendent plus qu'elles ne travaillent : plus de threads
+					target = Math.min(max, target + Math.max(1, target / 2));
+				} else if (pending.isEmpty() && peakRunning < target) {
+					// des threads sont restés inoccupés toute la période
+					target = Math.max(min, Math.max(peakRunning, target - Math.max(1, (target - peakRunning) / 2)));
+				}
+			}
+			// les nouveaux threads prennent les taches en attente
+			while (running + toStart < target && toStart < pending.size())
+				toStart++;
+			running += toStart;
+			peakRunning = running;
+			changed = target != before;
+			periodCompleted = 0;
+			periodWait = 0;
+			periodRun = 0;
+		}
+		for (int i = 0; i < toStart; i++) {
+			Pending p;
+			synchronized (this) {
+				p = pending.poll();
+				if (p == null)
+					running--;
+			}
+			if (p != null)
+				start(p);
+		}
+		return changed;
+	}
+
+	/**
+	 * Renvoie la taille cible
+	 * 
+	 * @return le nombre de threads qui peuvent recevoir des taches
+	 */
+	public synchronized int getTarget() {
+		return target;
+	}
+
+	/**
+	 * Renvoie l'état du pool
+	 * 
+	 * @return une copie des métriques du pool à cet instant
+	 */
+	public synchronized PoolStats getStats() {
+		return new PoolStats(name, max, target, running, pending.size(), averageWait, averageRun, completed);
+	}
+
+}
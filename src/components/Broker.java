@@ -1,13 +1,27 @@
 package components;
 
+import java.io.File;
+import java.io.IOException;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.HashMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.locks.ReentrantReadWriteLock;
-import java.util.stream.Collectors;
 
+import connectors.InterestConnector;
 import connectors.PublicationConnector;
 import connectors.ReceptionConnector;
 import fr.sorbonne_u.components.AbstractComponent;
@@ -15,6 +29,8 @@ import fr.sorbonne_u.components.annotations.OfferedInterfaces;
 import fr.sorbonne_u.components.annotations.RequiredInterfaces;
 import fr.sorbonne_u.components.exceptions.ComponentShutdownException;
 import fr.sorbonne_u.components.exceptions.ComponentStartException;
+import interfaces.InterestCI;
+import interfaces.InterestImplementationI;
 import interfaces.ManagementCI;
 import interfaces.ManagementImplementationI;
 import interfaces.MessageFilterI;
@@ -23,12 +39,34 @@ import interfaces.PublicationCI;
 import interfaces.PublicationsImplementationI;
 import interfaces.ReceptionCI;
 import interfaces.SubscriptionImplementationI;
+import message.BatchCodec;
+import message.BatchCodec.WireFormat;
+import message.FilterIndex;
+import message.InterestUpdate;
+import message.MappedLogTopicStorage;
+import message.OffHeapArena;
+import message.OffHeapTopicStorage;
+import message.OffHeapUsage;
+import message.PeerBatcher;
+import message.PoolStats;
+import message.PublishAck;
+import message.PublishTracker;
+import message.RemoteInterest;
+import message.ReplayPosition;
+import message.RetentionPolicy;
+import message.RingBuffer;
+import message.SeenCache;
+import message.SubscriberQueue;
+import message.SubscriptionTrie;
 import message.Topic;
+import port.BrokerInterestInboundPort;
+import port.BrokerInterestOutboundPort;
 import port.BrokerManagementInboundPort;
 import port.BrokerPublicationInboundPort;
 import port.BrokerPublicationOutboundPort;
 import port.BrokerReceptionOutboundPort;
 import utils.Log;
+import utils.VirtualThreads;
 
 /**
  * Classe representant le composant courtier
@@ -36,10 +74,10 @@ import utils.Log;
  * @author Bello Velly
  */
 
-@RequiredInterfaces(required = { ReceptionCI.class, PublicationCI.class })
-@OfferedInterfaces(offered = { ManagementCI.class, PublicationCI.class })
-public class Broker extends AbstractComponent
-		implements ManagementImplementationI, SubscriptionImplementationI, PublicationsImplementationI {
+@RequiredInterfaces(required = { ReceptionCI.class, PublicationCI.class, InterestCI.class })
+@OfferedInterfaces(offered = { ManagementCI.class, PublicationCI.class, InterestCI.class })
+public class Broker extends AbstractComponent implements ManagementImplementationI, SubscriptionImplementationI,
+		PublicationsImplementationI, InterestImplementationI {
 
 	/**
 	 * URI du composant
@@ -55,12 +93,29 @@ public class Broker extends AbstractComponent
 	 * URI du pool de threads d'envoie
 	 */
 	public static final String ENVOIE_EXECUTOR_URI = "envoie";
+	/**
+	 * URI du pool de threads qui ajuste la taille des pools adaptatifs
+	 */
+	public static final String POOLS_EXECUTOR_URI = "pools";
+
+	/**
+	 * Nombre maximum de messages envoyés à un subscriber en un seul appel
+	 * acceptMessage
+	 */
+	protected static final int DELIVERY_BATCH_SIZE = 100;
+
+	/**
+	 * Nombre d'appels acceptMessage effectués par une tache d'envoi avant de
+	 * laisser la place aux autres subscribers
+	 */
+	protected static final int DRAIN_ROUNDS = 10;
 
 	// ports du composant
 	/**
-	 * Ports de reception sortants sur lesquels on va envoyé les messages
+	 * Ports de reception sortants sur lesquels on va envoyé les messages, associés
+	 * à l'URI du port entrant du subscriber auquel ils sont connectés
 	 */
-	protected List<BrokerReceptionOutboundPort> brops = new ArrayList<>();
+	protected Map<String, BrokerReceptionOutboundPort> brops = new ConcurrentHashMap<>();
 
 	/**
 	 * Port de management entrant
@@ -78,24 +133,191 @@ public class Broker extends AbstractComponent
 	protected BrokerPublicationInboundPort bpip;
 
 	/**
-	 * Port de publication sortant pour transmettre les messages à un autre Broker
+	 * Publication en cours de traitement dans le pipeline @see #pipeline. Les
+	 * événements de l'anneau sont réutilisés : chaque étage remplit les champs
+	 * lus par les étages suivants
+	 */
+	protected static class PublishEvent {
+		// Messages et topics de la publication, déposés par le producteur
+		MessageI[] received;
+		String[] topics;
+		// Messages reçus pour la première fois, par l'étage append
+		MessageI[] fresh;
+		// Index des filtres de chaque topic au moment de l'ajout, par l'étage append
+		FilterIndex[] indexes = new FilterIndex[1];
+		// Messages acceptés par chaque subscriber, par l'étage match
+		final Map<String, List<MessageI>> matches = new LinkedHashMap<>();
+		// Suivi de la publication si le publieur attend un acquittement, déposé par
+		// le producteur
+		PublishTracker tracker;
+		// Erreur d'un étage, la publication n'est alors pas envoyée
+		RuntimeException failure;
+	}
+
+	/**
+	 * Lien vers un autre Broker : ports sortants de publication et d'annonces
+	 */
+	protected static class Peer {
+		/**
+		 * URI du port entrant de publication de l'autre Broker
+		 */
+		protected final String bpipURI;
+		/**
+		 * Port de publication sortant pour transmettre les messages
+		 */
+		protected final BrokerPublicationOutboundPort bpop;
+		/**
+		 * Port sortant des annonces d'abonnements
+		 */
+		protected final BrokerInterestOutboundPort biop;
+		/**
+		 * Lots de messages en attente d'envoi sur {@link #bpop}
+		 */
+		protected final PeerBatcher batcher;
+
+		/**
+		 * Constructeur de Peer
+		 * 
+		 * @param bpipURI @see {@link #bpipURI}
+		 * @param bpop    @see {@link #bpop}
+		 * @param biop    @see {@link #biop}
+		 * @param batcher @see {@link #batcher}
+		 */
+		protected Peer(String bpipURI, BrokerPublicationOutboundPort bpop, BrokerInterestOutboundPort biop,
+				PeerBatcher batcher) {
+			this.bpipURI = bpipURI;
+			this.bpop = bpop;
+			this.biop = biop;
+			this.batcher = batcher;
+		}
+	}
+
+	/**
+	 * Liens vers les Brokers auxquels les messages peuvent être transférés,
+	 * associés à l'URI du Broker dans la topologie, ou à l'URI de son port de
+	 * publication sans topologie
+	 */
+	protected final Map<String, Peer> peers = new LinkedHashMap<>();
+
+	/**
+	 * Topologie des Brokers, null si le Broker transmet tout à un seul Broker
+	 */
+	protected BrokerTopology topology;
+
+	/**
+	 * Port entrant des annonces d'abonnements des autres Brokers @see
+	 * #interestPortURI(String)
+	 */
+	protected BrokerInterestInboundPort biip;
+
+	/**
+	 * Abonnements des autres Brokers, seuls les messages qui les intéressent leur
+	 * sont transférés
+	 */
+	protected final RemoteInterest remoteInterest = new RemoteInterest();
+
+	/**
+	 * Version de la dernière annonce d'abonnement envoyée
+	 */
+	protected final AtomicLong interestVersion = new AtomicLong();
+
+	/**
+	 * URIs des messages reçus récemment, pour ne pas livrer ni transmettre deux
+	 * fois un message qui revient après un tour des Brokers
 	 */
-	protected BrokerPublicationOutboundPort bpop;
+	protected final SeenCache seen;
 
 	/**
-	 * Verrou pour @see {@link #topics}
+	 * Verrou pour les modifications des abonnements et de @see {@link #brops}
 	 */
 	protected final ReentrantReadWriteLock lock;
 
 	/**
-	 * Topics du broker <identifiant du topic, topic>
+	 * Topics du broker <identifiant du topic, topic>, chaque topic possède son
+	 * propre verrou @see message.Topic
+	 */
+	protected Map<String, Topic> topics = new ConcurrentHashMap<>();
+
+	/**
+	 * Abonnements à des familles de topics avec des jokers, ils s'appliquent aussi
+	 * aux topics créés plus tard
+	 */
+	protected final SubscriptionTrie patterns = new SubscriptionTrie();
+
+	/**
+	 * Paramètres de déploiement du Broker
+	 */
+	protected final BrokerConfiguration configuration;
+
+	/**
+	 * Mémoire hors du tas partagée par les stockages des topics, null si les
+	 * messages sont conservés sur le tas ou sur le disque
+	 */
+	protected final OffHeapArena offHeap;
+
+	/**
+	 * Files bornées des messages en attente d'envoi, associées à l'URI du port
+	 * entrant du subscriber. Chaque file est vidée par une seule tache à la fois
+	 */
+	protected Map<String, SubscriberQueue> queues = new ConcurrentHashMap<>();
+
+	/**
+	 * Taches du pool d'envoi, limitées à sa taille cible
+	 */
+	protected final AdaptivePool envoiePool;
+
+	/**
+	 * Taches du pool de reception, limitées à sa taille cible
+	 */
+	protected final AdaptivePool receptionPool;
+
+	/**
+	 * Threads virtuels sur lesquels les files des subscribers sont vidées, null
+	 * si elles sont vidées sur le pool d'envoi
+	 */
+	protected final ExecutorService deliveryThreads;
+
+	/**
+	 * Pipeline des publications : les publications sont déposées dans un anneau
+	 * et traitées par des étages (ajout aux topics, transmission aux Brokers
+	 * voisins, recherche des subscribers, envoi) qui ont chacun leur thread, null
+	 * si chaque publication est une tache du pool de reception
+	 */
+	protected final RingBuffer<PublishEvent> pipeline;
+
+	/**
+	 * Vrai une fois le Broker finalisé, les publications sont alors refusées
+	 */
+	protected volatile boolean closed;
+
+	// Messages accumulés pour chaque subscriber sur un lot d'événements, utilisé
+	// seulement par l'étage dispatch
+	private final Map<String, List<MessageI>> dispatchBatch = new LinkedHashMap<>();
+	// Publications du lot d'événements qui attendent un acquittement, utilisé
+	// seulement par l'étage dispatch
+	private final List<PublishTracker> dispatchTrackers = new ArrayList<>();
+
+	/**
+	 * Suivi des publications qui attendent l'envoi de leurs messages, associé à
+	 * l'URI de chaque message @see PublishTracker
+	 */
+	protected final Map<String, PublishTracker> deliveryTrackers = new ConcurrentHashMap<>();
+
+	/**
+	 * Ajustement périodique des pools adaptatifs, null si les pools ont une
+	 * taille fixe
 	 */
-	protected Map<String, Topic> topics = new HashMap<>();
+	protected ScheduledFuture<?> poolAdjustment;
 
 	/**
-	 * URI du port de Broker vers lequel les messages seront transférés
+	 * Nombre d'appels acceptMessage effectués vers les subscribers
 	 */
-	protected String bpip2URI;
+	protected final AtomicLong deliveryCalls = new AtomicLong();
+
+	/**
+	 * Nombre de messages livrés aux subscribers
+	 */
+	protected final AtomicLong deliveredMessages = new AtomicLong();
 
 	/**
 	 * Constructeur de Broker, à utilisé si on crée un Broker qui ne transmet pas
@@ -108,6 +330,22 @@ public class Broker extends AbstractComponent
 	 * @param bpipURI  uri du port entrant de publication @see {@link #bpip}
 	 */
 	protected Broker(String uri, String bmipURI, String bmip2URI, String bpipURI) throws Exception {
+		this(uri, bmipURI, bmip2URI, bpipURI, new BrokerConfiguration());
+	}
+
+	/**
+	 * Constructeur de Broker, à utilisé si on crée un Broker qui ne transmet pas
+	 * ses Messages à un autre Broker
+	 * 
+	 * @param uri           @see {@link #myUri}
+	 * @param bmipURI       uri du port entrant de management @see {@link #bmip}
+	 * @param bmip2URI      uri du deuxieme port entrant de management @see
+	 *                      {@link #bmip2}
+	 * @param bpipURI       uri du port entrant de publication @see {@link #bpip}
+	 * @param configuration @see {@link #configuration}
+	 */
+	protected Broker(String uri, String bmipURI, String bmip2URI, String bpipURI, BrokerConfiguration configuration)
+			throws Exception {
 		super(uri, 1, 0);
 
 		this.tracer.setTitle(uri);
@@ -117,20 +355,47 @@ public class Broker extends AbstractComponent
 		assert bmipURI != null;
 		assert bmip2URI != null;
 		assert bpipURI != null;
+		assert configuration != null;
 
 		this.myUri = uri;
-
-		// Verrou pour la map, on permet plusieurs lectures simultanées, mais que une
-		// ecriture simultanée.
-		// De plus, si un écriture à lieu, on interdit toute lecture tans que celle-ci
-		// n'est pas finie
+		this.configuration = configuration;
+		this.seen = new SeenCache(configuration.getSeenCacheSize(), configuration.getSeenCacheTtl());
+		this.offHeap = configuration.getStorageDirectory() == null && configuration.getOffHeapCapacity() > 0
+				? new OffHeapArena(configuration.getOffHeapCapacity(), configuration.getOffHeapChunkSize())
+				: null;
+
+		// Verrou pour les abonnements et les ports vers les subscribers, les
+		// publications lisent ces structures concurrentes sans le prendre.
+		// Les topics sont protégés par leur propre verrou
 		this.lock = new ReentrantReadWriteLock();
 
-		// pool de threads pour l'envoie de messages vers des subscribers
-		this.createNewExecutorService(ENVOIE_EXECUTOR_URI, 4, false);
+		// pool de threads pour l'envoie de messages vers des subscribers et les
+		// autres Brokers, il doit pouvoir planifier des taches si les envois sont
+		// regroupés. Un pool adaptatif est créé à sa taille maximum, seule sa
+		// taille cible reçoit des taches
+		boolean adaptive = configuration.isAdaptivePools();
+		int envoieThreads = adaptive
+				? Math.max(configuration.getMaxPoolThreads(), configuration.getEnvoieThreads())
+				: configuration.getEnvoieThreads();
+		this.createNewExecutorService(ENVOIE_EXECUTOR_URI, envoieThreads,
+				configuration.getDeliveryLinger() > 0 || configuration.getPeerLinger() > 0);
+		this.envoiePool = new AdaptivePool(ENVOIE_EXECUTOR_URI, configuration.getEnvoieThreads(), 1, envoieThreads,
+				adaptive, task -> this.runTask(ENVOIE_EXECUTOR_URI, owner -> task.run()));
 		// pool de threads pour les requetes sur les ports entrant (management +
 		// messages reçus)
-		this.createNewExecutorService(RECEPTION_EXECUTOR_URI, 4, false);
+		int receptionThreads = adaptive
+				? Math.max(configuration.getMaxPoolThreads(), configuration.getReceptionThreads())
+				: configuration.getReceptionThreads();
+		this.createNewExecutorService(RECEPTION_EXECUTOR_URI, receptionThreads, false);
+		this.receptionPool = new AdaptivePool(RECEPTION_EXECUTOR_URI, configuration.getReceptionThreads(), 1,
+				receptionThreads, adaptive, task -> this.runTask(RECEPTION_EXECUTOR_URI, owner -> task.run()));
+		if (adaptive)
+			this.createNewExecutorService(POOLS_EXECUTOR_URI, 1, true);
+		// un thread virtuel par file de subscriber en cours d'envoi, si la jvm en
+		// fournit
+		this.deliveryThreads = configuration.isVirtualThreadDelivery() ? VirtualThreads.newExecutor(uri + "-envoi-")
+				: null;
+		this.pipeline = configuration.getPipelineSize() > 0 ? newPipeline(configuration.getPipelineSize()) : null;
 
 		// creation des ports
 		int executorServiceIndex = this.getExecutorServiceIndex(RECEPTION_EXECUTOR_URI);
@@ -140,6 +405,8 @@ public class Broker extends AbstractComponent
 		this.bmip2.publishPort();
 		this.bpip = new BrokerPublicationInboundPort(bpipURI, executorServiceIndex, this);
 		this.bpip.publishPort();
+		this.biip = new BrokerInterestInboundPort(interestPortURI(bpipURI), executorServiceIndex, this);
+		this.biip.publishPort();
 	}
 
 	/**
@@ -151,47 +418,101 @@ public class Broker extends AbstractComponent
 	 * @param bmip2URI uri du deuxieme port entrant de management @see
 	 *                 {@link #bmip2}
 	 * @param bpipURI  uri du port entrant de publication @see {@link #bpip}
-	 * @param bpopURI  uri du port sortant de publication @see {@link #bpop}
-	 * @param bpip2URI @see {@link #bpip2URI}
+	 * @param bpopURI  uri du port sortant de publication @see Peer#bpop
+	 * @param bpip2URI uri du port entrant de publication de l'autre Broker
 	 */
 	protected Broker(String uri, String bmipURI, String bmip2URI, String bpipURI, String bpopURI, String bpip2URI)
 			throws Exception {
-		super(uri, 1, 0);
+		this(uri, bmipURI, bmip2URI, bpipURI, bpopURI, bpip2URI, new BrokerConfiguration());
+	}
 
-		this.tracer.setTitle(uri);
-		this.tracer.setRelativePosition(0, 4);
+	/**
+	 * Constructeur de Broker, à utilisé si on crée un Broker qui transmet ses
+	 * Messages à un autre Broker
+	 * 
+	 * @param uri           @see {@link #myUri}
+	 * @param bmipURI       uri du port entrant de management @see {@link #bmip}
+	 * @param bmip2URI      uri du deuxieme port entrant de management @see
+	 *                      {@link #bmip2}
+	 * @param bpipURI       uri du port entrant de publication @see {@link #bpip}
+	 * @param bpopURI       uri du port sortant de publication @see Peer#bpop
+	 * @param bpip2URI      uri du port entrant de publication de l'autre Broker
+	 * @param configuration @see {@link #configuration}
+	 */
+	protected Broker(String uri, String bmipURI, String bmip2URI, String bpipURI, String bpopURI, String bpip2URI,
+			BrokerConfiguration configuration) throws Exception {
+		this(uri, bmipURI, bmip2URI, bpipURI, configuration);
 
 		// Verifications
-		assert bmipURI != null;
-		assert bmip2URI != null;
-		assert bpipURI != null;
 		assert bpopURI != null;
 		assert bpip2URI != null;
 
-		// Verrou pour la map, on permet plusieurs lectures simultanées, mais que une
-		// ecriture simultanée.
-		// De plus, si un écriture à lieu, on interdit toute lecture tans que celle-ci
-		// n'est pas finie
-		this.lock = new ReentrantReadWriteLock();
+		// creation des ports vers l'autre Broker
+		addPeer(bpip2URI, bpip2URI, new BrokerPublicationOutboundPort(bpopURI, this));
+	}
 
-		// pool de threads pour l'envoie de messages vers des subscribers
-		this.createNewExecutorService(ENVOIE_EXECUTOR_URI, 4, false);
-		// pool de threads pour les requetes sur les ports entrant (management +
-		// messages reçus)
-		this.createNewExecutorService(RECEPTION_EXECUTOR_URI, 4, false);
+	/**
+	 * Constructeur de Broker, à utilisé si on crée un Broker qui fait partie d'une
+	 * topologie de Brokers : il transmet ses messages aux Brokers auxquels il est
+	 * relié, le long de l'arbre des plus courts chemins partant du Broker
+	 * d'origine de chaque message
+	 * 
+	 * @param uri           @see {@link #myUri}
+	 * @param bmipURI       uri du port entrant de management @see {@link #bmip}
+	 * @param bmip2URI      uri du deuxieme port entrant de management @see
+	 *                      {@link #bmip2}
+	 * @param bpipURI       uri du port entrant de publication @see {@link #bpip}
+	 * @param topology      @see {@link #topology}, elle doit contenir ce Broker
+	 * @param configuration @see {@link #configuration}
+	 */
+	protected Broker(String uri, String bmipURI, String bmip2URI, String bpipURI, BrokerTopology topology,
+			BrokerConfiguration configuration) throws Exception {
+		this(uri, bmipURI, bmip2URI, bpipURI, configuration);
 
-		this.bpip2URI = bpip2URI;
+		// Verifications
+		assert topology != null;
+		assert bpipURI.equals(topology.getPublicationPortURI(uri));
 
-		// creation des ports
-		int executorServiceIndex = this.getExecutorServiceIndex(RECEPTION_EXECUTOR_URI);
-		this.bmip = new BrokerManagementInboundPort(bmipURI, executorServiceIndex, this);
-		this.bmip.publishPort();
-		this.bmip2 = new BrokerManagementInboundPort(bmip2URI, executorServiceIndex, this);
-		this.bmip2.publishPort();
-		this.bpip = new BrokerPublicationInboundPort(bpipURI, executorServiceIndex, this);
-		this.bpip.publishPort();
-		this.bpop = new BrokerPublicationOutboundPort(bpopURI, this);
-		this.bpop.localPublishPort();
+		this.topology = topology;
+
+		// creation des ports vers les Brokers voisins
+		for (String neighbour : topology.getLinks(uri))
+			addPeer(neighbour, topology.getPublicationPortURI(neighbour), new BrokerPublicationOutboundPort(this));
+	}
+
+	/**
+	 * Créer le lien vers un autre Broker avec ses ports sortants
+	 * 
+	 * @param key     clé du lien @see {@link #peers}
+	 * @param bpipURI uri du port entrant de publication de l'autre Broker
+	 * @param bpop    port sortant de publication vers l'autre Broker
+	 */
+	protected void addPeer(String key, String bpipURI, BrokerPublicationOutboundPort bpop) throws Exception {
+		bpop.localPublishPort();
+		BrokerInterestOutboundPort biop = new BrokerInterestOutboundPort(this);
+		biop.localPublishPort();
+		// le lot est envoyé par le pool d'envoi à la fin du délai de regroupement,
+		// sérialisé ou encodé selon la configuration
+		long linger = configuration.getPeerLinger();
+		WireFormat format = configuration.getPeerWireFormat();
+		PeerBatcher.Sender sender = format == WireFormat.SERIALIZED ? bpop::publish
+				: (ms, topics) -> bpop.publishBatch(BatchCodec.encode(ms, topics, format == WireFormat.COMPRESSED));
+		PeerBatcher batcher = new PeerBatcher(configuration.getPeerBatchSize(), configuration.getPeerBatchBytes(),
+				linger, sender, () -> this.scheduleTask(ENVOIE_EXECUTOR_URI, owner -> peers.get(key).batcher.flush(),
+						linger, TimeUnit.MILLISECONDS));
+		peers.put(key, new Peer(bpipURI, bpop, biop, batcher));
+	}
+
+	/**
+	 * Renvoie l'URI du port entrant des annonces d'abonnements d'un Broker, déduit
+	 * de celle de son port entrant de publication : un Broker qui transmet ses
+	 * messages à un autre connait ainsi aussi son port d'annonces
+	 * 
+	 * @param bpipURI uri du port entrant de publication du Broker
+	 * @return l'uri du port entrant des annonces du Broker
+	 */
+	public static String interestPortURI(String bpipURI) {
+		return bpipURI + "-interest";
 	}
 
 	/***********************************************************************
@@ -207,15 +528,28 @@ public class Broker extends AbstractComponent
 	 */
 	@Override
 	public void start() throws ComponentStartException {
-		// Connection sur un autre broker si nécéssaire
-		if (bpop != null)
+		// Connection sur les autres brokers si nécéssaire
+		for (Peer peer : peers.values())
 			try {
-				this.doPortConnection(bpop.getPortURI(), bpip2URI, PublicationConnector.class.getCanonicalName());
+				this.doPortConnection(peer.bpop.getPortURI(), peer.bpipURI,
+						PublicationConnector.class.getCanonicalName());
+				this.doPortConnection(peer.biop.getPortURI(), interestPortURI(peer.bpipURI),
+						InterestConnector.class.getCanonicalName());
 			} catch (Exception e) {
 				e.printStackTrace();
 				throw new ComponentStartException("can't connect brokers");
 			}
 		super.start();
+		if (pipeline != null)
+			pipeline.start(myUri + "-");
+		if (configuration.isVirtualThreadDelivery() && deliveryThreads == null)
+			Log.printAndLog(this, "threads virtuels indisponibles (JDK 21 requis), envoi sur le pool "
+					+ ENVOIE_EXECUTOR_URI);
+		if (configuration.isAdaptivePools()) {
+			long period = configuration.getPoolAdjustPeriod();
+			this.poolAdjustment = this.scheduleTaskAtFixedRate(POOLS_EXECUTOR_URI, owner -> adjustPools(), period,
+					period, TimeUnit.MILLISECONDS);
+		}
 	}
 
 	/**
@@ -225,12 +559,50 @@ public class Broker extends AbstractComponent
 	 */
 	@Override
 	public void finalise() throws Exception {
-		// Deconnection du port sur un autre Broker si nécéssaire
-		if (bpop != null)
-			this.doPortDisconnection(bpop.getPortURI());
+		closed = true;
+		// les publications déjà reçues traversent tout le pipeline avant l'arrêt
+		if (pipeline != null) {
+			pipeline.halt();
+			for (RingBuffer<PublishEvent>.Stage stage : pipeline.getStages())
+				Log.printAndLog(this, "pipeline : " + stage);
+		}
+		if (poolAdjustment != null)
+			poolAdjustment.cancel(false);
+		for (PoolStats stats : getPoolStats())
+			Log.printAndLog(this, stats.toString());
+		Log.printAndLog(this, "broker : " + deliveredMessages.get() + " messages livrés en " + deliveryCalls.get()
+				+ " appels acceptMessage");
+		// Deconnection des ports sur les autres Brokers si nécéssaire, après l'envoi
+		// des derniers lots
+		for (Map.Entry<String, Peer> entry : peers.entrySet()) {
+			Peer peer = entry.getValue();
+			PeerBatcher batcher = peer.batcher;
+			batcher.flush();
+			Log.printAndLog(this, "lien vers " + entry.getKey() + " : " + batcher.getSentMessages() + " messages en "
+					+ batcher.getFlushes() + " lots, " + String.format("%.1f", batcher.getAverageBatchSize())
+					+ " messages par lot en moyenne, " + batcher.getMaxBatchSize() + " au maximum, latence "
+					+ String.format("%.2f", batcher.getAverageFlushLatency()) + " ms en moyenne, "
+					+ String.format("%.2f", batcher.getMaxFlushLatency()) + " ms au maximum");
+			this.doPortDisconnection(peer.bpop.getPortURI());
+			this.doPortDisconnection(peer.biop.getPortURI());
+		}
 		// deconnection des ports vers les Subscriber
-		for (BrokerReceptionOutboundPort brop : brops)
+		for (BrokerReceptionOutboundPort brop : brops.values())
 			this.doPortDisconnection(brop.getPortURI());
+		for (Map.Entry<String, SubscriberQueue> entry : queues.entrySet()) {
+			SubscriberQueue queue = entry.getValue();
+			Log.printAndLog(this, "file de " + entry.getKey() + " : " + queue.getDepth() + " en attente, "
+					+ queue.getMaxDepth() + " au maximum, " + queue.getDropped() + " supprimés, " + queue.getSpilled()
+					+ " écrits sur le disque");
+			queue.close();
+		}
+		if (deliveryThreads != null)
+			deliveryThreads.shutdown();
+		// fermeture des stockages des topics, les journaux restent sur le disque
+		if (offHeap != null)
+			Log.printAndLog(this, "mémoire hors du tas : " + offHeap.getUsage());
+		for (Topic t : topics.values())
+			t.close();
 		super.finalise();
 	}
 
@@ -243,7 +615,7 @@ public class Broker extends AbstractComponent
 	public void shutdown() throws ComponentShutdownException {
 		try {
 			// Depublication du port sur un autre Broker si nécéssaire
-			for (BrokerReceptionOutboundPort brop : brops) {
+			for (BrokerReceptionOutboundPort brop : brops.values()) {
 				brop.unpublishPort();
 			}
 			removeRequiredInterface(ReceptionCI.class);
@@ -252,9 +624,13 @@ public class Broker extends AbstractComponent
 			bmip2.unpublishPort();
 			removeOfferedInterface(ManagementCI.class);
 			bpip.unpublishPort();
-			if (bpop != null)
-				bpop.unpublishPort();
+			biip.unpublishPort();
+			for (Peer peer : peers.values()) {
+				peer.bpop.unpublishPort();
+				peer.biop.unpublishPort();
+			}
 			removeOfferedInterface(PublicationCI.class);
+			removeOfferedInterface(InterestCI.class);
 
 		} catch (Exception e) {
 			throw new ComponentShutdownException(e);
@@ -270,7 +646,7 @@ public class Broker extends AbstractComponent
 	@Override
 	public void shutdownNow() throws ComponentShutdownException {
 		try {
-			for (BrokerReceptionOutboundPort brop : brops) {
+			for (BrokerReceptionOutboundPort brop : brops.values()) {
 				brop.unpublishPort();
 			}
 			removeRequiredInterface(ReceptionCI.class);
@@ -279,9 +655,13 @@ public class Broker extends AbstractComponent
 			bmip2.unpublishPort();
 			removeOfferedInterface(ManagementCI.class);
 			bpip.unpublishPort();
-			if (bpop != null)
-				bpop.unpublishPort();
+			biip.unpublishPort();
+			for (Peer peer : peers.values()) {
+				peer.bpop.unpublishPort();
+				peer.biop.unpublishPort();
+			}
 			removeOfferedInterface(PublicationCI.class);
+			removeOfferedInterface(InterestCI.class);
 		} catch (Exception e) {
 			throw new ComponentShutdownException(e);
 		}
@@ -299,13 +679,47 @@ public class Broker extends AbstractComponent
 	 */
 	@Override
 	public void createTopic(String topic) {
-		this.lock.writeLock().lock();
-		try {
-			if (!isTopic(topic))
-				topics.put(topic, new Topic());
-		} finally {
-			this.lock.writeLock().unlock();
+		topics.computeIfAbsent(topic, k -> newTopic(k, RetentionPolicy.UNLIMITED));
+	}
+
+	/**
+	 * @see interfaces.ManagementImplementationI#createTopic(String,
+	 *      RetentionPolicy)
+	 */
+	@Override
+	public void createTopic(String topic, RetentionPolicy retentionPolicy) {
+		// si le topic existe déjà (créé par une publication par exemple), on change
+		// sa politique
+		Topic t = topics.computeIfAbsent(topic, k -> newTopic(k, retentionPolicy));
+		if (t.getRetentionPolicy() != retentionPolicy)
+			t.setRetentionPolicy(retentionPolicy);
+	}
+
+	/**
+	 * Créer un topic, avec un stockage journalisé sur disque si un répertoire est
+	 * configuré @see BrokerConfiguration#getStorageDirectory(), hors du tas si une
+	 * mémoire est configurée @see BrokerConfiguration#getOffHeapCapacity(), en
+	 * mémoire sinon
+	 * 
+	 * @param topic           identifiant du topic
+	 * @param retentionPolicy politique de rétention des messages du topic
+	 * @return le topic créé
+	 */
+	protected Topic newTopic(String topic, RetentionPolicy retentionPolicy) {
+		String directory = configuration.getStorageDirectory();
+		if (directory != null) {
+			try {
+				File topicDirectory = new File(directory, URLEncoder.encode(topic, StandardCharsets.UTF_8.name()));
+				return new Topic(
+						new MappedLogTopicStorage(topicDirectory, configuration.getSegmentSize(), retentionPolicy));
+			} catch (IOException e) {
+				// on garde les messages en mémoire plutôt que de perdre le topic
+				e.printStackTrace();
+			}
 		}
+		if (offHeap != null)
+			return new Topic(new OffHeapTopicStorage(offHeap, retentionPolicy));
+		return new Topic(retentionPolicy);
 	}
 
 	/**
@@ -313,15 +727,8 @@ public class Broker extends AbstractComponent
 	 */
 	@Override
 	public void createTopics(String[] toCreate) {
-		this.lock.writeLock().lock();
-		try {
-			for (String topic : toCreate) {
-				if (!isTopic(topic))
-					topics.put(topic, new Topic());
-			}
-		} finally {
-			this.lock.writeLock().unlock();
-		}
+		for (String topic : toCreate)
+			createTopic(topic);
 	}
 
 	/**
@@ -329,11 +736,12 @@ public class Broker extends AbstractComponent
 	 */
 	@Override
 	public void destroyTopic(String topic) {
-		this.lock.writeLock().lock();
-		try {
-			topics.remove(topic);
-		} finally {
-			this.lock.writeLock().unlock();
+		Topic t = topics.remove(topic);
+		if (t != null) {
+			// les abonnements du topic disparaissent avec lui
+			for (String subscriber : t.getSubscribers())
+				announce(topic, subscriber, null, true);
+			t.destroy();
 		}
 	}
 
@@ -342,14 +750,7 @@ public class Broker extends AbstractComponent
 	 */
 	@Override
 	public boolean isTopic(String topic) {
-		boolean isTopic;
-		this.lock.readLock().lock();
-		try {
-			isTopic = topics.containsKey(topic);
-		} finally {
-			this.lock.readLock().unlock();
-		}
-		return isTopic;
+		return topics.containsKey(topic);
 	}
 
 	/**
@@ -357,15 +758,7 @@ public class Broker extends AbstractComponent
 	 */
 	@Override
 	public String[] getTopics() {
-		String[] sTopics;
-		this.lock.readLock().lock();
-		try {
-			Object[] topics = this.topics.keySet().toArray();
-			sTopics = Arrays.stream(topics).toArray(String[]::new);
-		} finally {
-			this.lock.readLock().unlock();
-		}
-		return sTopics;
+		return topics.keySet().toArray(new String[0]);
 	}
 
 	/**
@@ -376,103 +769,676 @@ public class Broker extends AbstractComponent
 		return bpip.getPortURI();
 	}
 
+	/**
+	 * @see interfaces.ManagementImplementationI#getOffHeapUsage()
+	 */
+	@Override
+	public OffHeapUsage getOffHeapUsage() {
+		return offHeap == null ? OffHeapUsage.NONE : offHeap.getUsage();
+	}
+
 	/**
 	 * @see interfaces.PublicationsImplementationI#publish(MessageI[], String[])
 	 */
 	@Override
-	public void publish(MessageI[] ms, String[] topics) {
+	public void publish(MessageI[] received, String[] topics) {
+		publish(received, topics, null);
+	}
+
+	/**
+	 * Publie des messages sur des topics et suit la publication jusqu'au niveau
+	 * d'acquittement demandé par le publieur
+	 * 
+	 * @param received messages reçus
+	 * @param topics   topics de la publication
+	 * @param tracker  suivi de la publication, null si le publieur n'attend pas
+	 *                 d'acquittement
+	 * @throws IllegalStateException si le Broker est finalisé
+	 */
+	public void publish(MessageI[] received, String[] topics, PublishTracker tracker) {
 		Log.printAndLog(this, "broker reçoit, thread : " + Thread.currentThread().getId());
+		if (closed)
+			reject(tracker);
 
-		// si on est connecté a un autre Broker, on lui transmet les messages
-		// on enleve tout les messages qu'on a deja réçu une fois des messages à
-		// transmettre
-		// pour éviter un cycle de transmission (si on les à deja eu, ils sont deja
-		// passer
-		// par tout les autres Broker)
-		if (bpop != null) {
-			// on envoie les message
-			if (ms.length > 0)
-				this.runTask(ENVOIE_EXECUTOR_URI, owner -> {
-					try {
-						Log.printAndLog(this, "broker transmet, thread : " + Thread.currentThread().getId());
-						List<MessageI> new_ms = Arrays.asList(ms);
-						// on enlève les messages déjà reçu
-						new_ms = new_ms.stream().filter(message -> {
-							try {
-								return !(message.containsBroker(this.myUri));
-							} catch (Exception e1) {
-								return false;
-							}
-						}).collect(Collectors.toList());
-						// on marque les autres comme deja reçu pour ce Broker
-						new_ms = new_ms.stream().map(message -> {
-							try {
-								return message.addBroker(this.myUri);
-							} catch (Exception e) {
-								e.printStackTrace();
-								return null;
-							}
-						}).collect(Collectors.toList());
-						// on transmet les messages
-						bpop.publish(new_ms.toArray(new MessageI[] {}), topics);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
-				});
+		// avec le pipeline, la publication est seulement déposée dans l'anneau, les
+		// étages la traitent sur leurs propres threads
+		if (pipeline != null) {
+			long sequence;
+			try {
+				sequence = pipeline.next();
+			} catch (IllegalStateException e) {
+				// l'anneau est arrêté par la finalisation du Broker
+				reject(tracker);
+				return;
+			}
+			PublishEvent event = pipeline.get(sequence);
+			event.received = received;
+			event.topics = topics;
+			event.tracker = tracker;
+			event.failure = null;
+			pipeline.publish(sequence);
+			return;
 		}
 
-		// on créer les topic si nécéssaire
-		for (String topic : topics)
-			this.createTopic(topic);
-
-		this.lock.writeLock().lock();
+		// l'acquittement est complété par l'erreur si la publication échoue, le
+		// publieur ne l'attend pas jusqu'au délai
 		try {
-			// on publie les messages dans les topics
+			// on ignore les messages déjà reçus : ils ont fait le tour des Brokers qui les
+			// attendaient, ils ne sont ni livrés ni transmis une deuxième fois
+			MessageI[] ms = unseen(received);
+			if (ms.length == 0) {
+				if (tracker != null) {
+					tracker.appended(0);
+					tracker.seal();
+				}
+				return;
+			}
+
+			// si on est connecté a d'autres Brokers, on leur transmet les messages qui
+			// intéressent les autres Brokers
+			if (!peers.isEmpty())
+				runEnvoieTask(() -> forward(ms, topics));
+
+			// messages acceptés par chaque subscriber, un subscriber abonné à plusieurs des
+			// topics ne reçoit les messages qu'une fois
+			Map<String, List<MessageI>> matches = new LinkedHashMap<>();
 			for (String topic : topics) {
-				for (MessageI m : ms)
-					this.topics.get(topic).addMessage(m);
+				// on créer le topic si nécéssaire, puis on y publie les messages : seul le
+				// verrou de ce topic est pris, les autres topics restent disponibles
+				Topic t = this.topics.computeIfAbsent(topic, k -> newTopic(k, RetentionPolicy.UNLIMITED));
+				collectMatches(topic, t.publish(ms), ms, matches);
 			}
+			if (tracker != null) {
+				tracker.appended(ms.length);
+				track(tracker, ms, matches);
+			}
+			for (Map.Entry<String, List<MessageI>> match : matches.entrySet())
+				deliver(match.getKey(), match.getValue());
+			if (tracker != null)
+				tracker.seal();
+		} catch (RuntimeException e) {
+			if (tracker != null)
+				tracker.fail(e);
+			throw e;
+		}
+	}
 
-			// list des subscribers à qui on a deja envoyé les messages
-			List<String> notifiedSubs = new ArrayList<>();
-
-			// on parcours les subscriber de chaque topics
-			for (String topic : topics)
-				for (String subscriber : this.topics.get(topic).getSubscribers())
-
-					// si il n'a pas deja reçu les messages
-					if (!notifiedSubs.contains(subscriber)) {
-						notifiedSubs.add(subscriber);
-						for (MessageI m : ms)
-
-							// on cherche le port associé au subscriber
-							for (BrokerReceptionOutboundPort brop : brops) {
-								try {
-									boolean urisEq = brop.getServerPortURI().equals(subscriber);
-									boolean filterOk = (this.topics.get(topic).getFilter(subscriber) == null
-											|| this.topics.get(topic).getFilter(subscriber).filter(m));
-
-									// on à le bon port
-									if (urisEq && filterOk) {
-
-										// on envoie le message
-										this.runTask(ENVOIE_EXECUTOR_URI, owner -> {
-											try {
-												Log.printAndLog(this,
-														"broker envoie, thread : " + Thread.currentThread().getId());
-												brop.acceptMessage(m);
-											} catch (Exception e) {
-												e.printStackTrace();
-											}
-										});
-									}
-								} catch (Exception e) {
-									e.printStackTrace();
-								}
-							}
-					}
+	/**
+	 * Refuse une publication reçue après la finalisation du Broker
+	 * 
+	 * @param tracker suivi de la publication, complété par l'erreur, null si le
+	 *                publieur n'attend pas d'acquittement
+	 * @throws IllegalStateException toujours
+	 */
+	protected void reject(PublishTracker tracker) {
+		IllegalStateException e = new IllegalStateException("broker " + myUri + " finalisé, publication refusée");
+		if (tracker != null)
+			tracker.fail(e);
+		throw e;
+	}
+
+	/**
+	 * Annonce les envois attendus par une publication qui attend l'envoi de ses
+	 * messages, avant qu'ils soient mis dans les files des subscribers
+	 * 
+	 * @param tracker suivi de la publication
+	 * @param ms      messages publiés, reçus pour la première fois
+	 * @param matches messages acceptés par chaque subscriber
+	 */
+	protected void track(PublishTracker tracker, MessageI[] ms, Map<String, List<MessageI>> matches) {
+		if (tracker.getLevel() != PublishAck.Level.DELIVERED)
+			return;
+		List<String> uris = new ArrayList<>(ms.length);
+		for (MessageI m : ms) {
+			try {
+				uris.add(m.getURI());
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		for (String uri : uris)
+			deliveryTrackers.put(uri, tracker);
+		for (List<MessageI> delivered : matches.values())
+			tracker.expect(delivered.size());
+		// le suivi est retiré une fois la publication acquittée
+		tracker.getAcknowledgement().whenComplete((ack, error) -> {
+			for (String uri : uris)
+				deliveryTrackers.remove(uri, tracker);
+		});
+	}
+
+	/**
+	 * Compte les envois de messages dans le suivi de leur publication, si elle
+	 * attend un acquittement
+	 * 
+	 * @param ms        messages envoyés à un subscriber ou supprimés
+	 * @param delivered vrai si les messages ont été envoyés, faux s'ils ont été
+	 *                  supprimés
+	 */
+	protected void acknowledge(List<MessageI> ms, boolean delivered) {
+		if (deliveryTrackers.isEmpty())
+			return;
+		for (MessageI m : ms) {
+			try {
+				PublishTracker tracker = deliveryTrackers.get(m.getURI());
+				if (tracker == null)
+					continue;
+				if (delivered)
+					tracker.delivered(1);
+				else
+					tracker.dropped(1);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	/**
+	 * Cherche les subscribers intéressés par des messages publiés sur un topic
+	 * 
+	 * @param topic   topic de la publication
+	 * @param index   index des filtres du topic au moment de l'ajout des messages
+	 * @param ms      messages publiés
+	 * @param matches messages acceptés par chaque subscriber, complété par les
+	 *                subscribers qui n'y sont pas encore
+	 */
+	protected void collectMatches(String topic, FilterIndex index, MessageI[] ms,
+			Map<String, List<MessageI>> matches) {
+		// on cherche les subscribers intéressés dans l'index des filtres du topic, avec
+		// les messages que chacun accepte. Si il a deja reçu les messages, on passe au
+		// suivant
+		for (Map.Entry<String, List<MessageI>> match : index.match(ms).entrySet())
+			matches.putIfAbsent(match.getKey(), match.getValue());
+		// puis les subscribers abonnés à une famille qui contient le topic, le coût
+		// dépend de la profondeur du topic et non du nombre d'abonnements
+		for (FilterIndex pattern : patterns.match(topic)) {
+			for (Map.Entry<String, List<MessageI>> match : pattern.match(ms).entrySet())
+				matches.putIfAbsent(match.getKey(), match.getValue());
+		}
+	}
+
+	/**
+	 * Crée le pipeline des publications. L'étage append retire les messages déjà
+	 * reçus et les ajoute aux topics, puis les étages forward et match travaillent
+	 * en parallèle sur ses résultats : forward transmet les messages aux Brokers
+	 * voisins, match cherche les subscribers intéressés. L'étage dispatch regroupe
+	 * les messages de chaque subscriber sur tout un lot de publications avant de
+	 * les mettre dans sa file
+	 * 
+	 * @param size nombre de cases de l'anneau, une puissance de 2
+	 * @return le pipeline, démarré avec le composant
+	 */
+	protected RingBuffer<PublishEvent> newPipeline(int size) {
+		RingBuffer<PublishEvent> ring = new RingBuffer<>(size, PublishEvent::new);
+		RingBuffer<PublishEvent>.Stage append = ring.addStage("append", (e, sequence, end) -> append(e));
+		ring.addStage("forward", (e, sequence, end) -> {
+			if (!peers.isEmpty() && e.fresh.length > 0)
+				forward(e.fresh, e.topics);
+		}, append);
+		RingBuffer<PublishEvent>.Stage match = ring.addStage("match", (e, sequence, end) -> match(e), append);
+		ring.addStage("dispatch", (e, sequence, end) -> dispatch(e, end), match);
+		return ring;
+	}
+
+	/**
+	 * Etage append du pipeline : retire les messages déjà reçus et ajoute les
+	 * autres aux topics de la publication
+	 * 
+	 * @param e publication
+	 */
+	protected void append(PublishEvent e) {
+		try {
+			e.fresh = unseen(e.received);
+			e.received = null;
+			if (e.fresh.length == 0) {
+				if (e.tracker != null)
+					e.tracker.appended(0);
+				return;
+			}
+			if (e.indexes.length < e.topics.length)
+				e.indexes = new FilterIndex[e.topics.length];
+			for (int i = 0; i < e.topics.length; i++) {
+				Topic t = this.topics.computeIfAbsent(e.topics[i], k -> newTopic(k, RetentionPolicy.UNLIMITED));
+				e.indexes[i] = t.publish(e.fresh);
+			}
+			if (e.tracker != null)
+				e.tracker.appended(e.fresh.length);
+		} catch (RuntimeException x) {
+			// l'erreur est transmise à l'étage dispatch, qui complète l'acquittement
+			e.failure = x;
+			throw x;
+		}
+	}
+
+	/**
+	 * Etage match du pipeline : cherche les subscribers intéressés par les
+	 * messages de la publication
+	 * 
+	 * @param e publication dont les messages ont été ajoutés aux topics
+	 */
+	protected void match(PublishEvent e) {
+		e.matches.clear();
+		if (e.failure != null || e.fresh.length == 0)
+			return;
+		try {
+			for (int i = 0; i < e.topics.length; i++)
+				collectMatches(e.topics[i], e.indexes[i], e.fresh, e.matches);
+		} catch (RuntimeException x) {
+			e.matches.clear();
+			e.failure = x;
+			throw x;
+		}
+	}
+
+	/**
+	 * Etage dispatch du pipeline : accumule les messages de chaque subscriber et
+	 * les met dans sa file à la fin du lot d'événements disponibles. Une
+	 * publication en erreur dans un étage précédent n'est pas envoyée, son
+	 * acquittement est complété par l'erreur. Le thread de l'étage est commun à
+	 * tous les subscribers : avec la politique BLOCK, il n'attend de la place
+	 * dans les files qu'un temps borné pour tout le lot, puis écrit les messages
+	 * sur le disque @see BrokerConfiguration#getDispatchBlockWait(). C'est le
+	 * publieur, en attente de son acquittement, qui est ralenti, et pas les
+	 * autres subscribers
+	 * 
+	 * @param e          publication dont les subscribers ont été cherchés
+	 * @param endOfBatch vrai si c'est le dernier événement du lot
+	 */
+	protected void dispatch(PublishEvent e, boolean endOfBatch) {
+		boolean sealed = false;
+		try {
+			if (e.failure != null) {
+				if (e.tracker != null)
+					e.tracker.fail(e.failure);
+			} else {
+				if (e.tracker != null) {
+					dispatchTrackers.add(e.tracker);
+					track(e.tracker, e.fresh, e.matches);
+				}
+				for (Map.Entry<String, List<MessageI>> match : e.matches.entrySet())
+					dispatchBatch.computeIfAbsent(match.getKey(), k -> new ArrayList<>()).addAll(match.getValue());
+			}
+			if (!endOfBatch)
+				return;
+			long deadline = System.currentTimeMillis() + configuration.getDispatchBlockWait();
+			for (Map.Entry<String, List<MessageI>> batch : dispatchBatch.entrySet())
+				deliver(batch.getKey(), batch.getValue(), Math.max(0, deadline - System.currentTimeMillis()));
+			for (PublishTracker tracker : dispatchTrackers)
+				tracker.seal();
+			sealed = true;
 		} finally {
-			this.lock.writeLock().unlock();
+			// si l'envoi du lot échoue, les publications du lot qui attendent un
+			// acquittement ne le reçoivent jamais : il est complété par l'erreur
+			if (!sealed && endOfBatch) {
+				for (PublishTracker tracker : dispatchTrackers)
+					tracker.fail(new IllegalStateException("envoi du lot interrompu"));
+			}
+			if (endOfBatch) {
+				dispatchBatch.clear();
+				dispatchTrackers.clear();
+			}
+		}
+	}
+
+	/**
+	 * Renvoie vrai si les publications passent par le pipeline @see #pipeline :
+	 * elles sont alors déposées dans l'anneau par le thread qui les reçoit
+	 * 
+	 * @return vrai si le Broker a un pipeline des publications
+	 */
+	public boolean hasPipeline() {
+		return pipeline != null;
+	}
+
+	/**
+	 * Renvoie le délai maximal d'attente de l'acquittement d'une publication
+	 * 
+	 * @return le délai en millisecondes @see BrokerConfiguration#getAckTimeout()
+	 */
+	public long getAckTimeout() {
+		return configuration.getAckTimeout();
+	}
+
+	/**
+	 * Renvoie les messages que le Broker n'a pas déjà reçus d'un Broker voisin
+	 * @see SeenCache, et retient leurs URIs. Le Broker qui reçoit un message de
+	 * son publieur devient son Broker d'origine. Seuls les messages transmis par
+	 * un autre Broker sont dédoublonnés : un publieur peut publier de nouveau un
+	 * message, sur un autre topic ou après un acquittement arrivé trop tard, il
+	 * est alors livré comme avant
+	 * 
+	 * @param ms messages reçus
+	 * @return les messages reçus pour la première fois, dans l'ordre
+	 */
+	protected MessageI[] unseen(MessageI[] ms) {
+		long now = System.currentTimeMillis();
+		List<MessageI> fresh = new ArrayList<>(ms.length);
+		for (MessageI m : ms) {
+			try {
+				String origin = m.getOrigin();
+				if (origin == null || origin.equals(this.myUri)) {
+					// publication locale
+					if (origin == null)
+						m.setOrigin(this.myUri);
+					fresh.add(m);
+				} else if (seen.add(m.getURI(), now)) {
+					fresh.add(m);
+				}
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		return fresh.size() == ms.length ? ms : fresh.toArray(new MessageI[0]);
+	}
+
+	/**
+	 * Transmet aux Brokers voisins les messages qui intéressent au moins un autre
+	 * Broker @see RemoteInterest. Chaque message n'est transmis que vers les
+	 * voisins qui mènent à un Broker intéressé @see #route(String, String), et pas
+	 * pour son Broker d'origine, qui l'a déjà livré. Les cycles de transmission
+	 * sont arrêtés par les Brokers qui l'ont déjà reçu @see #unseen(MessageI[])
+	 * 
+	 * @param candidates messages publiés, reçus pour la première fois
+	 * @param topics     topics de la publication
+	 */
+	protected void forward(MessageI[] candidates, String[] topics) {
+		Log.printAndLog(this, "broker transmet, thread : " + Thread.currentThread().getId());
+		try {
+			// messages à transmettre à chaque voisin, pour chaque topic
+			Map<String, Map<String, Set<MessageI>>> byPeer = new LinkedHashMap<>();
+			for (String topic : topics) {
+				for (Map.Entry<String, List<MessageI>> match : remoteInterest.match(topic, candidates).entrySet()) {
+					for (MessageI m : match.getValue()) {
+						String origin = m.getOrigin();
+						if (match.getKey().equals(origin))
+							continue;
+						for (String peer : route(origin, match.getKey()))
+							byPeer.computeIfAbsent(peer, k -> new LinkedHashMap<>())
+									.computeIfAbsent(topic, k -> Collections.newSetFromMap(new IdentityHashMap<>()))
+									.add(m);
+					}
+				}
+			}
+
+			for (Map.Entry<String, Map<String, Set<MessageI>>> peer : byPeer.entrySet()) {
+				// les topics qui ont les mêmes messages sont regroupés en une seule
+				// publication, les messages restent dans l'ordre
+				Map<List<MessageI>, List<String>> groups = new LinkedHashMap<>();
+				for (Map.Entry<String, Set<MessageI>> topic : peer.getValue().entrySet()) {
+					List<MessageI> toForward = new ArrayList<>(topic.getValue().size());
+					for (MessageI m : candidates)
+						if (topic.getValue().contains(m))
+							toForward.add(m);
+					groups.computeIfAbsent(toForward, k -> new ArrayList<>()).add(topic.getKey());
+				}
+				PeerBatcher batcher = peers.get(peer.getKey()).batcher;
+				for (Map.Entry<List<MessageI>, List<String>> group : groups.entrySet())
+					batcher.add(group.getKey().toArray(new MessageI[0]), group.getValue().toArray(new String[0]));
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Renvoie les voisins par lesquels transmettre un message pour qu'il atteigne
+	 * un Broker : le fils, dans l'arbre partant du Broker d'origine, dont le sous
+	 * arbre contient ce Broker. Sans topologie, le message est transmis à tous les
+	 * voisins
+	 * 
+	 * @param origin URI du Broker d'origine du message
+	 * @param broker URI du Broker à atteindre
+	 * @return les clés des voisins @see {@link #peers}
+	 */
+	protected Collection<String> route(String origin, String broker) {
+		if (topology == null)
+			return peers.keySet();
+		for (String next : topology.nextHops(this.myUri, origin))
+			if (topology.reachableThrough(next, origin).contains(broker))
+				return Collections.singletonList(next);
+		return Collections.emptyList();
+	}
+
+	/**
+	 * Renvoie les voisins auxquels transmettre ce qui part d'un Broker d'origine
+	 * pour atteindre tous les Brokers : les fils de ce Broker dans l'arbre partant
+	 * du Broker d'origine, ou tous les voisins sans topologie
+	 * 
+	 * @param origin URI du Broker d'origine
+	 * @return les clés des voisins @see {@link #peers}
+	 */
+	protected Collection<String> flood(String origin) {
+		if (topology == null)
+			return peers.keySet();
+		return topology.nextHops(this.myUri, origin);
+	}
+
+	/**
+	 * @see interfaces.InterestImplementationI#advertise(InterestUpdate)
+	 */
+	@Override
+	public void advertise(InterestUpdate update) {
+		// l'annonce a fait le tour des Brokers
+		if (update.getBroker().equals(this.myUri))
+			return;
+		// une annonce périmée n'est pas retransmise, les suivants ont déjà la
+		// nouvelle
+		if (remoteInterest.apply(update))
+			sendInterest(update);
+	}
+
+	/**
+	 * Annonce le changement d'un abonnement local aux autres Brokers
+	 * 
+	 * @param topic      topic de l'abonnement, avec des jokers pour une famille
+	 * @param subscriber URI du port entrant du subscriber
+	 * @param filter     filtre de l'abonnement, null pour aucun filtre
+	 * @param removed    true si l'abonnement est supprimé
+	 */
+	protected void announce(String topic, String subscriber, MessageFilterI filter, boolean removed) {
+		if (!peers.isEmpty())
+			sendInterest(new InterestUpdate(this.myUri, topic, subscriber, filter, removed,
+					interestVersion.incrementAndGet()));
+	}
+
+	/**
+	 * Envoie une annonce aux voisins qui la propagent depuis son Broker d'origine
+	 * @see #flood(String), sans attendre la réponse
+	 * 
+	 * @param update annonce à envoyer
+	 */
+	protected void sendInterest(InterestUpdate update) {
+		for (String peer : flood(update.getBroker())) {
+			BrokerInterestOutboundPort biop = peers.get(peer).biop;
+			runEnvoieTask(() -> {
+				try {
+					biop.advertise(update);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Renvoie les messages qui passent un filtre
+	 * 
+	 * @param filter filtre à appliquer, null pour accepter tous les messages
+	 * @param ms     messages à filtrer
+	 * @return les messages acceptés
+	 */
+	protected List<MessageI> accept(MessageFilterI filter, List<MessageI> ms) {
+		List<MessageI> accepted = new ArrayList<>(ms.size());
+		for (MessageI m : ms) {
+			try {
+				if (filter == null || filter.filter(m))
+					accepted.add(m);
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}
+		return accepted;
+	}
+
+	/**
+	 * Ajoute des messages à la file du subscriber, ils lui seront envoyés par la
+	 * tache qui vide sa file. Selon la politique de débordement, le publieur peut
+	 * attendre que la file se vide @see BrokerConfiguration#getOverflowPolicy()
+	 * 
+	 * @param subscriber URI du port entrant du subscriber
+	 * @param ms         messages à envoyer
+	 */
+	protected void deliver(String subscriber, List<MessageI> ms) {
+		deliver(subscriber, ms, -1);
+	}
+
+	/**
+	 * Ajoute des messages à la file du subscriber, en bornant l'attente de la
+	 * politique BLOCK @see SubscriberQueue#offer(List, long)
+	 * 
+	 * @param subscriber URI du port entrant du subscriber
+	 * @param ms         messages à envoyer
+	 * @param maxWait    délai maximal d'attente en millisecondes, négatif pour
+	 *                   attendre sans limite
+	 */
+	protected void deliver(String subscriber, List<MessageI> ms, long maxWait) {
+		// le subscriber a pu se désabonner entre temps
+		SubscriberQueue queue = queues.get(subscriber);
+		if (queue == null) {
+			acknowledge(ms, false);
+			return;
+		}
+		try {
+			acknowledge(queue.offer(ms, maxWait), false);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Lance la tache qui vide la file d'un subscriber : immédiatement, ou après le
+	 * délai de regroupement s'il est configuré, pour fusionner les messages de
+	 * publications successives
+	 * 
+	 * @param subscriber URI du port entrant du subscriber
+	 */
+	protected void startDrain(String subscriber) {
+		long linger = configuration.getDeliveryLinger();
+		if (linger <= 0)
+			runDelivery(subscriber);
+		else
+			this.scheduleTask(ENVOIE_EXECUTOR_URI, owner -> runDelivery(subscriber), linger, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Lance la tache qui vide la file d'un subscriber, sur un thread virtuel ou
+	 * sur le pool d'envoi
+	 * 
+	 * @param subscriber URI du port entrant du subscriber
+	 */
+	protected void runDelivery(String subscriber) {
+		if (deliveryThreads != null)
+			deliveryThreads.execute(() -> drain(subscriber));
+		else
+			runEnvoieTask(() -> drain(subscriber));
+	}
+
+	/**
+	 * Vide la file d'un subscriber par lots de {@link #DELIVERY_BATCH_SIZE}
+	 * messages. Sur le pool d'envoi, la tache est relancée après
+	 * {@link #DRAIN_ROUNDS} envois pour laisser la place aux autres subscribers ;
+	 * sur un thread virtuel, qui n'est partagé avec aucun autre subscriber, elle
+	 * continue jusqu'à ce que la file soit vide
+	 * 
+	 * @param subscriber URI du port entrant du subscriber
+	 */
+	protected void drain(String subscriber) {
+		SubscriberQueue queue = queues.get(subscriber);
+		BrokerReceptionOutboundPort brop = brops.get(subscriber);
+		if (queue == null || brop == null)
+			return;
+		for (int i = 0; deliveryThreads != null || i < DRAIN_ROUNDS; i++) {
+			List<MessageI> ms = queue.poll(DELIVERY_BATCH_SIZE);
+			if (ms.isEmpty())
+				return;
+			send(brop, ms.toArray(new MessageI[0]), true);
+		}
+		runDelivery(subscriber);
+	}
+
+	/**
+	 * Exécute une tache sur le pool d'envoi, dès qu'un thread de sa taille cible
+	 * est libre
+	 * 
+	 * @param task tache à exécuter
+	 */
+	protected void runEnvoieTask(Runnable task) {
+		envoiePool.submit(task);
+	}
+
+	/**
+	 * Exécute une tache sur le pool de reception, dès qu'un thread de sa taille
+	 * cible est libre. Utilisé par les ports entrants pour les publications
+	 * 
+	 * @param task tache à exécuter
+	 */
+	public void runReceptionTask(Runnable task) {
+		receptionPool.submit(task);
+	}
+
+	/**
+	 * Ajuste la taille cible des pools adaptatifs selon leur charge
+	 */
+	protected void adjustPools() {
+		for (AdaptivePool pool : new AdaptivePool[] { envoiePool, receptionPool })
+			if (pool.adjust())
+				Log.printAndLog(this, pool.getStats().toString());
+	}
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getPoolStats()
+	 */
+	@Override
+	public List<PoolStats> getPoolStats() {
+		return new ArrayList<>(List.of(envoiePool.getStats(), receptionPool.getStats()));
+	}
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getQueueDepths()
+	 */
+	@Override
+	public Map<String, Long> getQueueDepths() {
+		Map<String, Long> depths = new TreeMap<>();
+		for (Map.Entry<String, SubscriberQueue> entry : queues.entrySet())
+			depths.put(entry.getKey(), entry.getValue().getDepth());
+		return depths;
+	}
+
+	/**
+	 * Envoie des messages sur un port de reception en un seul appel
+	 * 
+	 * @param brop    port connecté au subscriber
+	 * @param ms      messages à envoyer
+	 * @param tracked vrai si les messages viennent de la file du subscriber et
+	 *                comptent pour l'acquittement de leur publication, faux pour
+	 *                un rejeu de l'historique
+	 */
+	protected void send(BrokerReceptionOutboundPort brop, MessageI[] ms, boolean tracked) {
+		try {
+			Log.printAndLog(this,
+					"broker envoie " + ms.length + " messages, thread : " + Thread.currentThread().getId());
+			if (ms.length == 1)
+				brop.acceptMessage(ms[0]);
+			else
+				brop.acceptMessage(ms);
+			deliveryCalls.incrementAndGet();
+			deliveredMessages.addAndGet(ms.length);
+			if (tracked)
+				acknowledge(Arrays.asList(ms), true);
+		} catch (Exception e) {
+			e.printStackTrace();
+			if (tracked)
+				acknowledge(Arrays.asList(ms), false);
 		}
 	}
 
@@ -509,54 +1475,161 @@ public class Broker extends AbstractComponent
 	 */
 	@Override
 	public void subscribe(String topic, String inboundPortURI) {
+		subscribe(topic, null, inboundPortURI);
+	}
+
+	/**
+	 * @see interfaces.SubscriptionImplementationI#subscribe(String[], String)
+	 */
+	@Override
+	public void subscribe(String[] topics, String inboundPortURI) {
+		for (String topic : topics)
+			subscribe(topic, inboundPortURI);
+	}
+
+	/**
+	 * @see interfaces.SubscriptionImplementationI#subscribe(String, MessageFilterI,
+	 *      String)
+	 */
+	@Override
+	public void subscribe(String topic, MessageFilterI filter, String inboundPortURI) {
+		this.lock.writeLock().lock();
+		try {
+			// une famille de topics n'est pas un topic, l'abonnement va dans l'arbre
+			if (SubscriptionTrie.isPattern(topic)) {
+				patterns.add(topic, inboundPortURI, filter);
+				connectSubscriber(inboundPortURI);
+				announce(topic, inboundPortURI, filter, false);
+				return;
+			}
+			// si le topic n'existe pas, on l'ajoute, puis on ajoute le subscriber au
+			// topic avec son filtre
+			topics.computeIfAbsent(topic, k -> newTopic(k, RetentionPolicy.UNLIMITED)).addSubscription(inboundPortURI,
+					filter);
+			connectSubscriber(inboundPortURI);
+			announce(topic, inboundPortURI, filter, false);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
 
+	/**
+	 * @see interfaces.SubscriptionImplementationI#subscribe(String, MessageFilterI,
+	 *      ReplayPosition, String)
+	 */
+	@Override
+	public void subscribe(String topic, MessageFilterI filter, ReplayPosition from, String inboundPortURI) {
+		// une famille de topics n'a pas d'historique
+		if (SubscriptionTrie.isPattern(topic)) {
+			subscribe(topic, filter, inboundPortURI);
+			return;
+		}
+		Topic t;
+		long[] range;
 		this.lock.writeLock().lock();
 		try {
-			// si le topic n'existe pas, on l'ajoute
-			if (!topics.containsKey(topic))
-				topics.put(topic, new Topic());
-			// on ajoute le subscriber au topic
-			topics.get(topic).addSubscription(inboundPortURI, null);
-
-			// on créer un port sortant et le lie a celui du subscriber si celui-ci n'existe
-			// pas déjà
+			t = topics.computeIfAbsent(topic, k -> newTopic(k, RetentionPolicy.UNLIMITED));
+			connectSubscriber(inboundPortURI);
+			// la file est mise en pause avant l'abonnement : les publications qui verront
+			// l'abonnement y attendront la fin de l'historique
+			SubscriberQueue queue = queues.get(inboundPortURI);
+			if (queue != null)
+				queue.pause();
+			range = t.addSubscription(inboundPortURI, filter, from);
+			announce(topic, inboundPortURI, filter, false);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+		runEnvoieTask(() -> replay(t, inboundPortURI, range[0], range[1]));
+	}
+
+	/**
+	 * Créer un port sortant et le lie a celui du subscriber, avec sa file
+	 * d'attente, si celui-ci n'existe pas déjà. Le verrou en écriture doit être
+	 * pris
+	 * 
+	 * @param inboundPortURI URI du port entrant du subscriber
+	 */
+	protected void connectSubscriber(String inboundPortURI) {
+		if (!brops.containsKey(inboundPortURI)) {
 			try {
 				BrokerReceptionOutboundPort brop = new BrokerReceptionOutboundPort(this);
-				boolean alreadyExists = false;
-				for (BrokerReceptionOutboundPort port : brops) {
-					if (port.getServerPortURI() != null && port.getServerPortURI().equals(inboundPortURI))
-						alreadyExists = true;
-				}
-				if (!alreadyExists) {
-					brop.localPublishPort();
-					brops.add(brop);
-				}
+				brop.localPublishPort();
 				this.doPortConnection(brop.getPortURI(), inboundPortURI, ReceptionConnector.class.getCanonicalName());
+				brops.put(inboundPortURI, brop);
+				queues.put(inboundPortURI, new SubscriberQueue(configuration.getQueueCapacity(),
+						configuration.getOverflowPolicy(), spillDirectory(inboundPortURI),
+						configuration.getPriorityAging(), () -> startDrain(inboundPortURI)));
 			} catch (Exception e) {
 				e.printStackTrace();
 			}
-		} finally {
-			this.lock.writeLock().unlock();
 		}
 	}
 
 	/**
-	 * @see interfaces.SubscriptionImplementationI#subscribe(String[], String)
+	 * Renvoie le répertoire où la file d'un subscriber écrit les messages qui
+	 * débordent
+	 * 
+	 * @param inboundPortURI URI du port entrant du subscriber
+	 * @return le répertoire, null pour un répertoire temporaire
 	 */
-	@Override
-	public void subscribe(String[] topics, String inboundPortURI) {
-		for (String topic : topics)
-			subscribe(topic, inboundPortURI);
+	protected File spillDirectory(String inboundPortURI) {
+		String directory = configuration.getStorageDirectory();
+		if (directory == null)
+			return null;
+		try {
+			String name = URLEncoder.encode(inboundPortURI, StandardCharsets.UTF_8.name());
+			return new File(new File(directory, "spill"), name);
+		} catch (IOException e) {
+			e.printStackTrace();
+			return null;
+		}
 	}
 
 	/**
-	 * @see interfaces.SubscriptionImplementationI#subscribe(String, MessageFilterI,
-	 *      String)
+	 * Envoie l'historique d'un topic à un subscriber par lots, puis les messages
+	 * publiés pendant le rejeu
+	 * 
+	 * @param t          topic rejoué
+	 * @param subscriber URI du port entrant du subscriber
+	 * @param from       offset du premier message à envoyer
+	 * @param to         offset de fin (exclus), les messages suivants sont envoyés
+	 *                   par les publications
 	 */
-	@Override
-	public void subscribe(String topic, MessageFilterI filter, String inboundPortURI) {
-		subscribe(topic, inboundPortURI);
-		modifyFilter(topic, filter, inboundPortURI);
+	protected void replay(Topic t, String subscriber, long from, long to) {
+		try {
+			long offset = from;
+			List<MessageI> batch = new ArrayList<>(DELIVERY_BATCH_SIZE);
+			while (offset < to) {
+				batch.clear();
+				long next = t.readMessages(offset, to, DELIVERY_BATCH_SIZE, batch);
+				// le subscriber a pu se désabonner entre temps
+				BrokerReceptionOutboundPort brop = brops.get(subscriber);
+				if (next <= offset || brop == null || !t.isSubscribed(subscriber))
+					break;
+				// un lot peut être vide si ses messages n'ont pas été conservés
+				offset = next;
+				List<MessageI> accepted = accept(t.getFilter(subscriber), batch);
+				if (!accepted.isEmpty())
+					// un message rejoué peut encore attendre dans la file d'un autre
+					// subscriber, l'acquittement de sa publication n'est pas modifié
+					send(brop, accepted.toArray(new MessageI[0]), false);
+			}
+		} finally {
+			endReplay(subscriber);
+		}
+	}
+
+	/**
+	 * Termine un rejeu : la file du subscriber reprend, les messages publiés
+	 * pendant le rejeu sont envoyés après l'historique
+	 * 
+	 * @param subscriber URI du port entrant du subscriber
+	 */
+	protected void endReplay(String subscriber) {
+		SubscriberQueue queue = queues.get(subscriber);
+		if (queue != null)
+			queue.resume();
 	}
 
 	/**
@@ -565,23 +1638,18 @@ public class Broker extends AbstractComponent
 	 */
 	@Override
 	public void modifyFilter(String topic, MessageFilterI newFilter, String inboundPortURI) {
-		// on recupère le topic
-		Topic t;
-		this.lock.readLock().lock();
-		try {
-			t = topics.get(topic);
-		} finally {
-			this.lock.readLock().unlock();
+		if (SubscriptionTrie.isPattern(topic)) {
+			patterns.add(topic, inboundPortURI, newFilter);
+			announce(topic, inboundPortURI, newFilter, false);
+			return;
 		}
+		// on recupère le topic
+		Topic t = topics.get(topic);
 
 		// si le topic existe, on change le filtre
 		if (t != null) {
-			this.lock.writeLock().lock();
-			try {
-				t.updateFilter(inboundPortURI, newFilter);
-			} finally {
-				this.lock.writeLock().unlock();
-			}
+			t.updateFilter(inboundPortURI, newFilter);
+			announce(topic, inboundPortURI, newFilter, false);
 		}
 	}
 
@@ -590,39 +1658,47 @@ public class Broker extends AbstractComponent
 	 */
 	@Override
 	public void unsubscribe(String topic, String inboundPortURI) {
-		Topic t;
+		boolean pattern = SubscriptionTrie.isPattern(topic);
 		// on récupère le topic
-		this.lock.readLock().lock();
-		try {
-			t = topics.get(topic);
-		} finally {
-			this.lock.readLock().unlock();
-		}
+		Topic t = topics.get(topic);
 
-		if (t != null) {
-			// on enlève le subscriber du topic
+		if (t != null || pattern) {
 			this.lock.writeLock().lock();
 			try {
-				t.removeSubscriber(inboundPortURI);
-			} finally {
-				this.lock.writeLock().unlock();
-			}
-
-			// on supprime le port lié au client
-			brops.removeIf(brop -> {
-				try {
-					if (brop.getClientPortURI().equals(inboundPortURI)) {
+				// on enlève le subscriber du topic, ou de la famille de topics
+				if (pattern)
+					patterns.remove(topic, inboundPortURI);
+				else
+					t.removeSubscriber(inboundPortURI);
+				announce(topic, inboundPortURI, null, true);
+
+				// on supprime le port lié au client s'il n'est plus abonné à aucun topic
+				for (Topic other : topics.values())
+					if (other.isSubscribed(inboundPortURI))
+						return;
+				if (patterns.contains(inboundPortURI))
+					return;
+				SubscriberQueue queue = queues.remove(inboundPortURI);
+				if (queue != null) {
+					// les messages encore dans la file ne seront pas envoyés, même si elle
+					// est en pause pendant un rejeu
+					if (!deliveryTrackers.isEmpty())
+						acknowledge(queue.drain(), false);
+					queue.close();
+				}
+				BrokerReceptionOutboundPort brop = brops.remove(inboundPortURI);
+				if (brop != null) {
+					try {
 						this.doPortDisconnection(brop.getPortURI());
 						brop.unpublishPort();
-						return true;
+					} catch (Exception e) {
+						e.printStackTrace();
 					}
-					return false;
-				} catch (Exception e) {
-					e.printStackTrace();
-					return false;
 				}
-			});
+			} finally {
+				this.lock.writeLock().unlock();
+			}
 		}
 	}
 
-}
\ No newline at end of file
+}
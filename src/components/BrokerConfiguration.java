@@ -0,0 +1,651 @@
+package components;
+
+import java.io.Serializable;
+
+import message.MappedLogTopicStorage;
+import message.OffHeapArena;
+import message.BatchCodec.WireFormat;
+import message.Priority;
+import message.SubscriberQueue.OverflowPolicy;
+
+/**
+ * Classe representant les paramètres de déploiement d'un Broker. Elle est
+ * passée au constructeur du Broker, qui peut être créé sur une autre jvm : elle
+ * doit donc rester sérialisable.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class BrokerConfiguration implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Délai (en millisecondes) pendant lequel les messages destinés à un même
+	 * subscriber sont regroupés avant d'être envoyés, 0 pour envoyer à chaque
+	 * publication
+	 */
+	protected long deliveryLinger = 0;
+
+	/**
+	 * Répertoire où sont journalisés les messages des topics, un sous répertoire
+	 * par topic @see message.MappedLogTopicStorage. null pour conserver les
+	 * messages en mémoire
+	 */
+	protected String storageDirectory = null;
+
+	/**
+	 * Taille (en octets) des segments des journaux des topics
+	 */
+	protected int segmentSize = MappedLogTopicStorage.DEFAULT_SEGMENT_SIZE;
+
+	/**
+	 * Mémoire maximum (en octets) hors du tas où sont conservés les messages des
+	 * topics @see message.OffHeapTopicStorage, si aucun répertoire n'est
+	 * configuré. 0 pour conserver les messages sur le tas
+	 */
+	protected long offHeapCapacity = 0;
+
+	/**
+	 * Taille (en octets) des blocs de la mémoire hors du tas
+	 */
+	protected int offHeapChunkSize = OffHeapArena.DEFAULT_CHUNK_SIZE;
+
+	/**
+	 * Nombre maximum de messages en attente en mémoire pour chaque subscriber
+	 * @see message.SubscriberQueue
+	 */
+	protected int queueCapacity = 10000;
+
+	/**
+	 * Politique appliquée quand la file d'un subscriber est pleine
+	 */
+	protected OverflowPolicy overflowPolicy = OverflowPolicy.BLOCK;
+
+	/**
+	 * Délai (en millisecondes) d'attente qui fait gagner un rang de priorité à un
+	 * message dans la file d'un subscriber, 0 pour un ordre strict des priorités
+	 * @see message.AgingQueue
+	 */
+	protected long priorityAging = Priority.DEFAULT_AGING;
+
+	/**
+	 * Nombre maximum d'URIs de messages retenues par le Broker pour reconnaître
+	 * un message qu'il a déjà reçu @see message.SeenCache
+	 */
+	protected int seenCacheSize = 100000;
+
+	/**
+	 * Durée (en millisecondes) pendant laquelle le Broker retient l'URI d'un
+	 * message reçu
+	 */
+	protected long seenCacheTtl = 60000;
+
+	/**
+	 * Délai (en millisecondes) pendant lequel les messages transmis à un même
+	 * Broker sont regroupés avant d'être envoyés, 0 pour envoyer à chaque
+	 * publication @see message.PeerBatcher
+	 */
+	protected long peerLinger = 0;
+
+	/**
+	 * Nombre de messages qui déclenche l'envoi d'un lot à un autre Broker
+	 */
+	protected int peerBatchSize = 500;
+
+	/**
+	 * Taille (en octets) qui déclenche l'envoi d'un lot à un autre Broker, 0 pour
+	 * ne pas mesurer les messages
+	 */
+	protected long peerBatchBytes = 0;
+
+	/**
+	 * Format des lots envoyés aux autres Brokers @see message.BatchCodec
+	 */
+	protected WireFormat peerWireFormat = WireFormat.SERIALIZED;
+
+	/**
+	 * Nombre de threads du pool d'envoi aux subscribers et aux autres Brokers,
+	 * taille initiale du pool s'il est adaptatif
+	 */
+	protected int envoieThreads = 4;
+
+	/**
+	 * Nombre de threads du pool de reception des requêtes, taille initiale du
+	 * pool s'il est adaptatif
+	 */
+	protected int receptionThreads = 4;
+
+	/**
+	 * Vrai si la taille des pools de threads varie avec la charge @see
+	 * AdaptivePool
+	 */
+	protected boolean adaptivePools = false;
+
+	/**
+	 * Nombre maximum de threads de chaque pool adaptatif
+	 */
+	protected int maxPoolThreads = Math.max(4, 2 * Runtime.getRuntime().availableProcessors());
+
+	/**
+	 * Période (en millisecondes) d'ajustement de la taille des pools adaptatifs
+	 */
+	protected long poolAdjustPeriod = 1000;
+
+	/**
+	 * Vrai pour vider la file de chaque subscriber sur un thread virtuel plutôt
+	 * que sur le pool d'envoi : un subscriber lent n'occupe alors aucun thread du
+	 * pool. Nécessite le JDK 21, le pool d'envoi est utilisé sinon @see
+	 * utils.VirtualThreads
+	 */
+	protected boolean virtualThreadDelivery = false;
+
+	/**
+	 * Nombre de cases (une puissance de 2) de l'anneau du pipeline des
+	 * publications @see message.RingBuffer, 0 pour traiter chaque publication par
+	 * une tache du pool de reception
+	 */
+	protected int pipelineSize = 0;
+
+	/**
+	 * Délai maximal d'attente de l'acquittement d'une publication @see
+	 * message.PublishAck, en millisecondes
+	 */
+	protected long ackTimeout = 30000;
+
+	/**
+	 * Délai maximal (en millisecondes) pendant lequel l'étage dispatch du
+	 * pipeline attend de la place dans les files des subscribers avec la
+	 * politique BLOCK, pour l'ensemble d'un lot : le thread de l'étage est commun
+	 * à tous les subscribers, un subscriber lent ou en pause ne doit pas arrêter
+	 * les autres. Passé ce délai, les messages sont écrits sur le disque @see
+	 * message.SubscriberQueue#offer(java.util.List, long)
+	 */
+	protected long dispatchBlockWait = 10;
+
+	/**
+	 * Renvoie le délai de regroupement des envois aux subscribers
+	 * 
+	 * @return le délai en millisecondes @see {@link #deliveryLinger}
+	 */
+	public long getDeliveryLinger() {
+		return deliveryLinger;
+	}
+
+	/**
+	 * Fixe le délai de regroupement des envois aux subscribers
+	 * 
+	 * @param deliveryLinger délai en millisecondes @see {@link #deliveryLinger}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setDeliveryLinger(long deliveryLinger) {
+		assert deliveryLinger >= 0;
+		this.deliveryLinger = deliveryLinger;
+		return this;
+	}
+
+	/**
+	 * Renvoie le répertoire des journaux des topics
+	 * 
+	 * @return @see {@link #storageDirectory}
+	 */
+	public String getStorageDirectory() {
+		return storageDirectory;
+	}
+
+	/**
+	 * Fixe le répertoire des journaux des topics
+	 * 
+	 * @param storageDirectory @see {@link #storageDirectory}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setStorageDirectory(String storageDirectory) {
+		this.storageDirectory = storageDirectory;
+		return this;
+	}
+
+	/**
+	 * Renvoie la taille des segments des journaux des topics
+	 * 
+	 * @return @see {@link #segmentSize}
+	 */
+	public int getSegmentSize() {
+		return segmentSize;
+	}
+
+	/**
+	 * Fixe la taille des segments des journaux des topics
+	 * 
+	 * @param segmentSize @see {@link #segmentSize}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setSegmentSize(int segmentSize) {
+		assert segmentSize > 0;
+		this.segmentSize = segmentSize;
+		return this;
+	}
+
+	/**
+	 * Renvoie la mémoire maximum hors du tas des messages des topics
+	 * 
+	 * @return la mémoire en octets @see {@link #offHeapCapacity}
+	 */
+	public long getOffHeapCapacity() {
+		return offHeapCapacity;
+	}
+
+	/**
+	 * Fixe la mémoire maximum hors du tas des messages des topics
+	 * 
+	 * @param offHeapCapacity mémoire en octets @see {@link #offHeapCapacity}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setOffHeapCapacity(long offHeapCapacity) {
+		assert offHeapCapacity == 0 || offHeapCapacity >= offHeapChunkSize;
+		this.offHeapCapacity = offHeapCapacity;
+		return this;
+	}
+
+	/**
+	 * Renvoie la taille des blocs de la mémoire hors du tas
+	 * 
+	 * @return @see {@link #offHeapChunkSize}
+	 */
+	public int getOffHeapChunkSize() {
+		return offHeapChunkSize;
+	}
+
+	/**
+	 * Fixe la taille des blocs de la mémoire hors du tas
+	 * 
+	 * @param offHeapChunkSize @see {@link #offHeapChunkSize}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setOffHeapChunkSize(int offHeapChunkSize) {
+		assert offHeapChunkSize > 0;
+		this.offHeapChunkSize = offHeapChunkSize;
+		return this;
+	}
+
+	/**
+	 * Renvoie la capacité de la file de chaque subscriber
+	 * 
+	 * @return @see {@link #queueCapacity}
+	 */
+	public int getQueueCapacity() {
+		return queueCapacity;
+	}
+
+	/**
+	 * Fixe la capacité de la file de chaque subscriber
+	 * 
+	 * @param queueCapacity @see {@link #queueCapacity}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setQueueCapacity(int queueCapacity) {
+		assert queueCapacity > 0;
+		this.queueCapacity = queueCapacity;
+		return this;
+	}
+
+	/**
+	 * Renvoie la politique de débordement des files des subscribers
+	 * 
+	 * @return @see {@link #overflowPolicy}
+	 */
+	public OverflowPolicy getOverflowPolicy() {
+		return overflowPolicy;
+	}
+
+	/**
+	 * Fixe la politique de débordement des files des subscribers
+	 * 
+	 * @param overflowPolicy @see {@link #overflowPolicy}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setOverflowPolicy(OverflowPolicy overflowPolicy) {
+		assert overflowPolicy != null;
+		this.overflowPolicy = overflowPolicy;
+		return this;
+	}
+
+	/**
+	 * Renvoie le délai de vieillissement des messages dans les files des
+	 * subscribers
+	 * 
+	 * @return le délai en millisecondes @see {@link #priorityAging}
+	 */
+	public long getPriorityAging() {
+		return priorityAging;
+	}
+
+	/**
+	 * Fixe le délai de vieillissement des messages dans les files des subscribers
+	 * 
+	 * @param priorityAging délai en millisecondes @see {@link #priorityAging}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setPriorityAging(long priorityAging) {
+		assert priorityAging >= 0;
+		this.priorityAging = priorityAging;
+		return this;
+	}
+
+	/**
+	 * Renvoie le nombre maximum d'URIs de messages déjà reçus retenues
+	 * 
+	 * @return @see {@link #seenCacheSize}
+	 */
+	public int getSeenCacheSize() {
+		return seenCacheSize;
+	}
+
+	/**
+	 * Fixe le nombre maximum d'URIs de messages déjà reçus retenues
+	 * 
+	 * @param seenCacheSize @see {@link #seenCacheSize}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setSeenCacheSize(int seenCacheSize) {
+		assert seenCacheSize > 0;
+		this.seenCacheSize = seenCacheSize;
+		return this;
+	}
+
+	/**
+	 * Renvoie la durée pendant laquelle l'URI d'un message reçu est retenue
+	 * 
+	 * @return la durée en millisecondes @see {@link #seenCacheTtl}
+	 */
+	public long getSeenCacheTtl() {
+		return seenCacheTtl;
+	}
+
+	/**
+	 * Fixe la durée pendant laquelle l'URI d'un message reçu est retenue
+	 * 
+	 * @param seenCacheTtl durée en millisecondes @see {@link #seenCacheTtl}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setSeenCacheTtl(long seenCacheTtl) {
+		assert seenCacheTtl > 0;
+		this.seenCacheTtl = seenCacheTtl;
+		return this;
+	}
+
+	/**
+	 * Renvoie le délai de regroupement des envois aux autres Brokers
+	 * 
+	 * @return le délai en millisecondes @see {@link #peerLinger}
+	 */
+	public long getPeerLinger() {
+		return peerLinger;
+	}
+
+	/**
+	 * Fixe le délai de regroupement des envois aux autres Brokers
+	 * 
+	 * @param peerLinger délai en millisecondes @see {@link #peerLinger}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setPeerLinger(long peerLinger) {
+		assert peerLinger >= 0;
+		this.peerLinger = peerLinger;
+		return this;
+	}
+
+	/**
+	 * Renvoie le nombre de messages qui déclenche l'envoi d'un lot à un autre
+	 * Broker
+	 * 
+	 * @return @see {@link #peerBatchSize}
+	 */
+	public int getPeerBatchSize() {
+		return peerBatchSize;
+	}
+
+	/**
+	 * Fixe le nombre de messages qui déclenche l'envoi d'un lot à un autre Broker
+	 * 
+	 * @param peerBatchSize @see {@link #peerBatchSize}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setPeerBatchSize(int peerBatchSize) {
+		assert peerBatchSize > 0;
+		this.peerBatchSize = peerBatchSize;
+		return this;
+	}
+
+	/**
+	 * Renvoie la taille qui déclenche l'envoi d'un lot à un autre Broker
+	 * 
+	 * @return la taille en octets @see {@link #peerBatchBytes}
+	 */
+	public long getPeerBatchBytes() {
+		return peerBatchBytes;
+	}
+
+	/**
+	 * Fixe la taille qui déclenche l'envoi d'un lot à un autre Broker
+	 * 
+	 * @param peerBatchBytes taille en octets @see {@link #peerBatchBytes}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setPeerBatchBytes(long peerBatchBytes) {
+		assert peerBatchBytes >= 0;
+		this.peerBatchBytes = peerBatchBytes;
+		return this;
+	}
+
+	/**
+	 * Renvoie le format des lots envoyés aux autres Brokers
+	 * 
+	 * @return @see {@link #peerWireFormat}
+	 */
+	public WireFormat getPeerWireFormat() {
+		return peerWireFormat;
+	}
+
+	/**
+	 * Fixe le format des lots envoyés aux autres Brokers
+	 * 
+	 * @param peerWireFormat @see {@link #peerWireFormat}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setPeerWireFormat(WireFormat peerWireFormat) {
+		assert peerWireFormat != null;
+		this.peerWireFormat = peerWireFormat;
+		return this;
+	}
+
+	/**
+	 * Renvoie le nombre de threads du pool d'envoi
+	 * 
+	 * @return @see {@link #envoieThreads}
+	 */
+	public int getEnvoieThreads() {
+		return envoieThreads;
+	}
+
+	/**
+	 * Fixe le nombre de threads du pool d'envoi
+	 * 
+	 * @param envoieThreads @see {@link #envoieThreads}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setEnvoieThreads(int envoieThreads) {
+		assert envoieThreads > 0;
+		this.envoieThreads = envoieThreads;
+		return this;
+	}
+
+	/**
+	 * Renvoie le nombre de threads du pool de reception
+	 * 
+	 * @return @see {@link #receptionThreads}
+	 */
+	public int getReceptionThreads() {
+		return receptionThreads;
+	}
+
+	/**
+	 * Fixe le nombre de threads du pool de reception
+	 * 
+	 * @param receptionThreads @see {@link #receptionThreads}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setReceptionThreads(int receptionThreads) {
+		assert receptionThreads > 0;
+		this.receptionThreads = receptionThreads;
+		return this;
+	}
+
+	/**
+	 * Renvoie vrai si la taille des pools varie avec la charge
+	 * 
+	 * @return @see {@link #adaptivePools}
+	 */
+	public boolean isAdaptivePools() {
+		return adaptivePools;
+	}
+
+	/**
+	 * Active ou désactive l'ajustement de la taille des pools
+	 * 
+	 * @param adaptivePools @see {@link #adaptivePools}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setAdaptivePools(boolean adaptivePools) {
+		this.adaptivePools = adaptivePools;
+		return this;
+	}
+
+	/**
+	 * Renvoie le nombre maximum de threads des pools adaptatifs
+	 * 
+	 * @return @see {@link #maxPoolThreads}
+	 */
+	public int getMaxPoolThreads() {
+		return maxPoolThreads;
+	}
+
+	/**
+	 * Fixe le nombre maximum de threads des pools adaptatifs
+	 * 
+	 * @param maxPoolThreads @see {@link #maxPoolThreads}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setMaxPoolThreads(int maxPoolThreads) {
+		assert maxPoolThreads > 0;
+		this.maxPoolThreads = maxPoolThreads;
+		return this;
+	}
+
+	/**
+	 * Renvoie la période d'ajustement des pools adaptatifs
+	 * 
+	 * @return la période en millisecondes @see {@link #poolAdjustPeriod}
+	 */
+	public long getPoolAdjustPeriod() {
+		return poolAdjustPeriod;
+	}
+
+	/**
+	 * Fixe la période d'ajustement des pools adaptatifs
+	 * 
+	 * @param poolAdjustPeriod période en millisecondes @see
+	 *                         {@link #poolAdjustPeriod}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setPoolAdjustPeriod(long poolAdjustPeriod) {
+		assert poolAdjustPeriod > 0;
+		this.poolAdjustPeriod = poolAdjustPeriod;
+		return this;
+	}
+
+	/**
+	 * Renvoie vrai si les files des subscribers sont vidées sur des threads
+	 * virtuels
+	 * 
+	 * @return @see {@link #virtualThreadDelivery}
+	 */
+	public boolean isVirtualThreadDelivery() {
+		return virtualThreadDelivery;
+	}
+
+	/**
+	 * Active ou désactive l'envoi aux subscribers sur des threads virtuels
+	 * 
+	 * @param virtualThreadDelivery @see {@link #virtualThreadDelivery}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setVirtualThreadDelivery(boolean virtualThreadDelivery) {
+		this.virtualThreadDelivery = virtualThreadDelivery;
+		return this;
+	}
+
+	/**
+	 * Renvoie la taille de l'anneau du pipeline des publications
+	 * 
+	 * @return @see {@link #pipelineSize}
+	 */
+	public int getPipelineSize() {
+		return pipelineSize;
+	}
+
+	/**
+	 * Fixe la taille de l'anneau du pipeline des publications
+	 * 
+	 * @param pipelineSize @see {@link #pipelineSize}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setPipelineSize(int pipelineSize) {
+		assert pipelineSize == 0 || (pipelineSize > 0 && Integer.bitCount(pipelineSize) == 1);
+		this.pipelineSize = pipelineSize;
+		return this;
+	}
+
+	/**
+	 * Renvoie le délai maximal d'attente de l'acquittement d'une publication
+	 * 
+	 * @return @see {@link #ackTimeout}
+	 */
+	public long getAckTimeout() {
+		return ackTimeout;
+	}
+
+	/**
+	 * Fixe le délai maximal d'attente de l'acquittement d'une publication
+	 * 
+	 * @param ackTimeout délai en millisecondes @see {@link #ackTimeout}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setAckTimeout(long ackTimeout) {
+		assert ackTimeout > 0;
+		this.ackTimeout = ackTimeout;
+		return this;
+	}
+
+	/**
+	 * Renvoie le délai maximal d'attente de l'étage dispatch du pipeline
+	 * 
+	 * @return @see {@link #dispatchBlockWait}
+	 */
+	public long getDispatchBlockWait() {
+		return dispatchBlockWait;
+	}
+
+	/**
+	 * Fixe le délai maximal d'attente de l'étage dispatch du pipeline
+	 * 
+	 * @param dispatchBlockWait délai en millisecondes @see
+	 *                          {@link #dispatchBlockWait}
+	 * @return la configuration elle même
+	 */
+	public BrokerConfiguration setDispatchBlockWait(long dispatchBlockWait) {
+		assert dispatchBlockWait >= 0;
+		this.dispatchBlockWait = dispatchBlockWait;
+		return this;
+	}
+
+}
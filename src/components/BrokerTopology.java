@@ -0,0 +1,265 @@
+package components;
+
+import java.io.Serializable;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Classe representant la topologie déclarée des Brokers : le port entrant de
+ * publication de chaque Broker et les liens par lesquels un Broker peut
+ * transmettre des messages à un autre. Comme @see BrokerConfiguration, elle est
+ * passée au constructeur du Broker et doit rester sérialisable.
+ * 
+ * Un message publié sur un Broker suit l'arbre des plus courts chemins partant
+ * de ce Broker (parcours en largeur des liens) : chaque Broker ne le transmet
+ * qu'à ses fils dans cet arbre, et chaque Broker le reçoit une seule fois. Les
+ * annonces d'abonnements suivent de la même façon l'arbre partant du Broker qui
+ * les envoie.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class BrokerTopology implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Formes de topologies prédéfinies @see BrokerTopology#create(Kind, String[],
+	 * String[])
+	 */
+	public enum Kind {
+		/**
+		 * chaque Broker transmet au suivant, le dernier au premier
+		 */
+		RING,
+		/**
+		 * arbre binaire, chaque Broker est relié à son père dans les deux sens
+		 */
+		TREE,
+		/**
+		 * chaque Broker est relié à tous les autres
+		 */
+		MESH
+	}
+
+	/**
+	 * Arbre des plus courts chemins partant d'un Broker
+	 */
+	protected static class Tree {
+		// Fils de chaque Broker
+		final Map<String, List<String>> children = new HashMap<>();
+		// Brokers atteints en passant par chaque Broker, lui compris
+		final Map<String, Set<String>> reachable = new HashMap<>();
+		// Nombre de liens entre la racine et chaque Broker
+		final Map<String, Integer> depths = new HashMap<>();
+	}
+
+	// Port entrant de publication de chaque Broker <uri du Broker, uri du port>
+	private final Map<String, String> publicationPorts = new LinkedHashMap<>();
+	// Liens sortants de chaque Broker <uri du Broker, uris des Brokers voisins>
+	private final Map<String, Set<String>> links = new LinkedHashMap<>();
+	// Arbres déjà calculés, associés à l'uri de leur racine
+	private transient Map<String, Tree> trees;
+
+	/**
+	 * Créer une topologie prédéfinie
+	 * 
+	 * @param kind     forme de la topologie
+	 * @param brokers  uris des Brokers
+	 * @param bpipURIs uris des ports entrants de publication des Brokers, dans le
+	 *                 même ordre
+	 * @return la topologie créée
+	 */
+	public static BrokerTopology create(Kind kind, String[] brokers, String[] bpipURIs) {
+		assert brokers.length == bpipURIs.length;
+		BrokerTopology topology = new BrokerTopology();
+		for (int i = 0; i < brokers.length; i++)
+			topology.addBroker(brokers[i], bpipURIs[i]);
+		for (int i = 0; i < brokers.length; i++) {
+			switch (kind) {
+			case RING:
+				if (brokers.length > 1)
+					topology.addLink(brokers[i], brokers[(i + 1) % brokers.length]);
+				break;
+			case TREE:
+				if (i > 0)
+					topology.connect(brokers[i], brokers[(i - 1) / 2]);
+				break;
+			case MESH:
+				for (int j = i + 1; j < brokers.length; j++)
+					topology.connect(brokers[i], brokers[j]);
+				break;
+			}
+		}
+		return topology;
+	}
+
+	/**
+	 * Ajoute un Broker
+	 * 
+	 * @param broker  uri du Broker
+	 * @param bpipURI uri de son port entrant de publication
+	 * @return la topologie elle même
+	 */
+	public synchronized BrokerTopology addBroker(String broker, String bpipURI) {
+		assert broker != null && bpipURI != null;
+		publicationPorts.put(broker, bpipURI);
+		links.computeIfAbsent(broker, k -> new LinkedHashSet<>());
+		trees = null;
+		return this;
+	}
+
+	/**
+	 * Ajoute un lien dans un seul sens
+	 * 
+	 * @param from uri du Broker qui transmet
+	 * @param to   uri du Broker qui reçoit
+	 * @return la topologie elle même
+	 */
+	public synchronized BrokerTopology addLink(String from, String to) {
+		assert publicationPorts.containsKey(from) && publicationPorts.containsKey(to) && !from.equals(to);
+		links.get(from).add(to);
+		trees = null;
+		return this;
+	}
+
+	/**
+	 * Ajoute un lien dans les deux sens
+	 * 
+	 * @param a uri du premier Broker
+	 * @param b uri du second Broker
+	 * @return la topologie elle même
+	 */
+	public BrokerTopology connect(String a, String b) {
+		addLink(a, b);
+		return addLink(b, a);
+	}
+
+	/**
+	 * Renvoie les Brokers de la topologie
+	 * 
+	 * @return les uris des Brokers
+	 */
+	public synchronized Set<String> getBrokers() {
+		return Collections.unmodifiableSet(new LinkedHashSet<>(publicationPorts.keySet()));
+	}
+
+	/**
+	 * Renvoie l'uri du port entrant de publication d'un Broker
+	 * 
+	 * @param broker uri du Broker
+	 * @return l'uri du port, null si le Broker n'existe pas
+	 */
+	public synchronized String getPublicationPortURI(String broker) {
+		return publicationPorts.get(broker);
+	}
+
+	/**
+	 * Renvoie les Brokers auxquels un Broker est relié
+	 * 
+	 * @param broker uri du Broker
+	 * @return les uris de ses voisins
+	 */
+	public synchronized Set<String> getLinks(String broker) {
+		Set<String> res = links.get(broker);
+		return res == null ? Collections.emptySet() : Collections.unmodifiableSet(new LinkedHashSet<>(res));
+	}
+
+	/**
+	 * Renvoie les Brokers auxquels un Broker doit transmettre un message parti
+	 * d'un Broker d'origine
+	 * 
+	 * @param broker uri du Broker qui transmet
+	 * @param origin uri du Broker d'origine du message
+	 * @return les fils du Broker dans l'arbre partant du Broker d'origine
+	 */
+	public List<String> nextHops(String broker, String origin) {
+		List<String> res = tree(origin).children.get(broker);
+		return res == null ? Collections.emptyList() : res;
+	}
+
+	/**
+	 * Renvoie les Brokers atteints en passant par un Broker, pour un message parti
+	 * d'un Broker d'origine
+	 * 
+	 * @param broker uri du Broker
+	 * @param origin uri du Broker d'origine du message
+	 * @return les Brokers du sous arbre de ce Broker, lui compris
+	 */
+	public Set<String> reachableThrough(String broker, String origin) {
+		Set<String> res = tree(origin).reachable.get(broker);
+		return res == null ? Collections.emptySet() : res;
+	}
+
+	/**
+	 * Renvoie le nombre de liens traversés par un message pour aller d'un Broker
+	 * d'origine à un autre Broker
+	 * 
+	 * @param broker uri du Broker destinataire
+	 * @param origin uri du Broker d'origine du message
+	 * @return le nombre de liens, -1 si le Broker n'est pas atteignable
+	 */
+	public int hops(String broker, String origin) {
+		Integer res = tree(origin).depths.get(broker);
+		return res == null ? -1 : res;
+	}
+
+	/**
+	 * Renvoie l'arbre des plus courts chemins partant d'un Broker, en le calculant
+	 * s'il n'est pas déjà connu
+	 * 
+	 * @param origin uri du Broker racine
+	 * @return l'arbre partant de ce Broker
+	 */
+	protected synchronized Tree tree(String origin) {
+		if (trees == null)
+			trees = new HashMap<>();
+		Tree tree = trees.get(origin);
+		if (tree != null)
+			return tree;
+
+		// parcours en largeur depuis la racine, dans l'ordre de déclaration des liens
+		tree = new Tree();
+		List<String> order = new ArrayList<>();
+		Map<String, String> parents = new HashMap<>();
+		ArrayDeque<String> toVisit = new ArrayDeque<>();
+		Set<String> visited = new HashSet<>();
+		if (publicationPorts.containsKey(origin)) {
+			toVisit.add(origin);
+			visited.add(origin);
+			tree.depths.put(origin, 0);
+		}
+		while (!toVisit.isEmpty()) {
+			String broker = toVisit.poll();
+			order.add(broker);
+			for (String next : links.get(broker)) {
+				if (visited.add(next)) {
+					parents.put(next, broker);
+					tree.depths.put(next, tree.depths.get(broker) + 1);
+					tree.children.computeIfAbsent(broker, k -> new ArrayList<>()).add(next);
+					toVisit.add(next);
+				}
+			}
+		}
+		// les sous arbres sont calculés des feuilles vers la racine
+		for (int i = order.size() - 1; i >= 0; i--) {
+			String broker = order.get(i);
+			Set<String> reachable = tree.reachable.computeIfAbsent(broker, k -> new HashSet<>());
+			reachable.add(broker);
+			String parent = parents.get(broker);
+			if (parent != null)
+				tree.reachable.computeIfAbsent(parent, k -> new HashSet<>()).addAll(reachable);
+		}
+		trees.put(origin, tree);
+		return tree;
+	}
+
+}
@@ -3,6 +3,8 @@ package components;
 import fr.sorbonne_u.components.AbstractComponent;
 import fr.sorbonne_u.components.AbstractPort;
 import message.Message;
+import message.MessageFactory;
+import message.PublishAck;
 import plugins.PublisherClientPlugin;
 import utils.Log;
 
@@ -45,8 +47,9 @@ public class Publisher extends AbstractComponent {
 
 		this.myURI = uri;
 
-		// plugin
-		publisherPlugin = new PublisherClientPlugin(popURI, mopURI, pipURI, mipURI);
+		// plugin, ses messages sont préfixés par l'uri du composant
+		publisherPlugin = new PublisherClientPlugin(popURI, mopURI, pipURI, mipURI,
+				new MessageFactory(uri, MessageFactory.monotonicClock()));
 		publisherPlugin.setPluginURI(AbstractPort.generatePortURI());
 		this.installPlugin(publisherPlugin);
 	}
@@ -69,21 +72,37 @@ public class Publisher extends AbstractComponent {
 		Thread.sleep(4000);
 		Log.printAndLog(this, "début envoie messages publisher");
 		for (int i = 1; i <= 5; i++) {
-			publisherPlugin.publish(new Message(null, "publisher uri : " + this.myURI + ", content : msg_i_" + i),
-					"topic2");
+			publisherPlugin.publish(message("msg_i_" + i), "topic2");
 		}
 
 		// test d'autres scénarios
-		publisherPlugin.publish(new Message(null, "publisher uri : " + this.myURI + ", content : msg2"),
+		publisherPlugin.publish(message("msg2"), new String[] { "topic2", "topic3" });
+		publisherPlugin.publish(new Message[] { message("msg3"), message("msg4") }, "topic2");
+		publisherPlugin.publish(new Message[] { message("msg5"), message("msg6") },
 				new String[] { "topic2", "topic3" });
-		publisherPlugin.publish(new Message[] { new Message(null, "publisher uri : " + this.myURI + ", content : msg3"),
-				new Message(null, "publisher uri : " + this.myURI + ", content : msg4") }, "topic2");
-		publisherPlugin.publish(
-				new Message[] { new Message(null, "publisher uri : " + this.myURI + ", content : msg5"),
-						new Message(null, "publisher uri : " + this.myURI + ", content : msg6") },
-				new String[] { "topic2", "topic3" });
-		publisherPlugin.publish(new Message(null, "publisher uri : " + this.myURI + ", content : msg7"), "topic1");
-		publisherPlugin.publish(new Message(null, "publisher uri : " + this.myURI + ", content : msg8"), "topic4");
+		publisherPlugin.publish(message("msg7"), "topic1");
+		publisherPlugin.publish(message("msg8"), "topic4");
+
+		// publications asynchrones, le publieur continue sans attendre leur envoi
+		for (int i = 1; i <= 3; i++) {
+			publisherPlugin.publishAsync(message("msg_async_" + i), "topic2", PublishAck.Level.DELIVERED)
+					.whenComplete((ack, error) -> {
+						if (error != null)
+							error.printStackTrace();
+						else
+							Log.printAndLog(this, ack.toString());
+					});
+		}
+	}
+
+	/**
+	 * Crée un message de test, sans propriétés
+	 * 
+	 * @param content contenu du message, précédé de l'uri du publieur
+	 * @return le message créé par le plugin de publication
+	 */
+	protected Message message(String content) {
+		return publisherPlugin.createMessage(null, "publisher uri : " + this.myURI + ", content : " + content);
 	}
 
 }
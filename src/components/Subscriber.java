@@ -16,6 +16,11 @@ import utils.Log;
 
 public class Subscriber extends AbstractComponent implements ReceptionImplementationI {
 
+	/**
+	 * Nombre de threads par défaut qui traitent les messages reçus
+	 */
+	public static final int DEFAULT_THREADS = 4;
+
 	/**
 	 * Plugin du souscripteur
 	 */
@@ -35,13 +40,27 @@ public class Subscriber extends AbstractComponent implements ReceptionImplementa
 	 *                     connecté
 	 */
 	protected Subscriber(String uri, String mopUri, String mipServerUri) throws Exception {
-		super(uri, 4, 1);
+		this(uri, mopUri, mipServerUri, DEFAULT_THREADS);
+	}
+
+	/**
+	 * Constructeur de Subscriber
+	 * 
+	 * @param uri          uri du composant
+	 * @param mopUri       uri du port de management sortant du composant
+	 * @param mipServerUri uri du port sur lequel le port sortant de management sera
+	 *                     connecté
+	 * @param nbThreads    nombre de threads qui traitent les messages reçus
+	 */
+	protected Subscriber(String uri, String mopUri, String mipServerUri, int nbThreads) throws Exception {
+		super(uri, nbThreads, 1);
 
 		this.tracer.setTitle(uri);
 		this.tracer.setRelativePosition(0, 2);
 
 		// verifications
 		assert mipServerUri != null;
+		assert nbThreads > 0;
 
 		// plugins
 		this.ripUri = AbstractPort.generatePortURI();
@@ -0,0 +1,23 @@
+package connectors;
+
+import fr.sorbonne_u.components.connectors.AbstractConnector;
+import interfaces.InterestCI;
+import message.InterestUpdate;
+
+/**
+ * Classe representant le connecteur de l'interface composant InterestCI
+ * 
+ * @author Bello Velly
+ *
+ */
+public class InterestConnector extends AbstractConnector implements InterestCI {
+
+	/**
+	 * @see interfaces.InterestImplementationI#advertise(InterestUpdate)
+	 */
+	@Override
+	public void advertise(InterestUpdate update) throws Exception {
+		((InterestCI) this.offering).advertise(update);
+	}
+
+}
@@ -1,8 +1,15 @@
 package connectors;
 
+import java.util.List;
+import java.util.Map;
+
 import fr.sorbonne_u.components.connectors.AbstractConnector;
 import interfaces.ManagementCI;
 import interfaces.MessageFilterI;
+import message.OffHeapUsage;
+import message.PoolStats;
+import message.ReplayPosition;
+import message.RetentionPolicy;
 
 /**
  * Connecteur pour l'interface composant ManagementCI
@@ -20,6 +27,15 @@ public class ManagementConnector extends AbstractConnector implements Management
 		((ManagementCI) this.offering).createTopic(topic);
 	}
 
+	/**
+	 * @see interfaces.ManagementImplementationI#createTopic(String,
+	 *      RetentionPolicy)
+	 */
+	@Override
+	public void createTopic(String topic, RetentionPolicy retentionPolicy) throws Exception {
+		((ManagementCI) this.offering).createTopic(topic, retentionPolicy);
+	}
+
 	/**
 	 * @see interfaces.ManagementImplementationI#createTopics(String[])
 	 */
@@ -60,6 +76,30 @@ public class ManagementConnector extends AbstractConnector implements Management
 		return ((ManagementCI) this.offering).getPublicationPortURI();
 	}
 
+	/**
+	 * @see interfaces.ManagementImplementationI#getOffHeapUsage()
+	 */
+	@Override
+	public OffHeapUsage getOffHeapUsage() throws Exception {
+		return ((ManagementCI) this.offering).getOffHeapUsage();
+	}
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getPoolStats()
+	 */
+	@Override
+	public List<PoolStats> getPoolStats() throws Exception {
+		return ((ManagementCI) this.offering).getPoolStats();
+	}
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getQueueDepths()
+	 */
+	@Override
+	public Map<String, Long> getQueueDepths() throws Exception {
+		return ((ManagementCI) this.offering).getQueueDepths();
+	}
+
 	/**
 	 * @see interfaces.SubscriptionImplementationI#subscribe(String, String)
 	 */
@@ -85,6 +125,16 @@ public class ManagementConnector extends AbstractConnector implements Management
 		((ManagementCI) this.offering).subscribe(topic, filter, inboundPortURI);
 	}
 
+	/**
+	 * @see interfaces.SubscriptionImplementationI#subscribe(String, MessageFilterI,
+	 *      ReplayPosition, String)
+	 */
+	@Override
+	public void subscribe(String topic, MessageFilterI filter, ReplayPosition from, String inboundPortURI)
+			throws Exception {
+		((ManagementCI) this.offering).subscribe(topic, filter, from, inboundPortURI);
+	}
+
 	/**
 	 * @see interfaces.SubscriptionImplementationI#modifyFilter(String,
 	 *      MessageFilterI, String)
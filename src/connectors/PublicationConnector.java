@@ -3,6 +3,7 @@ package connectors;
 import fr.sorbonne_u.components.connectors.AbstractConnector;
 import interfaces.MessageI;
 import interfaces.PublicationCI;
+import message.PublishAck;
 
 /**
  * Classe representant le connecteur de l'interface composant PublicationCI
@@ -44,4 +45,21 @@ public class PublicationConnector extends AbstractConnector implements Publicati
 		((PublicationCI) this.offering).publish(ms, topics);
 	}
 
+	/**
+	 * @see interfaces.PublicationCI#publishBatch(byte[])
+	 */
+	@Override
+	public void publishBatch(byte[] batch) throws Exception {
+		((PublicationCI) this.offering).publishBatch(batch);
+	}
+
+	/**
+	 * @see interfaces.PublicationCI#publishAcknowledged(MessageI[], String[],
+	 *      PublishAck.Level)
+	 */
+	@Override
+	public PublishAck publishAcknowledged(MessageI[] ms, String[] topics, PublishAck.Level level) throws Exception {
+		return ((PublicationCI) this.offering).publishAcknowledged(ms, topics, level);
+	}
+
 }
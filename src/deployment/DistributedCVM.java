@@ -1,29 +1,46 @@
 package deployment;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import components.Broker;
+import components.BrokerConfiguration;
+import components.BrokerTopology;
 import components.Publisher;
 import components.Subscriber;
 import fr.sorbonne_u.components.AbstractComponent;
 import fr.sorbonne_u.components.cvm.AbstractDistributedCVM;
+import message.BatchCodec.WireFormat;
 
 /**
  * Exemple de déploiement multi-jvm. L'exemple contient deux jvm, composant
- * chacune un Broker, un Subscriber et un Publisher
+ * chacune un Subscriber et un Publisher, et {@link #BROKERS} Brokers répartis
+ * sur les jvm et reliés selon {@link #TOPOLOGY}. Le Subscriber et le Publisher
+ * d'une jvm utilisent le premier Broker de cette jvm
  * 
  * @author Bello Velly
  *
  */
 public class DistributedCVM extends AbstractDistributedCVM {
 
-	// Uris des composants
 	/**
-	 * URI du broker de la jvm1
+	 * Nombre de Brokers déployés, le Broker i est sur la jvm i modulo le nombre de
+	 * jvms
+	 */
+	protected static final int BROKERS = 4;
+
+	/**
+	 * Topologie des Brokers : RING transmet les messages de proche en proche comme
+	 * l'ancien déploiement, TREE et MESH les transmettent par les plus courts
+	 * chemins @see components.BrokerTopology
 	 */
-	protected static final String BROKER_JVM1_COMPONENT_URI = "broker_jvm1";
+	protected static final BrokerTopology.Kind TOPOLOGY = BrokerTopology.Kind.TREE;
+
+	// Uris des composants
 	/**
-	 * URI du broker de la jvm2
+	 * Préfixe des URIs des brokers, suivi du numéro du Broker
 	 */
-	protected static final String BROKER_JVM2_COMPONENT_URI = "broker_jvm2";
+	protected static final String BROKER_COMPONENT_URI = "broker";
 
 	/**
 	 * URI du publisher de la jvm1
@@ -43,50 +60,80 @@ public class DistributedCVM extends AbstractDistributedCVM {
 	 */
 	protected static final String SUBSCRIBER1_JVM2_COMPONENT_URI = "subscriber1_jvm2";
 
-	// Uris des jvms
 	/**
-	 * URI de la jvm1
+	 * Délai de regroupement des envois vers les subscribers en millisecondes, à
+	 * mettre à 0 pour comparer avec un envoi à chaque publication : chaque Broker
+	 * affiche à la fin le nombre d'appels acceptMessage effectués
 	 */
-	protected static String JVM1_URI = "jvm1";
+	protected static final long DELIVERY_LINGER = 10;
+
 	/**
-	 * URI de la jvm2
+	 * Délai de regroupement des envois entre Brokers en millisecondes : chaque
+	 * Broker affiche à la fin la taille moyenne des lots envoyés à ses voisins
 	 */
-	protected static String JVM2_URI = "jvm2";
+	protected static final long PEER_LINGER = 5;
+
+	/**
+	 * Format des lots envoyés entre Brokers
+	 */
+	protected static final WireFormat PEER_WIRE_FORMAT = WireFormat.COMPRESSED;
 
-	// Uris des ports
 	/**
-	 * URI du port entrant de publication du broker de la jvm1
+	 * Vrai pour que les pools de threads des Brokers s'adaptent à la charge,
+	 * chaque Broker affiche à la fin la taille de ses pools
 	 */
-	protected final static String broker_jvm1_PIP_uri = "broker1pip";
+	protected static final boolean ADAPTIVE_POOLS = true;
+
+	/**
+	 * Vrai pour que les Brokers envoient aux subscribers sur des threads
+	 * virtuels, ignoré avant le JDK 21
+	 */
+	protected static final boolean VIRTUAL_THREAD_DELIVERY = false;
+
 	/**
-	 * URI du port entrant de management du broker de la jvm1
+	 * Nombre de cases de l'anneau du pipeline des publications des Brokers, 0
+	 * pour publier sur le pool de reception
 	 */
-	protected final static String broker_jvm1_MIP_uri = "broker1mip";
+	protected static final int PIPELINE_SIZE = 1024;
+
 	/**
-	 * URI du deuxieme port entrant de management du broker de la jvm1
+	 * Nombre de threads des subscribers qui traitent les messages reçus
 	 */
-	protected final static String broker_jvm1_MIP2_uri = "broker1mip2";
+	protected static final int SUBSCRIBER_THREADS = Subscriber.DEFAULT_THREADS;
+
 	/**
-	 * URI du port sortant de publication du broker de la jvm1
+	 * Mémoire hors du tas de chaque Broker pour l'historique des topics, en
+	 * octets : chaque Broker affiche à la fin la mémoire utilisée
 	 */
-	protected final static String broker_jvm1_POP_uri = "broker1pop";
+	protected static final long OFF_HEAP_CAPACITY = 64L * 1024 * 1024;
 
+	// Uris des jvms
+	/**
+	 * URI de la jvm1
+	 */
+	protected static String JVM1_URI = "jvm1";
+	/**
+	 * URI de la jvm2
+	 */
+	protected static String JVM2_URI = "jvm2";
 	/**
-	 * URI du port entrant de publication du broker de la jvm2
+	 * URIs des jvms sur lesquelles sont répartis les Brokers
 	 */
-	protected final static String broker_jvm2_PIP_uri = "broker2pip";
+	protected static String[] JVM_URIS = { JVM1_URI, JVM2_URI };
+
+	// Uris des ports, suivis du numéro du Broker
 	/**
-	 * URI du port entrant de management du broker de la jvm2
+	 * Préfixe des URIs des ports entrants de publication des brokers
 	 */
-	protected final static String broker_jvm2_MIP_uri = "broker2mip";
+	protected final static String broker_PIP_uri = "broker_pip";
 	/**
-	 * URI du deuxieme port entrant de management du broker de la jvm2
+	 * Préfixe des URIs des ports entrants de management des brokers
 	 */
-	protected final static String broker_jvm2_MIP2_uri = "broker2mip2";
+	protected final static String broker_MIP_uri = "broker_mip";
 	/**
-	 * URI du port sortant de publication du broker de la jvm2
+	 * Préfixe des URIs des deuxiemes ports entrants de management des brokers
 	 */
-	protected final static String broker_jvm2_POP_uri = "broker2pop";
+	protected final static String broker_MIP2_uri = "broker_mip2";
 
 	/**
 	 * URI du port sortant de managemen du subscriber de la jvm1
@@ -116,13 +163,9 @@ public class DistributedCVM extends AbstractDistributedCVM {
 	protected final static String publisher1_jvm2_MOP_uri = "publisher2mop";
 
 	/**
-	 * référence a l'uri du composant broker de la jvm1
+	 * références aux uris des composants brokers de cette jvm
 	 */
-	protected String comp_broker_jvm1_uri;
-	/**
-	 * référence a l'uri du composant broker de la jvm2
-	 */
-	protected String comp_broker_jvm2_uri;
+	protected List<String> comp_brokers_uris = new ArrayList<>();
 
 	/**
 	 * reférence a l'uri du composant subscriber de la jvm1
@@ -159,55 +202,73 @@ public class DistributedCVM extends AbstractDistributedCVM {
 	 */
 	@Override
 	public void instantiateAndPublish() throws Exception {
+		// la topologie est la même sur toutes les jvms
+		String[] brokers = new String[BROKERS];
+		String[] pips = new String[BROKERS];
+		for (int i = 0; i < BROKERS; i++) {
+			brokers[i] = BROKER_COMPONENT_URI + i;
+			pips[i] = broker_PIP_uri + i;
+		}
+		BrokerTopology topology = BrokerTopology.create(TOPOLOGY, brokers, pips);
 
-		if (thisJVMURI.equals(JVM1_URI)) {
-			// Broker
-			this.comp_broker_jvm1_uri = AbstractComponent.createComponent(Broker.class.getCanonicalName(),
-					new Object[] { BROKER_JVM1_COMPONENT_URI, broker_jvm1_MIP_uri, broker_jvm1_MIP2_uri,
-							broker_jvm1_PIP_uri, broker_jvm1_POP_uri, broker_jvm2_PIP_uri });
-			this.toggleTracing(this.comp_broker_jvm1_uri);
-			assert this.isDeployedComponent(comp_broker_jvm1_uri);
+		// Brokers de cette jvm
+		int jvm = -1;
+		for (int i = 0; i < JVM_URIS.length; i++)
+			if (thisJVMURI.equals(JVM_URIS[i]))
+				jvm = i;
+		if (jvm < 0) {
+			System.out.println("Unknown JVM URI... " + thisJVMURI);
+			super.instantiateAndPublish();
+			return;
+		}
+		for (int i = jvm; i < BROKERS; i += JVM_URIS.length) {
+			String broker = AbstractComponent.createComponent(Broker.class.getCanonicalName(),
+					new Object[] { brokers[i], broker_MIP_uri + i, broker_MIP2_uri + i, pips[i], topology,
+							new BrokerConfiguration().setDeliveryLinger(DELIVERY_LINGER).setPeerLinger(PEER_LINGER)
+									.setPeerWireFormat(PEER_WIRE_FORMAT).setOffHeapCapacity(OFF_HEAP_CAPACITY)
+									.setAdaptivePools(ADAPTIVE_POOLS)
+									.setVirtualThreadDelivery(VIRTUAL_THREAD_DELIVERY)
+									.setPipelineSize(PIPELINE_SIZE) });
+			this.toggleTracing(broker);
+			assert this.isDeployedComponent(broker);
+			comp_brokers_uris.add(broker);
+		}
+
+		// le Subscriber et le Publisher utilisent le premier Broker de la jvm
+		if (jvm == 0) {
 			// Subscriber
 			this.comp_subscriber1_jvm1_uri = AbstractComponent.createComponent(Subscriber.class.getCanonicalName(),
-					new Object[] { SUBSCRIBER1_JVM1_COMPONENT_URI, subscriber1_jvm1_MOP_uri, broker_jvm1_MIP_uri });
+					new Object[] { SUBSCRIBER1_JVM1_COMPONENT_URI, subscriber1_jvm1_MOP_uri, broker_MIP_uri + jvm,
+							SUBSCRIBER_THREADS });
 			this.toggleTracing(this.comp_subscriber1_jvm1_uri);
 			assert this.isDeployedComponent(this.comp_subscriber1_jvm1_uri);
 			// Publisher
 			this.comp_publisher1_jvm1_uri = AbstractComponent.createComponent(Publisher.class.getCanonicalName(),
 					new Object[] { PUBLISHER1_JVM1_COMPONENT_URI, publisher1_jvm1_POP_uri, publisher1_jvm1_MOP_uri,
-							broker_jvm1_PIP_uri, broker_jvm1_MIP2_uri });
+							broker_PIP_uri + jvm, broker_MIP2_uri + jvm });
 			this.toggleTracing(this.comp_publisher1_jvm1_uri);
 			assert this.isDeployedComponent(this.comp_publisher1_jvm1_uri);
 
-			assert comp_broker_jvm1_uri != null && comp_subscriber1_jvm1_uri != null
+			assert !comp_brokers_uris.isEmpty() && comp_subscriber1_jvm1_uri != null
 					&& comp_publisher1_jvm1_uri != null;
-			assert comp_broker_jvm2_uri == null && comp_subscriber1_jvm2_uri == null
-					&& comp_publisher1_jvm2_uri == null;
-		} else if (thisJVMURI.equals(JVM2_URI)) {
-			// Broker
-			this.comp_broker_jvm2_uri = AbstractComponent.createComponent(Broker.class.getCanonicalName(),
-					new Object[] { BROKER_JVM2_COMPONENT_URI, broker_jvm2_MIP_uri, broker_jvm2_MIP2_uri,
-							broker_jvm2_PIP_uri, broker_jvm2_POP_uri, broker_jvm1_PIP_uri });
-			this.toggleTracing(this.comp_broker_jvm2_uri);
-			assert this.isDeployedComponent(comp_broker_jvm2_uri);
+			assert comp_subscriber1_jvm2_uri == null && comp_publisher1_jvm2_uri == null;
+		} else if (jvm == 1) {
 			// Subscriber
 			this.comp_subscriber1_jvm2_uri = AbstractComponent.createComponent(Subscriber.class.getCanonicalName(),
-					new Object[] { SUBSCRIBER1_JVM2_COMPONENT_URI, subscriber1_jvm2_MOP_uri, broker_jvm2_MIP_uri });
+					new Object[] { SUBSCRIBER1_JVM2_COMPONENT_URI, subscriber1_jvm2_MOP_uri, broker_MIP_uri + jvm,
+							SUBSCRIBER_THREADS });
 			this.toggleTracing(this.comp_subscriber1_jvm2_uri);
 			assert this.isDeployedComponent(this.comp_subscriber1_jvm2_uri);
 			// Publisher
 			this.comp_publisher1_jvm2_uri = AbstractComponent.createComponent(Publisher.class.getCanonicalName(),
 					new Object[] { PUBLISHER1_JVM2_COMPONENT_URI, publisher1_jvm2_POP_uri, publisher1_jvm2_MOP_uri,
-							broker_jvm2_PIP_uri, broker_jvm2_MIP2_uri });
+							broker_PIP_uri + jvm, broker_MIP2_uri + jvm });
 			this.toggleTracing(this.comp_publisher1_jvm2_uri);
 			assert this.isDeployedComponent(this.comp_publisher1_jvm2_uri);
 
-			assert comp_broker_jvm2_uri != null && comp_subscriber1_jvm2_uri != null
+			assert !comp_brokers_uris.isEmpty() && comp_subscriber1_jvm2_uri != null
 					&& comp_publisher1_jvm2_uri != null;
-			assert comp_broker_jvm1_uri == null && comp_subscriber1_jvm1_uri == null
-					&& comp_publisher1_jvm1_uri == null;
-		} else {
-			System.out.println("Unknown JVM URI... " + thisJVMURI);
+			assert comp_subscriber1_jvm1_uri == null && comp_publisher1_jvm1_uri == null;
 		}
 
 		super.instantiateAndPublish();
@@ -0,0 +1,20 @@
+package interfaces;
+
+import fr.sorbonne_u.components.interfaces.OfferedI;
+import fr.sorbonne_u.components.interfaces.RequiredI;
+import message.InterestUpdate;
+
+/**
+ * interface composant d'annonce des abonnements entre Brokers
+ * 
+ * @author Bello Velly
+ *
+ */
+public interface InterestCI extends InterestImplementationI, OfferedI, RequiredI {
+
+	/**
+	 * @see interfaces.InterestImplementationI#advertise(InterestUpdate)
+	 */
+	@Override
+	void advertise(InterestUpdate update) throws Exception;
+}
@@ -0,0 +1,21 @@
+package interfaces;
+
+import message.InterestUpdate;
+
+/**
+ * interface d'annonce des abonnements entre Brokers
+ * 
+ * @author Bello Velly
+ *
+ */
+public interface InterestImplementationI {
+
+	/**
+	 * Reçoit le changement d'un abonnement d'un autre Broker, le Broker ne lui
+	 * transmet ensuite que les messages qui l'intéressent
+	 * 
+	 * @param update changement d'abonnement annoncé
+	 */
+	void advertise(InterestUpdate update) throws Exception;
+
+}
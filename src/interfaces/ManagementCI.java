@@ -1,7 +1,14 @@
 package interfaces;
 
+import java.util.List;
+import java.util.Map;
+
 import fr.sorbonne_u.components.interfaces.OfferedI;
 import fr.sorbonne_u.components.interfaces.RequiredI;
+import message.OffHeapUsage;
+import message.PoolStats;
+import message.ReplayPosition;
+import message.RetentionPolicy;
 
 /**
  * Interface composant du systeme de gestion
@@ -17,6 +24,13 @@ public interface ManagementCI extends ManagementImplementationI, SubscriptionImp
 	@Override
 	void createTopic(String topic) throws Exception;
 
+	/**
+	 * @see interfaces.ManagementImplementationI#createTopic(String,
+	 *      RetentionPolicy)
+	 */
+	@Override
+	void createTopic(String topic, RetentionPolicy retentionPolicy) throws Exception;
+
 	/**
 	 * @see interfaces.ManagementImplementationI#createTopics(String[])
 	 */
@@ -47,6 +61,24 @@ public interface ManagementCI extends ManagementImplementationI, SubscriptionImp
 	@Override
 	String getPublicationPortURI() throws Exception;
 
+	/**
+	 * @see interfaces.ManagementImplementationI#getOffHeapUsage()
+	 */
+	@Override
+	OffHeapUsage getOffHeapUsage() throws Exception;
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getPoolStats()
+	 */
+	@Override
+	List<PoolStats> getPoolStats() throws Exception;
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getQueueDepths()
+	 */
+	@Override
+	Map<String, Long> getQueueDepths() throws Exception;
+
 	/**
 	 * @see interfaces.SubscriptionImplementationI#subscribe(String, String)
 	 */
@@ -66,6 +98,14 @@ public interface ManagementCI extends ManagementImplementationI, SubscriptionImp
 	@Override
 	void subscribe(String topic, MessageFilterI filter, String inboundPortURI) throws Exception;
 
+	/**
+	 * @see interfaces.SubscriptionImplementationI#subscribe(String, MessageFilterI,
+	 *      ReplayPosition, String)
+	 */
+	@Override
+	void subscribe(String topic, MessageFilterI filter, ReplayPosition from, String inboundPortURI)
+			throws Exception;
+
 	/**
 	 * @see interfaces.SubscriptionImplementationI#modifyFilter(String,
 	 *      MessageFilterI, String)
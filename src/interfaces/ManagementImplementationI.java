@@ -1,5 +1,12 @@
 package interfaces;
 
+import java.util.List;
+import java.util.Map;
+
+import message.OffHeapUsage;
+import message.PoolStats;
+import message.RetentionPolicy;
+
 /**
  * interface de gestion des sujets
  * 
@@ -15,6 +22,15 @@ public interface ManagementImplementationI {
 	 */
 	void createTopic(String topic) throws Exception;
 
+	/**
+	 * Créer un topic donné avec une politique de rétention de ses messages. Si le
+	 * topic existe déjà, sa politique de rétention est remplacée
+	 * 
+	 * @param topic           titre du topic à créer
+	 * @param retentionPolicy politique de rétention des messages du topic
+	 */
+	void createTopic(String topic, RetentionPolicy retentionPolicy) throws Exception;
+
 	/**
 	 * Créer plusieurs topics donnés
 	 * 
@@ -51,4 +67,29 @@ public interface ManagementImplementationI {
 	 */
 	String getPublicationPortURI() throws Exception;
 
+	/**
+	 * Renvoie l'utilisation de la mémoire hors du tas où sont conservés les
+	 * messages des topics
+	 * 
+	 * @return la mémoire réservée, sa limite et la taille des messages conservés,
+	 *         {@link OffHeapUsage#NONE} si les messages sont sur le tas
+	 */
+	OffHeapUsage getOffHeapUsage() throws Exception;
+
+	/**
+	 * Renvoie l'état des pools de threads du Broker : taille cible, threads
+	 * occupés, taches en attente, attente et durée moyennes des taches
+	 * 
+	 * @return l'état du pool d'envoi puis celui du pool de reception
+	 */
+	List<PoolStats> getPoolStats() throws Exception;
+
+	/**
+	 * Renvoie le nombre de messages en attente pour chaque subscriber
+	 * 
+	 * @return la profondeur de la file de chaque subscriber, associée à l'URI de
+	 *         son port entrant
+	 */
+	Map<String, Long> getQueueDepths() throws Exception;
+
 }
@@ -35,29 +35,29 @@ public interface MessageI extends Serializable {
 	Properties getProperties() throws Exception;
 
 	/**
-	 * Retourne le contenu du Message
+	 * Retourne le contenu du Message. Les gros contenus binaires sont de
+	 * préférence des {@link message.BinaryPayload}, transmis sans copie ni
+	 * sérialisation
 	 * 
 	 * @return contenu du Message
 	 */
 	Serializable getPayload() throws Exception;
 
 	/**
-	 * Ajoute un URI de Broker par lequel le Message à déjà été consulté
+	 * Retourne l'URI du Broker qui a reçu le Message de son publieur
 	 * 
-	 * @param broker_uri uri du Broker
-	 * @return le Message lui même, l'uri à été ajoutée
+	 * @return uri du Broker d'origine, null si le Message n'a pas encore été
+	 *         publié
 	 */
-	MessageI addBroker(String broker_uri) throws Exception;
+	String getOrigin() throws Exception;
 
 	/**
-	 * Regarde si un URI de Broker donné existe des les URIs de Broker que le
-	 * Message possède
+	 * Fixe l'URI du Broker qui a reçu le Message de son publieur, seul le premier
+	 * Broker la fixe
 	 * 
 	 * @param broker_uri uri du Broker
-	 * @return true si l'URI existe dans la liste d'URIs de Broker du Message, false
-	 *         sinon
-	 * @throws Exception
+	 * @return le Message lui même
 	 */
-	Boolean containsBroker(String broker_uri) throws Exception;
+	MessageI setOrigin(String broker_uri) throws Exception;
 
 }
@@ -2,6 +2,7 @@ package interfaces;
 
 import fr.sorbonne_u.components.interfaces.OfferedI;
 import fr.sorbonne_u.components.interfaces.RequiredI;
+import message.PublishAck;
 
 /**
  * interface composant de publication
@@ -34,4 +35,22 @@ public interface PublicationCI extends PublicationsImplementationI, OfferedI, Re
 	 */
 	@Override
 	void publish(MessageI[] ms, String[] topics) throws Exception;
+
+	/**
+	 * Publie un lot de messages encodé, utilisé entre Brokers
+	 * 
+	 * @param batch lot encodé par message.BatchCodec
+	 */
+	void publishBatch(byte[] batch) throws Exception;
+
+	/**
+	 * Publie des messages sur des topics et attend que la publication atteigne un
+	 * niveau d'acquittement. Les erreurs du Broker sont renvoyées à l'appelant
+	 * 
+	 * @param ms     Message qui doivent être publiés
+	 * @param topics titres des topics
+	 * @param level  niveau d'acquittement attendu
+	 * @return l'acquittement de la publication
+	 */
+	PublishAck publishAcknowledged(MessageI[] ms, String[] topics, PublishAck.Level level) throws Exception;
 }
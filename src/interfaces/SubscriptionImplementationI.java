@@ -1,5 +1,7 @@
 package interfaces;
 
+import message.ReplayPosition;
+
 /**
  * interface de souscription
  * 
@@ -9,7 +11,8 @@ package interfaces;
 public interface SubscriptionImplementationI {
 
 	/**
-	 * abonne un Subscriber à un topic
+	 * abonne un Subscriber à un topic, ou à une famille de topics avec des jokers,
+	 * y compris les topics créés plus tard @see message.SubscriptionTrie
 	 * 
 	 * @param topic          topic auquel le subscriber veut s'abonner
 	 * @param inboundPortURI URI sur lequel le subscriber reçevra les messages
@@ -33,6 +36,20 @@ public interface SubscriptionImplementationI {
 	 */
 	void subscribe(String topic, MessageFilterI filter, String inboundPortURI) throws Exception;
 
+	/**
+	 * abonne un Subscriber à un topic en precisent un filtre, le subscriber reçoit
+	 * d'abord l'historique du topic à partir d'une position donnée, par lots, puis
+	 * les messages publiés ensuite, sans trou ni doublon. Pour une famille de
+	 * topics avec des jokers, seuls les messages publiés ensuite sont reçus
+	 * 
+	 * @param topic          topic auquel le subscriber veut s'abonner
+	 * @param filter         filtre à appliquer, null pour aucun filtre
+	 * @param from           position du début de l'historique à recevoir
+	 * @param inboundPortURI URI sur lequel le subscriber reçevra les messages
+	 */
+	void subscribe(String topic, MessageFilterI filter, ReplayPosition from, String inboundPortURI)
+			throws Exception;
+
 	/**
 	 * modifie un filtre sur un topic auquel le subscriber est abonné
 	 * 
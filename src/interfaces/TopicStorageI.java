@@ -0,0 +1,116 @@
+package interfaces;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import message.RetentionPolicy;
+
+/**
+ * interface d'un stockage des messages d'un Topic. Chaque message reçoit un
+ * offset, croissant dans l'ordre des ajouts ; les messages supprimés par la
+ * politique de rétention ne sont plus lisibles.
+ * 
+ * @author Bello Velly
+ *
+ */
+public interface TopicStorageI {
+
+	/**
+	 * Ajoute un message à la fin du stockage
+	 * 
+	 * @param m message à ajouter
+	 * @return l'offset du message
+	 */
+	long append(MessageI m) throws Exception;
+
+	/**
+	 * Lit des messages à partir d'un offset donné. Les offsets dont le message
+	 * n'a pas été conservé sont passés mais comptés : l'offset renvoyé est celui
+	 * où reprendre la lecture, sans trou ni doublon
+	 * 
+	 * @param fromOffset offset du premier message à lire, les offsets déjà
+	 *                   supprimés sont ignorés
+	 * @param max        nombre maximum d'offsets à parcourir
+	 * @param res        liste à laquelle sont ajoutés les messages lus, du plus
+	 *                   ancien au plus récent
+	 * @return l'offset qui suit le dernier offset parcouru
+	 */
+	long read(long fromOffset, int max, List<MessageI> res) throws Exception;
+
+	/**
+	 * Lit des messages à partir d'un offset donné @see #read(long, int, List)
+	 * 
+	 * @param fromOffset offset du premier message à lire
+	 * @param max        nombre maximum d'offsets à parcourir
+	 * @return les messages lus, du plus ancien au plus récent
+	 */
+	default List<MessageI> read(long fromOffset, int max) throws Exception {
+		List<MessageI> res = new ArrayList<>();
+		read(fromOffset, max, res);
+		return res;
+	}
+
+	/**
+	 * Renvoie l'offset du plus ancien message conservé
+	 * 
+	 * @return l'offset du plus ancien message, égal à {@link #getNextOffset()} si
+	 *         le stockage est vide
+	 */
+	long getFirstOffset();
+
+	/**
+	 * Renvoie l'offset qui sera attribué au prochain message ajouté
+	 * 
+	 * @return le prochain offset
+	 */
+	long getNextOffset();
+
+	/**
+	 * Cherche le plus ancien message conservé dont la date est postérieure ou égale
+	 * à une date donnée
+	 * 
+	 * @param time date en millisecondes
+	 * @return l'offset du message, {@link #getNextOffset()} si aucun message ne
+	 *         correspond
+	 */
+	long offsetOf(long time);
+
+	/**
+	 * Renvoie la taille des messages conservés
+	 * 
+	 * @return la taille en octets des messages conservés
+	 */
+	long getRetainedBytes();
+
+	/**
+	 * Renvoie la politique de rétention du stockage
+	 * 
+	 * @return la politique de rétention
+	 */
+	RetentionPolicy getRetentionPolicy();
+
+	/**
+	 * Change la politique de rétention du stockage
+	 * 
+	 * @param retentionPolicy nouvelle politique de rétention
+	 */
+	void setRetentionPolicy(RetentionPolicy retentionPolicy) throws Exception;
+
+	/**
+	 * Supprime les messages qui ne respectent plus la politique de rétention
+	 * 
+	 * @param now date courante
+	 */
+	void evict(long now) throws Exception;
+
+	/**
+	 * Libère les ressources du stockage
+	 */
+	void close() throws Exception;
+
+	/**
+	 * Libère les ressources du stockage et supprime tous ses messages
+	 */
+	void delete() throws Exception;
+
+}
@@ -0,0 +1,211 @@
+package message;
+
+import java.util.Arrays;
+
+/**
+ * File ordonnée par priorité avec vieillissement @see Priority. Chaque priorité
+ * a sa propre file FIFO ; le prochain élément retiré est la tête de la file
+ * dont le score est le plus grand, le score étant le rang de la priorité
+ * augmenté d'un rang par délai de vieillissement passé en attente. Un message
+ * peu prioritaire finit ainsi par passer devant un flot continu de messages
+ * plus prioritaires, et l'ordre d'arrivée est conservé dans chaque priorité.
+ * 
+ * Le choix ne compare que les têtes des files : son coût ne dépend pas du
+ * nombre d'éléments en attente. La file n'est pas synchronisée.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class AgingQueue<E> {
+
+	/**
+	 * File FIFO des éléments d'une priorité, dans un tableau circulaire
+	 */
+	protected static class Level {
+		// Eléments en attente
+		Object[] items = new Object[16];
+		// Date d'ajout de chaque élément
+		long[] times = new long[16];
+		// Indice de la tête de la file
+		int head;
+		// Nombre d'éléments en attente
+		int size;
+
+		/**
+		 * Ajoute un élément en queue de file
+		 * 
+		 * @param item élément
+		 * @param time date d'ajout
+		 */
+		void add(Object item, long time) {
+			if (size == items.length) {
+				Object[] newItems = new Object[size * 2];
+				long[] newTimes = new long[size * 2];
+				for (int i = 0; i < size; i++) {
+					newItems[i] = items[(head + i) % items.length];
+					newTimes[i] = times[(head + i) % items.length];
+				}
+				items = newItems;
+				times = newTimes;
+				head = 0;
+			}
+			int tail = (head + size) % items.length;
+			items[tail] = item;
+			times[tail] = time;
+			size++;
+		}
+
+		/**
+		 * Retire la tête de la file, la file ne doit pas être vide
+		 * 
+		 * @return l'élément retiré
+		 */
+		Object poll() {
+			Object item = items[head];
+			items[head] = null;
+			head = (head + 1) % items.length;
+			size--;
+			return item;
+		}
+
+		/**
+		 * Vide la file
+		 */
+		void clear() {
+			Arrays.fill(items, null);
+			head = 0;
+			size = 0;
+		}
+	}
+
+	/**
+	 * Délai de vieillissement : attente qui fait gagner un rang de priorité à un
+	 * élément, 0 pour un ordre strict des priorités
+	 */
+	protected final long aging;
+
+	// Files des priorités, par rang
+	private final Level[] levels;
+	// Nombre d'éléments en attente
+	private int size;
+
+	/**
+	 * Constructeur de AgingQueue
+	 * 
+	 * @param aging @see {@link #aging}, dans l'unité des dates passées à la file
+	 */
+	public AgingQueue(long aging) {
+		assert aging >= 0;
+		this.aging = aging;
+		this.levels = new Level[Priority.values().length];
+		for (int i = 0; i < levels.length; i++)
+			levels[i] = new Level();
+	}
+
+	/**
+	 * Ajoute un élément
+	 * 
+	 * @param item     élément
+	 * @param priority priorité de l'élément
+	 * @param now      date d'ajout
+	 */
+	public void add(E item, Priority priority, long now) {
+		levels[priority.ordinal()].add(item, now);
+		size++;
+	}
+
+	/**
+	 * Retire l'élément de plus grand score
+	 * 
+	 * @param now date courante
+	 * @return l'élément, null si la file est vide
+	 */
+	@SuppressWarnings("unchecked")
+	public E poll(long now) {
+		Level best = null;
+		long bestScore = Long.MIN_VALUE;
+		// les priorités sont parcourues de la plus haute à la plus basse, la plus
+		// haute l'emporte à score égal
+		for (int rank = levels.length - 1; rank >= 0; rank--) {
+			Level level = levels[rank];
+			if (level.size == 0)
+				continue;
+			long score = aging == 0 ? rank : rank * aging + (now - level.times[level.head]);
+			if (score > bestScore) {
+				best = level;
+				bestScore = score;
+			}
+		}
+		if (best == null)
+			return null;
+		size--;
+		return (E) best.poll();
+	}
+
+	/**
+	 * Retire l'élément le plus ancien de la priorité la plus basse, pour faire de
+	 * la place
+	 * 
+	 * @return l'élément, null si la file est vide
+	 */
+	@SuppressWarnings("unchecked")
+	public E pollLowest() {
+		for (Level level : levels) {
+			if (level.size > 0) {
+				size--;
+				return (E) level.poll();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Renvoie la priorité la plus basse des éléments en attente
+	 * 
+	 * @return la priorité, null si la file est vide
+	 */
+	public Priority lowest() {
+		for (int rank = 0; rank < levels.length; rank++)
+			if (levels[rank].size > 0)
+				return Priority.valueOf(rank);
+		return null;
+	}
+
+	/**
+	 * Renvoie le nombre d'éléments en attente
+	 * 
+	 * @return le nombre d'éléments
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Renvoie le nombre d'éléments en attente d'une priorité
+	 * 
+	 * @param priority priorité
+	 * @return le nombre d'éléments de cette priorité
+	 */
+	public int size(Priority priority) {
+		return levels[priority.ordinal()].size;
+	}
+
+	/**
+	 * Renvoie vrai si aucun élément n'est en attente
+	 * 
+	 * @return vrai si la file est vide
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Vide la file
+	 */
+	public void clear() {
+		for (Level level : levels)
+			level.clear();
+		size = 0;
+	}
+
+}
@@ -0,0 +1,387 @@
+package message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import interfaces.MessageI;
+
+/**
+ * Encodage binaire d'un lot de messages transmis entre Brokers, à la place de
+ * la sérialisation Java de chaque Message : pas de descripteurs de classes, les
+ * nombres sont écrits en longueur variable et les dates en écart avec le
+ * message précédent.
+ * 
+ * Les chaînes qui se répètent (topics, timestamper, Broker d'origine, noms des
+ * propriétés) sont écrites une seule fois par lot : les occurrences suivantes
+ * sont remplacées par leur indice dans un dictionnaire construit au fil de
+ * l'encodage. Le lot peut en plus être compressé @see Lz4Block
+ * 
+ * Les contenus et propriétés de types simples sont encodés directement, les
+ * autres contenus sont sérialisés. Les contenus binaires @see BinaryPayload
+ * d'un lot décodé ne sont pas copiés : ils partagent le tableau d'octets du lot.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class BatchCodec {
+
+	/**
+	 * Formats d'envoi des messages entre Brokers
+	 */
+	public enum WireFormat {
+		/**
+		 * sérialisation Java des messages
+		 */
+		SERIALIZED,
+		/**
+		 * encodage binaire du lot
+		 */
+		BINARY,
+		/**
+		 * encodage binaire du lot compressé
+		 */
+		COMPRESSED
+	}
+
+	/**
+	 * Lot de messages décodé
+	 */
+	public static class Batch {
+		/**
+		 * messages du lot
+		 */
+		public final MessageI[] messages;
+		/**
+		 * topics des messages
+		 */
+		public final String[] topics;
+
+		/**
+		 * Constructeur de Batch
+		 * 
+		 * @param messages @see {@link #messages}
+		 * @param topics   @see {@link #topics}
+		 */
+		public Batch(MessageI[] messages, String[] topics) {
+			this.messages = messages;
+			this.topics = topics;
+		}
+	}
+
+	/**
+	 * Premier octet d'un lot encodé
+	 */
+	protected static final byte MAGIC = 'B';
+
+	/**
+	 * Version de l'encodage
+	 */
+	protected static final byte VERSION = 1;
+
+	/**
+	 * Indicateur d'un lot compressé
+	 */
+	protected static final byte COMPRESSED_FLAG = 1;
+
+	/**
+	 * Taille maximale d'un lot décompressé, en octets
+	 */
+	protected static final int MAX_BATCH_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * Taux maximal de compression d'un bloc LZ4 : un octet de longueur encode au
+	 * plus 255 octets
+	 */
+	protected static final int MAX_COMPRESSION_RATIO = 255;
+
+	/**
+	 * Taille minimale d'un message encodé, en octets : son URI, son origine, son
+	 * horodatage, ses propriétés et son contenu
+	 */
+	protected static final int MIN_MESSAGE_SIZE = 5;
+
+	/**
+	 * Encode un lot de messages
+	 * 
+	 * @param ms       messages du lot
+	 * @param topics   topics des messages
+	 * @param compress true pour compresser le lot
+	 * @return le lot encodé
+	 */
+	public static byte[] encode(MessageI[] ms, String[] topics, boolean compress) throws Exception {
+		ByteArrayOutputStream body = new ByteArrayOutputStream(64 + 64 * ms.length);
+		Writer out = new Writer(new DataOutputStream(body));
+		out.writeVarInt(topics.length);
+		for (String topic : topics)
+			out.writeShared(topic);
+		out.writeVarInt(ms.length);
+		long previousTime = 0;
+		for (MessageI m : ms) {
+			out.writeString(m.getURI());
+			out.writeShared(m.getOrigin());
+			TimeStamp ts = m.getTimeStamp();
+			if (ts == null) {
+				out.out.writeBoolean(false);
+			} else {
+				out.out.writeBoolean(true);
+				out.writeVarLong(ValueIO.zigzag(ts.getTime() - previousTime));
+				previousTime = ts.getTime();
+				out.writeShared(ts.getTimeStamper());
+			}
+			Properties properties = m.getProperties();
+			if (properties == null) {
+				out.writeVarInt(0);
+			} else {
+				out.writeVarInt(properties.size() + 1);
+				for (int i = 0; i < properties.size(); i++) {
+					out.writeShared(properties.nameAt(i));
+					properties.writeValueAt(out.out, i);
+				}
+			}
+			out.writeValue(m.getPayload());
+		}
+		out.out.flush();
+
+		byte[] raw = body.toByteArray();
+		if (!compress) {
+			byte[] res = new byte[raw.length + 3];
+			res[0] = MAGIC;
+			res[1] = VERSION;
+			res[2] = 0;
+			System.arraycopy(raw, 0, res, 3, raw.length);
+			return res;
+		}
+		ByteArrayOutputStream header = new ByteArrayOutputStream(8);
+		Writer h = new Writer(new DataOutputStream(header));
+		h.out.writeByte(MAGIC);
+		h.out.writeByte(VERSION);
+		h.out.writeByte(COMPRESSED_FLAG);
+		h.writeVarInt(raw.length);
+		h.out.flush();
+		byte[] res = new byte[header.size() + Lz4Block.maxCompressedLength(raw.length)];
+		System.arraycopy(header.toByteArray(), 0, res, 0, header.size());
+		int n = Lz4Block.compress(raw, 0, raw.length, res, header.size());
+		byte[] trimmed = new byte[header.size() + n];
+		System.arraycopy(res, 0, trimmed, 0, trimmed.length);
+		return trimmed;
+	}
+
+	/**
+	 * Décode un lot de messages
+	 * 
+	 * @param data lot encodé par {@link #encode(MessageI[], String[], boolean)}
+	 * @return les messages et leurs topics
+	 * @throws IOException si le lot est invalide, en particulier si une taille ou
+	 *                     un nombre d'éléments lu dépasse ce que le reste du lot
+	 *                     peut contenir : rien n'est alloué d'après une taille
+	 *                     qui n'a pas été vérifiée
+	 */
+	public static Batch decode(byte[] data) throws IOException, ClassNotFoundException {
+		if (data.length < 3 || data[0] != MAGIC || data[1] != VERSION)
+			throw new IOException("not an encoded batch");
+		Reader in;
+		if ((data[2] & COMPRESSED_FLAG) != 0) {
+			ByteArrayInputStream bytes = new ByteArrayInputStream(data, 3, data.length - 3);
+			int length = new Reader(new DataInputStream(bytes)).readVarInt();
+			int offset = data.length - bytes.available();
+			if (length < 0 || length > MAX_BATCH_SIZE
+					|| length > (long) (data.length - offset) * MAX_COMPRESSION_RATIO)
+				throw new IOException("invalid batch length " + length);
+			byte[] raw = new byte[length];
+			try {
+				Lz4Block.decompress(data, offset, data.length - offset, raw, 0, length);
+			} catch (IllegalArgumentException e) {
+				throw new IOException(e);
+			}
+			in = new Reader(new Input(raw, 0, length));
+		} else {
+			in = new Reader(new Input(data, 3, data.length - 3));
+		}
+
+		String[] topics = new String[in.readCount(1)];
+		for (int i = 0; i < topics.length; i++)
+			topics[i] = in.readShared();
+		MessageI[] ms = new MessageI[in.readCount(MIN_MESSAGE_SIZE)];
+		long previousTime = 0;
+		for (int i = 0; i < ms.length; i++) {
+			String uri = in.readString();
+			String origin = in.readShared();
+			TimeStamp ts = null;
+			if (in.in.readBoolean()) {
+				ts = new TimeStamp();
+				previousTime += ValueIO.unzigzag(in.readVarLong());
+				ts.setTime(previousTime);
+				ts.setTimeStamper(in.readShared());
+			}
+			Properties properties = null;
+			int count = in.readVarInt();
+			if (count > 0) {
+				properties = new Properties();
+				for (int j = 1; j < count; j++) {
+					properties.readValue(in.readShared(), in.in);
+				}
+			}
+			ms[i] = new Message(uri, ts, properties, (Serializable) in.readValue(), origin);
+		}
+		return new Batch(ms, topics);
+	}
+
+	/**
+	 * Écriture d'un lot, avec le dictionnaire des chaînes déjà écrites
+	 */
+	private static class Writer {
+		final DataOutputStream out;
+		// Indice de chaque chaîne déjà écrite
+		final Map<String, Integer> dictionary = new HashMap<>();
+
+		Writer(DataOutputStream out) {
+			this.out = out;
+		}
+
+		void writeVarLong(long v) throws IOException {
+			ValueIO.writeVarLong(out, v);
+		}
+
+		void writeVarInt(int v) throws IOException {
+			ValueIO.writeVarInt(out, v);
+		}
+
+		void writeString(String s) throws IOException {
+			ValueIO.writeString(out, s);
+		}
+
+		/**
+		 * Écrit une chaîne qui peut se répéter dans le lot : 0 pour null, un nombre
+		 * impair suivi de la chaîne à sa première occurrence, sinon le double de son
+		 * indice dans le dictionnaire plus 2
+		 */
+		void writeShared(String s) throws IOException {
+			if (s == null) {
+				writeVarInt(0);
+				return;
+			}
+			Integer index = dictionary.get(s);
+			if (index != null) {
+				writeVarInt(2 * index + 2);
+			} else {
+				dictionary.put(s, dictionary.size());
+				writeVarInt(1);
+				writeString(s);
+			}
+		}
+
+		void writeValue(Object v) throws IOException {
+			ValueIO.writeValue(out, v);
+		}
+	}
+
+	/**
+	 * Octets d'un lot, qui donne accès à son tableau pour ne pas copier les
+	 * contenus binaires
+	 */
+	private static class Input extends ByteArrayInputStream {
+
+		Input(byte[] buf, int offset, int length) {
+			super(buf, offset, length);
+		}
+
+		/**
+		 * Renvoie les prochains octets comme contenu binaire, sans les copier
+		 */
+		BinaryPayload payload(int length) throws IOException {
+			if (length < 0 || length > count - pos)
+				throw new IOException("truncated payload");
+			BinaryPayload res = BinaryPayload.wrap(buf, pos, length);
+			pos += length;
+			return res;
+		}
+	}
+
+	/**
+	 * Lecture d'un lot, avec le dictionnaire des chaînes déjà lues
+	 */
+	private static class Reader {
+		final DataInputStream in;
+		// Octets du lot, null s'ils ne sont pas dans un tableau
+		final Input bytes;
+		// Chaînes déjà lues, dans l'ordre de leur première occurrence
+		final List<String> dictionary = new ArrayList<>();
+
+		Reader(DataInputStream in) {
+			this.in = in;
+			this.bytes = null;
+		}
+
+		Reader(Input bytes) {
+			this.in = new DataInputStream(bytes);
+			this.bytes = bytes;
+		}
+
+		long readVarLong() throws IOException {
+			return ValueIO.readVarLong(in);
+		}
+
+		int readVarInt() throws IOException {
+			return ValueIO.readVarInt(in);
+		}
+
+		/**
+		 * Lit une chaîne, sa taille est vérifiée avant d'être allouée
+		 */
+		String readString() throws IOException {
+			byte[] b = new byte[readCount(1)];
+			in.readFully(b);
+			return new String(b, StandardCharsets.UTF_8);
+		}
+
+		/**
+		 * Lit un nombre d'éléments et vérifie que le reste du lot peut les contenir
+		 * 
+		 * @param minSize taille minimale d'un élément en octets
+		 */
+		int readCount(int minSize) throws IOException {
+			int n = readVarInt();
+			if (n < 0 || (long) n * minSize > bytes.available())
+				throw new IOException("invalid count " + n);
+			return n;
+		}
+
+		String readShared() throws IOException {
+			int code = readVarInt();
+			if (code == 0)
+				return null;
+			if ((code & 1) != 0) {
+				String s = readString();
+				dictionary.add(s);
+				return s;
+			}
+			int index = code / 2 - 1;
+			if (index >= dictionary.size())
+				throw new IOException("unknown dictionary entry " + index);
+			return dictionary.get(index);
+		}
+
+		/**
+		 * Lit une valeur, les contenus binaires sont laissés dans le tableau du lot
+		 */
+		Object readValue() throws IOException, ClassNotFoundException {
+			if (bytes != null) {
+				bytes.mark(1);
+				if (in.readByte() == ValueIO.BUFFER)
+					return bytes.payload(readVarInt());
+				bytes.reset();
+			}
+			return ValueIO.readValue(in);
+		}
+	}
+
+}
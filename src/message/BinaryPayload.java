@@ -0,0 +1,208 @@
+package message;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.nio.ByteBuffer;
+
+/**
+ * Contenu binaire d'un message, rangé dans un ByteBuffer du tas ou direct. Il
+ * est écrit tel quel, précédé de sa taille, sans passer par la sérialisation
+ * des objets : les messages @see Message#writeExternal(ObjectOutput) et les
+ * lots de messages @see BatchCodec l'écrivent directement.
+ * 
+ * Le contenu n'est jamais copié : un Broker transmet le même objet à ses
+ * abonnés et à ses voisins, un lot décodé garde les contenus dans son propre
+ * tableau d'octets, et un abonné lit des parties du contenu @see #slice(int,
+ * int) qui partagent sa mémoire. Les vues renvoyées sont en lecture seule.
+ * 
+ * @author Bello Velly
+ *
+ */
+public final class BinaryPayload implements Externalizable {
+
+	private static final long serialVersionUID = 1L;
+
+	// Taille des morceaux copiés pour écrire un buffer direct
+	private static final int CHUNK = 8192;
+
+	/**
+	 * Octets du contenu, de la position 0 à la limite du buffer
+	 */
+	private ByteBuffer buffer;
+
+	/**
+	 * constructeur vide, utilisé seulement par la désérialisation
+	 * @see #readExternal(ObjectInput)
+	 */
+	public BinaryPayload() {
+	}
+
+	/**
+	 * Constructeur de BinaryPayload, qui partage la mémoire du buffer
+	 * 
+	 * @param buffer buffer dont les octets restants forment le contenu, sa
+	 *               position et sa limite ne sont pas modifiées
+	 */
+	public BinaryPayload(ByteBuffer buffer) {
+		assert buffer != null;
+		this.buffer = buffer.slice();
+	}
+
+	/**
+	 * Crée un contenu qui partage la mémoire d'un tableau
+	 * 
+	 * @param bytes  tableau d'octets
+	 * @param offset position du contenu dans le tableau
+	 * @param length taille du contenu
+	 * @return le contenu
+	 */
+	public static BinaryPayload wrap(byte[] bytes, int offset, int length) {
+		return new BinaryPayload(ByteBuffer.wrap(bytes, offset, length));
+	}
+
+	/**
+	 * Crée un contenu qui partage la mémoire d'un tableau
+	 * 
+	 * @param bytes tableau d'octets
+	 * @return le contenu
+	 */
+	public static BinaryPayload wrap(byte[] bytes) {
+		return wrap(bytes, 0, bytes.length);
+	}
+
+	/**
+	 * Renvoie la taille du contenu
+	 * 
+	 * @return le nombre d'octets du contenu
+	 */
+	public int size() {
+		return buffer.limit();
+	}
+
+	/**
+	 * Indique si le contenu est hors du tas
+	 * 
+	 * @return true si le buffer est direct
+	 */
+	public boolean isDirect() {
+		return buffer.isDirect();
+	}
+
+	/**
+	 * Renvoie une vue du contenu, sans copie
+	 * 
+	 * @return un buffer en lecture seule, de la position 0 à la taille du contenu
+	 */
+	public ByteBuffer buffer() {
+		return buffer.asReadOnlyBuffer();
+	}
+
+	/**
+	 * Renvoie une vue d'une partie du contenu, sans copie
+	 * 
+	 * @param offset position de la partie dans le contenu
+	 * @param length taille de la partie
+	 * @return un buffer en lecture seule, de la position 0 à la taille de la
+	 *         partie
+	 */
+	public ByteBuffer slice(int offset, int length) {
+		if (offset < 0 || length < 0 || offset + length > size())
+			throw new IndexOutOfBoundsException("slice " + offset + "+" + length + " of " + size());
+		ByteBuffer view = buffer.asReadOnlyBuffer();
+		view.position(offset).limit(offset + length);
+		return view.slice();
+	}
+
+	/**
+	 * Renvoie une copie du contenu
+	 * 
+	 * @return un nouveau tableau avec les octets du contenu
+	 */
+	public byte[] toByteArray() {
+		byte[] res = new byte[size()];
+		buffer.duplicate().get(res);
+		return res;
+	}
+
+	/**
+	 * Écrit le contenu précédé de sa taille. Les octets d'un buffer du tas sont
+	 * écrits depuis son tableau, ceux d'un buffer direct par morceaux
+	 * 
+	 * @param out flux de sortie
+	 */
+	void writeTo(DataOutput out) throws IOException {
+		int size = size();
+		ValueIO.writeVarInt(out, size);
+		if (buffer.hasArray()) {
+			out.write(buffer.array(), buffer.arrayOffset(), size);
+			return;
+		}
+		ByteBuffer src = buffer.duplicate();
+		byte[] chunk = new byte[Math.min(CHUNK, size)];
+		while (src.hasRemaining()) {
+			int n = Math.min(chunk.length, src.remaining());
+			src.get(chunk, 0, n);
+			out.write(chunk, 0, n);
+		}
+	}
+
+	/**
+	 * Lit un contenu écrit par {@link #writeTo(DataOutput)} dans un nouveau
+	 * tableau
+	 * 
+	 * @param in flux d'entrée
+	 * @return le contenu lu
+	 */
+	static BinaryPayload readFrom(DataInput in) throws IOException {
+		byte[] bytes = new byte[ValueIO.readVarInt(in)];
+		in.readFully(bytes);
+		return wrap(bytes);
+	}
+
+	/**
+	 * @see java.io.Externalizable#writeExternal(ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		writeTo(out);
+	}
+
+	/**
+	 * @see java.io.Externalizable#readExternal(ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		buffer = readFrom(in).buffer;
+	}
+
+	/**
+	 * Deux contenus sont égaux s'ils ont les mêmes octets
+	 * 
+	 * @see java.lang.Object#equals(Object)
+	 */
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof BinaryPayload && buffer.equals(((BinaryPayload) o).buffer);
+	}
+
+	/**
+	 * @see java.lang.Object#hashCode()
+	 */
+	@Override
+	public int hashCode() {
+		return buffer.hashCode();
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "BinaryPayload[" + size() + " bytes" + (isDirect() ? ", direct]" : "]");
+	}
+
+}
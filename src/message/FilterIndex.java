@@ -0,0 +1,478 @@
+package message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import interfaces.MessageFilterI;
+import interfaces.MessageI;
+import message.PropertyFilter.Condition;
+import message.PropertyFilter.Operator;
+
+/**
+ * Index des filtres des abonnés d'un Topic. Chaque filtre déclaratif @see
+ * PropertyFilter est rangé sous une seule de ses conditions : une égalité ou
+ * un ensemble par valeur de la propriété, sinon un intervalle numérique dans
+ * un arbre d'intervalles @see RangeTree. Pour un message, seuls les abonnés
+ * rangés sous ses valeurs sont testés, au lieu de tous les abonnés du topic.
+ * 
+ * Les filtres lambda, qui ne peuvent pas être indexés, sont testés sur chaque
+ * message.
+ * 
+ * L'index n'est pas modifié une fois créé : à chaque changement d'abonnement,
+ * le Topic en obtient un nouveau avec @see #add(String, MessageFilterI) et
+ * @see #remove(String, MessageFilterI), qui partage avec l'ancien tout ce que
+ * le changement ne touche pas. Seule la liste, la valeur ou l'arbre
+ * d'intervalles où l'abonné est rangé est recopié, au lieu de reconstruire
+ * l'index de tous les abonnés.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class FilterIndex {
+
+	/**
+	 * Index vide, sans abonnés
+	 */
+	public static final FilterIndex EMPTY = new FilterIndex(new HashMap<String, MessageFilterI>());
+
+	// Abonnés sans filtre, qui reçoivent tous les messages
+	private List<Subscriber> matchAll;
+	// Abonnés indexés par égalité <clé, <valeur normalisée, abonnés>>
+	private final Map<PropertyKey, Map<Object, List<Subscriber>>> equalities;
+	// Intervalles numériques des abonnés <clé, intervalles>
+	private final Map<PropertyKey, List<Range>> intervals;
+	// Abonnés indexés par intervalle numérique <clé, arbre des intervalles>
+	private final Map<PropertyKey, RangeTree> ranges;
+	// Abonnés dont le filtre doit être testé sur chaque message
+	private List<Subscriber> others;
+
+	/**
+	 * Constructeur de FilterIndex
+	 * 
+	 * @param subscriptions abonnés du topic avec leurs filtres, copiés par l'index
+	 */
+	public FilterIndex(Map<String, MessageFilterI> subscriptions) {
+		this.matchAll = new ArrayList<>();
+		this.equalities = new HashMap<>();
+		this.intervals = new HashMap<>();
+		this.ranges = new HashMap<>();
+		this.others = new ArrayList<>();
+		for (Map.Entry<String, MessageFilterI> subscription : subscriptions.entrySet()) {
+			Subscriber subscriber = new Subscriber(subscription.getKey(), subscription.getValue());
+			Condition access = accessCondition(subscriber.filter);
+			if (matchesAll(subscriber.filter)) {
+				matchAll.add(subscriber);
+			} else if (access == null) {
+				others.add(subscriber);
+			} else if (access.getOperator() == Operator.RANGE) {
+				if (!isEmpty(access))
+					intervals.computeIfAbsent(access.getKey(), k -> new ArrayList<>())
+							.add(new Range(access.getMin(), access.getMax(), subscriber));
+			} else {
+				Map<Object, List<Subscriber>> byValue = equalities.computeIfAbsent(access.getKey(),
+						k -> new HashMap<>());
+				for (Object value : access.getValues())
+					byValue.computeIfAbsent(value, k -> new ArrayList<>()).add(subscriber);
+			}
+		}
+		for (Map.Entry<PropertyKey, List<Range>> key : intervals.entrySet())
+			ranges.put(key.getKey(), build(key.getValue()));
+	}
+
+	/**
+	 * Constructeur de copie : le nouvel index partage les listes, les valeurs et
+	 * les arbres de l'index copié, qui ne sont jamais modifiés mais remplacés
+	 * 
+	 * @param index index copié
+	 */
+	private FilterIndex(FilterIndex index) {
+		this.matchAll = index.matchAll;
+		this.equalities = new HashMap<>(index.equalities);
+		this.intervals = new HashMap<>(index.intervals);
+		this.ranges = new HashMap<>(index.ranges);
+		this.others = index.others;
+	}
+
+	/**
+	 * Renvoie un nouvel index avec un abonné de plus. L'abonné ne doit pas déjà
+	 * être dans l'index
+	 * 
+	 * @param subscriber abonné ajouté
+	 * @param filter     filtre de l'abonné, null pour aucun filtre
+	 * @return le nouvel index, cet index n'est pas modifié
+	 */
+	public FilterIndex add(String subscriber, MessageFilterI filter) {
+		FilterIndex res = new FilterIndex(this);
+		res.update(new Subscriber(subscriber, filter), true);
+		return res;
+	}
+
+	/**
+	 * Renvoie un nouvel index sans un abonné
+	 * 
+	 * @param subscriber abonné retiré
+	 * @param filter     filtre avec lequel l'abonné a été ajouté
+	 * @return le nouvel index, cet index n'est pas modifié
+	 */
+	public FilterIndex remove(String subscriber, MessageFilterI filter) {
+		FilterIndex res = new FilterIndex(this);
+		res.update(new Subscriber(subscriber, filter), false);
+		return res;
+	}
+
+	/**
+	 * Ajoute ou retire un abonné d'un index qui vient d'être copié : la liste,
+	 * les valeurs ou l'arbre où il est rangé sont remplacés par des copies
+	 * modifiées
+	 * 
+	 * @param subscriber abonné
+	 * @param add        vrai pour ajouter l'abonné, faux pour le retirer
+	 */
+	private void update(Subscriber subscriber, boolean add) {
+		Condition access = accessCondition(subscriber.filter);
+		if (matchesAll(subscriber.filter)) {
+			matchAll = update(matchAll, subscriber, add);
+		} else if (access == null) {
+			others = update(others, subscriber, add);
+		} else if (access.getOperator() == Operator.RANGE) {
+			if (isEmpty(access))
+				return;
+			List<Range> old = intervals.getOrDefault(access.getKey(), new ArrayList<>());
+			List<Range> updated = new ArrayList<>(old.size() + 1);
+			for (Range range : old)
+				if (!range.subscriber.name.equals(subscriber.name))
+					updated.add(range);
+			if (add)
+				updated.add(new Range(access.getMin(), access.getMax(), subscriber));
+			if (updated.isEmpty()) {
+				intervals.remove(access.getKey());
+				ranges.remove(access.getKey());
+			} else {
+				intervals.put(access.getKey(), updated);
+				ranges.put(access.getKey(), build(updated));
+			}
+		} else {
+			Map<Object, List<Subscriber>> byValue = new HashMap<>(
+					equalities.getOrDefault(access.getKey(), new HashMap<>()));
+			for (Object value : access.getValues()) {
+				List<Subscriber> updated = update(byValue.getOrDefault(value, new ArrayList<>()), subscriber, add);
+				if (updated.isEmpty())
+					byValue.remove(value);
+				else
+					byValue.put(value, updated);
+			}
+			if (byValue.isEmpty())
+				equalities.remove(access.getKey());
+			else
+				equalities.put(access.getKey(), byValue);
+		}
+	}
+
+	/**
+	 * Renvoie une copie d'une liste d'abonnés avec un abonné ajouté ou retiré
+	 * 
+	 * @param subscribers liste copiée, qui n'est pas modifiée
+	 * @param subscriber  abonné
+	 * @param add         vrai pour ajouter l'abonné, faux pour le retirer
+	 * @return la nouvelle liste
+	 */
+	private static List<Subscriber> update(List<Subscriber> subscribers, Subscriber subscriber, boolean add) {
+		List<Subscriber> res = new ArrayList<>(subscribers.size() + 1);
+		for (Subscriber s : subscribers)
+			if (!s.name.equals(subscriber.name))
+				res.add(s);
+		if (add)
+			res.add(subscriber);
+		return res;
+	}
+
+	/**
+	 * Renvoie vrai si un filtre accepte tous les messages
+	 * 
+	 * @param filter filtre d'un abonné, null pour aucun filtre
+	 * @return vrai si le filtre est absent ou sans condition
+	 */
+	private static boolean matchesAll(MessageFilterI filter) {
+		return filter == null
+				|| (filter instanceof PropertyFilter && ((PropertyFilter) filter).getConditions().isEmpty());
+	}
+
+	/**
+	 * Renvoie vrai si un intervalle est vide : il n'accepte aucun message et
+	 * l'abonné n'est pas rangé
+	 * 
+	 * @param range condition sur un intervalle
+	 * @return vrai si la borne inférieure est après la borne supérieure
+	 */
+	private static boolean isEmpty(Condition range) {
+		return range.getMin() != null && range.getMax() != null
+				&& PropertyFilter.compare(range.getMin(), range.getMax()) > 0;
+	}
+
+	/**
+	 * Choisit la condition sous laquelle ranger un filtre : la plus sélective
+	 * possible, une égalité, puis le plus petit ensemble, puis un intervalle
+	 * numérique
+	 * 
+	 * @param filter filtre à ranger, null pour aucun filtre
+	 * @return la condition choisie, null si aucune condition n'est indexable
+	 */
+	private static Condition accessCondition(MessageFilterI filter) {
+		if (!(filter instanceof PropertyFilter))
+			return null;
+		Condition best = null;
+		for (Condition condition : ((PropertyFilter) filter).getConditions()) {
+			if (condition.getOperator() == Operator.RANGE) {
+				boolean numeric = (condition.getMin() == null || condition.getMin() instanceof Number)
+						&& (condition.getMax() == null || condition.getMax() instanceof Number);
+				if (numeric && best == null)
+					best = condition;
+			} else if (best == null || best.getOperator() == Operator.RANGE
+					|| condition.getValues().size() < best.getValues().size()) {
+				best = condition;
+			}
+		}
+		return best;
+	}
+
+	/**
+	 * Cherche les abonnés intéressés par des messages
+	 * 
+	 * @param ms messages publiés
+	 * @return les messages acceptés par chaque abonné intéressé, dans l'ordre des
+	 *         messages
+	 */
+	public Map<String, List<MessageI>> match(MessageI[] ms) {
+		Map<String, List<MessageI>> res = new HashMap<>();
+		Set<String> matched = new HashSet<>();
+		for (MessageI m : ms) {
+			matched.clear();
+			match(m, matched);
+			for (String subscriber : matched)
+				res.computeIfAbsent(subscriber, k -> new ArrayList<>(ms.length)).add(m);
+		}
+		return res;
+	}
+
+	/**
+	 * Cherche les abonnés intéressés par un message
+	 * 
+	 * @param m       message publié
+	 * @param matched ensemble auquel sont ajoutés les abonnés intéressés
+	 */
+	private void match(MessageI m, Set<String> matched) {
+		for (Subscriber subscriber : matchAll)
+			matched.add(subscriber.name);
+		for (Subscriber subscriber : others)
+			test(subscriber, m, matched);
+
+		Properties properties;
+		try {
+			properties = m.getProperties();
+		} catch (Exception e) {
+			e.printStackTrace();
+			return;
+		}
+		if (properties == null)
+			return;
+
+		for (Map.Entry<PropertyKey, Map<Object, List<Subscriber>>> equality : equalities.entrySet()) {
+			Object value = properties.getProp(equality.getKey());
+			if (value == null)
+				continue;
+			List<Subscriber> candidates = equality.getValue().get(PropertyFilter.normalize(value));
+			if (candidates != null)
+				for (Subscriber subscriber : candidates)
+					test(subscriber, m, matched);
+		}
+		for (Map.Entry<PropertyKey, RangeTree> range : ranges.entrySet()) {
+			Object value = properties.getProp(range.getKey());
+			if (value instanceof Number)
+				range.getValue().stab(PropertyFilter.normalize(value), m, matched);
+		}
+	}
+
+	/**
+	 * Teste le filtre complet d'un abonné sur un message
+	 * 
+	 * @param subscriber abonné
+	 * @param m          message
+	 * @param matched    ensemble auquel est ajouté l'abonné s'il est intéressé
+	 */
+	private static void test(Subscriber subscriber, MessageI m, Set<String> matched) {
+		try {
+			if (subscriber.filter.filter(m))
+				matched.add(subscriber.name);
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Abonné rangé dans l'index, avec son filtre
+	 */
+	private static class Subscriber {
+		// URI de l'abonné
+		final String name;
+		// Filtre de l'abonné, null pour aucun filtre
+		final MessageFilterI filter;
+
+		Subscriber(String name, MessageFilterI filter) {
+			this.name = name;
+			this.filter = filter;
+		}
+	}
+
+	/**
+	 * Intervalle numérique d'un abonné, les bornes sont incluses
+	 */
+	private static class Range {
+		// Bornes normalisées, null si pas de borne
+		final Object min;
+		final Object max;
+		// Abonné
+		final Subscriber subscriber;
+
+		Range(Object min, Object max, Subscriber subscriber) {
+			this.min = min;
+			this.max = max;
+			this.subscriber = subscriber;
+		}
+
+		// Vrai si la borne inférieure est avant la valeur
+		boolean startsBefore(Object value) {
+			return min == null || PropertyFilter.compare(min, value) <= 0;
+		}
+
+		// Vrai si la borne supérieure est après la valeur
+		boolean endsAfter(Object value) {
+			return max == null || PropertyFilter.compare(value, max) <= 0;
+		}
+	}
+
+	/**
+	 * Arbre d'intervalles centré : chaque noeud garde les intervalles qui
+	 * contiennent son centre, triés par borne inférieure et par borne supérieure,
+	 * les intervalles entièrement avant ou après le centre sont dans ses fils. La
+	 * recherche des intervalles qui contiennent une valeur ne parcourt qu'une
+	 * branche et s'arrête dans chaque noeud au premier intervalle qui ne la
+	 * contient pas : elle coûte le nombre d'intervalles trouvés plus la hauteur de
+	 * l'arbre, et non le nombre d'intervalles. Les bornes sont comparées par @see
+	 * PropertyFilter#compare(Object, Object), les entiers exactement.
+	 */
+	private class RangeTree {
+		// Centre du noeud, null si tous ses intervalles sont sans borne
+		private final Object center;
+		// Intervalles qui contiennent le centre, par borne inférieure croissante
+		private final Range[] byMin;
+		// Les mêmes intervalles, par borne supérieure décroissante
+		private final Range[] byMax;
+		// Intervalles entièrement avant et après le centre, null si aucun
+		private final RangeTree before;
+		private final RangeTree after;
+
+		private RangeTree(Object center, Range[] byMin, Range[] byMax, RangeTree before, RangeTree after) {
+			this.center = center;
+			this.byMin = byMin;
+			this.byMax = byMax;
+			this.before = before;
+			this.after = after;
+		}
+
+		/**
+		 * Teste les abonnés dont l'intervalle contient une valeur
+		 * 
+		 * @param value   valeur normalisée de la propriété du message
+		 * @param m       message
+		 * @param matched ensemble auquel sont ajoutés les abonnés intéressés
+		 */
+		void stab(Object value, MessageI m, Set<String> matched) {
+			int c = center == null ? 0 : PropertyFilter.compare(value, center);
+			if (c < 0) {
+				for (Range range : byMin) {
+					if (!range.startsBefore(value))
+						break;
+					test(range.subscriber, m, matched);
+				}
+				if (before != null)
+					before.stab(value, m, matched);
+			} else if (c > 0) {
+				for (Range range : byMax) {
+					if (!range.endsAfter(value))
+						break;
+					test(range.subscriber, m, matched);
+				}
+				if (after != null)
+					after.stab(value, m, matched);
+			} else {
+				for (Range range : byMin)
+					test(range.subscriber, m, matched);
+			}
+		}
+	}
+
+	// Ordre des bornes inférieures, sans borne en premier
+	private static final Comparator<Range> BY_MIN = (a, b) -> a.min == null ? (b.min == null ? 0 : -1)
+			: b.min == null ? 1 : PropertyFilter.compare(a.min, b.min);
+	// Ordre des bornes supérieures décroissantes, sans borne en premier
+	private static final Comparator<Range> BY_MAX_DESC = (a, b) -> a.max == null ? (b.max == null ? 0 : -1)
+			: b.max == null ? 1 : PropertyFilter.compare(b.max, a.max);
+
+	/**
+	 * Construit l'arbre d'intervalles d'une propriété, le centre de chaque noeud
+	 * est la médiane des bornes de ses intervalles
+	 * 
+	 * @param intervals intervalles des abonnés
+	 * @return la racine de l'arbre, null s'il n'y a pas d'intervalle
+	 */
+	private RangeTree build(List<Range> intervals) {
+		if (intervals.isEmpty())
+			return null;
+		List<Object> bounds = new ArrayList<>(2 * intervals.size());
+		for (Range range : intervals) {
+			if (range.min != null)
+				bounds.add(range.min);
+			if (range.max != null)
+				bounds.add(range.max);
+		}
+		Range[] here;
+		Object center = null;
+		List<Range> before = new ArrayList<>(), after = new ArrayList<>();
+		if (bounds.isEmpty()) {
+			here = intervals.toArray(new Range[0]);
+		} else {
+			bounds.sort(PropertyFilter::compare);
+			center = bounds.get(bounds.size() / 2);
+			List<Range> containing = new ArrayList<>();
+			for (Range range : intervals) {
+				if (!range.endsAfter(center))
+					before.add(range);
+				else if (!range.startsBefore(center))
+					after.add(range);
+				else
+					containing.add(range);
+			}
+			here = containing.toArray(new Range[0]);
+		}
+		Range[] byMin = here.clone(), byMax = here.clone();
+		Arrays.sort(byMin, BY_MIN);
+		Arrays.sort(byMax, BY_MAX_DESC);
+		return new RangeTree(center, byMin, byMax, build(before), build(after));
+	}
+
+	/**
+	 * Renvoie le nombre d'abonnés dont le filtre est testé sur chaque message
+	 * 
+	 * @return le nombre d'abonnés non indexés
+	 */
+	public int getUnindexedCount() {
+		return others.size();
+	}
+
+}
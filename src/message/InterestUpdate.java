@@ -0,0 +1,111 @@
+package message;
+
+import java.io.Serializable;
+
+import interfaces.MessageFilterI;
+
+/**
+ * Changement d'un abonnement d'un Broker, annoncé aux autres Brokers pour
+ * qu'ils ne lui transmettent que les messages qui l'intéressent @see
+ * RemoteInterest
+ * 
+ * Les annonces peuvent arriver dans le désordre : chaque annonce porte un
+ * numéro de version croissant, donné par le Broker qui l'envoie, et une annonce
+ * plus ancienne que la dernière reçue pour le même abonnement est ignorée.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class InterestUpdate implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	// URI du Broker qui annonce l'abonnement
+	private final String broker;
+	// Topic de l'abonnement, avec des jokers pour une famille de topics
+	private final String topic;
+	// URI du port entrant du subscriber
+	private final String subscriber;
+	// Filtre de l'abonnement, null pour aucun filtre
+	private final MessageFilterI filter;
+	// Vrai si l'abonnement est supprimé
+	private final boolean removed;
+	// Version de l'annonce pour le Broker qui l'envoie
+	private final long version;
+
+	/**
+	 * Constructeur de InterestUpdate
+	 * 
+	 * @param broker     @see {@link #broker}
+	 * @param topic      @see {@link #topic}
+	 * @param subscriber @see {@link #subscriber}
+	 * @param filter     @see {@link #filter}
+	 * @param removed    @see {@link #removed}
+	 * @param version    @see {@link #version}
+	 */
+	public InterestUpdate(String broker, String topic, String subscriber, MessageFilterI filter, boolean removed,
+			long version) {
+		assert broker != null && topic != null && subscriber != null;
+		this.broker = broker;
+		this.topic = topic;
+		this.subscriber = subscriber;
+		this.filter = filter;
+		this.removed = removed;
+		this.version = version;
+	}
+
+	/**
+	 * Renvoie l'URI du Broker qui annonce l'abonnement
+	 * 
+	 * @return @see {@link #broker}
+	 */
+	public String getBroker() {
+		return broker;
+	}
+
+	/**
+	 * Renvoie le topic de l'abonnement
+	 * 
+	 * @return @see {@link #topic}
+	 */
+	public String getTopic() {
+		return topic;
+	}
+
+	/**
+	 * Renvoie l'URI du port entrant du subscriber
+	 * 
+	 * @return @see {@link #subscriber}
+	 */
+	public String getSubscriber() {
+		return subscriber;
+	}
+
+	/**
+	 * Renvoie le filtre de l'abonnement
+	 * 
+	 * @return @see {@link #filter}
+	 */
+	public MessageFilterI getFilter() {
+		return filter;
+	}
+
+	/**
+	 * Regarde si l'abonnement est supprimé
+	 * 
+	 * @return @see {@link #removed}
+	 */
+	public boolean isRemoved() {
+		return removed;
+	}
+
+	/**
+	 * Renvoie la version de l'annonce
+	 * 
+	 * @return @see {@link #version}
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+}
@@ -0,0 +1,237 @@
+package message;
+
+import java.util.Arrays;
+
+/**
+ * Compression par blocs au format LZ4 : une suite de séquences, chacune formée
+ * de littéraux copiés tels quels puis d'une référence (décalage, longueur) vers
+ * des octets déjà écrits. Les correspondances sont cherchées dans une table de
+ * hachage des 4 octets courants, sans recherche exhaustive : la compression est
+ * rapide, au prix d'un taux plus faible que les compresseurs par entropie.
+ * 
+ * Comme le format LZ4, les 5 derniers octets sont toujours des littéraux et une
+ * correspondance ne commence pas à moins de 12 octets de la fin du bloc.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class Lz4Block {
+
+	/**
+	 * Longueur minimale d'une correspondance
+	 */
+	protected static final int MIN_MATCH = 4;
+
+	/**
+	 * Nombre d'octets de fin de bloc toujours écrits en littéraux
+	 */
+	protected static final int LAST_LITERALS = 5;
+
+	/**
+	 * Distance minimale à la fin du bloc du début d'une correspondance
+	 */
+	protected static final int MF_LIMIT = 12;
+
+	/**
+	 * Décalage maximum d'une référence, codé sur 2 octets
+	 */
+	protected static final int MAX_OFFSET = 65535;
+
+	/**
+	 * Nombre de bits maximum de la table de hachage des positions, les petits
+	 * blocs utilisent une table plus petite
+	 */
+	protected static final int HASH_LOG = 12;
+
+	/**
+	 * Renvoie la taille maximale d'un bloc compressé, quand aucune correspondance
+	 * n'est trouvée
+	 * 
+	 * @param length taille des données à compresser
+	 * @return la taille du tampon à fournir à {@link #compress}
+	 */
+	public static int maxCompressedLength(int length) {
+		return length + length / 255 + 16;
+	}
+
+	/**
+	 * Compresse des données
+	 * 
+	 * @param src    données à compresser
+	 * @param srcOff début des données
+	 * @param srcLen taille des données
+	 * @param dst    tampon de destination, d'au moins
+	 *               {@link #maxCompressedLength(int)} octets après dstOff
+	 * @param dstOff début de l'écriture dans le tampon
+	 * @return le nombre d'octets écrits
+	 */
+	public static int compress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff) {
+		int end = srcOff + srcLen;
+		int matchLimit = end - LAST_LITERALS;
+		int mfLimit = end - MF_LIMIT;
+		int anchor = srcOff;
+		int ip = srcOff;
+		int op = dstOff;
+
+		if (srcLen >= MF_LIMIT) {
+			int hashLog = Math.max(8, Math.min(HASH_LOG, 32 - Integer.numberOfLeadingZeros(srcLen)));
+			int[] table = new int[1 << hashLog];
+			Arrays.fill(table, -1);
+			while (ip < mfLimit) {
+				int seq = readInt(src, ip);
+				int h = hash(seq, hashLog);
+				int ref = table[h];
+				table[h] = ip;
+				if (ref < 0 || ip - ref > MAX_OFFSET || readInt(src, ref) != seq) {
+					// on avance plus vite dans les données qui ne se répètent pas
+					ip += 1 + ((ip - anchor) >>> 6);
+					continue;
+				}
+				// la correspondance est étendue vers l'arrière puis vers l'avant
+				while (ip > anchor && ref > srcOff && src[ip - 1] == src[ref - 1]) {
+					ip--;
+					ref--;
+				}
+				int len = MIN_MATCH;
+				while (ip + len < matchLimit && src[ip + len] == src[ref + len])
+					len++;
+				op = writeSequence(src, anchor, ip - anchor, ip - ref, len, dst, op);
+				ip += len;
+				anchor = ip;
+			}
+		}
+
+		// dernière séquence, sans correspondance
+		int literals = end - anchor;
+		dst[op++] = (byte) (Math.min(literals, 15) << 4);
+		if (literals >= 15)
+			op = writeLength(literals - 15, dst, op);
+		System.arraycopy(src, anchor, dst, op, literals);
+		return op + literals - dstOff;
+	}
+
+	/**
+	 * Décompresse un bloc
+	 * 
+	 * @param src    bloc compressé
+	 * @param srcOff début du bloc
+	 * @param srcLen taille du bloc
+	 * @param dst    tampon de destination
+	 * @param dstOff début de l'écriture dans le tampon
+	 * @param dstLen taille des données décompressées
+	 * @throws IllegalArgumentException si le bloc est invalide
+	 */
+	public static void decompress(byte[] src, int srcOff, int srcLen, byte[] dst, int dstOff, int dstLen) {
+		int end = srcOff + srcLen;
+		int ip = srcOff;
+		int op = dstOff;
+		try {
+			while (ip < end) {
+				int token = src[ip++] & 0xFF;
+				int literals = token >>> 4;
+				if (literals == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xFF;
+						literals += b;
+					} while (b == 255);
+				}
+				System.arraycopy(src, ip, dst, op, literals);
+				ip += literals;
+				op += literals;
+				if (ip >= end)
+					break;
+
+				int offset = (src[ip++] & 0xFF) | (src[ip++] & 0xFF) << 8;
+				int len = token & 15;
+				if (len == 15) {
+					int b;
+					do {
+						b = src[ip++] & 0xFF;
+						len += b;
+					} while (b == 255);
+				}
+				len += MIN_MATCH;
+				int ref = op - offset;
+				if (offset == 0 || ref < dstOff)
+					throw new IllegalArgumentException("invalid LZ4 offset " + offset);
+				// la copie se fait octet par octet : la référence peut chevaucher la
+				// destination
+				for (int i = 0; i < len; i++)
+					dst[op++] = dst[ref++];
+			}
+		} catch (IndexOutOfBoundsException e) {
+			throw new IllegalArgumentException("truncated LZ4 block", e);
+		}
+		if (op - dstOff != dstLen)
+			throw new IllegalArgumentException("LZ4 block decompressed to " + (op - dstOff) + " bytes instead of "
+					+ dstLen);
+	}
+
+	/**
+	 * Écrit une séquence : les littéraux puis la référence
+	 * 
+	 * @param src      données compressées
+	 * @param literal  début des littéraux
+	 * @param literals nombre de littéraux
+	 * @param offset   distance de la correspondance
+	 * @param len      longueur de la correspondance
+	 * @param dst      tampon de destination
+	 * @param op       position d'écriture
+	 * @return la position d'écriture après la séquence
+	 */
+	private static int writeSequence(byte[] src, int literal, int literals, int offset, int len, byte[] dst,
+			int op) {
+		int matchLen = len - MIN_MATCH;
+		dst[op++] = (byte) (Math.min(literals, 15) << 4 | Math.min(matchLen, 15));
+		if (literals >= 15)
+			op = writeLength(literals - 15, dst, op);
+		System.arraycopy(src, literal, dst, op, literals);
+		op += literals;
+		dst[op++] = (byte) offset;
+		dst[op++] = (byte) (offset >>> 8);
+		if (matchLen >= 15)
+			op = writeLength(matchLen - 15, dst, op);
+		return op;
+	}
+
+	/**
+	 * Écrit le complément d'une longueur : des octets 255 puis le reste
+	 * 
+	 * @param n   complément à écrire
+	 * @param dst tampon de destination
+	 * @param op  position d'écriture
+	 * @return la position d'écriture après la longueur
+	 */
+	private static int writeLength(int n, byte[] dst, int op) {
+		while (n >= 255) {
+			dst[op++] = (byte) 255;
+			n -= 255;
+		}
+		dst[op++] = (byte) n;
+		return op;
+	}
+
+	/**
+	 * Lit 4 octets
+	 * 
+	 * @param b   données
+	 * @param pos position de lecture
+	 * @return les 4 octets en un entier
+	 */
+	private static int readInt(byte[] b, int pos) {
+		return (b[pos] & 0xFF) | (b[pos + 1] & 0xFF) << 8 | (b[pos + 2] & 0xFF) << 16 | (b[pos + 3] & 0xFF) << 24;
+	}
+
+	/**
+	 * Renvoie l'indice dans la table de hachage de 4 octets
+	 * 
+	 * @param seq     les 4 octets
+	 * @param hashLog nombre de bits de la table
+	 * @return l'indice dans la table
+	 */
+	private static int hash(int seq, int hashLog) {
+		return (seq * -1640531535) >>> (32 - hashLog);
+	}
+
+}
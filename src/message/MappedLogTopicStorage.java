@@ -0,0 +1,514 @@
+package message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import interfaces.MessageI;
+import interfaces.TopicStorageI;
+
+/**
+ * Stockage des messages d'un Topic dans un journal sur disque, en ajout
+ * seulement. Le journal est découpé en segments de taille fixe, chacun projeté
+ * en mémoire (MappedByteBuffer) : les messages ne restent pas sur le tas.
+ * 
+ * Chaque enregistrement est composé de la taille du message sérialisé (int),
+ * de sa date (long) puis du message sérialisé. Une taille à 0 marque la fin
+ * d'un segment. Un index en mémoire donne la position de chaque offset : un
+ * message est lu sans désérialiser le reste du segment.
+ * 
+ * La politique de rétention avance le premier offset lisible ; les segments
+ * dont tous les messages ont expiré sont supprimés en tâche de fond. Le premier
+ * offset lisible est enregistré dans un fichier à côté des segments, en tâche
+ * de fond et à la fermeture : à la réouverture, les messages déjà supprimés ne
+ * redeviennent pas lisibles, et la politique de rétention est appliquée de
+ * nouveau pour ceux supprimés depuis le dernier enregistrement.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class MappedLogTopicStorage implements TopicStorageI {
+
+	/**
+	 * Taille par défaut d'un segment en octets
+	 */
+	public static final int DEFAULT_SEGMENT_SIZE = 64 * 1024 * 1024;
+
+	/**
+	 * Taille de l'entête d'un enregistrement : taille du message et date
+	 */
+	protected static final int HEADER_SIZE = Integer.BYTES + Long.BYTES;
+
+	/**
+	 * Suffixe des fichiers de segments
+	 */
+	protected static final String SEGMENT_SUFFIX = ".log";
+
+	/**
+	 * Fichier où est enregistré le premier offset lisible
+	 */
+	protected static final String FIRST_OFFSET_FILE = "first-offset";
+
+	/**
+	 * Période (en millisecondes) de la suppression des segments expirés
+	 */
+	protected static final long CLEANUP_PERIOD = 1000;
+
+	/**
+	 * Thread partagé par tous les journaux pour supprimer les segments expirés
+	 */
+	private static final ScheduledExecutorService CLEANER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "topic-log-cleaner");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * Segment du journal, projeté en mémoire
+	 */
+	protected static class Segment {
+		// Offset du premier message du segment
+		final long baseOffset;
+		// Fichier du segment
+		final File file;
+		// Canal du fichier
+		final FileChannel channel;
+		// Projection en mémoire du fichier
+		final MappedByteBuffer buffer;
+		// Position de chaque message dans le segment
+		int[] positions = new int[256];
+		// Date de chaque message du segment
+		long[] times = new long[256];
+		// Nombre de messages du segment
+		int count;
+		// Position d'écriture du prochain message
+		int writePosition;
+
+		Segment(long baseOffset, File file, int size) throws IOException {
+			this.baseOffset = baseOffset;
+			this.file = file;
+			@SuppressWarnings("resource")
+			RandomAccessFile raf = new RandomAccessFile(file, "rw");
+			this.channel = raf.getChannel();
+			this.buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+		}
+
+		/**
+		 * Ajoute un message à l'index du segment
+		 * 
+		 * @param position position du message
+		 * @param time     date du message
+		 */
+		void index(int position, long time) {
+			if (count == positions.length) {
+				positions = Arrays.copyOf(positions, count * 2);
+				times = Arrays.copyOf(times, count * 2);
+			}
+			positions[count] = position;
+			times[count] = time;
+			count++;
+		}
+
+		/**
+		 * Renvoie la taille de l'enregistrement d'un message du segment
+		 * 
+		 * @param i indice du message dans le segment
+		 * @return la taille de l'enregistrement, entête compris
+		 */
+		int recordSize(int i) {
+			return HEADER_SIZE + buffer.getInt(positions[i]);
+		}
+
+		void close() throws IOException {
+			buffer.force();
+			channel.close();
+		}
+	}
+
+	// Répertoire du journal
+	private final File directory;
+	// Taille d'un segment
+	private final int segmentSize;
+	// Segments du journal, du plus ancien au plus récent
+	private final List<Segment> segments = new ArrayList<>();
+	// Premier offset lisible
+	private long firstOffset;
+	// Prochain offset attribué
+	private long nextOffset;
+	// Taille des enregistrements lisibles
+	private long bytes;
+	// Politique de rétention des messages
+	private RetentionPolicy retentionPolicy;
+	// Tache de suppression des segments expirés
+	private final ScheduledFuture<?> cleanup;
+	// Premier offset lisible enregistré dans le fichier FIRST_OFFSET_FILE
+	private long savedFirstOffset = -1;
+
+	/**
+	 * Constructeur de MappedLogTopicStorage, les segments déjà présents dans le
+	 * répertoire sont relus
+	 * 
+	 * @param directory       répertoire du journal, créé si nécéssaire
+	 * @param segmentSize     taille d'un segment en octets
+	 * @param retentionPolicy politique de rétention des messages
+	 */
+	public MappedLogTopicStorage(File directory, int segmentSize, RetentionPolicy retentionPolicy)
+			throws IOException {
+		assert directory != null;
+		assert segmentSize > HEADER_SIZE;
+		assert retentionPolicy != null;
+		this.directory = directory;
+		this.segmentSize = segmentSize;
+		this.retentionPolicy = retentionPolicy;
+
+		if (!directory.isDirectory() && !directory.mkdirs())
+			throw new IOException("can't create directory " + directory);
+		recover();
+
+		this.cleanup = CLEANER.scheduleWithFixedDelay(() -> {
+			try {
+				evict(System.currentTimeMillis());
+				deleteExpiredSegments();
+				saveFirstOffset();
+			} catch (Exception e) {
+				e.printStackTrace();
+			}
+		}, CLEANUP_PERIOD, CLEANUP_PERIOD, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Relit les segments présents dans le répertoire et reconstruit leurs index, en
+	 * ne lisant que les entêtes des enregistrements. Le premier offset lisible est
+	 * repris du fichier où il a été enregistré, puis la politique de rétention
+	 * est appliquée
+	 */
+	private void recover() throws IOException {
+		File[] files = directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX));
+		Arrays.sort(files);
+		for (File file : files) {
+			long baseOffset = Long.parseLong(file.getName().replace(SEGMENT_SUFFIX, ""));
+			Segment segment = new Segment(baseOffset, file, (int) file.length());
+			int position = 0;
+			while (position + HEADER_SIZE <= segment.buffer.capacity()) {
+				int length = segment.buffer.getInt(position);
+				if (length <= 0)
+					break;
+				segment.index(position, segment.buffer.getLong(position + Integer.BYTES));
+				bytes += HEADER_SIZE + length;
+				position += HEADER_SIZE + length;
+			}
+			segment.writePosition = position;
+			segments.add(segment);
+		}
+		if (!segments.isEmpty()) {
+			Segment last = segments.get(segments.size() - 1);
+			firstOffset = segments.get(0).baseOffset;
+			nextOffset = last.baseOffset + last.count;
+		}
+
+		File saved = new File(directory, FIRST_OFFSET_FILE);
+		if (saved.isFile()) {
+			savedFirstOffset = ByteBuffer.wrap(Files.readAllBytes(saved.toPath())).getLong();
+			// tous les segments ont pu être supprimés, les offsets continuent
+			if (segments.isEmpty())
+				firstOffset = nextOffset = savedFirstOffset;
+			while (firstOffset < Math.min(savedFirstOffset, nextOffset))
+				evictOldest();
+		}
+		evict(System.currentTimeMillis());
+	}
+
+	/**
+	 * Enregistre le premier offset lisible s'il a changé : le fichier est écrit à
+	 * côté puis renommé, il n'est jamais lu à moitié écrit
+	 */
+	protected synchronized void saveFirstOffset() throws IOException {
+		if (firstOffset == savedFirstOffset || !directory.isDirectory())
+			return;
+		File tmp = new File(directory, FIRST_OFFSET_FILE + ".tmp");
+		Files.write(tmp.toPath(), ByteBuffer.allocate(Long.BYTES).putLong(firstOffset).array());
+		Files.move(tmp.toPath(), new File(directory, FIRST_OFFSET_FILE).toPath(),
+				StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		savedFirstOffset = firstOffset;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#append(MessageI)
+	 */
+	@Override
+	public synchronized long append(MessageI m) throws IOException {
+		byte[] data = serialize(m);
+		int recordSize = HEADER_SIZE + data.length;
+
+		// on passe à un nouveau segment si le message ne rentre pas dans le segment
+		// courant
+		Segment active = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+		if (active == null || active.buffer.capacity() - active.writePosition < recordSize) {
+			if (active != null)
+				active.buffer.force();
+			active = roll(Math.max(segmentSize, recordSize));
+		}
+
+		long time = MemoryTopicStorage.timeOf(m);
+		ByteBuffer buffer = active.buffer;
+		buffer.putLong(active.writePosition + Integer.BYTES, time);
+		buffer.position(active.writePosition + HEADER_SIZE);
+		buffer.put(data);
+		// la taille est écrite en dernier : un enregistrement incomplet a une taille à
+		// 0 et marque la fin du segment
+		buffer.putInt(active.writePosition, data.length);
+		active.index(active.writePosition, time);
+		active.writePosition += recordSize;
+		bytes += recordSize;
+		long offset = nextOffset++;
+
+		if (retentionPolicy.getMaxCount() > 0 && nextOffset - firstOffset > retentionPolicy.getMaxCount())
+			evictOldest();
+		return offset;
+	}
+
+	/**
+	 * Créer un nouveau segment à la fin du journal
+	 * 
+	 * @param size taille du segment
+	 * @return le nouveau segment
+	 */
+	private Segment roll(int size) throws IOException {
+		File file = new File(directory, String.format("%020d%s", nextOffset, SEGMENT_SUFFIX));
+		Segment segment = new Segment(nextOffset, file, size);
+		segments.add(segment);
+		return segment;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#read(long, int, List)
+	 */
+	@Override
+	public synchronized long read(long fromOffset, int max, List<MessageI> res)
+			throws IOException, ClassNotFoundException {
+		long offset = Math.max(fromOffset, firstOffset);
+		long end = offset + max;
+		int index = findSegment(offset);
+		while (index >= 0 && index < segments.size() && offset < nextOffset && offset < end) {
+			Segment segment = segments.get(index);
+			for (int i = (int) (offset - segment.baseOffset); i < segment.count && offset < end; i++) {
+				int position = segment.positions[i];
+				byte[] data = new byte[segment.buffer.getInt(position)];
+				ByteBuffer view = segment.buffer.duplicate();
+				view.position(position + HEADER_SIZE);
+				view.get(data);
+				res.add(deserialize(data));
+				offset++;
+			}
+			index++;
+		}
+		return offset;
+	}
+
+	/**
+	 * Cherche le segment contenant un offset
+	 * 
+	 * @param offset offset recherché
+	 * @return l'indice du segment, -1 si aucun segment ne le contient
+	 */
+	private int findSegment(long offset) {
+		int low = 0;
+		int high = segments.size() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			Segment segment = segments.get(mid);
+			if (offset < segment.baseOffset)
+				high = mid - 1;
+			else if (offset >= segment.baseOffset + segment.count)
+				low = mid + 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#getFirstOffset()
+	 */
+	@Override
+	public synchronized long getFirstOffset() {
+		return firstOffset;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#getNextOffset()
+	 */
+	@Override
+	public synchronized long getNextOffset() {
+		return nextOffset;
+	}
+
+	/**
+	 * Seules les dates de l'index en mémoire sont lues
+	 * 
+	 * @see interfaces.TopicStorageI#offsetOf(long)
+	 */
+	@Override
+	public synchronized long offsetOf(long time) {
+		long offset = firstOffset;
+		for (int index = findSegment(offset); index >= 0 && index < segments.size(); index++) {
+			Segment segment = segments.get(index);
+			for (int i = (int) (offset - segment.baseOffset); i < segment.count; i++, offset++)
+				if (segment.times[i] >= time)
+					return offset;
+		}
+		return nextOffset;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#getRetainedBytes()
+	 */
+	@Override
+	public synchronized long getRetainedBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#getRetentionPolicy()
+	 */
+	@Override
+	public synchronized RetentionPolicy getRetentionPolicy() {
+		return retentionPolicy;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#setRetentionPolicy(RetentionPolicy)
+	 */
+	@Override
+	public synchronized void setRetentionPolicy(RetentionPolicy retentionPolicy) {
+		assert retentionPolicy != null;
+		this.retentionPolicy = retentionPolicy;
+		evict(System.currentTimeMillis());
+	}
+
+	/**
+	 * Avance le premier offset lisible, les fichiers sont supprimés plus tard
+	 * 
+	 * @see interfaces.TopicStorageI#evict(long)
+	 */
+	@Override
+	public synchronized void evict(long now) {
+		int maxCount = retentionPolicy.getMaxCount();
+		long maxBytes = retentionPolicy.getMaxBytes();
+		long maxAge = retentionPolicy.getMaxAge();
+		while (firstOffset < nextOffset) {
+			Segment segment = segments.get(findSegment(firstOffset));
+			int i = (int) (firstOffset - segment.baseOffset);
+			boolean tooMany = maxCount > 0 && nextOffset - firstOffset > maxCount;
+			boolean tooBig = maxBytes > 0 && bytes > maxBytes;
+			boolean tooOld = maxAge > 0 && now - segment.times[i] > maxAge;
+			if (!(tooMany || tooBig || tooOld))
+				break;
+			evictOldest();
+		}
+	}
+
+	/**
+	 * Rend illisible le message le plus ancien
+	 */
+	private void evictOldest() {
+		Segment segment = segments.get(findSegment(firstOffset));
+		bytes -= segment.recordSize((int) (firstOffset - segment.baseOffset));
+		firstOffset++;
+	}
+
+	/**
+	 * Supprime les segments dont tous les messages sont illisibles, sauf le segment
+	 * courant
+	 */
+	protected synchronized void deleteExpiredSegments() throws IOException {
+		while (segments.size() > 1 && segments.get(0).baseOffset + segments.get(0).count <= firstOffset) {
+			Segment segment = segments.remove(0);
+			segment.close();
+			if (!segment.file.delete())
+				throw new IOException("can't delete segment " + segment.file);
+		}
+	}
+
+	/**
+	 * Renvoie le nombre de segments du journal
+	 * 
+	 * @return le nombre de segments
+	 */
+	public synchronized int getSegmentCount() {
+		return segments.size();
+	}
+
+	/**
+	 * Les fichiers sont conservés et seront relus à la prochaine ouverture du
+	 * répertoire
+	 * 
+	 * @see interfaces.TopicStorageI#close()
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		cleanup.cancel(false);
+		saveFirstOffset();
+		for (Segment segment : segments)
+			segment.close();
+		segments.clear();
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#delete()
+	 */
+	@Override
+	public synchronized void delete() throws IOException {
+		close();
+		for (File file : directory.listFiles((dir, name) -> name.endsWith(SEGMENT_SUFFIX)))
+			if (!file.delete())
+				throw new IOException("can't delete segment " + file);
+		new File(directory, FIRST_OFFSET_FILE).delete();
+		directory.delete();
+		firstOffset = nextOffset;
+		bytes = 0;
+	}
+
+	/**
+	 * Sérialise un message
+	 * 
+	 * @param m message
+	 * @return le message sérialisé
+	 */
+	private static byte[] serialize(MessageI m) throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+			oos.writeObject(m);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Désérialise un message
+	 * 
+	 * @param data message sérialisé
+	 * @return le message
+	 */
+	private static MessageI deserialize(byte[] data) throws IOException, ClassNotFoundException {
+		try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+			return (MessageI) ois.readObject();
+		}
+	}
+
+}
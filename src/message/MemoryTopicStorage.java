@@ -0,0 +1,297 @@
+package message;
+
+import java.io.DataOutputStream;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.io.OutputStream;
+import java.io.Serializable;
+import java.util.List;
+
+import interfaces.MessageI;
+import interfaces.TopicStorageI;
+
+/**
+ * Stockage en mémoire des messages d'un Topic, stockage par défaut. Les
+ * messages sont conservés dans un tampon circulaire, les plus anciens sont
+ * supprimés selon la politique de rétention @see RetentionPolicy
+ * 
+ * Ce stockage n'est pas protégé contre les accès concurrents : c'est le verrou
+ * du Topic qui le protège.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class MemoryTopicStorage implements TopicStorageI, Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Capacité initiale du tampon circulaire des messages
+	 */
+	protected static final int INITIAL_CAPACITY = 16;
+
+	// Flux de chaque thread qui compte les octets écrits par sizeOf
+	private static final ThreadLocal<SizeCounter> SIZE_COUNTER = ThreadLocal.withInitial(SizeCounter::new);
+
+	// Messages conservés, dans un tampon circulaire
+	private MessageI[] messages;
+	// Date (TimeStamp) de chaque message du tampon
+	private long[] times;
+	// Taille sérialisée de chaque message du tampon, calculée seulement si la
+	// politique limite la taille
+	private long[] sizes;
+	// Indice du message le plus ancien dans le tampon
+	private int head;
+	// Nombre de messages conservés
+	private int count;
+	// Offset du message le plus ancien
+	private long firstOffset;
+	// Taille totale des messages conservés
+	private long bytes;
+	// Politique de rétention des messages
+	private RetentionPolicy retentionPolicy;
+
+	/**
+	 * Constructeur de MemoryTopicStorage
+	 * 
+	 * @param retentionPolicy politique de rétention des messages
+	 */
+	public MemoryTopicStorage(RetentionPolicy retentionPolicy) {
+		assert retentionPolicy != null;
+		this.retentionPolicy = retentionPolicy;
+		int capacity = INITIAL_CAPACITY;
+		if (retentionPolicy.getMaxCount() > 0)
+			capacity = Math.min(capacity, retentionPolicy.getMaxCount());
+		this.messages = new MessageI[capacity];
+		this.times = new long[capacity];
+		this.sizes = new long[capacity];
+	}
+
+	/**
+	 * Ajoute un message à la fin du tampon. Le tampon n'est agrandi que s'il est
+	 * plein et que la politique le permet : sinon le message le plus ancien est
+	 * écrasé
+	 * 
+	 * @see interfaces.TopicStorageI#append(MessageI)
+	 */
+	@Override
+	public long append(MessageI m) {
+		int maxCount = retentionPolicy.getMaxCount();
+		if (maxCount > 0 && count >= maxCount)
+			evictOldest();
+		if (count == messages.length)
+			grow(maxCount > 0 ? Math.min(maxCount, messages.length * 2) : messages.length * 2);
+
+		int tail = (head + count) % messages.length;
+		messages[tail] = m;
+		times[tail] = timeOf(m);
+		sizes[tail] = retentionPolicy.getMaxBytes() > 0 ? sizeOf(m) : 0;
+		bytes += sizes[tail];
+		count++;
+		return firstOffset + count - 1;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#read(long, int, List)
+	 */
+	@Override
+	public long read(long fromOffset, int max, List<MessageI> res) {
+		long start = Math.max(fromOffset, firstOffset);
+		int n = (int) Math.max(0, Math.min(max, firstOffset + count - start));
+		for (int i = 0; i < n; i++)
+			res.add(messages[(head + (int) (start - firstOffset) + i) % messages.length]);
+		return start + n;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#getFirstOffset()
+	 */
+	@Override
+	public long getFirstOffset() {
+		return firstOffset;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#getNextOffset()
+	 */
+	@Override
+	public long getNextOffset() {
+		return firstOffset + count;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#offsetOf(long)
+	 */
+	@Override
+	public long offsetOf(long time) {
+		for (int i = 0; i < count; i++)
+			if (times[(head + i) % messages.length] >= time)
+				return firstOffset + i;
+		return firstOffset + count;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#getRetainedBytes()
+	 */
+	@Override
+	public long getRetainedBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#getRetentionPolicy()
+	 */
+	@Override
+	public RetentionPolicy getRetentionPolicy() {
+		return retentionPolicy;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#setRetentionPolicy(RetentionPolicy)
+	 */
+	@Override
+	public void setRetentionPolicy(RetentionPolicy retentionPolicy) {
+		assert retentionPolicy != null;
+		// les tailles n'étaient pas calculées, on les calcule pour les messages déjà
+		// conservés
+		if (retentionPolicy.getMaxBytes() > 0 && this.retentionPolicy.getMaxBytes() == 0) {
+			bytes = 0;
+			for (int i = 0; i < count; i++) {
+				int index = (head + i) % messages.length;
+				sizes[index] = sizeOf(messages[index]);
+				bytes += sizes[index];
+			}
+		}
+		this.retentionPolicy = retentionPolicy;
+		while (retentionPolicy.getMaxCount() > 0 && count > retentionPolicy.getMaxCount())
+			evictOldest();
+		evict(System.currentTimeMillis());
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#evict(long)
+	 */
+	@Override
+	public void evict(long now) {
+		long maxBytes = retentionPolicy.getMaxBytes();
+		long maxAge = retentionPolicy.getMaxAge();
+		while (count > 0 && ((maxBytes > 0 && bytes > maxBytes) || (maxAge > 0 && now - times[head] > maxAge)))
+			evictOldest();
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#close()
+	 */
+	@Override
+	public void close() {
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#delete()
+	 */
+	@Override
+	public void delete() {
+		while (count > 0)
+			evictOldest();
+	}
+
+	/**
+	 * Supprime le message le plus ancien
+	 */
+	private void evictOldest() {
+		bytes -= sizes[head];
+		messages[head] = null;
+		head = (head + 1) % messages.length;
+		count--;
+		firstOffset++;
+	}
+
+	/**
+	 * Agrandit le tampon en conservant l'ordre des messages
+	 * 
+	 * @param capacity nouvelle capacité du tampon
+	 */
+	private void grow(int capacity) {
+		MessageI[] newMessages = new MessageI[capacity];
+		long[] newTimes = new long[capacity];
+		long[] newSizes = new long[capacity];
+		for (int i = 0; i < count; i++) {
+			int index = (head + i) % messages.length;
+			newMessages[i] = messages[index];
+			newTimes[i] = times[index];
+			newSizes[i] = sizes[index];
+		}
+		messages = newMessages;
+		times = newTimes;
+		sizes = newSizes;
+		head = 0;
+	}
+
+	/**
+	 * Renvoie la date d'un message d'après son TimeStamp, ou la date courante si le
+	 * message n'est pas daté
+	 * 
+	 * @param m message
+	 * @return la date du message
+	 */
+	static long timeOf(MessageI m) {
+		try {
+			TimeStamp ts = m.getTimeStamp();
+			if (ts != null && ts.getTime() != 0)
+				return ts.getTime();
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return System.currentTimeMillis();
+	}
+
+	/**
+	 * Renvoie la taille d'un message dans son encodage Externalizable, sans
+	 * conserver les octets produits. Le flux qui compte les octets est réutilisé
+	 * par chaque thread : rien n'est alloué pour un message dont les valeurs sont
+	 * de types simples
+	 * 
+	 * @param m message
+	 * @return la taille du message en octets
+	 */
+	static long sizeOf(MessageI m) {
+		SizeCounter out = SIZE_COUNTER.get();
+		out.reset();
+		try {
+			if (m instanceof Externalizable)
+				((Externalizable) m).writeExternal(out);
+			else
+				out.writeObject(m);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return out.size();
+	}
+
+	/**
+	 * Flux qui compte les octets écrits sans les conserver
+	 */
+	private static class SizeCounter extends DataOutputStream implements ObjectOutput {
+
+		SizeCounter() {
+			super(OutputStream.nullOutputStream());
+		}
+
+		// Remet le compte à zéro
+		void reset() {
+			written = 0;
+		}
+
+		@Override
+		public void writeObject(Object obj) throws IOException {
+			// les valeurs qui ne sont pas d'un type simple sont sérialisées à part,
+			// le flux n'est pas fermé pour rester utilisable
+			ObjectOutputStream oos = new ObjectOutputStream(this);
+			oos.writeObject(obj);
+			oos.flush();
+		}
+	}
+
+}
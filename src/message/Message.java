@@ -1,23 +1,26 @@
 package message;
 
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 import java.io.Serializable;
-import java.net.InetAddress;
-import java.util.Date;
-import java.util.LinkedList;
-import java.util.List;
 
 import fr.sorbonne_u.components.AbstractPort;
 import interfaces.MessageI;
 
 /**
- * Classe representant un Message
+ * Classe representant un Message. Il est sérialisé à la main, avec sa date et
+ * ses propriétés écrites directement dans le même flux @see TimeStamp
+ * @see Properties, et son contenu précédé d'un octet de type quand c'est un
+ * type simple
  * 
  * @author Bello Velly
  *
  */
-public class Message implements MessageI, Serializable {
+public class Message implements MessageI, Externalizable {
 
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
 
 	/**
 	 * uri du message
@@ -40,12 +43,14 @@ public class Message implements MessageI, Serializable {
 	private Serializable payload;
 
 	/**
-	 * List d'uris des Broker qui ont déjà accepter le message
+	 * uri du Broker qui a reçu le message de son publieur, les Brokers retiennent
+	 * eux même les messages déjà reçus @see SeenCache
 	 */
-	private List<String> brokers;
+	private String origin;
 
 	/**
-	 * constructeur de Message
+	 * constructeur de Message, avec une URI aléatoire. Les publieurs créent leurs
+	 * messages avec une fabrique @see MessageFactory
 	 * 
 	 * @param properties @see {@link #properties}
 	 * @param payload    @see {@link #payload}
@@ -56,15 +61,33 @@ public class Message implements MessageI, Serializable {
 		this.timeStamp = new TimeStamp();
 		this.properties = properties;
 		this.payload = payload;
-		this.brokers = new LinkedList<String>();
-		// on récupère le date actuelle
-		Date date = new Date();
-		timeStamp.setTime(date.getTime());
-		try {
-			timeStamp.setTimeStamper(InetAddress.getLocalHost().toString());
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
+		timeStamp.setTime(System.currentTimeMillis());
+		timeStamp.setTimeStamper(MessageFactory.localHost());
+	}
+
+	/**
+	 * constructeur vide, utilisé seulement par la désérialisation
+	 * @see #readExternal(ObjectInput)
+	 */
+	public Message() {
+	}
+
+	/**
+	 * constructeur de Message à partir de ses champs, pour les messages décodés
+	 * @see BatchCodec
+	 * 
+	 * @param URI        @see {@link #URI}
+	 * @param timeStamp  @see {@link #timeStamp}
+	 * @param properties @see {@link #properties}
+	 * @param payload    @see {@link #payload}
+	 * @param origin     @see {@link #origin}
+	 */
+	Message(String URI, TimeStamp timeStamp, Properties properties, Serializable payload, String origin) {
+		this.URI = URI;
+		this.timeStamp = timeStamp;
+		this.properties = properties;
+		this.payload = payload;
+		this.origin = origin;
 	}
 
 	/**
@@ -100,20 +123,54 @@ public class Message implements MessageI, Serializable {
 	}
 
 	/**
-	 * @see interfaces.MessageI#addBroker(String)
+	 * @see interfaces.MessageI#getOrigin()
 	 */
 	@Override
-	public MessageI addBroker(String broker_uri) throws Exception {
-		brokers.add(broker_uri);
+	public String getOrigin() {
+		return origin;
+	}
+
+	/**
+	 * @see interfaces.MessageI#setOrigin(String)
+	 */
+	@Override
+	public MessageI setOrigin(String broker_uri) {
+		this.origin = broker_uri;
 		return this;
 	}
 
 	/**
-	 * @see interfaces.MessageI#containsBroker(String)
+	 * @see java.io.Externalizable#writeExternal(ObjectOutput)
 	 */
 	@Override
-	public Boolean containsBroker(String broker_uri) throws Exception {
-		return brokers.contains(broker_uri);
+	public void writeExternal(ObjectOutput out) throws IOException {
+		ValueIO.writeNullableString(out, URI);
+		out.writeBoolean(timeStamp != null);
+		if (timeStamp != null)
+			timeStamp.writeExternal(out);
+		out.writeBoolean(properties != null);
+		if (properties != null)
+			properties.writeExternal(out);
+		ValueIO.writeValue(out, payload);
+		ValueIO.writeNullableString(out, origin);
+	}
+
+	/**
+	 * @see java.io.Externalizable#readExternal(ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException, ClassNotFoundException {
+		URI = ValueIO.readNullableString(in);
+		if (in.readBoolean()) {
+			timeStamp = new TimeStamp();
+			timeStamp.readExternal(in);
+		}
+		if (in.readBoolean()) {
+			properties = new Properties();
+			properties.readExternal(in);
+		}
+		payload = (Serializable) ValueIO.readValue(in);
+		origin = ValueIO.readNullableString(in);
 	}
 
 }
@@ -0,0 +1,153 @@
+package message;
+
+import java.io.Serializable;
+import java.net.InetAddress;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fabrique des messages d'un publieur. Elle remplace le constructeur
+ * {@link Message#Message(Properties, Serializable)} qui, pour chaque message,
+ * cherche le nom de la machine, crée une Date et tire une URI aléatoire.
+ * 
+ * L'identité de la machine est cherchée une seule fois par jvm, la date est
+ * lue sur une horloge choisie à la création de la fabrique @see Clock, et les
+ * URIs sont un préfixe propre au publieur suivi d'un numéro de séquence : elles
+ * sont courtes, croissantes, et restent uniques pour les SeenCache des Brokers.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class MessageFactory {
+
+	/**
+	 * Horloge qui date les messages, en millisecondes depuis l'epoch
+	 */
+	public interface Clock {
+
+		/**
+		 * Renvoie la date courante
+		 * 
+		 * @return la date en millisecondes depuis l'epoch
+		 */
+		long now();
+	}
+
+	/**
+	 * Horloge murale du système : elle suit les réglages de l'heure de la machine
+	 * et peut donc reculer
+	 */
+	public static final Clock WALL_CLOCK = System::currentTimeMillis;
+
+	// Identité de la machine, cherchée une seule fois
+	private static volatile String localHost;
+
+	/**
+	 * Préfixe des URIs des messages
+	 */
+	protected final String prefix;
+
+	/**
+	 * Horloge qui date les messages
+	 */
+	protected final Clock clock;
+
+	// Numéro du prochain message
+	private final AtomicLong sequence = new AtomicLong();
+
+	/**
+	 * Constructeur de MessageFactory, avec l'horloge murale
+	 * 
+	 * @param publisher uri du publieur, unique dans le système
+	 */
+	public MessageFactory(String publisher) {
+		this(publisher, WALL_CLOCK);
+	}
+
+	/**
+	 * Constructeur de MessageFactory. Le préfixe des URIs est l'uri du publieur
+	 * suivie de la date de création de la fabrique : un publieur redémarré avec
+	 * la même uri ne reprend pas les URIs de ses anciens messages.
+	 * 
+	 * @param publisher uri du publieur, unique dans le système
+	 * @param clock     @see {@link #clock}
+	 */
+	public MessageFactory(String publisher, Clock clock) {
+		assert publisher != null;
+		assert clock != null;
+		this.prefix = publisher + '.' + Long.toString(System.currentTimeMillis(), 36) + '.';
+		this.clock = clock;
+	}
+
+	/**
+	 * Renvoie une horloge monotone : elle ne recule jamais, même si l'heure de la
+	 * machine est réglée, et part de l'heure murale au moment de sa création
+	 * 
+	 * @return une nouvelle horloge monotone
+	 */
+	public static Clock monotonicClock() {
+		final long origin = System.nanoTime();
+		final long epoch = System.currentTimeMillis();
+		return () -> epoch + (System.nanoTime() - origin) / 1_000_000;
+	}
+
+	/**
+	 * Renvoie l'identité de la machine, cherchée au premier appel seulement
+	 * 
+	 * @return l'identité de la machine, utilisée comme timestamper
+	 */
+	public static String localHost() {
+		String host = localHost;
+		if (host == null) {
+			try {
+				host = InetAddress.getLocalHost().toString();
+			} catch (Exception e) {
+				e.printStackTrace();
+				host = "localhost";
+			}
+			localHost = host;
+		}
+		return host;
+	}
+
+	/**
+	 * Renvoie l'URI du prochain message
+	 * 
+	 * @return le préfixe suivi du numéro de séquence en base 36
+	 */
+	public String nextURI() {
+		return prefix + Long.toString(sequence.getAndIncrement(), 36);
+	}
+
+	/**
+	 * Renvoie le préfixe des URIs des messages
+	 * 
+	 * @return @see {@link #prefix}
+	 */
+	public String getPrefix() {
+		return prefix;
+	}
+
+	/**
+	 * Renvoie le nombre de messages créés
+	 * 
+	 * @return le nombre de messages créés par la fabrique
+	 */
+	public long getCreated() {
+		return sequence.get();
+	}
+
+	/**
+	 * Crée un message daté par l'horloge de la fabrique
+	 * 
+	 * @param properties propriétés du message
+	 * @param payload    contenu du message
+	 * @return le nouveau message
+	 */
+	public Message create(Properties properties, Serializable payload) {
+		TimeStamp timeStamp = new TimeStamp();
+		timeStamp.setTime(clock.now());
+		timeStamp.setTimeStamper(localHost());
+		return new Message(nextURI(), timeStamp, properties, payload, null);
+	}
+
+}
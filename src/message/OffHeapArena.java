@@ -0,0 +1,142 @@
+package message;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Mémoire hors du tas partagée par les stockages des topics d'un Broker
+ * @see OffHeapTopicStorage. Elle est découpée en blocs de taille fixe (des
+ * ByteBuffers directs) : un stockage prend un bloc quand le sien est plein et
+ * le rend quand tous ses messages ont été supprimés. Les blocs rendus sont
+ * gardés pour les prochaines demandes plutôt que laissés au ramasse miettes.
+ * 
+ * La mémoire réservée par tous les blocs ne dépasse pas une capacité donnée :
+ * quand elle est atteinte, un bloc n'est accordé qu'en échange d'un bloc rendu.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class OffHeapArena {
+
+	/**
+	 * Taille par défaut d'un bloc en octets
+	 */
+	public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+
+	/**
+	 * Taille d'un bloc, un message plus grand reçoit un bloc à sa taille qui
+	 * n'est pas gardé quand il est rendu
+	 */
+	protected final int chunkSize;
+
+	/**
+	 * Mémoire maximum réservée par les blocs, en octets
+	 */
+	protected final long capacity;
+
+	// Blocs rendus, prêts à être réutilisés
+	private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+	// Mémoire réservée par les blocs, accordés ou gardés
+	private long allocated;
+	// Taille des messages conservés dans les blocs
+	private final AtomicLong retained = new AtomicLong();
+	// Nombre de messages qui n'ont pas pu être conservés faute de mémoire
+	private final AtomicLong dropped = new AtomicLong();
+
+	/**
+	 * Constructeur de OffHeapArena
+	 * 
+	 * @param capacity  @see {@link #capacity}
+	 * @param chunkSize @see {@link #chunkSize}
+	 */
+	public OffHeapArena(long capacity, int chunkSize) {
+		assert chunkSize > 0;
+		assert capacity >= chunkSize;
+		this.capacity = capacity;
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * Accorde un bloc d'au moins une taille donnée
+	 * 
+	 * @param size taille minimum du bloc
+	 * @return un bloc vide, null si la capacité serait dépassée
+	 */
+	public synchronized ByteBuffer allocate(int size) {
+		if (size <= chunkSize && !free.isEmpty()) {
+			ByteBuffer chunk = free.poll();
+			chunk.clear();
+			return chunk;
+		}
+		int length = Math.max(size, chunkSize);
+		// les blocs gardés sont abandonnés pour faire la place d'un bloc plus grand
+		while (allocated + length > capacity && !free.isEmpty()) {
+			free.poll();
+			allocated -= chunkSize;
+		}
+		if (allocated + length > capacity)
+			return null;
+		allocated += length;
+		return ByteBuffer.allocateDirect(length);
+	}
+
+	/**
+	 * Rend un bloc, il ne doit plus être utilisé par le stockage qui le rend
+	 * 
+	 * @param chunk bloc accordé par {@link #allocate(int)}
+	 */
+	public synchronized void release(ByteBuffer chunk) {
+		if (chunk.capacity() == chunkSize) {
+			free.push(chunk);
+		} else {
+			// le bloc sera libéré par le ramasse miettes
+			allocated -= chunk.capacity();
+		}
+	}
+
+	/**
+	 * Compte des octets de messages conservés ou supprimés
+	 * 
+	 * @param delta octets ajoutés, négatif pour des octets supprimés
+	 */
+	void retain(long delta) {
+		retained.addAndGet(delta);
+	}
+
+	/**
+	 * Compte un message qui n'a pas pu être conservé
+	 */
+	void drop() {
+		dropped.incrementAndGet();
+	}
+
+	/**
+	 * Renvoie la mémoire qu'un bloc peut encore obtenir : la mémoire jamais
+	 * réservée et les blocs rendus
+	 * 
+	 * @return la mémoire disponible en octets
+	 */
+	public synchronized long getAvailable() {
+		return capacity - allocated + (long) free.size() * chunkSize;
+	}
+
+	/**
+	 * Renvoie la taille d'un bloc
+	 * 
+	 * @return @see {@link #chunkSize}
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+	/**
+	 * Renvoie l'utilisation de la mémoire
+	 * 
+	 * @return une copie des compteurs de la mémoire à cet instant
+	 */
+	public synchronized OffHeapUsage getUsage() {
+		return new OffHeapUsage(capacity, allocated, retained.get(), dropped.get());
+	}
+
+}
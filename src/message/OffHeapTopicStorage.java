@@ -0,0 +1,395 @@
+package message;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import interfaces.MessageI;
+import interfaces.TopicStorageI;
+
+/**
+ * Stockage des messages d'un Topic hors du tas, dans des blocs de mémoire
+ * directe pris à une arène partagée par les topics du Broker @see OffHeapArena
+ * : les messages conservés ne sont pas des graphes d'objets sur le tas, ils ne
+ * grossissent pas la vieille génération et ne rallongent pas les pauses du
+ * ramasse miettes.
+ * 
+ * Chaque message est encodé seul avec l'encodage des lots entre Brokers @see
+ * BatchCodec, et écrit dans le bloc courant précédé de sa taille (int). Un index
+ * sur le tas donne la position et la date de chaque offset : un message n'est
+ * décodé que lorsqu'il est lu, pour un rejeu ou une requête. Les messages lus
+ * sont des Message, quelle que soit la classe des messages ajoutés.
+ * 
+ * Un bloc est rendu à l'arène dès que tous ses messages sont supprimés. Quand
+ * l'arène est pleine, le stockage supprime ses propres messages les plus
+ * anciens pour libérer un bloc, seulement si ses blocs suffisent à faire la
+ * place du message. Sinon, ou si le message est plus grand que l'arène, seul le
+ * nouveau message est perdu : il reçoit un offset, indexé sans enregistrement,
+ * et n'est jamais lu.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class OffHeapTopicStorage implements TopicStorageI {
+
+	/**
+	 * Taille de l'entête d'un enregistrement : taille du message encodé
+	 */
+	protected static final int HEADER_SIZE = Integer.BYTES;
+
+	// Position dans l'index d'un message qui n'a pas pu être conservé
+	private static final int DROPPED = -1;
+	// Topics du lot d'un seul message encodé, les topics sont ceux du stockage
+	private static final String[] NO_TOPICS = new String[0];
+
+	/**
+	 * Bloc de mémoire du stockage
+	 */
+	protected static class Chunk {
+		// Offset du premier message du bloc
+		long baseOffset;
+		// Mémoire du bloc
+		final ByteBuffer buffer;
+		// Position de chaque message dans le bloc
+		int[] positions = new int[256];
+		// Date de chaque message du bloc
+		long[] times = new long[256];
+		// Nombre de messages du bloc
+		int count;
+		// Position d'écriture du prochain message
+		int writePosition;
+
+		Chunk(long baseOffset, ByteBuffer buffer) {
+			this.baseOffset = baseOffset;
+			this.buffer = buffer;
+		}
+
+		/**
+		 * Ajoute un message à l'index du bloc
+		 * 
+		 * @param position position du message
+		 * @param time     date du message
+		 */
+		void index(int position, long time) {
+			if (count == positions.length) {
+				positions = Arrays.copyOf(positions, count * 2);
+				times = Arrays.copyOf(times, count * 2);
+			}
+			positions[count] = position;
+			times[count] = time;
+			count++;
+		}
+
+		/**
+		 * Vide le bloc pour le réutiliser
+		 * 
+		 * @param baseOffset offset du prochain message du bloc
+		 */
+		void reset(long baseOffset) {
+			this.baseOffset = baseOffset;
+			count = 0;
+			writePosition = 0;
+		}
+
+		/**
+		 * Renvoie la taille de l'enregistrement d'un message du bloc
+		 * 
+		 * @param i indice du message dans le bloc
+		 * @return la taille de l'enregistrement, entête compris, 0 pour un message
+		 *         non conservé
+		 */
+		int recordSize(int i) {
+			return positions[i] == DROPPED ? 0 : HEADER_SIZE + buffer.getInt(positions[i]);
+		}
+	}
+
+	// Arène qui fournit les blocs
+	private final OffHeapArena arena;
+	// Blocs du stockage, du plus ancien au plus récent
+	private final List<Chunk> chunks = new ArrayList<>();
+	// Premier offset lisible
+	private long firstOffset;
+	// Prochain offset attribué
+	private long nextOffset;
+	// Taille des enregistrements lisibles
+	private long bytes;
+	// Politique de rétention des messages
+	private RetentionPolicy retentionPolicy;
+
+	/**
+	 * Constructeur de OffHeapTopicStorage
+	 * 
+	 * @param arena           arène qui fournit les blocs de mémoire
+	 * @param retentionPolicy politique de rétention des messages
+	 */
+	public OffHeapTopicStorage(OffHeapArena arena, RetentionPolicy retentionPolicy) {
+		assert arena != null;
+		assert retentionPolicy != null;
+		this.arena = arena;
+		this.retentionPolicy = retentionPolicy;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#append(MessageI)
+	 */
+	@Override
+	public synchronized long append(MessageI m) throws Exception {
+		byte[] data = BatchCodec.encode(new MessageI[] { m }, NO_TOPICS, false);
+		int recordSize = HEADER_SIZE + data.length;
+
+		long time = MemoryTopicStorage.timeOf(m);
+		Chunk active = reserve(recordSize);
+		if (active == null) {
+			// la mémoire manque : seul le nouveau message n'est pas conservé, il est
+			// indexé sans enregistrement dans le dernier bloc
+			arena.drop();
+			if (chunks.isEmpty())
+				firstOffset = nextOffset + 1;
+			else
+				chunks.get(chunks.size() - 1).index(DROPPED, time);
+			return nextOffset++;
+		}
+
+		ByteBuffer view = active.buffer.duplicate();
+		view.position(active.writePosition + HEADER_SIZE);
+		view.put(data);
+		active.buffer.putInt(active.writePosition, data.length);
+		active.index(active.writePosition, time);
+		active.writePosition += recordSize;
+		bytes += recordSize;
+		arena.retain(recordSize);
+		long offset = nextOffset++;
+
+		if (retentionPolicy.getMaxCount() > 0 && nextOffset - firstOffset > retentionPolicy.getMaxCount())
+			evictOldest();
+		return offset;
+	}
+
+	/**
+	 * Renvoie le bloc où écrire un enregistrement : le bloc courant s'il a la
+	 * place, sinon un nouveau bloc de l'arène. Si l'arène est pleine, les
+	 * messages les plus anciens sont supprimés jusqu'à ce qu'un bloc soit libéré,
+	 * seulement si les blocs du stockage et la mémoire disponible de l'arène
+	 * peuvent contenir le bloc demandé : un message plus grand que l'arène, ou
+	 * une arène occupée par les autres topics, ne vide pas le stockage
+	 * 
+	 * @param recordSize taille de l'enregistrement
+	 * @return le bloc, null si la mémoire manque
+	 */
+	private Chunk reserve(int recordSize) {
+		boolean checked = false;
+		while (true) {
+			Chunk active = chunks.isEmpty() ? null : chunks.get(chunks.size() - 1);
+			if (active != null && active.buffer.capacity() - active.writePosition >= recordSize)
+				return active;
+			// un bloc courant vide trop petit est rendu avant de demander un bloc
+			if (active != null && active.count == 0) {
+				chunks.remove(chunks.size() - 1);
+				arena.release(active.buffer);
+			}
+			ByteBuffer buffer = arena.allocate(recordSize);
+			if (buffer != null) {
+				Chunk chunk = new Chunk(nextOffset, buffer);
+				chunks.add(chunk);
+				return chunk;
+			}
+			if (firstOffset == nextOffset)
+				return null;
+			if (!checked) {
+				long held = 0;
+				for (Chunk chunk : chunks)
+					held += chunk.buffer.capacity();
+				if (arena.getAvailable() + held < Math.max(recordSize, arena.getChunkSize()))
+					return null;
+				checked = true;
+			}
+			evictOldest();
+		}
+	}
+
+	/**
+	 * Les messages lus sont décodés depuis une copie de leur enregistrement
+	 * 
+	 * @see interfaces.TopicStorageI#read(long, int, List)
+	 */
+	@Override
+	public synchronized long read(long fromOffset, int max, List<MessageI> res)
+			throws IOException, ClassNotFoundException {
+		long offset = Math.max(fromOffset, firstOffset);
+		long end = offset + max;
+		int index = findChunk(offset);
+		while (index >= 0 && index < chunks.size() && offset < nextOffset && offset < end) {
+			Chunk chunk = chunks.get(index);
+			for (int i = (int) (offset - chunk.baseOffset); i < chunk.count && offset < end; i++) {
+				int position = chunk.positions[i];
+				if (position == DROPPED) {
+					offset++;
+					continue;
+				}
+				byte[] data = new byte[chunk.buffer.getInt(position)];
+				ByteBuffer view = chunk.buffer.duplicate();
+				view.position(position + HEADER_SIZE);
+				view.get(data);
+				res.add(BatchCodec.decode(data).messages[0]);
+				offset++;
+			}
+			index++;
+		}
+		return offset;
+	}
+
+	/**
+	 * Cherche le bloc contenant un offset
+	 * 
+	 * @param offset offset recherché
+	 * @return l'indice du bloc, -1 si aucun bloc ne le contient
+	 */
+	private int findChunk(long offset) {
+		int low = 0;
+		int high = chunks.size() - 1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			Chunk chunk = chunks.get(mid);
+			if (offset < chunk.baseOffset)
+				high = mid - 1;
+			else if (offset >= chunk.baseOffset + chunk.count)
+				low = mid + 1;
+			else
+				return mid;
+		}
+		return -1;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#getFirstOffset()
+	 */
+	@Override
+	public synchronized long getFirstOffset() {
+		return firstOffset;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#getNextOffset()
+	 */
+	@Override
+	public synchronized long getNextOffset() {
+		return nextOffset;
+	}
+
+	/**
+	 * Seules les dates de l'index sur le tas sont lues
+	 * 
+	 * @see interfaces.TopicStorageI#offsetOf(long)
+	 */
+	@Override
+	public synchronized long offsetOf(long time) {
+		long offset = firstOffset;
+		for (int index = findChunk(offset); index >= 0 && index < chunks.size(); index++) {
+			Chunk chunk = chunks.get(index);
+			for (int i = (int) (offset - chunk.baseOffset); i < chunk.count; i++, offset++)
+				if (chunk.times[i] >= time)
+					return offset;
+		}
+		return nextOffset;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#getRetainedBytes()
+	 */
+	@Override
+	public synchronized long getRetainedBytes() {
+		return bytes;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#getRetentionPolicy()
+	 */
+	@Override
+	public synchronized RetentionPolicy getRetentionPolicy() {
+		return retentionPolicy;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#setRetentionPolicy(RetentionPolicy)
+	 */
+	@Override
+	public synchronized void setRetentionPolicy(RetentionPolicy retentionPolicy) {
+		assert retentionPolicy != null;
+		this.retentionPolicy = retentionPolicy;
+		evict(System.currentTimeMillis());
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#evict(long)
+	 */
+	@Override
+	public synchronized void evict(long now) {
+		int maxCount = retentionPolicy.getMaxCount();
+		long maxBytes = retentionPolicy.getMaxBytes();
+		long maxAge = retentionPolicy.getMaxAge();
+		while (firstOffset < nextOffset) {
+			Chunk chunk = chunks.get(findChunk(firstOffset));
+			int i = (int) (firstOffset - chunk.baseOffset);
+			boolean tooMany = maxCount > 0 && nextOffset - firstOffset > maxCount;
+			boolean tooBig = maxBytes > 0 && bytes > maxBytes;
+			boolean tooOld = maxAge > 0 && now - chunk.times[i] > maxAge;
+			if (!(tooMany || tooBig || tooOld))
+				break;
+			evictOldest();
+		}
+	}
+
+	/**
+	 * Supprime le message le plus ancien, et rend à l'arène les blocs dont tous
+	 * les messages sont supprimés. Le bloc courant est gardé et réutilisé
+	 */
+	private void evictOldest() {
+		Chunk chunk = chunks.get(findChunk(firstOffset));
+		int size = chunk.recordSize((int) (firstOffset - chunk.baseOffset));
+		bytes -= size;
+		arena.retain(-size);
+		firstOffset++;
+		while (!chunks.isEmpty() && chunks.get(0).baseOffset + chunks.get(0).count <= firstOffset) {
+			if (chunks.size() == 1) {
+				chunks.get(0).reset(nextOffset);
+				break;
+			}
+			arena.release(chunks.remove(0).buffer);
+		}
+	}
+
+	/**
+	 * Renvoie le nombre de blocs du stockage
+	 * 
+	 * @return le nombre de blocs
+	 */
+	public synchronized int getChunkCount() {
+		return chunks.size();
+	}
+
+	/**
+	 * Les messages sont perdus : leurs blocs sont rendus à l'arène
+	 * 
+	 * @see interfaces.TopicStorageI#close()
+	 */
+	@Override
+	public synchronized void close() {
+		for (Chunk chunk : chunks)
+			arena.release(chunk.buffer);
+		chunks.clear();
+		arena.retain(-bytes);
+		bytes = 0;
+		firstOffset = nextOffset;
+	}
+
+	/**
+	 * @see interfaces.TopicStorageI#delete()
+	 */
+	@Override
+	public synchronized void delete() {
+		close();
+	}
+
+}
@@ -0,0 +1,101 @@
+package message;
+
+import java.io.Serializable;
+
+/**
+ * Utilisation de la mémoire hors du tas d'un Broker à un instant donné
+ * @see OffHeapArena, renvoyée par l'interface de management
+ * 
+ * @author Bello Velly
+ *
+ */
+public class OffHeapUsage implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Utilisation d'un Broker qui garde ses messages sur le tas
+	 */
+	public static final OffHeapUsage NONE = new OffHeapUsage(0, 0, 0, 0);
+
+	/**
+	 * Mémoire maximum réservée, en octets
+	 */
+	protected final long capacity;
+
+	/**
+	 * Mémoire réservée par les blocs, en octets
+	 */
+	protected final long allocated;
+
+	/**
+	 * Taille des messages conservés, en octets
+	 */
+	protected final long retained;
+
+	/**
+	 * Nombre de messages qui n'ont pas pu être conservés faute de mémoire
+	 */
+	protected final long dropped;
+
+	/**
+	 * Constructeur de OffHeapUsage
+	 * 
+	 * @param capacity  @see {@link #capacity}
+	 * @param allocated @see {@link #allocated}
+	 * @param retained  @see {@link #retained}
+	 * @param dropped   @see {@link #dropped}
+	 */
+	public OffHeapUsage(long capacity, long allocated, long retained, long dropped) {
+		this.capacity = capacity;
+		this.allocated = allocated;
+		this.retained = retained;
+		this.dropped = dropped;
+	}
+
+	/**
+	 * Renvoie la mémoire maximum réservée
+	 * 
+	 * @return @see {@link #capacity}, 0 si les messages sont sur le tas
+	 */
+	public long getCapacity() {
+		return capacity;
+	}
+
+	/**
+	 * Renvoie la mémoire réservée par les blocs
+	 * 
+	 * @return @see {@link #allocated}
+	 */
+	public long getAllocated() {
+		return allocated;
+	}
+
+	/**
+	 * Renvoie la taille des messages conservés
+	 * 
+	 * @return @see {@link #retained}
+	 */
+	public long getRetained() {
+		return retained;
+	}
+
+	/**
+	 * Renvoie le nombre de messages qui n'ont pas pu être conservés
+	 * 
+	 * @return @see {@link #dropped}
+	 */
+	public long getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return retained + " octets de messages dans " + allocated + " octets réservés sur " + capacity + ", "
+				+ dropped + " messages non conservés";
+	}
+
+}
@@ -0,0 +1,218 @@
+package message;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import interfaces.MessageI;
+
+/**
+ * Regroupe les messages transmis à un autre Broker : au lieu d'un appel
+ * publish par publication reçue, les messages sont envoyés par lots quand le
+ * lot atteint un nombre de messages, une taille en octets, ou quand le premier
+ * message a attendu un délai donné.
+ * 
+ * Un appel publish s'applique à tous ses topics : les messages d'un lot sont
+ * donc envoyés en un appel par ensemble de topics. L'ordre des messages est
+ * conservé pour chaque ensemble de topics.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class PeerBatcher {
+
+	/**
+	 * Envoie un lot de messages à l'autre Broker
+	 */
+	@FunctionalInterface
+	public interface Sender {
+		/**
+		 * Envoie des messages publiés sur des topics
+		 * 
+		 * @param ms     messages à envoyer
+		 * @param topics topics des messages
+		 */
+		void send(MessageI[] ms, String[] topics) throws Exception;
+	}
+
+	// Nombre de messages qui déclenche l'envoi du lot
+	private final int maxMessages;
+	// Taille en octets qui déclenche l'envoi du lot, 0 pour ne pas mesurer les
+	// messages
+	private final long maxBytes;
+	// Délai maximum d'attente du premier message du lot en millisecondes, 0 pour
+	// envoyer à chaque ajout
+	private final long linger;
+	// Envoie les lots
+	private final Sender sender;
+	// Planifie un appel à flush() après le délai d'attente
+	private final Runnable lingerTimer;
+
+	// Messages en attente par ensemble de topics
+	private Map<List<String>, List<MessageI>> pending = new LinkedHashMap<>();
+	// Nombre et taille des messages en attente
+	private int pendingCount;
+	private long pendingBytes;
+	// Date d'ajout du plus ancien message en attente, en nanosecondes
+	private long oldest;
+	// Un seul lot est envoyé à la fois, pour garder l'ordre des messages
+	private final Object sendLock = new Object();
+
+	// Mesures : nombre de lots et de messages envoyés, plus grand lot, temps entre
+	// l'ajout du premier message d'un lot et la fin de son envoi
+	private long flushes;
+	private long sentMessages;
+	private long maxBatchSize;
+	private long totalLatency;
+	private long maxLatency;
+
+	/**
+	 * Constructeur de PeerBatcher
+	 * 
+	 * @param maxMessages @see {@link #maxMessages}
+	 * @param maxBytes    @see {@link #maxBytes}
+	 * @param linger      @see {@link #linger}
+	 * @param sender      @see {@link #sender}
+	 * @param lingerTimer planifie un appel à {@link #flush()} après le délai
+	 *                    d'attente, appelé quand un lot commence
+	 */
+	public PeerBatcher(int maxMessages, long maxBytes, long linger, Sender sender, Runnable lingerTimer) {
+		assert maxMessages > 0 && maxBytes >= 0 && linger >= 0;
+		assert sender != null && lingerTimer != null;
+		this.maxMessages = maxMessages;
+		this.maxBytes = maxBytes;
+		this.linger = linger;
+		this.sender = sender;
+		this.lingerTimer = lingerTimer;
+	}
+
+	/**
+	 * Ajoute des messages au lot, le lot est envoyé si un seuil est atteint
+	 * 
+	 * @param ms     messages à transmettre
+	 * @param topics topics des messages
+	 */
+	public void add(MessageI[] ms, String[] topics) {
+		boolean flushNow;
+		boolean startTimer;
+		synchronized (this) {
+			startTimer = pendingCount == 0 && linger > 0;
+			if (pendingCount == 0)
+				oldest = System.nanoTime();
+			pending.computeIfAbsent(Arrays.asList(topics), k -> new ArrayList<>()).addAll(Arrays.asList(ms));
+			pendingCount += ms.length;
+			if (maxBytes > 0)
+				for (MessageI m : ms)
+					pendingBytes += MemoryTopicStorage.sizeOf(m);
+			flushNow = linger == 0 || pendingCount >= maxMessages || (maxBytes > 0 && pendingBytes >= maxBytes);
+		}
+		if (flushNow)
+			flush();
+		else if (startTimer)
+			lingerTimer.run();
+	}
+
+	/**
+	 * Envoie les messages en attente, un appel par ensemble de topics
+	 */
+	public void flush() {
+		synchronized (sendLock) {
+			Map<List<String>, List<MessageI>> batch;
+			int count;
+			long start;
+			synchronized (this) {
+				if (pendingCount == 0)
+					return;
+				batch = pending;
+				count = pendingCount;
+				start = oldest;
+				pending = new LinkedHashMap<>();
+				pendingCount = 0;
+				pendingBytes = 0;
+			}
+			for (Map.Entry<List<String>, List<MessageI>> group : batch.entrySet()) {
+				try {
+					sender.send(group.getValue().toArray(new MessageI[0]), group.getKey().toArray(new String[0]));
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+			long latency = System.nanoTime() - start;
+			synchronized (this) {
+				flushes++;
+				sentMessages += count;
+				maxBatchSize = Math.max(maxBatchSize, count);
+				totalLatency += latency;
+				maxLatency = Math.max(maxLatency, latency);
+			}
+		}
+	}
+
+	/**
+	 * Renvoie le nombre de messages en attente
+	 * 
+	 * @return le nombre de messages en attente
+	 */
+	public synchronized int getPendingCount() {
+		return pendingCount;
+	}
+
+	/**
+	 * Renvoie le nombre de lots envoyés
+	 * 
+	 * @return le nombre de lots envoyés
+	 */
+	public synchronized long getFlushes() {
+		return flushes;
+	}
+
+	/**
+	 * Renvoie le nombre de messages envoyés
+	 * 
+	 * @return le nombre de messages envoyés
+	 */
+	public synchronized long getSentMessages() {
+		return sentMessages;
+	}
+
+	/**
+	 * Renvoie le nombre moyen de messages par lot
+	 * 
+	 * @return la taille moyenne des lots, 0 si aucun lot n'a été envoyé
+	 */
+	public synchronized double getAverageBatchSize() {
+		return flushes == 0 ? 0 : sentMessages / (double) flushes;
+	}
+
+	/**
+	 * Renvoie le plus grand nombre de messages envoyés en un lot
+	 * 
+	 * @return la taille du plus grand lot
+	 */
+	public synchronized long getMaxBatchSize() {
+		return maxBatchSize;
+	}
+
+	/**
+	 * Renvoie le temps moyen entre l'ajout du premier message d'un lot et la fin
+	 * de son envoi
+	 * 
+	 * @return le temps moyen en millisecondes, 0 si aucun lot n'a été envoyé
+	 */
+	public synchronized double getAverageFlushLatency() {
+		return flushes == 0 ? 0 : totalLatency / (double) flushes / 1e6;
+	}
+
+	/**
+	 * Renvoie le plus grand temps entre l'ajout du premier message d'un lot et la
+	 * fin de son envoi
+	 * 
+	 * @return le temps maximum en millisecondes
+	 */
+	public synchronized double getMaxFlushLatency() {
+		return maxLatency / 1e6;
+	}
+
+}
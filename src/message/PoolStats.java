@@ -0,0 +1,155 @@
+package message;
+
+import java.io.Serializable;
+
+/**
+ * Etat d'un pool de threads d'un composant à un instant donné @see
+ * components.AdaptivePool, renvoyé par l'interface de management
+ * 
+ * @author Bello Velly
+ *
+ */
+public class PoolStats implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Nom du pool
+	 */
+	protected final String name;
+	/**
+	 * Nombre de threads du pool de threads du composant
+	 */
+	protected final int threads;
+	/**
+	 * Nombre de threads qui peuvent recevoir des taches
+	 */
+	protected final int target;
+	/**
+	 * Nombre de threads occupés par des taches
+	 */
+	protected final int running;
+	/**
+	 * Nombre de taches en attente
+	 */
+	protected final int pending;
+	/**
+	 * Attente moyenne des taches de la dernière période, en millisecondes
+	 */
+	protected final double averageWait;
+	/**
+	 * Durée moyenne des taches de la dernière période, en millisecondes
+	 */
+	protected final double averageRun;
+	/**
+	 * Nombre de taches exécutées
+	 */
+	protected final long completed;
+
+	/**
+	 * Constructeur de PoolStats
+	 * 
+	 * @param name        @see {@link #name}
+	 * @param threads     @see {@link #threads}
+	 * @param target      @see {@link #target}
+	 * @param running     @see {@link #running}
+	 * @param pending     @see {@link #pending}
+	 * @param averageWait @see {@link #averageWait}
+	 * @param averageRun  @see {@link #averageRun}
+	 * @param completed   @see {@link #completed}
+	 */
+	public PoolStats(String name, int threads, int target, int running, int pending, double averageWait,
+			double averageRun, long completed) {
+		this.name = name;
+		this.threads = threads;
+		this.target = target;
+		this.running = running;
+		this.pending = pending;
+		this.averageWait = averageWait;
+		this.averageRun = averageRun;
+		this.completed = completed;
+	}
+
+	/**
+	 * Renvoie le nom du pool
+	 * 
+	 * @return @see {@link #name}
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Renvoie le nombre de threads du pool de threads du composant
+	 * 
+	 * @return @see {@link #threads}
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Renvoie la taille cible
+	 * 
+	 * @return @see {@link #target}
+	 */
+	public int getTarget() {
+		return target;
+	}
+
+	/**
+	 * Renvoie le nombre de threads occupés
+	 * 
+	 * @return @see {@link #running}
+	 */
+	public int getRunning() {
+		return running;
+	}
+
+	/**
+	 * Renvoie le nombre de taches en attente
+	 * 
+	 * @return @see {@link #pending}
+	 */
+	public int getPending() {
+		return pending;
+	}
+
+	/**
+	 * Renvoie l'attente moyenne des taches
+	 * 
+	 * @return @see {@link #averageWait}
+	 */
+	public double getAverageWait() {
+		return averageWait;
+	}
+
+	/**
+	 * Renvoie la durée moyenne des taches
+	 * 
+	 * @return @see {@link #averageRun}
+	 */
+	public double getAverageRun() {
+		return averageRun;
+	}
+
+	/**
+	 * Renvoie le nombre de taches exécutées
+	 * 
+	 * @return @see {@link #completed}
+	 */
+	public long getCompleted() {
+		return completed;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "pool " + name + " : " + running + " threads occupés sur " + target + " (" + threads
+				+ " au maximum), " + pending + " taches en attente, attente " + String.format("%.2f", averageWait)
+				+ " ms et durée " + String.format("%.2f", averageRun) + " ms en moyenne, " + completed
+				+ " taches exécutées";
+	}
+}
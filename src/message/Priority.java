@@ -0,0 +1,87 @@
+package message;
+
+import interfaces.MessageI;
+
+/**
+ * Priorité d'un message, portée par la propriété réservée {@link #KEY} : un
+ * message sans cette propriété a la priorité {@link #NORMAL}. Les files du
+ * Broker et des subscribers envoient d'abord les messages les plus prioritaires
+ * @see AgingQueue
+ * 
+ * @author Bello Velly
+ *
+ */
+public enum Priority {
+	/**
+	 * messages de masse (télémétrie...), envoyés quand il n'y a rien de plus
+	 * urgent
+	 */
+	LOW,
+	/**
+	 * priorité des messages sans priorité
+	 */
+	NORMAL,
+	/**
+	 * messages envoyés avant les messages normaux
+	 */
+	HIGH,
+	/**
+	 * messages de contrôle, envoyés avant tous les autres
+	 */
+	URGENT;
+
+	/**
+	 * Clé réservée de la propriété qui porte la priorité d'un message, sa valeur
+	 * est le rang de la priorité (byte)
+	 */
+	public static final PropertyKey KEY = PropertyKey.of("priority");
+
+	/**
+	 * Délai par défaut (en millisecondes) au bout duquel un message en attente
+	 * passe devant les messages arrivés après lui avec la priorité immédiatement
+	 * supérieure
+	 */
+	public static final long DEFAULT_AGING = 100;
+
+	// Priorités dans l'ordre de leur rang
+	private static final Priority[] VALUES = values();
+
+	/**
+	 * Fixe la priorité d'un message dans ses propriétés
+	 * 
+	 * @param properties propriétés du message
+	 */
+	public void apply(Properties properties) {
+		properties.putProp(KEY, (byte) ordinal());
+	}
+
+	/**
+	 * Renvoie la priorité d'un message
+	 * 
+	 * @param m message
+	 * @return la priorité du message, {@link #NORMAL} s'il n'en a pas
+	 */
+	public static Priority of(MessageI m) {
+		try {
+			Properties properties = m.getProperties();
+			Object value = properties == null ? null : properties.getProp(KEY);
+			if (value instanceof Number)
+				return valueOf(((Number) value).intValue());
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+		return NORMAL;
+	}
+
+	/**
+	 * Renvoie la priorité d'un rang
+	 * 
+	 * @param rank rang de la priorité, ramené entre {@link #LOW} et
+	 *             {@link #URGENT}
+	 * @return la priorité
+	 */
+	public static Priority valueOf(int rank) {
+		return VALUES[Math.max(0, Math.min(VALUES.length - 1, rank))];
+	}
+
+}
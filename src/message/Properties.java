@@ -1,23 +1,52 @@
 package message;
 
-import java.io.Serializable;
-import java.util.HashMap;
-import java.util.Map;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
+import java.util.Arrays;
 
 /**
- * Classe representant un ensemble de propriétés
+ * Classe representant un ensemble de propriétés. Elles sont sérialisées à la
+ * main : le nombre de propriétés puis, pour chacune, son nom, un octet de type
+ * et sa valeur
+ * 
+ * Les propriétés sont rangées dans des tableaux parallèles, sans objet par
+ * valeur : le nom, le type et la valeur des types primitifs dans un long (les
+ * décimaux sous forme de bits). Un message a peu de propriétés, elles sont
+ * cherchées par un parcours des clés plutôt que par une table de hachage.
+ * 
+ * Les méthodes qui prennent une clé @see PropertyKey évitent de chercher le nom
+ * dans le dictionnaire des clés : les filtres résolvent leurs clés une fois.
+ * Les propriétés reçues dont le nom n'a pas été ajouté au dictionnaire ont une
+ * clé propre au message, elles sont cherchées par leur nom.
  * 
  * @author Bello Velly
  *
  */
-public class Properties implements Serializable {
+public class Properties implements Externalizable {
 
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
 
 	/**
-	 * contient les propriétées, associé a leurs identifiant
+	 * Capacité des tableaux à la première propriétée
 	 */
-	private Map<String, Object> properties = new HashMap<String, Object>();
+	protected static final int INITIAL_CAPACITY = 4;
+
+	// Clés des propriétées, dans l'ordre d'ajout, null tant qu'il n'y en a pas
+	private PropertyKey[] keys;
+	// Type de chaque propriétée, avec les codes de ValueIO
+	private byte[] tags;
+	// Valeur de chaque propriétée de type primitif
+	private long[] values;
+	// Valeur de chaque propriétée String, null tant qu'il n'y en a pas
+	private String[] strings;
+	// Nombre de propriétées
+	private int size;
+	// Vrai si une clé n'est pas celle du dictionnaire @see PropertyKey#isInterned()
+	private boolean localKeys;
 
 	/**
 	 * enregistre une propriétée
@@ -26,7 +55,17 @@ public class Properties implements Serializable {
 	 * @param v    valeur de la propriétée
 	 */
 	public void putProp(String name, boolean v) {
-		properties.put(name, v);
+		putProp(PropertyKey.of(name), v);
+	}
+
+	/**
+	 * enregistre une propriétée
+	 * 
+	 * @param key clé de la propriétée
+	 * @param v   valeur de la propriétée
+	 */
+	public void putProp(PropertyKey key, boolean v) {
+		put(key, ValueIO.BOOLEAN, v ? 1 : 0, null);
 	}
 
 	/**
@@ -36,7 +75,17 @@ public class Properties implements Serializable {
 	 * @param v    valeur de la propriétée
 	 */
 	public void putProp(String name, byte v) {
-		properties.put(name, v);
+		putProp(PropertyKey.of(name), v);
+	}
+
+	/**
+	 * enregistre une propriétée
+	 * 
+	 * @param key clé de la propriétée
+	 * @param v   valeur de la propriétée
+	 */
+	public void putProp(PropertyKey key, byte v) {
+		put(key, ValueIO.BYTE, v, null);
 	}
 
 	/**
@@ -46,7 +95,17 @@ public class Properties implements Serializable {
 	 * @param v    valeur de la propriétée
 	 */
 	public void putProp(String name, char v) {
-		properties.put(name, v);
+		putProp(PropertyKey.of(name), v);
+	}
+
+	/**
+	 * enregistre une propriétée
+	 * 
+	 * @param key clé de la propriétée
+	 * @param v   valeur de la propriétée
+	 */
+	public void putProp(PropertyKey key, char v) {
+		put(key, ValueIO.CHAR, v, null);
 	}
 
 	/**
@@ -56,7 +115,17 @@ public class Properties implements Serializable {
 	 * @param v    valeur de la propriétée
 	 */
 	public void putProp(String name, double v) {
-		properties.put(name, v);
+		putProp(PropertyKey.of(name), v);
+	}
+
+	/**
+	 * enregistre une propriétée
+	 * 
+	 * @param key clé de la propriétée
+	 * @param v   valeur de la propriétée
+	 */
+	public void putProp(PropertyKey key, double v) {
+		put(key, ValueIO.DOUBLE, Double.doubleToRawLongBits(v), null);
 	}
 
 	/**
@@ -66,7 +135,17 @@ public class Properties implements Serializable {
 	 * @param v    valeur de la propriétée
 	 */
 	public void putProp(String name, float v) {
-		properties.put(name, v);
+		putProp(PropertyKey.of(name), v);
+	}
+
+	/**
+	 * enregistre une propriétée
+	 * 
+	 * @param key clé de la propriétée
+	 * @param v   valeur de la propriétée
+	 */
+	public void putProp(PropertyKey key, float v) {
+		put(key, ValueIO.FLOAT, Float.floatToRawIntBits(v), null);
 	}
 
 	/**
@@ -76,7 +155,17 @@ public class Properties implements Serializable {
 	 * @param v    valeur de la propriétée
 	 */
 	public void putProp(String name, int v) {
-		properties.put(name, v);
+		putProp(PropertyKey.of(name), v);
+	}
+
+	/**
+	 * enregistre une propriétée
+	 * 
+	 * @param key clé de la propriétée
+	 * @param v   valeur de la propriétée
+	 */
+	public void putProp(PropertyKey key, int v) {
+		put(key, ValueIO.INT, v, null);
 	}
 
 	/**
@@ -86,7 +175,17 @@ public class Properties implements Serializable {
 	 * @param v    valeur de la propriétée
 	 */
 	public void putProp(String name, long v) {
-		properties.put(name, v);
+		putProp(PropertyKey.of(name), v);
+	}
+
+	/**
+	 * enregistre une propriétée
+	 * 
+	 * @param key clé de la propriétée
+	 * @param v   valeur de la propriétée
+	 */
+	public void putProp(PropertyKey key, long v) {
+		put(key, ValueIO.LONG, v, null);
 	}
 
 	/**
@@ -96,7 +195,17 @@ public class Properties implements Serializable {
 	 * @param v    valeur de la propriétée
 	 */
 	public void putProp(String name, short v) {
-		properties.put(name, v);
+		putProp(PropertyKey.of(name), v);
+	}
+
+	/**
+	 * enregistre une propriétée
+	 * 
+	 * @param key clé de la propriétée
+	 * @param v   valeur de la propriétée
+	 */
+	public void putProp(PropertyKey key, short v) {
+		put(key, ValueIO.SHORT, v, null);
 	}
 
 	/**
@@ -106,7 +215,17 @@ public class Properties implements Serializable {
 	 * @param v    valeur de la propriétée
 	 */
 	public void putProp(String name, String v) {
-		properties.put(name, v);
+		putProp(PropertyKey.of(name), v);
+	}
+
+	/**
+	 * enregistre une propriétée
+	 * 
+	 * @param key clé de la propriétée
+	 * @param v   valeur de la propriétée
+	 */
+	public void putProp(PropertyKey key, String v) {
+		put(key, v == null ? ValueIO.NULL : ValueIO.STRING, 0, v);
 	}
 
 	/**
@@ -115,12 +234,19 @@ public class Properties implements Serializable {
 	 * @param name identifiant de la propriétée à renvoyé
 	 */
 	public boolean getBooleanProp(String name) throws BadPropertyType {
-		Object res = properties.get(name);
-		if (res == null)
-			throw new PropertyDoesntExist(name);
-		if (res instanceof Boolean)
-			return (boolean) res;
-		throw new BadPropertyType("Propertiy " + name + " shloud be a boolean");
+		return getBooleanProp(key(name));
+	}
+
+	/**
+	 * renvoie une propriétée
+	 * 
+	 * @param key clé de la propriétée à renvoyé
+	 */
+	public boolean getBooleanProp(PropertyKey key) throws BadPropertyType {
+		int i = find(key);
+		if (tags[i] == ValueIO.BOOLEAN)
+			return values[i] != 0;
+		throw new BadPropertyType("Propertiy " + key + " shloud be a boolean");
 	}
 
 	/**
@@ -129,12 +255,19 @@ public class Properties implements Serializable {
 	 * @param name identifiant de la propriétée à renvoyé
 	 */
 	public byte getByteProp(String name) throws BadPropertyType {
-		Object res = properties.get(name);
-		if (res == null)
-			throw new PropertyDoesntExist(name);
-		if (res instanceof Byte)
-			return (byte) res;
-		throw new BadPropertyType("Propertiy " + name + " shloud be a byte");
+		return getByteProp(key(name));
+	}
+
+	/**
+	 * renvoie une propriétée
+	 * 
+	 * @param key clé de la propriétée à renvoyé
+	 */
+	public byte getByteProp(PropertyKey key) throws BadPropertyType {
+		int i = find(key);
+		if (tags[i] == ValueIO.BYTE)
+			return (byte) values[i];
+		throw new BadPropertyType("Propertiy " + key + " shloud be a byte");
 	}
 
 	/**
@@ -143,12 +276,19 @@ public class Properties implements Serializable {
 	 * @param name identifiant de la propriétée à renvoyé
 	 */
 	public char getCharProp(String name) throws BadPropertyType {
-		Object res = properties.get(name);
-		if (res == null)
-			throw new PropertyDoesntExist(name);
-		if (res instanceof Character)
-			return (char) res;
-		throw new BadPropertyType("Propertiy " + name + " shloud be a char");
+		return getCharProp(key(name));
+	}
+
+	/**
+	 * renvoie une propriétée
+	 * 
+	 * @param key clé de la propriétée à renvoyé
+	 */
+	public char getCharProp(PropertyKey key) throws BadPropertyType {
+		int i = find(key);
+		if (tags[i] == ValueIO.CHAR)
+			return (char) values[i];
+		throw new BadPropertyType("Propertiy " + key + " shloud be a char");
 	}
 
 	/**
@@ -157,12 +297,19 @@ public class Properties implements Serializable {
 	 * @param name identifiant de la propriétée à renvoyé
 	 */
 	public double getDoubleProp(String name) throws BadPropertyType {
-		Object res = properties.get(name);
-		if (res == null)
-			throw new PropertyDoesntExist(name);
-		if (res instanceof Double)
-			return (double) res;
-		throw new BadPropertyType("Propertiy " + name + " shloud be a double");
+		return getDoubleProp(key(name));
+	}
+
+	/**
+	 * renvoie une propriétée
+	 * 
+	 * @param key clé de la propriétée à renvoyé
+	 */
+	public double getDoubleProp(PropertyKey key) throws BadPropertyType {
+		int i = find(key);
+		if (tags[i] == ValueIO.DOUBLE)
+			return Double.longBitsToDouble(values[i]);
+		throw new BadPropertyType("Propertiy " + key + " shloud be a double");
 	}
 
 	/**
@@ -171,12 +318,19 @@ public class Properties implements Serializable {
 	 * @param name identifiant de la propriétée à renvoyé
 	 */
 	public float getFloatProp(String name) throws BadPropertyType {
-		Object res = properties.get(name);
-		if (res == null)
-			throw new PropertyDoesntExist(name);
-		if (res instanceof Float)
-			return (float) res;
-		throw new BadPropertyType("Propertiy " + name + " shloud be a float");
+		return getFloatProp(key(name));
+	}
+
+	/**
+	 * renvoie une propriétée
+	 * 
+	 * @param key clé de la propriétée à renvoyé
+	 */
+	public float getFloatProp(PropertyKey key) throws BadPropertyType {
+		int i = find(key);
+		if (tags[i] == ValueIO.FLOAT)
+			return Float.intBitsToFloat((int) values[i]);
+		throw new BadPropertyType("Propertiy " + key + " shloud be a float");
 	}
 
 	/**
@@ -185,12 +339,19 @@ public class Properties implements Serializable {
 	 * @param name identifiant de la propriétée à renvoyé
 	 */
 	public int getIntProp(String name) throws BadPropertyType {
-		Object res = properties.get(name);
-		if (res == null)
-			throw new PropertyDoesntExist(name);
-		if (res instanceof Integer)
-			return (int) res;
-		throw new BadPropertyType("Propertiy " + name + " shloud be an int");
+		return getIntProp(key(name));
+	}
+
+	/**
+	 * renvoie une propriétée
+	 * 
+	 * @param key clé de la propriétée à renvoyé
+	 */
+	public int getIntProp(PropertyKey key) throws BadPropertyType {
+		int i = find(key);
+		if (tags[i] == ValueIO.INT)
+			return (int) values[i];
+		throw new BadPropertyType("Propertiy " + key + " shloud be an int");
 	}
 
 	/**
@@ -199,12 +360,19 @@ public class Properties implements Serializable {
 	 * @param name identifiant de la propriétée à renvoyé
 	 */
 	public long getLongProp(String name) throws BadPropertyType {
-		Object res = properties.get(name);
-		if (res == null)
-			throw new PropertyDoesntExist(name);
-		if (res instanceof Long)
-			return (long) res;
-		throw new BadPropertyType("Propertiy " + name + " shloud be a long");
+		return getLongProp(key(name));
+	}
+
+	/**
+	 * renvoie une propriétée
+	 * 
+	 * @param key clé de la propriétée à renvoyé
+	 */
+	public long getLongProp(PropertyKey key) throws BadPropertyType {
+		int i = find(key);
+		if (tags[i] == ValueIO.LONG)
+			return values[i];
+		throw new BadPropertyType("Propertiy " + key + " shloud be a long");
 	}
 
 	/**
@@ -213,12 +381,19 @@ public class Properties implements Serializable {
 	 * @param name identifiant de la propriétée à renvoyé
 	 */
 	public short getShortProp(String name) throws BadPropertyType {
-		Object res = properties.get(name);
-		if (res == null)
-			throw new PropertyDoesntExist(name);
-		if (res instanceof Short)
-			return (short) res;
-		throw new BadPropertyType("Propertiy " + name + " shloud be a short");
+		return getShortProp(key(name));
+	}
+
+	/**
+	 * renvoie une propriétée
+	 * 
+	 * @param key clé de la propriétée à renvoyé
+	 */
+	public short getShortProp(PropertyKey key) throws BadPropertyType {
+		int i = find(key);
+		if (tags[i] == ValueIO.SHORT)
+			return (short) values[i];
+		throw new BadPropertyType("Propertiy " + key + " shloud be a short");
 	}
 
 	/**
@@ -227,12 +402,227 @@ public class Properties implements Serializable {
 	 * @param name identifiant de la propriétée à renvoyé
 	 */
 	public String getStringProp(String name) throws BadPropertyType {
-		Object res = properties.get(name);
-		if (res == null)
+		return getStringProp(key(name));
+	}
+
+	/**
+	 * renvoie une propriétée
+	 * 
+	 * @param key clé de la propriétée à renvoyé
+	 */
+	public String getStringProp(PropertyKey key) throws BadPropertyType {
+		int i = find(key);
+		if (tags[i] == ValueIO.STRING)
+			return strings[i];
+		throw new BadPropertyType("Propertiy " + key + " shloud be a String");
+	}
+
+	/**
+	 * renvoie une propriétée quelque soit son type
+	 * 
+	 * @param name identifiant de la propriétée à renvoyé
+	 * @return la valeur de la propriétée, null si elle n'existe pas
+	 */
+	public Object getProp(String name) {
+		PropertyKey key = lookup(name);
+		return key == null ? null : getProp(key);
+	}
+
+	/**
+	 * renvoie une propriétée quelque soit son type
+	 * 
+	 * @param key clé de la propriétée à renvoyé
+	 * @return la valeur de la propriétée, null si elle n'existe pas
+	 */
+	public Object getProp(PropertyKey key) {
+		int i = indexOf(key);
+		if (i < 0)
+			return null;
+		return tags[i] == ValueIO.STRING ? strings[i] : ValueIO.box(tags[i], values[i]);
+	}
+
+	/**
+	 * Renvoie le nombre de propriétées
+	 * 
+	 * @return le nombre de propriétées
+	 */
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Renvoie le nom d'une propriétée
+	 * 
+	 * @param i indice de la propriétée, dans l'ordre d'ajout
+	 * @return le nom de la propriétée
+	 */
+	String nameAt(int i) {
+		return keys[i].getName();
+	}
+
+	/**
+	 * Écrit la valeur d'une propriétée précédée de son type, comme
+	 * {@link ValueIO#writeValue(DataOutput, Object)} mais sans la convertir en
+	 * objet
+	 * 
+	 * @param out flux de sortie
+	 * @param i   indice de la propriétée
+	 */
+	void writeValueAt(DataOutput out, int i) throws IOException {
+		if (tags[i] == ValueIO.STRING) {
+			out.writeByte(ValueIO.STRING);
+			ValueIO.writeString(out, strings[i]);
+		} else if (tags[i] == ValueIO.NULL) {
+			out.writeByte(ValueIO.NULL);
+		} else {
+			ValueIO.writePrimitive(out, tags[i], values[i]);
+		}
+	}
+
+	/**
+	 * Lit la valeur d'une propriétée écrite par
+	 * {@link #writeValueAt(DataOutput, int)} et l'enregistre
+	 * 
+	 * @param name nom de la propriétée
+	 * @param in   flux d'entrée
+	 */
+	void readValue(String name, DataInput in) throws IOException {
+		PropertyKey key = PropertyKey.resolve(name);
+		byte tag = in.readByte();
+		if (tag == ValueIO.STRING)
+			put(key, tag, 0, ValueIO.readString(in));
+		else if (tag == ValueIO.NULL)
+			put(key, tag, 0, null);
+		else if (ValueIO.isPrimitive(tag))
+			put(key, tag, ValueIO.readPrimitive(in, tag), null);
+		else
+			throw new IOException("invalid property type " + tag);
+	}
+
+	/**
+	 * Cherche une propriétée, d'abord à la dernière position où sa clé a été
+	 * trouvée
+	 * 
+	 * @param key clé de la propriétée
+	 * @return son indice, -1 si elle n'existe pas
+	 */
+	private int indexOf(PropertyKey key) {
+		int slot = key.slot;
+		if (slot < size && keys[slot] == key)
+			return slot;
+		for (int i = 0; i < size; i++) {
+			if (keys[i] == key) {
+				key.slot = i;
+				return i;
+			}
+		}
+		// une clé propre au message a le même nom que la clé du dictionnaire
+		if (localKeys) {
+			for (int i = 0; i < size; i++)
+				if (keys[i].getName().equals(key.getName()))
+					return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Renvoie la clé d'un nom, celle du dictionnaire ou celle propre au message
+	 * 
+	 * @param name identifiant de la propriétée
+	 * @return sa clé, null si aucune propriétée de ce nom n'existe
+	 */
+	private PropertyKey lookup(String name) {
+		PropertyKey key = PropertyKey.find(name);
+		if (key != null || !localKeys)
+			return key;
+		for (int i = 0; i < size; i++)
+			if (keys[i].getName().equals(name))
+				return keys[i];
+		return null;
+	}
+
+	/**
+	 * Renvoie la clé d'une propriétée qui doit exister
+	 * 
+	 * @param name identifiant de la propriétée
+	 * @return sa clé
+	 * @throws PropertyDoesntExist si aucune propriétée de ce nom n'existe
+	 */
+	private PropertyKey key(String name) {
+		PropertyKey key = lookup(name);
+		if (key == null)
 			throw new PropertyDoesntExist(name);
-		if (res instanceof String)
-			return (String) res;
-		throw new BadPropertyType("Propertiy " + name + " shloud be a String");
+		return key;
+	}
+
+	/**
+	 * Cherche une propriétée qui doit exister
+	 * 
+	 * @param key clé de la propriétée
+	 * @return son indice
+	 * @throws PropertyDoesntExist si la propriétée n'existe pas
+	 */
+	private int find(PropertyKey key) {
+		int i = indexOf(key);
+		if (i < 0 || tags[i] == ValueIO.NULL)
+			throw new PropertyDoesntExist(key.getName());
+		return i;
+	}
+
+	/**
+	 * Enregistre ou remplace une propriétée
+	 * 
+	 * @param key   clé de la propriétée
+	 * @param tag   type de la propriétée
+	 * @param value valeur si elle est de type primitif
+	 * @param s     valeur si elle est de type String
+	 */
+	private void put(PropertyKey key, byte tag, long value, String s) {
+		int i = indexOf(key);
+		if (i < 0) {
+			if (keys == null) {
+				keys = new PropertyKey[INITIAL_CAPACITY];
+				tags = new byte[INITIAL_CAPACITY];
+				values = new long[INITIAL_CAPACITY];
+			} else if (size == keys.length) {
+				keys = Arrays.copyOf(keys, size * 2);
+				tags = Arrays.copyOf(tags, size * 2);
+				values = Arrays.copyOf(values, size * 2);
+				if (strings != null)
+					strings = Arrays.copyOf(strings, size * 2);
+			}
+			i = size++;
+			keys[i] = key;
+			localKeys |= !key.isInterned();
+		}
+		tags[i] = tag;
+		values[i] = value;
+		if (s != null && strings == null)
+			strings = new String[keys.length];
+		if (strings != null)
+			strings[i] = s;
+	}
+
+	/**
+	 * @see java.io.Externalizable#writeExternal(ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		ValueIO.writeVarInt(out, size);
+		for (int i = 0; i < size; i++) {
+			ValueIO.writeString(out, keys[i].getName());
+			writeValueAt(out, i);
+		}
+	}
+
+	/**
+	 * @see java.io.Externalizable#readExternal(ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		int count = ValueIO.readVarInt(in);
+		for (int i = 0; i < count; i++)
+			readValue(ValueIO.readString(in), in);
 	}
 
 	/**
@@ -254,7 +644,7 @@ public class Properties implements Serializable {
 
 	/**
 	 * Exception indiquant une propriétée inexistante
-	 *
+	 * 
 	 */
 	static class PropertyDoesntExist extends RuntimeException {
 
@@ -0,0 +1,293 @@
+package message;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import interfaces.MessageFilterI;
+import interfaces.MessageI;
+
+/**
+ * Filtre déclaratif sur les Properties d'un message : conjonction de
+ * conditions d'égalité, d'appartenance à un ensemble ou d'intervalle sur des
+ * propriétés. Contrairement à un filtre lambda, le Broker peut indexer ces
+ * conditions @see FilterIndex
+ * 
+ * Les valeurs entières (byte, short, int, long) sont comparées entre elles,
+ * comme les valeurs décimales (float, double). Dans un intervalle, un entier et
+ * un décimal sont comparés selon leur valeur exacte, sans arrondir l'entier.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class PropertyFilter implements MessageFilterI {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Type d'une condition
+	 */
+	public enum Operator {
+		/**
+		 * la propriété est égale à une valeur
+		 */
+		EQUALS,
+		/**
+		 * la propriété est égale à une valeur d'un ensemble
+		 */
+		IN,
+		/**
+		 * la propriété est comprise entre deux bornes incluses
+		 */
+		RANGE
+	}
+
+	/**
+	 * Condition sur une propriété, les valeurs sont normalisées @see
+	 * PropertyFilter#normalize(Object)
+	 */
+	public static class Condition implements Serializable {
+
+		private static final long serialVersionUID = 1L;
+
+		// Nom de la propriété
+		private final String name;
+		// Clé de la propriété, résolue une seule fois @see PropertyKey
+		private final PropertyKey key;
+		// Type de la condition
+		private final Operator operator;
+		// Valeurs acceptées, pour EQUALS et IN
+		private final Set<Object> values;
+		// Bornes de l'intervalle, pour RANGE, null si pas de borne
+		private final Object min;
+		private final Object max;
+
+		Condition(String name, Operator operator, Set<Object> values, Object min, Object max) {
+			this.name = name;
+			this.key = PropertyKey.of(name);
+			this.operator = operator;
+			this.values = values;
+			this.min = min;
+			this.max = max;
+		}
+
+		/**
+		 * Regarde si une valeur de la propriété respecte la condition
+		 * 
+		 * @param value valeur de la propriété, déjà normalisée
+		 * @return true si la valeur respecte la condition, false sinon
+		 */
+		public boolean test(Object value) {
+			if (operator != Operator.RANGE)
+				return values.contains(value);
+			return (min == null || compare(min, value) <= 0) && (max == null || compare(value, max) <= 0);
+		}
+
+		/**
+		 * Renvoie le nom de la propriété
+		 * 
+		 * @return le nom de la propriété
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Renvoie la clé de la propriété
+		 * 
+		 * @return la clé de la propriété
+		 */
+		public PropertyKey getKey() {
+			return key;
+		}
+
+		/**
+		 * Renvoie le type de la condition
+		 * 
+		 * @return le type de la condition
+		 */
+		public Operator getOperator() {
+			return operator;
+		}
+
+		/**
+		 * Renvoie les valeurs acceptées
+		 * 
+		 * @return les valeurs acceptées, null pour RANGE
+		 */
+		public Set<Object> getValues() {
+			return values;
+		}
+
+		/**
+		 * Renvoie la borne inférieure de l'intervalle
+		 * 
+		 * @return la borne inférieure, null si pas de borne
+		 */
+		public Object getMin() {
+			return min;
+		}
+
+		/**
+		 * Renvoie la borne supérieure de l'intervalle
+		 * 
+		 * @return la borne supérieure, null si pas de borne
+		 */
+		public Object getMax() {
+			return max;
+		}
+	}
+
+	/**
+	 * Conditions du filtre, toutes doivent être respectées
+	 */
+	protected final List<Condition> conditions = new ArrayList<>();
+
+	/**
+	 * Ajoute une condition d'égalité
+	 * 
+	 * @param name  nom de la propriété
+	 * @param value valeur attendue
+	 * @return le filtre lui même
+	 */
+	public PropertyFilter eq(String name, Serializable value) {
+		assert name != null && value != null;
+		conditions.add(new Condition(name, Operator.EQUALS, Collections.singleton(normalize(value)), null, null));
+		return this;
+	}
+
+	/**
+	 * Ajoute une condition d'appartenance à un ensemble de valeurs
+	 * 
+	 * @param name   nom de la propriété
+	 * @param values valeurs acceptées
+	 * @return le filtre lui même
+	 */
+	public PropertyFilter in(String name, Serializable... values) {
+		assert name != null && values.length > 0;
+		Set<Object> normalized = new HashSet<>();
+		for (Serializable value : values)
+			normalized.add(normalize(value));
+		conditions.add(new Condition(name, Operator.IN, normalized, null, null));
+		return this;
+	}
+
+	/**
+	 * Ajoute une condition d'intervalle, les bornes sont incluses
+	 * 
+	 * @param name nom de la propriété
+	 * @param min  borne inférieure, null si pas de borne
+	 * @param max  borne supérieure, null si pas de borne
+	 * @return le filtre lui même
+	 */
+	public PropertyFilter range(String name, Serializable min, Serializable max) {
+		assert name != null && (min != null || max != null);
+		conditions.add(new Condition(name, Operator.RANGE, null, normalize(min), normalize(max)));
+		return this;
+	}
+
+	/**
+	 * Renvoie les conditions du filtre
+	 * 
+	 * @return @see {@link #conditions}
+	 */
+	public List<Condition> getConditions() {
+		return Collections.unmodifiableList(conditions);
+	}
+
+	/**
+	 * @see interfaces.MessageFilterI#filter(MessageI)
+	 */
+	@Override
+	public boolean filter(MessageI m) {
+		if (conditions.isEmpty())
+			return true;
+		try {
+			Properties properties = m.getProperties();
+			if (properties == null)
+				return false;
+			for (Condition condition : conditions) {
+				Object value = properties.getProp(condition.key);
+				if (value == null || !condition.test(normalize(value)))
+					return false;
+			}
+			return true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return false;
+		}
+	}
+
+	/**
+	 * Normalise une valeur de propriété : les entiers deviennent des Long et les
+	 * décimaux des Double
+	 * 
+	 * @param value valeur à normaliser
+	 * @return la valeur normalisée
+	 */
+	public static Object normalize(Object value) {
+		if (value instanceof Integer || value instanceof Short || value instanceof Byte)
+			return ((Number) value).longValue();
+		if (value instanceof Float)
+			return ((Float) value).doubleValue();
+		return value;
+	}
+
+	/**
+	 * Compare deux valeurs normalisées. Les nombres sont comparables entre eux
+	 * selon leur valeur exacte, NaN étant plus grand que tous les autres, les
+	 * autres valeurs seulement avec une valeur du même type
+	 * 
+	 * @param a première valeur
+	 * @param b seconde valeur
+	 * @return un nombre négatif, nul ou positif si a est plus petit, égal ou plus
+	 *         grand que b. Integer.MAX_VALUE si les valeurs ne sont pas
+	 *         comparables
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	static int compare(Object a, Object b) {
+		if (a instanceof Long && b instanceof Long)
+			return Long.compare((Long) a, (Long) b);
+		if (a instanceof Long && b instanceof Number)
+			return compare((long) (Long) a, ((Number) b).doubleValue());
+		if (a instanceof Number && b instanceof Long)
+			return -compare((long) (Long) b, ((Number) a).doubleValue());
+		if (a instanceof Number && b instanceof Number) {
+			double x = ((Number) a).doubleValue(), y = ((Number) b).doubleValue();
+			// -0.0 et 0.0 sont égaux, comme 0 et ces deux valeurs
+			if (x < y)
+				return -1;
+			if (x > y)
+				return 1;
+			return Boolean.compare(Double.isNaN(x), Double.isNaN(y));
+		}
+		if (a instanceof Comparable && a.getClass() == b.getClass())
+			return ((Comparable) a).compareTo(b);
+		return Integer.MAX_VALUE;
+	}
+
+	/**
+	 * Compare un entier à un décimal sans arrondir l'entier en décimal
+	 * 
+	 * @param a entier
+	 * @param b décimal
+	 * @return un nombre négatif, nul ou positif si a est plus petit, égal ou plus
+	 *         grand que b
+	 */
+	private static int compare(long a, double b) {
+		if (Double.isNaN(b) || b >= 0x1p63)
+			return -1;
+		if (b < -0x1p63)
+			return 1;
+		// la partie entière d'un décimal de cet intervalle est un long exact
+		long integral = (long) b;
+		if (a != integral)
+			return Long.compare(a, integral);
+		double fraction = b - integral;
+		return fraction > 0 ? -1 : fraction < 0 ? 1 : 0;
+	}
+
+}
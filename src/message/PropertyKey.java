@@ -0,0 +1,172 @@
+package message;
+
+import java.io.Serializable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clé d'une propriété de message @see Properties. Une clé est créée une seule
+ * fois par nom et par jvm, dans un dictionnaire partagé : les Properties
+ * comparent les clés par référence, sans calculer le hachage ni comparer les
+ * caractères du nom.
+ * 
+ * Une clé retient la position où elle a été trouvée la dernière fois dans des
+ * Properties : les messages d'un même publieur ont les mêmes propriétés dans le
+ * même ordre, la clé est alors trouvée sans parcours.
+ * 
+ * Une clé désérialisée est remplacée par celle du dictionnaire de la jvm qui la
+ * reçoit. Un nom reçu qui n'y est pas encore n'y est ajouté que tant que le
+ * dictionnaire a moins de {@link #DICTIONARY_LIMIT} clés : sinon la clé reste
+ * propre au message qui la porte, les Properties la comparent alors par son
+ * nom. Des publieurs qui inventent des noms ne font pas grossir le dictionnaire
+ * sans limite.
+ * 
+ * @author Bello Velly
+ *
+ */
+public final class PropertyKey implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Nombre de clés du dictionnaire au delà duquel les noms reçus ne sont plus
+	 * ajoutés
+	 */
+	public static final int DICTIONARY_LIMIT = 10000;
+
+	// Clés de la jvm, associées à leur nom
+	private static final ConcurrentHashMap<String, PropertyKey> DICTIONARY = new ConcurrentHashMap<>();
+	// Identifiant de la prochaine clé créée
+	private static final AtomicInteger NEXT_ID = new AtomicInteger();
+
+	/**
+	 * Nom de la propriété
+	 */
+	private final String name;
+
+	/**
+	 * Identifiant de la clé dans la jvm
+	 */
+	private final transient int id;
+
+	/**
+	 * Position de la clé dans les dernières Properties où elle a été cherchée.
+	 * Elle n'est qu'une indication : les accès concurrents peuvent la rendre
+	 * fausse, elle est toujours vérifiée
+	 */
+	transient int slot;
+
+	/**
+	 * Vrai si la clé est celle du dictionnaire, faux si elle est propre à un
+	 * message reçu
+	 */
+	private final transient boolean interned;
+
+	/**
+	 * Constructeur de PropertyKey
+	 * 
+	 * @param name     @see {@link #name}
+	 * @param interned @see {@link #interned}
+	 */
+	private PropertyKey(String name, boolean interned) {
+		this.name = name;
+		this.id = NEXT_ID.getAndIncrement();
+		this.interned = interned;
+	}
+
+	/**
+	 * Renvoie la clé d'une propriété, en la créant si elle n'existe pas encore
+	 * 
+	 * @param name nom de la propriété
+	 * @return la clé de la propriété, toujours la même pour un même nom
+	 */
+	public static PropertyKey of(String name) {
+		assert name != null;
+		PropertyKey key = DICTIONARY.get(name);
+		return key != null ? key : DICTIONARY.computeIfAbsent(name, k -> new PropertyKey(k, true));
+	}
+
+	/**
+	 * Renvoie la clé d'un nom reçu d'une autre jvm : celle du dictionnaire si
+	 * elle existe, une nouvelle clé du dictionnaire s'il n'est pas plein, sinon
+	 * une clé propre au message
+	 * 
+	 * @param name nom de la propriété
+	 * @return la clé de la propriété
+	 */
+	static PropertyKey resolve(String name) {
+		assert name != null;
+		PropertyKey key = DICTIONARY.get(name);
+		if (key != null)
+			return key;
+		if (DICTIONARY.size() < DICTIONARY_LIMIT)
+			return DICTIONARY.computeIfAbsent(name, k -> new PropertyKey(k, true));
+		return new PropertyKey(name, false);
+	}
+
+	/**
+	 * Renvoie la clé d'une propriété sans la créer
+	 * 
+	 * @param name nom de la propriété
+	 * @return la clé de la propriété, null si aucune propriété de ce nom n'a
+	 *         jamais été enregistrée
+	 */
+	static PropertyKey find(String name) {
+		return DICTIONARY.get(name);
+	}
+
+	/**
+	 * Renvoie le nom de la propriété
+	 * 
+	 * @return @see {@link #name}
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Renvoie l'identifiant de la clé dans la jvm
+	 * 
+	 * @return @see {@link #id}
+	 */
+	public int getId() {
+		return id;
+	}
+
+	/**
+	 * Renvoie vrai si la clé est celle du dictionnaire
+	 * 
+	 * @return @see {@link #interned}
+	 */
+	public boolean isInterned() {
+		return interned;
+	}
+
+	/**
+	 * Renvoie le nombre de clés du dictionnaire
+	 * 
+	 * @return le nombre de noms de propriétés enregistrés dans la jvm
+	 */
+	public static int getDictionarySize() {
+		return DICTIONARY.size();
+	}
+
+	/**
+	 * Remplace une clé désérialisée par celle du dictionnaire @see
+	 * #resolve(String)
+	 * 
+	 * @return la clé de même nom dans cette jvm
+	 */
+	private Object readResolve() {
+		return resolve(name);
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return name;
+	}
+
+}
@@ -0,0 +1,119 @@
+package message;
+
+import java.io.Serializable;
+
+/**
+ * Acquittement d'une publication par le Broker, renvoyé quand la publication a
+ * atteint le niveau demandé par le publieur
+ * 
+ * @author Bello Velly
+ *
+ */
+public class PublishAck implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Niveau d'acquittement demandé par le publieur
+	 */
+	public enum Level {
+		/**
+		 * le Broker a reçu la publication, elle n'est pas encore traitée
+		 */
+		ACCEPTED,
+		/**
+		 * les messages ont été ajoutés aux topics de la publication
+		 */
+		APPENDED,
+		/**
+		 * les messages ont été envoyés à tous les subscribers du Broker intéressés
+		 * au moment de la publication, ou supprimés par leur file
+		 */
+		DELIVERED
+	}
+
+	/**
+	 * Niveau atteint par la publication
+	 */
+	protected final Level level;
+
+	/**
+	 * Nombre de messages publiés, sans ceux que le Broker avait déjà reçus. -1 au
+	 * niveau ACCEPTED, où les messages ne sont pas encore triés
+	 */
+	protected final int messages;
+
+	/**
+	 * Nombre de subscribers à qui les messages ont été envoyés, 0 avant le niveau
+	 * DELIVERED
+	 */
+	protected final int subscribers;
+
+	/**
+	 * Nombre d'envois supprimés par la file d'un subscriber pleine ou qui ont
+	 * échoué, 0 avant le niveau DELIVERED
+	 */
+	protected final int dropped;
+
+	/**
+	 * Constructeur de PublishAck
+	 * 
+	 * @param level       @see {@link #level}
+	 * @param messages    @see {@link #messages}
+	 * @param subscribers @see {@link #subscribers}
+	 * @param dropped     @see {@link #dropped}
+	 */
+	public PublishAck(Level level, int messages, int subscribers, int dropped) {
+		assert level != null;
+		this.level = level;
+		this.messages = messages;
+		this.subscribers = subscribers;
+		this.dropped = dropped;
+	}
+
+	/**
+	 * Renvoie le niveau atteint
+	 * 
+	 * @return @see {@link #level}
+	 */
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Renvoie le nombre de messages publiés
+	 * 
+	 * @return @see {@link #messages}
+	 */
+	public int getMessages() {
+		return messages;
+	}
+
+	/**
+	 * Renvoie le nombre de subscribers qui ont reçu les messages
+	 * 
+	 * @return @see {@link #subscribers}
+	 */
+	public int getSubscribers() {
+		return subscribers;
+	}
+
+	/**
+	 * Renvoie le nombre d'envois supprimés
+	 * 
+	 * @return @see {@link #dropped}
+	 */
+	public int getDropped() {
+		return dropped;
+	}
+
+	/**
+	 * @see java.lang.Object#toString()
+	 */
+	@Override
+	public String toString() {
+		return "publication " + level + " : " + messages + " messages, " + subscribers + " subscribers, " + dropped
+				+ " envois supprimés";
+	}
+
+}
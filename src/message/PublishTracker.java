@@ -0,0 +1,126 @@
+package message;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import message.PublishAck.Level;
+
+/**
+ * Suit une publication dans le Broker jusqu'au niveau d'acquittement demandé
+ * @see PublishAck.Level. Au niveau DELIVERED, le Broker annonce chaque envoi
+ * attendu (un message pour un subscriber) avant de mettre les messages dans les
+ * files, puis ferme l'annonce : l'acquittement est complété quand tous les
+ * envois annoncés ont été faits ou supprimés, et jamais avant la fermeture.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class PublishTracker {
+
+	/**
+	 * Niveau d'acquittement demandé
+	 */
+	protected final Level level;
+
+	/**
+	 * Acquittement complété quand le niveau est atteint
+	 */
+	protected final CompletableFuture<PublishAck> acknowledgement = new CompletableFuture<>();
+
+	// Envois attendus, plus un tant que l'annonce n'est pas fermée
+	private final AtomicInteger pending = new AtomicInteger(1);
+	// Envois supprimés
+	private final AtomicInteger dropped = new AtomicInteger();
+	// Nombre de messages publiés
+	private volatile int messages;
+	// Nombre de subscribers à qui des envois sont annoncés
+	private volatile int subscribers;
+
+	/**
+	 * Constructeur de PublishTracker
+	 * 
+	 * @param level @see {@link #level}, APPENDED ou DELIVERED
+	 */
+	public PublishTracker(Level level) {
+		assert level == Level.APPENDED || level == Level.DELIVERED;
+		this.level = level;
+	}
+
+	/**
+	 * Renvoie le niveau d'acquittement demandé
+	 * 
+	 * @return @see {@link #level}
+	 */
+	public Level getLevel() {
+		return level;
+	}
+
+	/**
+	 * Renvoie l'acquittement de la publication
+	 * 
+	 * @return @see {@link #acknowledgement}
+	 */
+	public CompletableFuture<PublishAck> getAcknowledgement() {
+		return acknowledgement;
+	}
+
+	/**
+	 * Les messages ont été ajoutés aux topics, l'acquittement est complété au
+	 * niveau APPENDED
+	 * 
+	 * @param messages nombre de messages publiés
+	 */
+	public void appended(int messages) {
+		this.messages = messages;
+		if (level == Level.APPENDED)
+			acknowledgement.complete(new PublishAck(level, messages, 0, 0));
+	}
+
+	/**
+	 * Annonce les envois à un subscriber, avant de les mettre dans sa file
+	 * 
+	 * @param deliveries nombre de messages envoyés au subscriber
+	 */
+	public void expect(int deliveries) {
+		subscribers++;
+		pending.addAndGet(deliveries);
+	}
+
+	/**
+	 * Ferme l'annonce des envois, une fois les messages mis dans les files
+	 */
+	public void seal() {
+		delivered(1);
+	}
+
+	/**
+	 * Des envois ont été faits
+	 * 
+	 * @param deliveries nombre d'envois
+	 */
+	public void delivered(int deliveries) {
+		if (pending.addAndGet(-deliveries) == 0 && level == Level.DELIVERED)
+			acknowledgement.complete(new PublishAck(level, messages, subscribers, dropped.get()));
+	}
+
+	/**
+	 * La publication a échoué ou n'a pas été acquittée à temps, l'acquittement
+	 * est complété par l'erreur s'il ne l'est pas déjà
+	 * 
+	 * @param cause erreur de la publication
+	 */
+	public void fail(Throwable cause) {
+		acknowledgement.completeExceptionally(cause);
+	}
+
+	/**
+	 * Des envois ont été supprimés par la file d'un subscriber ou ont échoué
+	 * 
+	 * @param deliveries nombre d'envois
+	 */
+	public void dropped(int deliveries) {
+		dropped.addAndGet(deliveries);
+		delivered(deliveries);
+	}
+
+}
@@ -0,0 +1,86 @@
+package message;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import interfaces.MessageI;
+
+/**
+ * Abonnements des autres Brokers, reçus par des annonces @see InterestUpdate.
+ * Un Broker ne transmet un message que si un autre Broker a un abonnement qui
+ * l'accepte.
+ * 
+ * Les abonnements, exacts ou avec des jokers, sont rangés dans un
+ * SubscriptionTrie sous la clé "broker subscriber" : leurs filtres sont indexés
+ * comme ceux des abonnements locaux.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class RemoteInterest {
+
+	// Abonnements des autres Brokers
+	private final SubscriptionTrie subscriptions = new SubscriptionTrie();
+	// Broker de chaque clé d'abonnement <broker subscriber, broker>
+	private final Map<String, String> brokers = new ConcurrentHashMap<>();
+	// Dernière version reçue de chaque abonnement <broker subscriber topic,
+	// version>
+	private final Map<String, Long> versions = new HashMap<>();
+
+	/**
+	 * Applique une annonce si elle est plus récente que la dernière reçue pour le
+	 * même abonnement
+	 * 
+	 * @param update annonce reçue
+	 * @return true si l'annonce a été appliquée, false si elle est périmée
+	 */
+	public synchronized boolean apply(InterestUpdate update) {
+		String key = update.getBroker() + " " + update.getSubscriber();
+		Long last = versions.get(key + " " + update.getTopic());
+		if (last != null && last >= update.getVersion())
+			return false;
+		versions.put(key + " " + update.getTopic(), update.getVersion());
+		brokers.put(key, update.getBroker());
+		if (update.isRemoved())
+			subscriptions.remove(update.getTopic(), key);
+		else
+			subscriptions.add(update.getTopic(), key, update.getFilter());
+		return true;
+	}
+
+	/**
+	 * Cherche les autres Brokers intéressés par des messages publiés sur un topic
+	 * 
+	 * @param topic topic de publication
+	 * @param ms    messages publiés
+	 * @return les messages qui intéressent chaque Broker, associés à son URI, dans
+	 *         l'ordre des messages
+	 */
+	public Map<String, List<MessageI>> match(String topic, MessageI[] ms) {
+		Map<String, List<MessageI>> res = new HashMap<>();
+		List<FilterIndex> indexes = subscriptions.match(topic);
+		if (indexes.isEmpty())
+			return res;
+		// plusieurs subscribers d'un même Broker peuvent accepter le même message
+		Map<String, Set<MessageI>> accepted = new HashMap<>();
+		for (FilterIndex index : indexes)
+			for (Map.Entry<String, List<MessageI>> match : index.match(ms).entrySet())
+				accepted.computeIfAbsent(brokers.get(match.getKey()),
+						k -> Collections.newSetFromMap(new IdentityHashMap<>())).addAll(match.getValue());
+		for (Map.Entry<String, Set<MessageI>> entry : accepted.entrySet()) {
+			List<MessageI> list = new ArrayList<>(entry.getValue().size());
+			for (MessageI m : ms)
+				if (entry.getValue().contains(m))
+					list.add(m);
+			res.put(entry.getKey(), list);
+		}
+		return res;
+	}
+
+}
@@ -0,0 +1,112 @@
+package message;
+
+import java.io.Serializable;
+
+/**
+ * Classe representant la position à partir de laquelle un subscriber veut
+ * recevoir l'historique d'un Topic lors de son abonnement : depuis un offset,
+ * depuis une date ou les N derniers messages. Les messages déjà supprimés par
+ * la politique de rétention du topic ne sont pas rejoués.
+ *
+ * @author Bello Velly
+ *
+ */
+public class ReplayPosition implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Type de position
+	 */
+	public enum Kind {
+		/**
+		 * à partir d'un offset du topic
+		 */
+		OFFSET,
+		/**
+		 * à partir des messages dont la date est postérieure ou égale
+		 */
+		TIME,
+		/**
+		 * les N derniers messages
+		 */
+		LAST
+	}
+
+	/**
+	 * Tout l'historique conservé par le topic
+	 */
+	public static final ReplayPosition EARLIEST = fromOffset(0);
+
+	/**
+	 * Type de la position
+	 */
+	protected final Kind kind;
+
+	/**
+	 * Offset, date (en millisecondes) ou nombre de messages selon le type
+	 */
+	protected final long value;
+
+	/**
+	 * Constructeur de ReplayPosition
+	 *
+	 * @param kind  @see {@link #kind}
+	 * @param value @see {@link #value}
+	 */
+	protected ReplayPosition(Kind kind, long value) {
+		assert kind != null;
+		assert value >= 0;
+		this.kind = kind;
+		this.value = value;
+	}
+
+	/**
+	 * Position à partir d'un offset du topic
+	 *
+	 * @param offset premier offset à rejouer
+	 * @return la position
+	 */
+	public static ReplayPosition fromOffset(long offset) {
+		return new ReplayPosition(Kind.OFFSET, offset);
+	}
+
+	/**
+	 * Position à partir d'une date
+	 *
+	 * @param time date (en millisecondes) des premiers messages à rejouer
+	 * @return la position
+	 */
+	public static ReplayPosition fromTime(long time) {
+		return new ReplayPosition(Kind.TIME, time);
+	}
+
+	/**
+	 * Position des derniers messages du topic
+	 *
+	 * @param count nombre de messages à rejouer
+	 * @return la position
+	 */
+	public static ReplayPosition last(int count) {
+		return new ReplayPosition(Kind.LAST, count);
+	}
+
+	/**
+	 * Renvoie le type de la position
+	 *
+	 * @return @see {@link #kind}
+	 */
+	public Kind getKind() {
+		return kind;
+	}
+
+	/**
+	 * Renvoie l'offset, la date ou le nombre de messages selon le type
+	 *
+	 * @return @see {@link #value}
+	 */
+	public long getValue() {
+		return value;
+	}
+
+}
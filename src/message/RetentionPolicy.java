@@ -0,0 +1,89 @@
+package message;
+
+import java.io.Serializable;
+
+/**
+ * Classe representant la politique de rétention des messages d'un Topic : au
+ * delà d'un nombre de messages, d'une taille totale ou d'un âge, les messages
+ * les plus anciens sont supprimés. Une limite à 0 indique l'absence de limite.
+ * 
+ * @author Bello Velly
+ * 
+ */
+public class RetentionPolicy implements Serializable {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Politique sans limite, tous les messages sont conservés
+	 */
+	public static final RetentionPolicy UNLIMITED = new RetentionPolicy(0, 0, 0);
+
+	/**
+	 * Nombre maximum de messages conservés
+	 */
+	protected final int maxCount;
+
+	/**
+	 * Taille maximum (en octets, une fois sérialisés) des messages conservés
+	 */
+	protected final long maxBytes;
+
+	/**
+	 * Age maximum (en millisecondes, d'après leur TimeStamp) des messages conservés
+	 */
+	protected final long maxAge;
+
+	/**
+	 * Constructeur de RetentionPolicy
+	 * 
+	 * @param maxCount @see {@link #maxCount}
+	 * @param maxBytes @see {@link #maxBytes}
+	 * @param maxAge   @see {@link #maxAge}
+	 */
+	public RetentionPolicy(int maxCount, long maxBytes, long maxAge) {
+		assert maxCount >= 0;
+		assert maxBytes >= 0;
+		assert maxAge >= 0;
+		this.maxCount = maxCount;
+		this.maxBytes = maxBytes;
+		this.maxAge = maxAge;
+	}
+
+	/**
+	 * Renvoie le nombre maximum de messages conservés
+	 * 
+	 * @return @see {@link #maxCount}, 0 si pas de limite
+	 */
+	public int getMaxCount() {
+		return maxCount;
+	}
+
+	/**
+	 * Renvoie la taille maximum des messages conservés
+	 * 
+	 * @return @see {@link #maxBytes}, 0 si pas de limite
+	 */
+	public long getMaxBytes() {
+		return maxBytes;
+	}
+
+	/**
+	 * Renvoie l'âge maximum des messages conservés
+	 * 
+	 * @return @see {@link #maxAge}, 0 si pas de limite
+	 */
+	public long getMaxAge() {
+		return maxAge;
+	}
+
+	/**
+	 * Regarde si la politique limite le nombre, la taille ou l'âge des messages
+	 * 
+	 * @return true si au moins une limite est fixée, false sinon
+	 */
+	public boolean isBounded() {
+		return maxCount > 0 || maxBytes > 0 || maxAge > 0;
+	}
+
+}
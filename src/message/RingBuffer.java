@@ -0,0 +1,511 @@
+package message;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Pipeline d'étages reliés par un anneau d'événements alloués une seule fois,
+ * à la manière du Disruptor. Les producteurs réservent un numéro de séquence,
+ * remplissent l'événement de la case correspondante puis le publient ; chaque
+ * étage a son propre thread et son compteur de séquence, et traite les
+ * événements dans l'ordre dès que ses dépendances (les étages précédents, ou
+ * les producteurs pour un premier étage) les ont traités. Aucune tache n'est
+ * créée ni mise en file : un événement passe d'un étage au suivant par la
+ * lecture d'un compteur.
+ * 
+ * Un étage en retard trouve plusieurs événements disponibles et les traite à
+ * la suite sans attendre : les lots se forment d'eux mêmes quand la charge
+ * augmente, et le dernier événement d'un lot est signalé au gestionnaire. Un
+ * producteur attend quand l'anneau est plein, jusqu'à ce que l'étage le plus
+ * lent libère une case.
+ * 
+ * Un étage qui ne trouve rien à traiter tourne brièvement puis s'endort ; les
+ * producteurs et les étages ne le réveillent que si un étage dort.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class RingBuffer<E> {
+
+	/**
+	 * Crée les événements de l'anneau
+	 */
+	public interface Factory<E> {
+		E create();
+	}
+
+	/**
+	 * Traite les événements d'un étage
+	 */
+	public interface Handler<E> {
+		/**
+		 * Traite un événement
+		 * 
+		 * @param event      événement
+		 * @param sequence   numéro de séquence de l'événement
+		 * @param endOfBatch vrai si aucun autre événement n'est disponible pour
+		 *                   l'instant
+		 */
+		void onEvent(E event, long sequence, boolean endOfBatch) throws Exception;
+	}
+
+	/**
+	 * Compteur de séquence, seul sur sa ligne de cache pour que les compteurs de
+	 * threads différents ne se gênent pas
+	 */
+	public static class Sequence {
+		// Indice de la valeur, au milieu du tableau
+		private static final int VALUE = 7;
+		// Valeur entourée de cases vides
+		private final AtomicLongArray values = new AtomicLongArray(2 * VALUE + 1);
+
+		/**
+		 * Constructeur de Sequence
+		 * 
+		 * @param initial valeur initiale
+		 */
+		public Sequence(long initial) {
+			values.set(VALUE, initial);
+		}
+
+		/**
+		 * Renvoie la valeur du compteur
+		 * 
+		 * @return la valeur
+		 */
+		public long get() {
+			return values.get(VALUE);
+		}
+
+		/**
+		 * Fixe la valeur du compteur
+		 * 
+		 * @param value valeur
+		 */
+		public void set(long value) {
+			values.set(VALUE, value);
+		}
+
+		/**
+		 * Change la valeur du compteur si elle est égale à une valeur attendue
+		 * 
+		 * @param expected valeur attendue
+		 * @param value    nouvelle valeur
+		 * @return vrai si la valeur a été changée
+		 */
+		boolean compareAndSet(long expected, long value) {
+			return values.compareAndSet(VALUE, expected, value);
+		}
+	}
+
+	/**
+	 * Etage du pipeline, exécuté par son propre thread
+	 */
+	public class Stage implements Runnable {
+
+		/**
+		 * Nom de l'étage
+		 */
+		protected final String name;
+
+		/**
+		 * Dernier événement traité par l'étage
+		 */
+		protected final Sequence sequence = new Sequence(-1);
+
+		// Gestionnaire des événements
+		private final Handler<E> handler;
+		// Compteurs des étages dont les événements dépendent, aucun pour un premier
+		// étage
+		private final Sequence[] dependencies;
+		// Nombre d'événements traités
+		private volatile long events;
+		// Nombre de lots traités
+		private volatile long batches;
+
+		/**
+		 * Constructeur de Stage
+		 * 
+		 * @param name         @see {@link #name}
+		 * @param handler      gestionnaire des événements
+		 * @param dependencies étages précédents
+		 */
+		Stage(String name, Handler<E> handler, Sequence[] dependencies) {
+			this.name = name;
+			this.handler = handler;
+			this.dependencies = dependencies;
+		}
+
+		/**
+		 * Traite les événements par lots jusqu'à l'arrêt de l'anneau
+		 * 
+		 * @see java.lang.Runnable#run()
+		 */
+		@Override
+		public void run() {
+			long next = sequence.get() + 1;
+			while (true) {
+				long available = waitFor(next, dependencies);
+				if (available < next)
+					return;
+				for (long s = next; s <= available; s++) {
+					try {
+						handler.onEvent(get(s), s, s == available);
+					} catch (Exception e) {
+						e.printStackTrace();
+					}
+				}
+				events += available - next + 1;
+				batches++;
+				sequence.set(available);
+				signal();
+				next = available + 1;
+			}
+		}
+
+		/**
+		 * Renvoie le nom de l'étage
+		 * 
+		 * @return @see {@link #name}
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Renvoie le compteur de l'étage, dont d'autres étages peuvent dépendre
+		 * 
+		 * @return @see {@link #sequence}
+		 */
+		public Sequence getSequence() {
+			return sequence;
+		}
+
+		/**
+		 * Renvoie le nombre d'événements traités
+		 * 
+		 * @return le nombre d'événements
+		 */
+		public long getEvents() {
+			return events;
+		}
+
+		/**
+		 * Renvoie la taille moyenne des lots traités
+		 * 
+		 * @return le nombre moyen d'événements par lot
+		 */
+		public double getAverageBatchSize() {
+			long b = batches;
+			return b == 0 ? 0 : (double) events / b;
+		}
+
+		/**
+		 * @see java.lang.Object#toString()
+		 */
+		@Override
+		public String toString() {
+			return "étage " + name + " : " + events + " événements, " + String.format("%.1f", getAverageBatchSize())
+					+ " par lot en moyenne";
+		}
+	}
+
+	/**
+	 * Nombre d'attentes actives d'un étage avant de céder son processeur
+	 */
+	protected static final int SPIN_TRIES = 100;
+
+	/**
+	 * Nombre de fois où un étage cède son processeur avant de s'endormir
+	 */
+	protected static final int YIELD_TRIES = 100;
+
+	// Evénements de l'anneau
+	private final Object[] entries;
+	// Masque qui donne la case d'une séquence
+	private final int mask;
+	// Décalage qui donne le tour d'une séquence
+	private final int shift;
+	// Tour de la dernière publication de chaque case
+	private final AtomicIntegerArray published;
+	// Dernière séquence réservée par un producteur
+	private final Sequence claimed = new Sequence(-1);
+	// Etages du pipeline
+	private final List<Stage> stages = new ArrayList<>();
+	// Threads des étages
+	private final List<Thread> threads = new ArrayList<>();
+	// Compteurs de tous les étages, l'anneau est plein quand le plus lent a un
+	// tour de retard
+	private Sequence[] gating = new Sequence[0];
+	// Faux quand l'anneau est arrêté
+	private volatile boolean running = true;
+	// Vrai dès que l'arrêt est demandé, les réservations sont alors refusées
+	private volatile boolean stopping;
+	// Nombre de producteurs entre la réservation et la publication d'une case
+	private final AtomicInteger producers = new AtomicInteger();
+	// Nombre de threads endormis
+	private final AtomicInteger sleepers = new AtomicInteger();
+	// Verrou et condition des threads endormis
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Condition progress = lock.newCondition();
+
+	/**
+	 * Constructeur de RingBuffer
+	 * 
+	 * @param size    nombre de cases de l'anneau, une puissance de 2
+	 * @param factory crée l'événement de chaque case
+	 */
+	public RingBuffer(int size, Factory<E> factory) {
+		assert size > 0 && Integer.bitCount(size) == 1;
+		assert factory != null;
+		this.entries = new Object[size];
+		for (int i = 0; i < size; i++)
+			entries[i] = factory.create();
+		this.mask = size - 1;
+		this.shift = Integer.numberOfTrailingZeros(size);
+		this.published = new AtomicIntegerArray(size);
+		for (int i = 0; i < size; i++)
+			published.set(i, -1);
+	}
+
+	/**
+	 * Ajoute un étage, avant le démarrage de l'anneau
+	 * 
+	 * @param name         nom de l'étage
+	 * @param handler      gestionnaire des événements
+	 * @param dependencies étages qui doivent avoir traité un événement avant
+	 *                     celui-ci, aucun pour un étage qui suit les producteurs
+	 * @return l'étage
+	 */
+	@SafeVarargs
+	public final Stage addStage(String name, Handler<E> handler, Stage... dependencies) {
+		assert threads.isEmpty();
+		Sequence[] sequences = new Sequence[dependencies.length];
+		for (int i = 0; i < dependencies.length; i++)
+			sequences[i] = dependencies[i].sequence;
+		Stage stage = new Stage(name, handler, sequences);
+		stages.add(stage);
+		gating = new Sequence[stages.size()];
+		for (int i = 0; i < gating.length; i++)
+			gating[i] = stages.get(i).sequence;
+		return stage;
+	}
+
+	/**
+	 * Démarre un thread par étage
+	 * 
+	 * @param prefix préfixe du nom des threads
+	 */
+	public void start(String prefix) {
+		for (Stage stage : stages) {
+			Thread thread = new Thread(stage, prefix + stage.name);
+			thread.setDaemon(true);
+			threads.add(thread);
+			thread.start();
+		}
+	}
+
+	/**
+	 * Réserve la prochaine case de l'anneau, en attendant qu'elle soit libérée
+	 * par tous les étages si l'anneau est plein. La case doit ensuite être
+	 * publiée par {@link #publish(long)}
+	 * 
+	 * @return le numéro de séquence de la case
+	 * @throws IllegalStateException si l'arrêt de l'anneau a été demandé
+	 */
+	public long next() {
+		// le producteur est compté avant de vérifier l'arrêt, l'arrêt attend les
+		// producteurs comptés
+		producers.incrementAndGet();
+		if (stopping) {
+			producers.decrementAndGet();
+			throw new IllegalStateException("anneau arrêté");
+		}
+		int tries = 0;
+		while (true) {
+			long current = claimed.get();
+			long next = current + 1;
+			if (next - entries.length > minimum(gating, next)) {
+				tries = backoff(tries, () -> next - entries.length <= minimum(gating, next) || !running);
+				continue;
+			}
+			if (claimed.compareAndSet(current, next))
+				return next;
+		}
+	}
+
+	/**
+	 * Renvoie l'événement d'une case
+	 * 
+	 * @param sequence numéro de séquence de la case
+	 * @return l'événement à remplir ou à traiter
+	 */
+	@SuppressWarnings("unchecked")
+	public E get(long sequence) {
+		return (E) entries[(int) sequence & mask];
+	}
+
+	/**
+	 * Publie l'événement d'une case réservée, les étages peuvent le traiter
+	 * 
+	 * @param sequence numéro de séquence de la case
+	 */
+	public void publish(long sequence) {
+		published.set((int) sequence & mask, (int) (sequence >>> shift));
+		producers.decrementAndGet();
+		signal();
+	}
+
+	/**
+	 * Renvoie la dernière séquence publiée sans trou à partir d'une séquence
+	 * 
+	 * @param from première séquence cherchée
+	 * @return la dernière séquence publiée, from - 1 si from ne l'est pas
+	 */
+	private long highestPublished(long from) {
+		long last = claimed.get();
+		for (long s = from; s <= last; s++)
+			if (published.get((int) s & mask) != (int) (s >>> shift))
+				return s - 1;
+		return last;
+	}
+
+	/**
+	 * Renvoie le plus petit compteur
+	 * 
+	 * @param sequences compteurs
+	 * @param none      valeur si aucun compteur n'est donné
+	 * @return le plus petit compteur
+	 */
+	private static long minimum(Sequence[] sequences, long none) {
+		long min = none;
+		for (int i = 0; i < sequences.length; i++)
+			min = i == 0 ? sequences[i].get() : Math.min(min, sequences[i].get());
+		return min;
+	}
+
+	/**
+	 * Attend qu'un événement soit disponible pour un étage
+	 * 
+	 * @param next         séquence attendue
+	 * @param dependencies compteurs des étages précédents
+	 * @return la dernière séquence disponible, next - 1 si l'anneau est arrêté
+	 */
+	private long waitFor(long next, Sequence[] dependencies) {
+		int tries = 0;
+		while (true) {
+			long available = dependencies.length == 0 ? highestPublished(next) : minimum(dependencies, next - 1);
+			if (available >= next || !running)
+				return available;
+			tries = backoff(tries, () -> (dependencies.length == 0 ? highestPublished(next)
+					: minimum(dependencies, next - 1)) >= next || !running);
+		}
+	}
+
+	/**
+	 * Condition attendue par un thread
+	 */
+	private interface Ready {
+		boolean ready();
+	}
+
+	/**
+	 * Attend activement, puis en cédant le processeur, puis endormi jusqu'au
+	 * prochain progrès de l'anneau
+	 * 
+	 * @param tries nombre d'attentes déjà faites
+	 * @param ready condition attendue, vérifiée avant de s'endormir
+	 * @return le nouveau nombre d'attentes
+	 */
+	private int backoff(int tries, Ready ready) {
+		if (tries < SPIN_TRIES) {
+			Thread.onSpinWait();
+		} else if (tries < SPIN_TRIES + YIELD_TRIES) {
+			Thread.yield();
+		} else {
+			lock.lock();
+			try {
+				sleepers.incrementAndGet();
+				// le progrès a pu arriver avant que le thread soit compté endormi
+				if (!ready.ready())
+					progress.await(1, TimeUnit.MILLISECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} finally {
+				sleepers.decrementAndGet();
+				lock.unlock();
+			}
+		}
+		return tries + 1;
+	}
+
+	/**
+	 * Réveille les threads endormis après un progrès de l'anneau
+	 */
+	private void signal() {
+		if (sleepers.get() == 0)
+			return;
+		lock.lock();
+		try {
+			progress.signalAll();
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Renvoie le nombre d'événements publiés que tous les étages n'ont pas encore
+	 * traités
+	 * 
+	 * @return le nombre d'événements en cours
+	 */
+	public long getBacklog() {
+		long last = claimed.get();
+		return last - minimum(gating, last);
+	}
+
+	/**
+	 * Renvoie vrai si l'arrêt de l'anneau a été demandé
+	 * 
+	 * @return vrai si les réservations sont refusées
+	 */
+	public boolean isStopped() {
+		return stopping;
+	}
+
+	/**
+	 * Renvoie les étages du pipeline
+	 * 
+	 * @return les étages, dans l'ordre de leur ajout
+	 */
+	public List<Stage> getStages() {
+		return stages;
+	}
+
+	/**
+	 * Arrête l'anneau : les nouvelles réservations sont refusées, puis les
+	 * événements déjà réservés sont publiés et traités par tous les étages avant
+	 * l'arrêt des threads des étages
+	 */
+	public void halt() throws InterruptedException {
+		stopping = true;
+		while ((producers.get() > 0 || getBacklog() > 0) && !threads.isEmpty())
+			Thread.sleep(1);
+		running = false;
+		lock.lock();
+		try {
+			progress.signalAll();
+		} finally {
+			lock.unlock();
+		}
+		for (Thread thread : threads)
+			thread.join();
+	}
+
+}
@@ -0,0 +1,72 @@
+package message;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Ensemble borné des URIs des messages reçus récemment par un Broker. Il
+ * remplace la liste des Brokers transportée par chaque message pour éviter
+ * les cycles de transmission : un message déjà reçu est ignoré, sans que sa
+ * taille dépende du nombre de Brokers.
+ * 
+ * Une URI est oubliée après une durée donnée, ou quand l'ensemble est plein,
+ * en commençant par les plus anciennes. Les tests et les ajouts se font en
+ * temps constant.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class SeenCache {
+
+	// Nombre maximum d'URIs retenues
+	private final int capacity;
+	// Durée pendant laquelle une URI est retenue, en millisecondes
+	private final long ttl;
+	// Date de réception de chaque URI, de la plus ancienne à la plus récente
+	private final LinkedHashMap<String, Long> seen = new LinkedHashMap<>();
+
+	/**
+	 * Constructeur de SeenCache
+	 * 
+	 * @param capacity @see {@link #capacity}
+	 * @param ttl      @see {@link #ttl}
+	 */
+	public SeenCache(int capacity, long ttl) {
+		assert capacity > 0 && ttl > 0;
+		this.capacity = capacity;
+		this.ttl = ttl;
+	}
+
+	/**
+	 * Retient l'URI d'un message reçu
+	 * 
+	 * @param uri URI du message
+	 * @param now date de réception en millisecondes
+	 * @return true si le message n'avait pas déjà été reçu, false sinon
+	 */
+	public synchronized boolean add(String uri, long now) {
+		// on oublie les URIs trop anciennes, elles sont en tête
+		Iterator<Map.Entry<String, Long>> it = seen.entrySet().iterator();
+		while (it.hasNext()) {
+			Map.Entry<String, Long> oldest = it.next();
+			if (oldest.getValue() + ttl > now && seen.size() < capacity)
+				break;
+			it.remove();
+		}
+		if (seen.containsKey(uri))
+			return false;
+		seen.put(uri, now);
+		return true;
+	}
+
+	/**
+	 * Renvoie le nombre d'URIs retenues
+	 * 
+	 * @return le nombre d'URIs retenues
+	 */
+	public synchronized int size() {
+		return seen.size();
+	}
+
+}
@@ -0,0 +1,486 @@
+package message;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import interfaces.MessageI;
+import interfaces.TopicStorageI;
+
+/**
+ * File d'attente bornée des messages à envoyer à un subscriber. Le Broker y
+ * dépose les messages publiés et une seule tache à la fois la vide : un
+ * subscriber lent ne remplit que sa propre file.
+ * 
+ * Quand la file est pleine, la politique de débordement choisit entre bloquer
+ * le publieur, supprimer les plus anciens messages, supprimer les nouveaux ou
+ * les écrire sur le disque @see OverflowPolicy
+ * 
+ * Les messages en mémoire sont retirés par ordre de priorité, avec
+ * vieillissement pour que les messages peu prioritaires ne soient pas bloqués
+ * indéfiniment @see AgingQueue. Les messages écrits sur le disque sont relus
+ * dans leur ordre d'arrivée.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class SubscriberQueue {
+
+	/**
+	 * Politique appliquée quand la file d'un subscriber est pleine
+	 */
+	public enum OverflowPolicy {
+		/**
+		 * le publieur attend qu'il y ait de la place dans la file ; si l'attente est
+		 * bornée @see SubscriberQueue#offer(List, long), les messages qui n'ont pas
+		 * trouvé de place à temps sont écrits sur le disque
+		 */
+		BLOCK,
+		/**
+		 * les plus anciens messages de la file sont supprimés
+		 */
+		DROP_OLDEST,
+		/**
+		 * les nouveaux messages sont supprimés
+		 */
+		DROP_NEWEST,
+		/**
+		 * les nouveaux messages sont écrits sur le disque, et relus quand la file se
+		 * vide
+		 */
+		SPILL
+	}
+
+	/**
+	 * Taille des segments des fichiers de débordement
+	 */
+	protected static final int SPILL_SEGMENT_SIZE = 4 * 1024 * 1024;
+
+	// Nombre maximum de messages en mémoire
+	private final int capacity;
+	// Politique de débordement
+	private final OverflowPolicy overflowPolicy;
+	// Répertoire qui contient les fichiers de débordement, dans un nouveau
+	// sous-répertoire à chaque débordement, null pour un répertoire temporaire
+	private final File spillDirectory;
+	// Messages en attente en mémoire, par priorité
+	private final AgingQueue<MessageI> messages;
+	// Messages écrits sur le disque, plus récents que ceux en mémoire
+	private TopicStorageI spill;
+	// Offset du prochain message à relire du disque
+	private long spillOffset;
+	// Nombre de pauses en cours, la file n'est pas vidée pendant une pause
+	private int paused;
+	// Vrai si une tache vide la file
+	private boolean draining;
+	// Nombre de messages supprimés par débordement
+	private long dropped;
+	// Nombre de messages écrits sur le disque
+	private long spilled;
+	// Plus grand nombre de messages en attente observé
+	private long maxDepth;
+	// Verrou de la file
+	private final ReentrantLock lock = new ReentrantLock();
+	// Condition attendue par les publieurs bloqués
+	private final Condition notFull = lock.newCondition();
+	// Lance une tache qui vide la file
+	private final Runnable drainer;
+
+	/**
+	 * Constructeur de SubscriberQueue
+	 * 
+	 * @param capacity       @see {@link #capacity}
+	 * @param overflowPolicy @see {@link #overflowPolicy}
+	 * @param spillDirectory @see {@link #spillDirectory}
+	 * @param drainer        lance une tache qui vide la file avec
+	 *                       {@link #poll(int)}, appelé quand des messages sont en
+	 *                       attente et qu'aucune tache n'est en cours
+	 */
+	public SubscriberQueue(int capacity, OverflowPolicy overflowPolicy, File spillDirectory, Runnable drainer) {
+		this(capacity, overflowPolicy, spillDirectory, Priority.DEFAULT_AGING, drainer);
+	}
+
+	/**
+	 * Constructeur de SubscriberQueue
+	 * 
+	 * @param capacity       @see {@link #capacity}
+	 * @param overflowPolicy @see {@link #overflowPolicy}
+	 * @param spillDirectory @see {@link #spillDirectory}
+	 * @param aging          délai de vieillissement des messages en
+	 *                       millisecondes, 0 pour un ordre strict des priorités
+	 *                       @see AgingQueue
+	 * @param drainer        lance une tache qui vide la file avec
+	 *                       {@link #poll(int)}, appelé quand des messages sont en
+	 *                       attente et qu'aucune tache n'est en cours
+	 */
+	public SubscriberQueue(int capacity, OverflowPolicy overflowPolicy, File spillDirectory, long aging,
+			Runnable drainer) {
+		assert capacity > 0;
+		assert overflowPolicy != null;
+		assert drainer != null;
+		this.capacity = capacity;
+		this.overflowPolicy = overflowPolicy;
+		this.spillDirectory = spillDirectory;
+		this.drainer = drainer;
+		this.messages = new AgingQueue<>(aging);
+	}
+
+	/**
+	 * Renvoie la date courante pour le vieillissement des messages
+	 * 
+	 * @return la date en millisecondes, d'une horloge monotone
+	 */
+	private static long now() {
+		return System.nanoTime() / 1000000;
+	}
+
+	/**
+	 * Ajoute des messages à la file en appliquant la politique de débordement
+	 * 
+	 * @param ms messages à ajouter, du plus ancien au plus récent
+	 * @return les messages supprimés par la politique de débordement : les
+	 *         messages refusés et les anciens messages retirés de la file
+	 */
+	public List<MessageI> offer(List<MessageI> ms) throws InterruptedException {
+		return offer(ms, -1);
+	}
+
+	/**
+	 * Ajoute des messages à la file en appliquant la politique de débordement, en
+	 * bornant l'attente de la politique BLOCK : passé le délai, les messages sont
+	 * écrits sur le disque, derrière ceux qui y sont déjà, et relus quand la file
+	 * se vide
+	 * 
+	 * @param ms      messages à ajouter, du plus ancien au plus récent
+	 * @param maxWait délai maximal d'attente en millisecondes pour l'ensemble des
+	 *                messages, négatif pour attendre sans limite
+	 * @return les messages supprimés par la politique de débordement : les
+	 *         messages refusés et les anciens messages retirés de la file
+	 */
+	public List<MessageI> offer(List<MessageI> ms, long maxWait) throws InterruptedException {
+		List<MessageI> lost = null;
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, maxWait));
+		this.lock.lock();
+		try {
+			long now = now();
+			for (MessageI m : ms) {
+				Priority priority = Priority.of(m);
+				if (messages.size() < capacity && getSpillCount() == 0) {
+					messages.add(m, priority, now);
+					continue;
+				}
+				switch (overflowPolicy) {
+				case BLOCK:
+					if (maxWait >= 0) {
+						// tant que des messages sont sur le disque, les suivants y sont écrits aussi
+						// pour garder leur ordre
+						startDraining();
+						long remaining;
+						while (getSpillCount() == 0 && messages.size() >= capacity
+								&& (remaining = deadline - System.nanoTime()) > 0)
+							notFull.awaitNanos(remaining);
+						if (getSpillCount() == 0 && messages.size() < capacity)
+							messages.add(m, priority, now());
+						else if (!spill(m))
+							lost = lost(lost, m);
+						break;
+					}
+					// on attend que la tache qui vide la file, ou la fin de la pause, fasse de la
+					// place
+					startDraining();
+					while (messages.size() >= capacity && (draining || paused > 0))
+						notFull.await();
+					if (messages.size() >= capacity) {
+						dropped++;
+						lost = lost(lost, m);
+					} else
+						messages.add(m, priority, now());
+					break;
+				case DROP_OLDEST:
+					// le plus ancien message de plus faible priorité est supprimé, sauf si le
+					// nouveau message est moins prioritaire que tous les autres
+					if (priority.compareTo(messages.lowest()) >= 0) {
+						lost = lost(lost, messages.pollLowest());
+						messages.add(m, priority, now);
+					} else {
+						lost = lost(lost, m);
+					}
+					dropped++;
+					break;
+				case DROP_NEWEST:
+					dropped++;
+					lost = lost(lost, m);
+					break;
+				case SPILL:
+					if (!spill(m))
+						lost = lost(lost, m);
+					break;
+				}
+			}
+			maxDepth = Math.max(maxDepth, getDepth());
+			startDraining();
+		} finally {
+			this.lock.unlock();
+		}
+		return lost == null ? Collections.emptyList() : lost;
+	}
+
+	/**
+	 * Ajoute un message à la liste des messages supprimés
+	 * 
+	 * @param lost messages déjà supprimés, null si aucun
+	 * @param m    message supprimé
+	 * @return la liste des messages supprimés, créée au premier message
+	 */
+	private static List<MessageI> lost(List<MessageI> lost, MessageI m) {
+		if (lost == null)
+			lost = new ArrayList<>();
+		lost.add(m);
+		return lost;
+	}
+
+	/**
+	 * Ecrit un message sur le disque, le verrou doit être pris. Le journal est
+	 * ouvert dans un nouveau répertoire : les journaux laissés par une file
+	 * précédente du même subscriber, par exemple avant un redémarrage du Broker,
+	 * ne sont jamais relus
+	 * 
+	 * @param m message à écrire
+	 * @return faux si le message n'a pas pu être écrit et a été supprimé
+	 */
+	private boolean spill(MessageI m) {
+		try {
+			if (spill == null) {
+				File directory;
+				if (spillDirectory != null) {
+					Files.createDirectories(spillDirectory.toPath());
+					directory = Files.createTempDirectory(spillDirectory.toPath(), "spill-").toFile();
+				} else
+					directory = Files.createTempDirectory("subscriber-spill").toFile();
+				spill = new MappedLogTopicStorage(directory, SPILL_SEGMENT_SIZE, RetentionPolicy.UNLIMITED);
+				spillOffset = spill.getFirstOffset();
+			}
+			spill.append(m);
+			spilled++;
+			return true;
+		} catch (Exception e) {
+			e.printStackTrace();
+			dropped++;
+			return false;
+		}
+	}
+
+	/**
+	 * Retire les messages les plus prioritaires de la file, les plus anciens
+	 * d'abord à priorité égale. Si la file est vide ou en pause, la tache qui la
+	 * vide doit s'arrêter
+	 * 
+	 * @param max nombre maximum de messages retirés
+	 * @return les messages retirés, une liste vide si la tache doit s'arrêter
+	 */
+	public List<MessageI> poll(int max) {
+		this.lock.lock();
+		try {
+			if (paused > 0 || getDepth() == 0) {
+				draining = false;
+				notFull.signalAll();
+				return new ArrayList<>();
+			}
+			List<MessageI> res = new ArrayList<>(Math.min(max, messages.size()));
+			long now = now();
+			while (res.size() < max && !messages.isEmpty())
+				res.add(messages.poll(now));
+			refill();
+			notFull.signalAll();
+			return res;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Relit les messages écrits sur le disque tant qu'il y a de la place en
+	 * mémoire, le verrou doit être pris
+	 */
+	private void refill() {
+		if (spill == null)
+			return;
+		try {
+			List<MessageI> read = new ArrayList<>();
+			spillOffset = spill.read(spillOffset, capacity - messages.size(), read);
+			long now = now();
+			for (MessageI m : read)
+				messages.add(m, Priority.of(m), now);
+			// tous les messages ont été relus, on supprime les fichiers
+			if (spillOffset >= spill.getNextOffset()) {
+				spill.delete();
+				spill = null;
+			}
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Suspend l'envoi des messages, les messages continuent d'être ajoutés à la
+	 * file
+	 */
+	public void pause() {
+		this.lock.lock();
+		try {
+			paused++;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Termine une pause de la file
+	 */
+	public void resume() {
+		this.lock.lock();
+		try {
+			assert paused > 0;
+			paused--;
+			startDraining();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Lance une tache pour vider la file si des messages sont en attente et
+	 * qu'aucune tache n'est en cours, le verrou doit être pris
+	 */
+	private void startDraining() {
+		if (draining || paused > 0 || getDepth() == 0)
+			return;
+		draining = true;
+		drainer.run();
+	}
+
+	/**
+	 * Renvoie le nombre de messages écrits sur le disque et pas encore relus, le
+	 * verrou doit être pris
+	 * 
+	 * @return le nombre de messages sur le disque
+	 */
+	private long getSpillCount() {
+		return spill == null ? 0 : spill.getNextOffset() - spillOffset;
+	}
+
+	/**
+	 * Renvoie le nombre de messages en attente, en mémoire et sur le disque
+	 * 
+	 * @return la profondeur de la file
+	 */
+	public long getDepth() {
+		this.lock.lock();
+		try {
+			return messages.size() + getSpillCount();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Renvoie le plus grand nombre de messages en attente observé
+	 * 
+	 * @return la profondeur maximale de la file
+	 */
+	public long getMaxDepth() {
+		this.lock.lock();
+		try {
+			return maxDepth;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Renvoie le nombre de messages supprimés parce que la file était pleine
+	 * 
+	 * @return le nombre de messages supprimés
+	 */
+	public long getDropped() {
+		this.lock.lock();
+		try {
+			return dropped;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Renvoie le nombre de messages écrits sur le disque parce que la file était
+	 * pleine
+	 * 
+	 * @return le nombre de messages écrits sur le disque
+	 */
+	public long getSpilled() {
+		this.lock.lock();
+		try {
+			return spilled;
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Retire tous les messages de la file, y compris ceux écrits sur le disque,
+	 * même si la file est en pause. Les fichiers de débordement sont supprimés
+	 * et les publieurs bloqués sont libérés
+	 * 
+	 * @return les messages retirés, par priorité puis du plus ancien au plus
+	 *         récent
+	 */
+	public List<MessageI> drain() {
+		this.lock.lock();
+		try {
+			List<MessageI> res = new ArrayList<>(messages.size());
+			long now = now();
+			while (!messages.isEmpty())
+				res.add(messages.poll(now));
+			if (spill != null) {
+				long offset = spillOffset;
+				while (offset < spill.getNextOffset() && (spillOffset = spill.read(offset, capacity, res)) > offset)
+					offset = spillOffset;
+				spill.delete();
+				spill = null;
+			}
+			notFull.signalAll();
+			return res;
+		} catch (Exception e) {
+			e.printStackTrace();
+			return new ArrayList<>();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+	/**
+	 * Vide la file et supprime ses fichiers de débordement, les publieurs bloqués
+	 * sont libérés
+	 */
+	public void close() {
+		this.lock.lock();
+		try {
+			messages.clear();
+			if (spill != null)
+				spill.delete();
+			spill = null;
+			draining = false;
+			notFull.signalAll();
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			this.lock.unlock();
+		}
+	}
+
+}
@@ -0,0 +1,202 @@
+package message;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import interfaces.MessageFilterI;
+
+/**
+ * Arbre préfixe des abonnements à des familles de topics. Les noms de topics
+ * sont découpés en niveaux par des points ou des slashs ("capteurs.salle1.temp"
+ * ou "capteurs/salle1/temp") ; un abonnement peut utiliser les jokers
+ * {@link #SINGLE_LEVEL} pour un niveau quelconque et {@link #MULTI_LEVEL}, en
+ * dernier niveau, pour zéro ou plusieurs niveaux.
+ * 
+ * Chercher les abonnés d'un topic parcourt l'arbre niveau par niveau : le coût
+ * dépend de la profondeur du topic et non du nombre d'abonnements.
+ * 
+ * Les modifications sont synchronisées entre elles, les recherches ne prennent
+ * pas de verrou.
+ * 
+ * @author Bello Velly
+ *
+ */
+public class SubscriptionTrie {
+
+	/**
+	 * Joker pour un niveau quelconque
+	 */
+	public static final String SINGLE_LEVEL = "*";
+
+	/**
+	 * Joker pour zéro ou plusieurs niveaux, seulement en dernier niveau
+	 */
+	public static final String MULTI_LEVEL = "#";
+
+	/**
+	 * Noeud de l'arbre, correspondant à un niveau d'un abonnement
+	 */
+	private static class Node {
+		// Noeuds des niveaux suivants
+		final Map<String, Node> children = new ConcurrentHashMap<>();
+		// Abonnés dont l'abonnement se termine à ce noeud, avec leurs filtres
+		final Map<String, MessageFilterI> subscriptions = new HashMap<>();
+		// Index des filtres de ces abonnés, recréé à chaque modification
+		volatile FilterIndex index = FilterIndex.EMPTY;
+	}
+
+	// Racine de l'arbre
+	private final Node root = new Node();
+
+	/**
+	 * Regarde si un nom de topic contient des jokers
+	 * 
+	 * @param topic nom de topic
+	 * @return true si le nom contient un joker, false sinon
+	 */
+	public static boolean isPattern(String topic) {
+		for (String level : levels(topic))
+			if (level.equals(SINGLE_LEVEL) || level.equals(MULTI_LEVEL))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Découpe un nom de topic en niveaux
+	 * 
+	 * @param topic nom de topic
+	 * @return les niveaux du topic
+	 */
+	public static String[] levels(String topic) {
+		// découpage à la main, appelé à chaque publication
+		List<String> levels = new ArrayList<>();
+		int start = 0;
+		for (int i = 0; i < topic.length(); i++) {
+			char c = topic.charAt(i);
+			if (c == '.' || c == '/') {
+				levels.add(topic.substring(start, i));
+				start = i + 1;
+			}
+		}
+		levels.add(topic.substring(start));
+		return levels.toArray(new String[0]);
+	}
+
+	/**
+	 * Ajoute un abonnement, ou change le filtre d'un abonnement existant
+	 * 
+	 * @param pattern    nom de topic, avec des jokers
+	 * @param subscriber abonné
+	 * @param filter     filtre de l'abonné, null pour aucun filtre
+	 */
+	public synchronized void add(String pattern, String subscriber, MessageFilterI filter) {
+		String[] levels = levels(pattern);
+		for (int i = 0; i < levels.length - 1; i++)
+			if (levels[i].equals(MULTI_LEVEL))
+				throw new IllegalArgumentException(MULTI_LEVEL + " must be the last level of " + pattern);
+		Node node = root;
+		for (String level : levels)
+			node = node.children.computeIfAbsent(level, k -> new Node());
+		// l'index est mis à jour sans être reconstruit, les recherches en cours
+		// gardent l'ancien
+		FilterIndex index = node.index;
+		if (node.subscriptions.containsKey(subscriber))
+			index = index.remove(subscriber, node.subscriptions.get(subscriber));
+		node.subscriptions.put(subscriber, filter);
+		node.index = index.add(subscriber, filter);
+	}
+
+	/**
+	 * Supprime un abonnement, les noeuds devenus inutiles sont supprimés
+	 * 
+	 * @param pattern    nom de topic, avec des jokers
+	 * @param subscriber abonné
+	 */
+	public synchronized void remove(String pattern, String subscriber) {
+		remove(root, levels(pattern), 0, subscriber);
+	}
+
+	/**
+	 * Supprime un abonnement sous un noeud
+	 * 
+	 * @param node       noeud courant
+	 * @param levels     niveaux de l'abonnement
+	 * @param i          niveau du noeud courant
+	 * @param subscriber abonné
+	 * @return true si le noeud courant est devenu inutile
+	 */
+	private boolean remove(Node node, String[] levels, int i, String subscriber) {
+		if (i == levels.length) {
+			// le filtre peut être null, on ne peut pas se fier à la valeur supprimée
+			if (node.subscriptions.containsKey(subscriber)) {
+				MessageFilterI filter = node.subscriptions.remove(subscriber);
+				node.index = node.subscriptions.isEmpty() ? FilterIndex.EMPTY : node.index.remove(subscriber, filter);
+			}
+		} else {
+			Node child = node.children.get(levels[i]);
+			if (child != null && remove(child, levels, i + 1, subscriber))
+				node.children.remove(levels[i]);
+		}
+		return node.subscriptions.isEmpty() && node.children.isEmpty();
+	}
+
+	/**
+	 * Regarde si un abonné a au moins un abonnement dans l'arbre
+	 * 
+	 * @param subscriber abonné
+	 * @return true si l'abonné a un abonnement, false sinon
+	 */
+	public synchronized boolean contains(String subscriber) {
+		List<Node> toVisit = new ArrayList<>();
+		toVisit.add(root);
+		while (!toVisit.isEmpty()) {
+			Node node = toVisit.remove(toVisit.size() - 1);
+			if (node.subscriptions.containsKey(subscriber))
+				return true;
+			toVisit.addAll(node.children.values());
+		}
+		return false;
+	}
+
+	/**
+	 * Cherche les abonnements qui correspondent à un topic
+	 * 
+	 * @param topic nom du topic, sans jokers
+	 * @return l'index des filtres de chaque abonnement qui correspond
+	 */
+	public List<FilterIndex> match(String topic) {
+		List<FilterIndex> res = new ArrayList<>();
+		match(root, levels(topic), 0, res);
+		return res;
+	}
+
+	/**
+	 * Cherche les abonnements qui correspondent à un topic sous un noeud
+	 * 
+	 * @param node   noeud courant
+	 * @param levels niveaux du topic
+	 * @param i      niveau du noeud courant
+	 * @param res    liste à laquelle sont ajoutés les index trouvés
+	 */
+	private static void match(Node node, String[] levels, int i, List<FilterIndex> res) {
+		// le joker multi niveaux correspond à tous les niveaux restants, même aucun
+		Node multi = node.children.get(MULTI_LEVEL);
+		if (multi != null && multi.index != FilterIndex.EMPTY)
+			res.add(multi.index);
+		if (i == levels.length) {
+			if (node.index != FilterIndex.EMPTY)
+				res.add(node.index);
+			return;
+		}
+		Node child = node.children.get(levels[i]);
+		if (child != null)
+			match(child, levels, i + 1, res);
+		Node single = node.children.get(SINGLE_LEVEL);
+		if (single != null)
+			match(single, levels, i + 1, res);
+	}
+
+}
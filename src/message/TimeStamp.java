@@ -1,16 +1,21 @@
 package message;
 
-import java.io.Serializable;
+import java.io.Externalizable;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectOutput;
 
 /**
- * Classe representant une estampille de temps
+ * Classe representant une estampille de temps. Elle est sérialisée à la main
+ * : la date en longueur variable puis le timestamper, sans descripteur de
+ * champs
  * 
  * @author Bello Velly
  *
  */
-public class TimeStamp implements Serializable {
+public class TimeStamp implements Externalizable {
 
-	private static final long serialVersionUID = 1L;
+	private static final long serialVersionUID = 2L;
 
 	/**
 	 * date
@@ -64,4 +69,22 @@ public class TimeStamp implements Serializable {
 		this.timestamper = timestamper;
 	}
 
+	/**
+	 * @see java.io.Externalizable#writeExternal(ObjectOutput)
+	 */
+	@Override
+	public void writeExternal(ObjectOutput out) throws IOException {
+		ValueIO.writeVarLong(out, ValueIO.zigzag(time));
+		ValueIO.writeNullableString(out, timestamper);
+	}
+
+	/**
+	 * @see java.io.Externalizable#readExternal(ObjectInput)
+	 */
+	@Override
+	public void readExternal(ObjectInput in) throws IOException {
+		time = ValueIO.unzigzag(ValueIO.readVarLong(in));
+		timestamper = ValueIO.readNullableString(in);
+	}
+
 }
@@ -10,14 +10,23 @@ import java.io.Serializable;
  */
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import interfaces.MessageFilterI;
 import interfaces.MessageI;
+import interfaces.TopicStorageI;
 
 /**
+ * Un Topic possède son propre verrou : les publications sur des topics
+ * différents ne se bloquent pas entre elles.
+ * 
+ * Les messages sont conservés par un stockage, en mémoire par défaut @see
+ * MemoryTopicStorage, les plus anciens sont supprimés selon la politique de
+ * rétention du topic @see RetentionPolicy
  * 
  * @author Bello Velly
  *
@@ -26,22 +35,91 @@ public class Topic implements Serializable {
 
 	private static final long serialVersionUID = 1L;
 
-	// Tout les messages du topics
-	private List<MessageI> messages;
+	// Stockage des messages du topic
+	private final TopicStorageI storage;
 	// Tout les abonnés au topics, avec leurs filtres
 	private Map<String, MessageFilterI> subscriptions;
+	// Index des filtres des abonnés, recréé à chaque changement d'abonnement
+	private FilterIndex index;
+	// Verrou pour les messages et les abonnés du topic
+	private final ReentrantReadWriteLock lock;
 
 	public Topic() {
-		this.messages = new ArrayList<MessageI>();
+		this(RetentionPolicy.UNLIMITED);
+	}
+
+	/**
+	 * Constructeur de Topic
+	 * 
+	 * @param retentionPolicy politique de rétention des messages du topic
+	 */
+	public Topic(RetentionPolicy retentionPolicy) {
+		this(new MemoryTopicStorage(retentionPolicy));
+	}
+
+	/**
+	 * Constructeur de Topic
+	 * 
+	 * @param storage stockage des messages du topic
+	 */
+	public Topic(TopicStorageI storage) {
+		assert storage != null;
+		this.storage = storage;
 		this.subscriptions = new HashMap<String, MessageFilterI>();
+		this.index = FilterIndex.EMPTY;
+		this.lock = new ReentrantReadWriteLock();
 	}
 
+	/**
+	 * Renvoie une copie de l'ensemble des abonnés
+	 * 
+	 * @return les abonnés du topic
+	 */
 	public Set<String> getSubscribers() {
-		return subscriptions.keySet();
+		this.lock.readLock().lock();
+		try {
+			return new HashSet<String>(subscriptions.keySet());
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Renvoie une copie des abonnements du topic, cohérente à l'instant de l'appel
+	 * 
+	 * @return les abonnés du topic associés à leurs filtres
+	 */
+	public Map<String, MessageFilterI> getSubscriptions() {
+		this.lock.readLock().lock();
+		try {
+			return new HashMap<String, MessageFilterI>(subscriptions);
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Regarde si un subscriber est abonné au topic
+	 * 
+	 * @param subscriber abonné recherché
+	 * @return true si le subscriber est abonné, false sinon
+	 */
+	public boolean isSubscribed(String subscriber) {
+		this.lock.readLock().lock();
+		try {
+			return subscriptions.containsKey(subscriber);
+		} finally {
+			this.lock.readLock().unlock();
+		}
 	}
 
 	public MessageFilterI getFilter(String subscriber) {
-		return subscriptions.get(subscriber);
+		this.lock.readLock().lock();
+		try {
+			return subscriptions.get(subscriber);
+		} finally {
+			this.lock.readLock().unlock();
+		}
 	}
 
 	/**
@@ -50,7 +128,216 @@ public class Topic implements Serializable {
 	 * @param m message à ajouté
 	 */
 	public void addMessage(MessageI m) {
-		messages.add(m);
+		this.lock.writeLock().lock();
+		try {
+			append(new MessageI[] { m });
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Ajoute des messages au topic en une seule prise de verrou
+	 * 
+	 * @param ms messages à ajoutés
+	 */
+	public void addMessages(MessageI[] ms) {
+		this.lock.writeLock().lock();
+		try {
+			append(ms);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Ajoute des messages au stockage puis applique la politique de rétention, le
+	 * verrou en écriture doit être pris
+	 * 
+	 * @param ms messages à ajoutés
+	 */
+	private void append(MessageI[] ms) {
+		try {
+			for (MessageI m : ms)
+				storage.append(m);
+			storage.evict(System.currentTimeMillis());
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Ajoute des messages au topic et renvoie l'index des filtres des abonnés au
+	 * moment de l'ajout, en une seule prise de verrou : un abonnement avec rejeu
+	 * est soit dans l'index renvoyé, soit postérieur aux messages ajoutés
+	 * 
+	 * @see #addSubscription(String, MessageFilterI, ReplayPosition)
+	 * 
+	 * @param ms messages à ajoutés
+	 * @return l'index des filtres des abonnés, qui n'est plus modifié
+	 */
+	public FilterIndex publish(MessageI[] ms) {
+		this.lock.writeLock().lock();
+		try {
+			append(ms);
+			return index;
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Supprime les messages qui ne respectent plus la politique de rétention, le
+	 * verrou en écriture doit être pris
+	 */
+	private void evict() {
+		try {
+			storage.evict(System.currentTimeMillis());
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Renvoie le nombre de messages conservés par le topic
+	 * 
+	 * @return le nombre de messages du topic
+	 */
+	public int getMessageCount() {
+		this.lock.writeLock().lock();
+		try {
+			evict();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+		this.lock.readLock().lock();
+		try {
+			return (int) (storage.getNextOffset() - storage.getFirstOffset());
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Renvoie une copie des messages conservés par le topic, du plus ancien au
+	 * plus récent
+	 * 
+	 * @return les messages du topic
+	 */
+	public List<MessageI> getMessages() {
+		this.lock.writeLock().lock();
+		try {
+			storage.evict(System.currentTimeMillis());
+			return storage.read(storage.getFirstOffset(), Integer.MAX_VALUE);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return new ArrayList<MessageI>();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Lit des messages du topic entre deux offsets
+	 * 
+	 * @param from offset du premier message à lire, les messages déjà supprimés
+	 *             sont ignorés
+	 * @param to   offset de fin (exclus)
+	 * @param max  nombre maximum de messages à lire
+	 * @param res  liste à laquelle sont ajoutés les messages lus
+	 * @return l'offset du message suivant le dernier message lu
+	 */
+	public long readMessages(long from, long to, int max, List<MessageI> res) {
+		this.lock.readLock().lock();
+		try {
+			long start = Math.max(from, storage.getFirstOffset());
+			if (start >= to)
+				return to;
+			// les offsets des messages non conservés sont comptés par le stockage
+			return storage.read(start, (int) Math.min(max, to - start), res);
+		} catch (Exception e) {
+			e.printStackTrace();
+			return to;
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Renvoie la taille totale des messages conservés
+	 * 
+	 * @return la taille en octets des messages du topic
+	 * @see interfaces.TopicStorageI#getRetainedBytes()
+	 */
+	public long getRetainedBytes() {
+		this.lock.readLock().lock();
+		try {
+			return storage.getRetainedBytes();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Renvoie la politique de rétention du topic
+	 * 
+	 * @return la politique de rétention
+	 */
+	public RetentionPolicy getRetentionPolicy() {
+		this.lock.readLock().lock();
+		try {
+			return storage.getRetentionPolicy();
+		} finally {
+			this.lock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Change la politique de rétention du topic, les messages qui ne la respectent
+	 * pas sont supprimés
+	 * 
+	 * @param retentionPolicy nouvelle politique de rétention
+	 */
+	public void setRetentionPolicy(RetentionPolicy retentionPolicy) {
+		assert retentionPolicy != null;
+		this.lock.writeLock().lock();
+		try {
+			storage.setRetentionPolicy(retentionPolicy);
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Libère le stockage des messages du topic, les messages sont conservés par
+	 * les stockages persistants
+	 */
+	public void close() {
+		this.lock.writeLock().lock();
+		try {
+			storage.close();
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Libère le stockage des messages du topic et supprime ses messages, à appeler
+	 * quand le topic est détruit
+	 */
+	public void destroy() {
+		this.lock.writeLock().lock();
+		try {
+			storage.delete();
+		} catch (Exception e) {
+			e.printStackTrace();
+		} finally {
+			this.lock.writeLock().unlock();
+		}
 	}
 
 	/**
@@ -60,7 +347,64 @@ public class Topic implements Serializable {
 	 * @param filter
 	 */
 	public void addSubscription(String subscriber, MessageFilterI filter) {
+		this.lock.writeLock().lock();
+		try {
+			subscribe(subscriber, filter);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
+	}
+
+	/**
+	 * Ajoute un abonné, ou change son filtre, et met à jour l'index des filtres
+	 * sans le reconstruire, le verrou en écriture doit être pris
+	 * 
+	 * @param subscriber abonné
+	 * @param filter     filtre de l'abonné
+	 */
+	private void subscribe(String subscriber, MessageFilterI filter) {
+		FilterIndex updated = index;
+		if (subscriptions.containsKey(subscriber))
+			updated = updated.remove(subscriber, subscriptions.get(subscriber));
 		subscriptions.put(subscriber, filter);
+		index = updated.add(subscriber, filter);
+	}
+
+	/**
+	 * Ajoute un abonné au topic, avec son filtre, et renvoie les offsets de
+	 * l'historique qu'il doit recevoir. Les messages ajoutés ensuite lui seront
+	 * envoyés par les publications : l'historique et les publications ne se
+	 * recouvrent pas
+	 * 
+	 * @param subscriber abonné
+	 * @param filter     filtre de l'abonné
+	 * @param from       position du début de l'historique
+	 * @return l'offset du premier message de l'historique et l'offset de fin
+	 *         (exclus)
+	 */
+	public long[] addSubscription(String subscriber, MessageFilterI filter, ReplayPosition from) {
+		assert from != null;
+		this.lock.writeLock().lock();
+		try {
+			evict();
+			long first = storage.getFirstOffset();
+			long next = storage.getNextOffset();
+			long start;
+			switch (from.getKind()) {
+			case TIME:
+				start = storage.offsetOf(from.getValue());
+				break;
+			case LAST:
+				start = next - Math.min(from.getValue(), next - first);
+				break;
+			default:
+				start = Math.min(Math.max(from.getValue(), first), next);
+			}
+			subscribe(subscriber, filter);
+			return new long[] { start, next };
+		} finally {
+			this.lock.writeLock().unlock();
+		}
 	}
 
 	/**
@@ -70,8 +414,12 @@ public class Topic implements Serializable {
 	 * @param filter     nouveau filtre
 	 */
 	public void updateFilter(String subscriber, MessageFilterI filter) {
-		subscriptions.remove(subscriber);
-		subscriptions.put(subscriber, filter);
+		this.lock.writeLock().lock();
+		try {
+			subscribe(subscriber, filter);
+		} finally {
+			this.lock.writeLock().unlock();
+		}
 	}
 
 	/**
@@ -80,7 +428,13 @@ public class Topic implements Serializable {
 	 * @param subscriber abonné a supprimé
 	 */
 	public void removeSubscriber(String subscriber) {
-		subscriptions.remove(subscriber);
+		this.lock.writeLock().lock();
+		try {
+			if (subscriptions.containsKey(subscriber))
+				index = index.remove(subscriber, subscriptions.remove(subscriber));
+		} finally {
+			this.lock.writeLock().unlock();
+		}
 	}
 
 }
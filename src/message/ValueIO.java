@@ -0,0 +1,354 @@
+package message;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.ObjectInput;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutput;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Écriture et lecture des valeurs communes à la sérialisation des messages
+ * @see Message#writeExternal(ObjectOutput) et à l'encodage des lots
+ * @see BatchCodec : entiers en longueur variable, chaînes, et valeurs typées
+ * précédées d'un octet de type.
+ * 
+ * @author Bello Velly
+ *
+ */
+final class ValueIO {
+
+	// Types des valeurs écrites par writeValue
+	static final byte NULL = 0;
+	static final byte BOOLEAN = 1;
+	static final byte BYTE = 2;
+	static final byte CHAR = 3;
+	static final byte DOUBLE = 4;
+	static final byte FLOAT = 5;
+	static final byte INT = 6;
+	static final byte LONG = 7;
+	static final byte SHORT = 8;
+	static final byte STRING = 9;
+	static final byte BYTES = 10;
+	static final byte OBJECT = 11;
+	static final byte BUFFER = 12;
+
+	private ValueIO() {
+	}
+
+	/**
+	 * Code un entier signé pour que les petites valeurs négatives restent courtes
+	 * 
+	 * @param v entier signé
+	 * @return l'entier codé
+	 */
+	static long zigzag(long v) {
+		return (v << 1) ^ (v >> 63);
+	}
+
+	/**
+	 * Décode un entier codé par {@link #zigzag(long)}
+	 * 
+	 * @param v entier codé
+	 * @return l'entier signé
+	 */
+	static long unzigzag(long v) {
+		return (v >>> 1) ^ -(v & 1);
+	}
+
+	/**
+	 * Écrit un entier positif sur 1 à 10 octets, 7 bits par octet
+	 * 
+	 * @param out flux de sortie
+	 * @param v   entier à écrire
+	 */
+	static void writeVarLong(DataOutput out, long v) throws IOException {
+		while ((v & ~0x7FL) != 0) {
+			out.writeByte((int) (v & 0x7F) | 0x80);
+			v >>>= 7;
+		}
+		out.writeByte((int) v);
+	}
+
+	/**
+	 * Écrit un entier positif sur 1 à 5 octets
+	 * 
+	 * @param out flux de sortie
+	 * @param v   entier à écrire
+	 */
+	static void writeVarInt(DataOutput out, int v) throws IOException {
+		writeVarLong(out, v & 0xFFFFFFFFL);
+	}
+
+	/**
+	 * Lit un entier écrit par {@link #writeVarLong(DataOutput, long)}
+	 * 
+	 * @param in flux d'entrée
+	 * @return l'entier lu
+	 */
+	static long readVarLong(DataInput in) throws IOException {
+		long res = 0;
+		for (int shift = 0; shift < 64; shift += 7) {
+			int b = in.readUnsignedByte();
+			res |= (long) (b & 0x7F) << shift;
+			if ((b & 0x80) == 0)
+				return res;
+		}
+		throw new IOException("malformed varint");
+	}
+
+	/**
+	 * Lit un entier écrit par {@link #writeVarInt(DataOutput, int)}
+	 * 
+	 * @param in flux d'entrée
+	 * @return l'entier lu
+	 */
+	static int readVarInt(DataInput in) throws IOException {
+		return (int) readVarLong(in);
+	}
+
+	/**
+	 * Écrit une chaîne en UTF-8 précédée de sa taille, sans la limite de 64 Ko de
+	 * writeUTF
+	 * 
+	 * @param out flux de sortie
+	 * @param s   chaîne à écrire
+	 */
+	static void writeString(DataOutput out, String s) throws IOException {
+		byte[] b = s.getBytes(StandardCharsets.UTF_8);
+		writeVarInt(out, b.length);
+		out.write(b);
+	}
+
+	/**
+	 * Lit une chaîne écrite par {@link #writeString(DataOutput, String)}
+	 * 
+	 * @param in flux d'entrée
+	 * @return la chaîne lue
+	 */
+	static String readString(DataInput in) throws IOException {
+		byte[] b = new byte[readVarInt(in)];
+		in.readFully(b);
+		return new String(b, StandardCharsets.UTF_8);
+	}
+
+	/**
+	 * Écrit une chaîne qui peut être null
+	 * 
+	 * @param out flux de sortie
+	 * @param s   chaîne à écrire
+	 */
+	static void writeNullableString(DataOutput out, String s) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null)
+			writeString(out, s);
+	}
+
+	/**
+	 * Lit une chaîne écrite par {@link #writeNullableString(DataOutput, String)}
+	 * 
+	 * @param in flux d'entrée
+	 * @return la chaîne lue, ou null
+	 */
+	static String readNullableString(DataInput in) throws IOException {
+		return in.readBoolean() ? readString(in) : null;
+	}
+
+	/**
+	 * Indique si un type est un type primitif, dont la valeur tient dans un long
+	 * 
+	 * @param tag type de la valeur
+	 * @return true pour les booléens, caractères et nombres
+	 */
+	static boolean isPrimitive(byte tag) {
+		return tag >= BOOLEAN && tag <= SHORT;
+	}
+
+	/**
+	 * Écrit une valeur de type primitif précédée de son type
+	 * 
+	 * @param out  flux de sortie
+	 * @param tag  type de la valeur
+	 * @param bits valeur, les décimaux sous forme de bits
+	 */
+	static void writePrimitive(DataOutput out, byte tag, long bits) throws IOException {
+		out.writeByte(tag);
+		switch (tag) {
+		case BOOLEAN:
+			out.writeBoolean(bits != 0);
+			break;
+		case BYTE:
+			out.writeByte((int) bits);
+			break;
+		case CHAR:
+			out.writeChar((int) bits);
+			break;
+		case SHORT:
+			out.writeShort((int) bits);
+			break;
+		case INT:
+		case LONG:
+			writeVarLong(out, zigzag(bits));
+			break;
+		case FLOAT:
+			out.writeInt((int) bits);
+			break;
+		case DOUBLE:
+			out.writeLong(bits);
+			break;
+		default:
+			throw new IllegalArgumentException("not a primitive type " + tag);
+		}
+	}
+
+	/**
+	 * Lit une valeur écrite par {@link #writePrimitive(DataOutput, byte, long)},
+	 * après son type
+	 * 
+	 * @param in  flux d'entrée
+	 * @param tag type de la valeur, déjà lu
+	 * @return la valeur, les décimaux sous forme de bits
+	 */
+	static long readPrimitive(DataInput in, byte tag) throws IOException {
+		switch (tag) {
+		case BOOLEAN:
+			return in.readBoolean() ? 1 : 0;
+		case BYTE:
+			return in.readByte();
+		case CHAR:
+			return in.readChar();
+		case SHORT:
+			return in.readShort();
+		case INT:
+		case LONG:
+			return unzigzag(readVarLong(in));
+		case FLOAT:
+			return in.readInt();
+		case DOUBLE:
+			return in.readLong();
+		default:
+			throw new IOException("not a primitive type " + tag);
+		}
+	}
+
+	/**
+	 * Convertit une valeur de type primitif en objet
+	 * 
+	 * @param tag  type de la valeur
+	 * @param bits valeur, les décimaux sous forme de bits
+	 * @return la valeur dans son type objet
+	 */
+	static Object box(byte tag, long bits) {
+		switch (tag) {
+		case BOOLEAN:
+			return bits != 0;
+		case BYTE:
+			return (byte) bits;
+		case CHAR:
+			return (char) bits;
+		case SHORT:
+			return (short) bits;
+		case INT:
+			return (int) bits;
+		case LONG:
+			return bits;
+		case FLOAT:
+			return Float.intBitsToFloat((int) bits);
+		case DOUBLE:
+			return Double.longBitsToDouble(bits);
+		default:
+			return null;
+		}
+	}
+
+	/**
+	 * Écrit une valeur précédée de son type. Les contenus binaires sont écrits tels
+	 * quels @see BinaryPayload, les valeurs qui ne sont pas d'un type simple sont
+	 * sérialisées
+	 * 
+	 * @param out flux de sortie
+	 * @param v   valeur à écrire
+	 */
+	static void writeValue(DataOutput out, Object v) throws IOException {
+		if (v == null) {
+			out.writeByte(NULL);
+		} else if (v instanceof String) {
+			out.writeByte(STRING);
+			writeString(out, (String) v);
+		} else if (v instanceof Integer) {
+			writePrimitive(out, INT, (Integer) v);
+		} else if (v instanceof Long) {
+			writePrimitive(out, LONG, (Long) v);
+		} else if (v instanceof Double) {
+			writePrimitive(out, DOUBLE, Double.doubleToRawLongBits((Double) v));
+		} else if (v instanceof Boolean) {
+			writePrimitive(out, BOOLEAN, (Boolean) v ? 1 : 0);
+		} else if (v instanceof Float) {
+			writePrimitive(out, FLOAT, Float.floatToRawIntBits((Float) v));
+		} else if (v instanceof Short) {
+			writePrimitive(out, SHORT, (Short) v);
+		} else if (v instanceof Byte) {
+			writePrimitive(out, BYTE, (Byte) v);
+		} else if (v instanceof Character) {
+			writePrimitive(out, CHAR, (Character) v);
+		} else if (v instanceof byte[]) {
+			out.writeByte(BYTES);
+			writeVarInt(out, ((byte[]) v).length);
+			out.write((byte[]) v);
+		} else if (v instanceof BinaryPayload) {
+			out.writeByte(BUFFER);
+			((BinaryPayload) v).writeTo(out);
+		} else if (out instanceof ObjectOutput) {
+			out.writeByte(OBJECT);
+			((ObjectOutput) out).writeObject(v);
+		} else {
+			out.writeByte(OBJECT);
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream oos = new ObjectOutputStream(bytes)) {
+				oos.writeObject(v);
+			}
+			writeVarInt(out, bytes.size());
+			out.write(bytes.toByteArray());
+		}
+	}
+
+	/**
+	 * Lit une valeur écrite par {@link #writeValue(DataOutput, Object)}, avec le
+	 * même type de flux
+	 * 
+	 * @param in flux d'entrée
+	 * @return la valeur lue
+	 */
+	static Object readValue(DataInput in) throws IOException, ClassNotFoundException {
+		byte type = in.readByte();
+		if (isPrimitive(type))
+			return box(type, readPrimitive(in, type));
+		switch (type) {
+		case NULL:
+			return null;
+		case STRING:
+			return readString(in);
+		case BYTES:
+			byte[] b = new byte[readVarInt(in)];
+			in.readFully(b);
+			return b;
+		case BUFFER:
+			return BinaryPayload.readFrom(in);
+		case OBJECT:
+			if (in instanceof ObjectInput)
+				return ((ObjectInput) in).readObject();
+			byte[] data = new byte[readVarInt(in)];
+			in.readFully(data);
+			try (ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(data))) {
+				return ois.readObject();
+			}
+		default:
+			throw new IOException("unknown value type " + type);
+		}
+	}
+
+}
@@ -1,5 +1,11 @@
 package plugins;
 
+import java.io.Serializable;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Semaphore;
+
 import connectors.ManagementConnector;
 import connectors.PublicationConnector;
 import fr.sorbonne_u.components.AbstractPlugin;
@@ -9,6 +15,13 @@ import interfaces.ManagementImplementationI;
 import interfaces.MessageI;
 import interfaces.PublicationCI;
 import interfaces.PublicationsImplementationI;
+import message.Message;
+import message.MessageFactory;
+import message.OffHeapUsage;
+import message.PoolStats;
+import message.Properties;
+import message.PublishAck;
+import message.RetentionPolicy;
 import port.ManagementOutboundPortForPlugin;
 import port.PublicationOutboundPortForPlugin;
 
@@ -23,6 +36,11 @@ public class PublisherClientPlugin extends AbstractPlugin
 
 	private static final long serialVersionUID = 1L;
 
+	/**
+	 * Nombre de publications asynchrones en cours par défaut
+	 */
+	public static final int DEFAULT_WINDOW = 16;
+
 	/**
 	 * Port sortant de publication
 	 */
@@ -56,7 +74,24 @@ public class PublisherClientPlugin extends AbstractPlugin
 	protected String mipUri;
 
 	/**
-	 * Constructeur de PublisherClientPlugin
+	 * Fabrique des messages publiés @see {@link #createMessage(Properties, Serializable)}
+	 */
+	protected MessageFactory messageFactory;
+
+	/**
+	 * Nombre maximum de publications asynchrones en cours, qui attendent leur
+	 * acquittement @see {@link #publishAsync(MessageI[], String[], PublishAck.Level)}
+	 */
+	protected final int window;
+
+	/**
+	 * Places libres dans la fenêtre des publications asynchrones
+	 */
+	protected final Semaphore inFlight;
+
+	/**
+	 * Constructeur de PublisherClientPlugin, les messages sont préfixés par
+	 * l'uri du port de publication
 	 * 
 	 * @param popUri @see {@link #popUri}
 	 * @param mopUri @see {@link #mopUri}
@@ -64,11 +99,45 @@ public class PublisherClientPlugin extends AbstractPlugin
 	 * @param mipUri @see {@link #mipUri}
 	 */
 	public PublisherClientPlugin(String popUri, String mopUri, String pipUri, String mipUri) {
+		this(popUri, mopUri, pipUri, mipUri, new MessageFactory(popUri));
+	}
+
+	/**
+	 * Constructeur de PublisherClientPlugin
+	 * 
+	 * @param popUri         @see {@link #popUri}
+	 * @param mopUri         @see {@link #mopUri}
+	 * @param pipUri         @see {@link #pipUri}
+	 * @param mipUri         @see {@link #mipUri}
+	 * @param messageFactory @see {@link #messageFactory}
+	 */
+	public PublisherClientPlugin(String popUri, String mopUri, String pipUri, String mipUri,
+			MessageFactory messageFactory) {
+		this(popUri, mopUri, pipUri, mipUri, messageFactory, DEFAULT_WINDOW);
+	}
+
+	/**
+	 * Constructeur de PublisherClientPlugin
+	 * 
+	 * @param popUri         @see {@link #popUri}
+	 * @param mopUri         @see {@link #mopUri}
+	 * @param pipUri         @see {@link #pipUri}
+	 * @param mipUri         @see {@link #mipUri}
+	 * @param messageFactory @see {@link #messageFactory}
+	 * @param window         @see {@link #window}
+	 */
+	public PublisherClientPlugin(String popUri, String mopUri, String pipUri, String mipUri,
+			MessageFactory messageFactory, int window) {
 		super();
+		assert messageFactory != null;
+		assert window > 0;
+		this.window = window;
+		this.inFlight = new Semaphore(window);
 		this.pipUri = pipUri;
 		this.mipUri = mipUri;
 		this.popUri = popUri;
 		this.mopUri = mopUri;
+		this.messageFactory = messageFactory;
 	}
 
 	/***********************************************************************
@@ -93,6 +162,8 @@ public class PublisherClientPlugin extends AbstractPlugin
 		this.addRequiredInterface(ManagementCI.class);
 		this.mop = new ManagementOutboundPortForPlugin(mopUri, this.owner);
 		this.mop.localPublishPort();
+		// un thread par publication asynchrone en cours, qui attend son acquittement
+		this.createNewExecutorService(acknowledgementExecutorUri(), window, false);
 	}
 
 	/**
@@ -152,6 +223,15 @@ public class PublisherClientPlugin extends AbstractPlugin
 		this.mop.createTopic(topic);
 	}
 
+	/**
+	 * @see interfaces.ManagementImplementationI#createTopic(String,
+	 *      RetentionPolicy)
+	 */
+	@Override
+	public void createTopic(String topic, RetentionPolicy retentionPolicy) throws Exception {
+		this.mop.createTopic(topic, retentionPolicy);
+	}
+
 	/**
 	 * @see interfaces.ManagementImplementationI#createTopics(String[])
 	 */
@@ -192,6 +272,42 @@ public class PublisherClientPlugin extends AbstractPlugin
 		return this.mop.getPublicationPortURI();
 	}
 
+	/**
+	 * @see interfaces.ManagementImplementationI#getOffHeapUsage()
+	 */
+	@Override
+	public OffHeapUsage getOffHeapUsage() throws Exception {
+		return this.mop.getOffHeapUsage();
+	}
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getPoolStats()
+	 */
+	@Override
+	public List<PoolStats> getPoolStats() throws Exception {
+		return this.mop.getPoolStats();
+	}
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getQueueDepths()
+	 */
+	@Override
+	public Map<String, Long> getQueueDepths() throws Exception {
+		return this.mop.getQueueDepths();
+	}
+
+	/**
+	 * Crée un message à publier
+	 * 
+	 * @param properties propriétés du message
+	 * @param payload    contenu du message
+	 * @return le message, avec une URI et une date données par la fabrique @see
+	 *         {@link #messageFactory}
+	 */
+	public Message createMessage(Properties properties, Serializable payload) {
+		return messageFactory.create(properties, payload);
+	}
+
 	/**
 	 * @see interfaces.PublicationsImplementationI#publish(MessageI, String)
 	 */
@@ -224,4 +340,98 @@ public class PublisherClientPlugin extends AbstractPlugin
 		this.pop.publish(ms, topics);
 	}
 
+	/**
+	 * Renvoie l'URI du pool de threads des publications asynchrones
+	 * 
+	 * @return l'URI, dérivée de celle du port de publication
+	 */
+	protected String acknowledgementExecutorUri() {
+		return popUri + "-acks";
+	}
+
+	/**
+	 * Publie un Message sur un topic donné sans attendre le Broker
+	 * 
+	 * @param m     Message à publié
+	 * @param topic titre du topic
+	 * @param level niveau d'acquittement attendu
+	 * @return l'acquittement de la publication
+	 * @see #publishAsync(MessageI[], String[], PublishAck.Level)
+	 */
+	public CompletableFuture<PublishAck> publishAsync(MessageI m, String topic, PublishAck.Level level)
+			throws InterruptedException {
+		return publishAsync(new MessageI[] { m }, new String[] { topic }, level);
+	}
+
+	/**
+	 * Publie un Message sur des topics donnés sans attendre le Broker
+	 * 
+	 * @param m      Message à publié
+	 * @param topics titre des topics
+	 * @param level  niveau d'acquittement attendu
+	 * @return l'acquittement de la publication
+	 * @see #publishAsync(MessageI[], String[], PublishAck.Level)
+	 */
+	public CompletableFuture<PublishAck> publishAsync(MessageI m, String[] topics, PublishAck.Level level)
+			throws InterruptedException {
+		return publishAsync(new MessageI[] { m }, topics, level);
+	}
+
+	/**
+	 * Publie des Message sur un topic donné sans attendre le Broker
+	 * 
+	 * @param ms    Message qui doivent être publiés
+	 * @param topic titre du topic
+	 * @param level niveau d'acquittement attendu
+	 * @return l'acquittement de la publication
+	 * @see #publishAsync(MessageI[], String[], PublishAck.Level)
+	 */
+	public CompletableFuture<PublishAck> publishAsync(MessageI[] ms, String topic, PublishAck.Level level)
+			throws InterruptedException {
+		return publishAsync(ms, new String[] { topic }, level);
+	}
+
+	/**
+	 * Publie des Message sur des topics donnés sans attendre le Broker : la
+	 * publication est faite par un thread du plugin, qui attend l'acquittement au
+	 * niveau demandé. Au plus {@link #window} publications sont en cours, l'appel
+	 * attend qu'une place se libère quand la fenêtre est pleine. Les erreurs de la
+	 * publication complètent l'acquittement avec leur exception
+	 * 
+	 * @param ms     Message qui doivent être publiés
+	 * @param topics titres des topics
+	 * @param level  niveau d'acquittement attendu
+	 * @return l'acquittement de la publication
+	 */
+	public CompletableFuture<PublishAck> publishAsync(MessageI[] ms, String[] topics, PublishAck.Level level)
+			throws InterruptedException {
+		assert level != null;
+		inFlight.acquire();
+		CompletableFuture<PublishAck> ack = new CompletableFuture<>();
+		try {
+			this.owner.runTask(acknowledgementExecutorUri(), owner -> {
+				try {
+					ack.complete(this.pop.publishAcknowledged(ms, topics, level));
+				} catch (Exception e) {
+					ack.completeExceptionally(e);
+				} finally {
+					inFlight.release();
+				}
+			});
+		} catch (Exception e) {
+			inFlight.release();
+			ack.completeExceptionally(e);
+		}
+		return ack;
+	}
+
+	/**
+	 * Renvoie le nombre de publications asynchrones en cours
+	 * 
+	 * @return le nombre de publications qui attendent leur acquittement
+	 */
+	public int getInFlight() {
+		return window - inFlight.availablePermits();
+	}
+
 }
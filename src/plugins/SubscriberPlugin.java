@@ -1,5 +1,8 @@
 package plugins;
 
+import java.util.List;
+import java.util.Map;
+
 import connectors.ManagementConnector;
 import fr.sorbonne_u.components.AbstractPlugin;
 import fr.sorbonne_u.components.ComponentI;
@@ -10,6 +13,10 @@ import interfaces.MessageI;
 import interfaces.ReceptionCI;
 import interfaces.ReceptionImplementationI;
 import interfaces.SubscriptionImplementationI;
+import message.OffHeapUsage;
+import message.PoolStats;
+import message.ReplayPosition;
+import message.RetentionPolicy;
 import port.ManagementOutboundPortForPlugin;
 import port.ReceptionInboundPortForPlugin;
 
@@ -190,6 +197,16 @@ public class SubscriberPlugin extends AbstractPlugin
 		this.mop.subscribe(topic, filter, inboundPortURI);
 	}
 
+	/**
+	 * @see interfaces.SubscriptionImplementationI#subscribe(String, MessageFilterI,
+	 *      ReplayPosition, String)
+	 */
+	@Override
+	public void subscribe(String topic, MessageFilterI filter, ReplayPosition from, String inboundPortURI)
+			throws Exception {
+		this.mop.subscribe(topic, filter, from, inboundPortURI);
+	}
+
 	/**
 	 * @see interfaces.SubscriptionImplementationI#modifyFilter(String,
 	 *      MessageFilterI, String)
@@ -215,6 +232,15 @@ public class SubscriberPlugin extends AbstractPlugin
 		this.mop.createTopic(topic);
 	}
 
+	/**
+	 * @see interfaces.ManagementImplementationI#createTopic(String,
+	 *      RetentionPolicy)
+	 */
+	@Override
+	public void createTopic(String topic, RetentionPolicy retentionPolicy) throws Exception {
+		this.mop.createTopic(topic, retentionPolicy);
+	}
+
 	/**
 	 * @see interfaces.ManagementImplementationI#createTopics(String[])
 	 */
@@ -255,4 +281,28 @@ public class SubscriberPlugin extends AbstractPlugin
 		return this.mop.getPublicationPortURI();
 	}
 
+	/**
+	 * @see interfaces.ManagementImplementationI#getOffHeapUsage()
+	 */
+	@Override
+	public OffHeapUsage getOffHeapUsage() throws Exception {
+		return this.mop.getOffHeapUsage();
+	}
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getPoolStats()
+	 */
+	@Override
+	public List<PoolStats> getPoolStats() throws Exception {
+		return this.mop.getPoolStats();
+	}
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getQueueDepths()
+	 */
+	@Override
+	public Map<String, Long> getQueueDepths() throws Exception {
+		return this.mop.getQueueDepths();
+	}
+
 }
@@ -0,0 +1,61 @@
+package port;
+
+import components.Broker;
+import fr.sorbonne_u.components.ComponentI;
+import fr.sorbonne_u.components.ports.AbstractInboundPort;
+import interfaces.InterestCI;
+import message.InterestUpdate;
+
+/**
+ * Port d'entrée du Broker pour l'interface composant InterestCI
+ * 
+ * @author Bello Velly
+ *
+ */
+public class BrokerInterestInboundPort extends AbstractInboundPort implements InterestCI {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * index du pool de thread sur lequel on va éxécuté les appels, les annonces passent
+	 * par la taille cible du pool @see Broker#runReceptionTask(Runnable)
+	 */
+	protected final int executorIndex;
+
+	/**
+	 * Constructeur de BrokerInterestInboundPort
+	 * 
+	 * @param uri           uri du port
+	 * @param executorIndex @see {@link #executorIndex}
+	 * @param owner         composant qui possède le port
+	 */
+	public BrokerInterestInboundPort(String uri, int executorIndex, ComponentI owner) throws Exception {
+		super(uri, InterestCI.class, owner);
+		assert owner instanceof Broker;
+		this.executorIndex = executorIndex;
+	}
+
+	/**
+	 * @see interfaces.InterestImplementationI#advertise(InterestUpdate)
+	 */
+	@Override
+	public void advertise(InterestUpdate update) {
+		try {
+			runReceptionTask(owner -> ((Broker) owner).advertise(update));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Exécute une tache sur le pool de reception du Broker, limité à sa taille
+	 * cible @see components.AdaptivePool
+	 * 
+	 * @param task tache à exécuter
+	 */
+	private void runReceptionTask(ComponentI.FComponentTask task) throws Exception {
+		Broker broker = (Broker) this.getOwner();
+		broker.runReceptionTask(() -> task.run(broker));
+	}
+
+}
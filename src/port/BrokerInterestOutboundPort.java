@@ -0,0 +1,39 @@
+package port;
+
+import components.Broker;
+import fr.sorbonne_u.components.ComponentI;
+import fr.sorbonne_u.components.ports.AbstractOutboundPort;
+import interfaces.InterestCI;
+import interfaces.InterestImplementationI;
+import message.InterestUpdate;
+
+/**
+ * Port de sortie du Broker pour l'interface InterestCI, vers le Broker auquel
+ * il transmet ses messages
+ * 
+ * @author Bello Velly
+ *
+ */
+public class BrokerInterestOutboundPort extends AbstractOutboundPort implements InterestCI {
+
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructeur de BrokerInterestOutboundPort
+	 * 
+	 * @param owner composant qui possède le port
+	 */
+	public BrokerInterestOutboundPort(ComponentI owner) throws Exception {
+		super(InterestCI.class, owner);
+		assert owner instanceof Broker;
+	}
+
+	/**
+	 * @see interfaces.InterestImplementationI#advertise(InterestUpdate)
+	 */
+	@Override
+	public void advertise(InterestUpdate update) throws Exception {
+		((InterestImplementationI) this.connector).advertise(update);
+	}
+
+}
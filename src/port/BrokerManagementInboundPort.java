@@ -1,10 +1,17 @@
 package port;
 
+import java.util.List;
+import java.util.Map;
+
 import components.Broker;
 import fr.sorbonne_u.components.ComponentI;
 import fr.sorbonne_u.components.ports.AbstractInboundPort;
 import interfaces.ManagementCI;
 import interfaces.MessageFilterI;
+import message.OffHeapUsage;
+import message.PoolStats;
+import message.ReplayPosition;
+import message.RetentionPolicy;
 
 /**
  * Port d'entrée du Broker pour l'interface composant ManagementCI
@@ -49,6 +56,19 @@ public class BrokerManagementInboundPort extends AbstractInboundPort implements
 		}
 	}
 
+	/**
+	 * @see interfaces.ManagementImplementationI#createTopic(String,
+	 *      RetentionPolicy)
+	 */
+	@Override
+	public void createTopic(String topic, RetentionPolicy retentionPolicy) {
+		try {
+			this.getOwner().runTask(executorIndex, owner -> ((Broker) owner).createTopic(topic, retentionPolicy));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
 	/**
 	 * @see interfaces.ManagementImplementationI#createTopics(String[])
 	 */
@@ -107,6 +127,30 @@ public class BrokerManagementInboundPort extends AbstractInboundPort implements
 		return this.getOwner().handleRequestSync(executorIndex, owner -> ((Broker) owner).getPublicationPortURI());
 	}
 
+	/**
+	 * @see interfaces.ManagementImplementationI#getOffHeapUsage()
+	 */
+	@Override
+	public OffHeapUsage getOffHeapUsage() throws Exception {
+		return this.getOwner().handleRequestSync(executorIndex, owner -> ((Broker) owner).getOffHeapUsage());
+	}
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getPoolStats()
+	 */
+	@Override
+	public List<PoolStats> getPoolStats() throws Exception {
+		return this.getOwner().handleRequestSync(executorIndex, owner -> ((Broker) owner).getPoolStats());
+	}
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getQueueDepths()
+	 */
+	@Override
+	public Map<String, Long> getQueueDepths() throws Exception {
+		return this.getOwner().handleRequestSync(executorIndex, owner -> ((Broker) owner).getQueueDepths());
+	}
+
 	/**
 	 * @see interfaces.SubscriptionImplementationI#subscribe(String, String)
 	 */
@@ -144,6 +188,20 @@ public class BrokerManagementInboundPort extends AbstractInboundPort implements
 		}
 	}
 
+	/**
+	 * @see interfaces.SubscriptionImplementationI#subscribe(String, MessageFilterI,
+	 *      ReplayPosition, String)
+	 */
+	@Override
+	public void subscribe(String topic, MessageFilterI filter, ReplayPosition from, String inboundPortURI) {
+		try {
+			this.getOwner().runTask(executorIndex,
+					owner -> ((Broker) owner).subscribe(topic, filter, from, inboundPortURI));
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
 	/**
 	 * @see interfaces.SubscriptionImplementationI#modifyFilter(String,
 	 *      MessageFilterI, String)
@@ -1,10 +1,17 @@
 package port;
 
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
 import components.Broker;
 import fr.sorbonne_u.components.ComponentI;
 import fr.sorbonne_u.components.ports.AbstractInboundPort;
 import interfaces.MessageI;
 import interfaces.PublicationCI;
+import message.BatchCodec;
+import message.BatchCodec.Batch;
+import message.PublishAck;
+import message.PublishTracker;
 
 /**
  * Port d'entrée du Broker pour l'interface composant PublicationCI
@@ -17,7 +24,8 @@ public class BrokerPublicationInboundPort extends AbstractInboundPort implements
 	private static final long serialVersionUID = 1L;
 
 	/**
-	 * index du pool de thread sur lequel on va éxécuté les appels
+	 * index du pool de thread sur lequel on va éxécuté les appels, les publications passent
+	 * par la taille cible du pool @see Broker#runReceptionTask(Runnable)
 	 */
 	protected final int executorIndex;
 
@@ -40,7 +48,7 @@ public class BrokerPublicationInboundPort extends AbstractInboundPort implements
 	@Override
 	public void publish(MessageI m, String topic) {
 		try {
-			this.getOwner().runTask(executorIndex, owner -> ((Broker) owner).publish(m, topic));
+			runReceptionTask(owner -> ((Broker) owner).publish(m, topic));
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -52,7 +60,7 @@ public class BrokerPublicationInboundPort extends AbstractInboundPort implements
 	@Override
 	public void publish(MessageI m, String[] topics) {
 		try {
-			this.getOwner().runTask(executorIndex, owner -> ((Broker) owner).publish(m, topics));
+			runReceptionTask(owner -> ((Broker) owner).publish(m, topics));
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -64,7 +72,7 @@ public class BrokerPublicationInboundPort extends AbstractInboundPort implements
 	@Override
 	public void publish(MessageI[] ms, String topic) {
 		try {
-			this.getOwner().runTask(executorIndex, owner -> ((Broker) owner).publish(ms, topic));
+			runReceptionTask(owner -> ((Broker) owner).publish(ms, topic));
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -76,10 +84,72 @@ public class BrokerPublicationInboundPort extends AbstractInboundPort implements
 	@Override
 	public void publish(MessageI[] ms, String[] topics) {
 		try {
-			this.getOwner().runTask(executorIndex, owner -> ((Broker) owner).publish(ms, topics));
+			runReceptionTask(owner -> ((Broker) owner).publish(ms, topics));
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 	}
 
+	/**
+	 * Le lot est décodé par le pool de threads du Broker
+	 * 
+	 * @see interfaces.PublicationCI#publishBatch(byte[])
+	 */
+	@Override
+	public void publishBatch(byte[] batch) {
+		try {
+			runReceptionTask(owner -> {
+				try {
+					Batch b = BatchCodec.decode(batch);
+					((Broker) owner).publish(b.messages, b.topics);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			});
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Au niveau ACCEPTED, l'appel rend la main dès que la publication est confiée
+	 * au Broker. Sinon le thread appelant attend l'acquittement, les threads du
+	 * Broker ne sont pas bloqués, au plus le délai @see Broker#getAckTimeout()
+	 * 
+	 * @see interfaces.PublicationCI#publishAcknowledged(MessageI[], String[],
+	 *      PublishAck.Level)
+	 */
+	@Override
+	public PublishAck publishAcknowledged(MessageI[] ms, String[] topics, PublishAck.Level level) throws Exception {
+		if (level == PublishAck.Level.ACCEPTED) {
+			runReceptionTask(owner -> ((Broker) owner).publish(ms, topics));
+			return new PublishAck(level, -1, 0, 0);
+		}
+		PublishTracker tracker = new PublishTracker(level);
+		runReceptionTask(owner -> ((Broker) owner).publish(ms, topics, tracker));
+		try {
+			return tracker.getAcknowledgement().get(((Broker) this.getOwner()).getAckTimeout(),
+					TimeUnit.MILLISECONDS);
+		} catch (TimeoutException e) {
+			tracker.fail(e);
+			throw e;
+		}
+	}
+
+	/**
+	 * Exécute une tache sur le pool de reception du Broker, limité à sa taille
+	 * cible @see components.AdaptivePool. Si le Broker a un pipeline des
+	 * publications, la tache est exécutée par le thread appelant : elle ne fait
+	 * que déposer la publication dans l'anneau @see Broker#hasPipeline()
+	 * 
+	 * @param task tache à exécuter
+	 */
+	private void runReceptionTask(ComponentI.FComponentTask task) throws Exception {
+		Broker broker = (Broker) this.getOwner();
+		if (broker.hasPipeline())
+			task.run(broker);
+		else
+			broker.runReceptionTask(() -> task.run(broker));
+	}
+
 }
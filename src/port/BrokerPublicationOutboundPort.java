@@ -5,6 +5,7 @@ import fr.sorbonne_u.components.ports.AbstractOutboundPort;
 import interfaces.MessageI;
 import interfaces.PublicationCI;
 import interfaces.PublicationsImplementationI;
+import message.PublishAck;
 
 public class BrokerPublicationOutboundPort extends AbstractOutboundPort implements PublicationCI {
 
@@ -61,4 +62,21 @@ public class BrokerPublicationOutboundPort extends AbstractOutboundPort implemen
 		((PublicationsImplementationI) this.connector).publish(ms, topics);
 	}
 
+	/**
+	 * @see interfaces.PublicationCI#publishBatch(byte[])
+	 */
+	@Override
+	public void publishBatch(byte[] batch) throws Exception {
+		((PublicationCI) this.connector).publishBatch(batch);
+	}
+
+	/**
+	 * @see interfaces.PublicationCI#publishAcknowledged(MessageI[], String[],
+	 *      PublishAck.Level)
+	 */
+	@Override
+	public PublishAck publishAcknowledged(MessageI[] ms, String[] topics, PublishAck.Level level) throws Exception {
+		return ((PublicationCI) this.connector).publishAcknowledged(ms, topics, level);
+	}
+
 }
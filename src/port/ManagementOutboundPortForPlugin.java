@@ -1,11 +1,18 @@
 package port;
 
+import java.util.List;
+import java.util.Map;
+
 import fr.sorbonne_u.components.ComponentI;
 import fr.sorbonne_u.components.ports.AbstractOutboundPort;
 import interfaces.ManagementCI;
 import interfaces.ManagementImplementationI;
 import interfaces.MessageFilterI;
 import interfaces.SubscriptionImplementationI;
+import message.OffHeapUsage;
+import message.PoolStats;
+import message.ReplayPosition;
+import message.RetentionPolicy;
 
 /**
  * Port sortant Management pour Plugin
@@ -45,6 +52,15 @@ public class ManagementOutboundPortForPlugin extends AbstractOutboundPort implem
 		((ManagementImplementationI) this.connector).createTopic(topic);
 	}
 
+	/**
+	 * @see interfaces.ManagementImplementationI#createTopic(String,
+	 *      RetentionPolicy)
+	 */
+	@Override
+	public void createTopic(String topic, RetentionPolicy retentionPolicy) throws Exception {
+		((ManagementImplementationI) this.connector).createTopic(topic, retentionPolicy);
+	}
+
 	/**
 	 * @see interfaces.ManagementImplementationI#createTopics(String[])
 	 */
@@ -85,6 +101,30 @@ public class ManagementOutboundPortForPlugin extends AbstractOutboundPort implem
 		return ((ManagementImplementationI) this.connector).getPublicationPortURI();
 	}
 
+	/**
+	 * @see interfaces.ManagementImplementationI#getOffHeapUsage()
+	 */
+	@Override
+	public OffHeapUsage getOffHeapUsage() throws Exception {
+		return ((ManagementImplementationI) this.connector).getOffHeapUsage();
+	}
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getPoolStats()
+	 */
+	@Override
+	public List<PoolStats> getPoolStats() throws Exception {
+		return ((ManagementImplementationI) this.connector).getPoolStats();
+	}
+
+	/**
+	 * @see interfaces.ManagementImplementationI#getQueueDepths()
+	 */
+	@Override
+	public Map<String, Long> getQueueDepths() throws Exception {
+		return ((ManagementImplementationI) this.connector).getQueueDepths();
+	}
+
 	/**
 	 * @see interfaces.SubscriptionImplementationI#subscribe(String, String)
 	 */
@@ -110,6 +150,16 @@ public class ManagementOutboundPortForPlugin extends AbstractOutboundPort implem
 		((SubscriptionImplementationI) this.connector).subscribe(topic, filter, inboundPortURI);
 	}
 
+	/**
+	 * @see interfaces.SubscriptionImplementationI#subscribe(String, MessageFilterI,
+	 *      ReplayPosition, String)
+	 */
+	@Override
+	public void subscribe(String topic, MessageFilterI filter, ReplayPosition from, String inboundPortURI)
+			throws Exception {
+		((SubscriptionImplementationI) this.connector).subscribe(topic, filter, from, inboundPortURI);
+	}
+
 	/**
 	 * @see interfaces.SubscriptionImplementationI#modifyFilter(String,
 	 *      MessageFilterI, String)
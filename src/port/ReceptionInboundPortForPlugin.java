@@ -1,14 +1,22 @@
 package port;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import fr.sorbonne_u.components.AbstractComponent;
 import fr.sorbonne_u.components.ComponentI;
 import fr.sorbonne_u.components.ports.forplugins.AbstractInboundPortForPlugin;
 import interfaces.MessageI;
 import interfaces.ReceptionCI;
 import interfaces.ReceptionImplementationI;
+import message.AgingQueue;
+import message.Priority;
 
 /**
- * Port entrant de recepetion pour plugin
+ * Port entrant de recepetion pour plugin. Les messages reçus attendent une
+ * tache du composant dans une file ordonnée par priorité @see AgingQueue :
+ * chaque tache transmet au plugin le lot le plus prioritaire en attente au
+ * moment où elle s'exécute, et non celui reçu avec elle.
  * 
  * @author Bello Velly
  *
@@ -17,6 +25,9 @@ public class ReceptionInboundPortForPlugin extends AbstractInboundPortForPlugin
 
 	private static final long serialVersionUID = 1L;
 
+	// Lots reçus pas encore transmis au plugin, par priorité
+	private final AgingQueue<MessageI[]> pending = new AgingQueue<>(Priority.DEFAULT_AGING);
+
 	/**
 	 * Constructeur de ReceptionInboundPortForPlugin
 	 * 
@@ -45,15 +56,55 @@ public class ReceptionInboundPortForPlugin extends AbstractInboundPortForPlugin
 	 */
 	@Override
 	public void acceptMessage(MessageI m) throws Exception {
+		enqueue(new MessageI[] { m }, Priority.of(m));
+	}
+
+	/**
+	 * Un lot de messages de priorités différentes est découpé en un lot par
+	 * priorité, l'ordre des messages est conservé dans chaque lot
+	 * 
+	 * @see interfaces.ReceptionImplementationI#acceptMessage(MessageI[])
+	 */
+	@Override
+	public void acceptMessage(MessageI[] ms) throws Exception {
+		Priority first = ms.length == 0 ? Priority.NORMAL : Priority.of(ms[0]);
+		Priority[] priorities = new Priority[ms.length];
+		boolean mixed = false;
+		for (int i = 0; i < ms.length; i++) {
+			priorities[i] = Priority.of(ms[i]);
+			mixed |= priorities[i] != first;
+		}
+		if (!mixed) {
+			enqueue(ms, first);
+			return;
+		}
+		Priority[] values = Priority.values();
+		for (int rank = values.length - 1; rank >= 0; rank--) {
+			List<MessageI> batch = new ArrayList<>();
+			for (int i = 0; i < ms.length; i++)
+				if (priorities[i] == values[rank])
+					batch.add(ms[i]);
+			if (!batch.isEmpty())
+				enqueue(batch.toArray(new MessageI[0]), values[rank]);
+		}
+	}
+
+	/**
+	 * Met un lot en attente et lance une tache qui transmet au plugin le lot le
+	 * plus prioritaire en attente, qui n'est pas forcément celui-ci
+	 * 
+	 * @param ms       messages du lot
+	 * @param priority priorité des messages du lot
+	 */
+	protected void enqueue(MessageI[] ms, Priority priority) {
+		synchronized (pending) {
+			pending.add(ms, priority, System.nanoTime() / 1000000);
+		}
 		try {
 			this.owner.runTask(new AbstractComponent.AbstractTask(this.pluginURI) {
 				@Override
 				public void run() {
-					try {
-						((ReceptionImplementationI) this.getTaskProviderReference()).acceptMessage(m);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
+					deliverNext((ReceptionImplementationI) this.getTaskProviderReference());
 				}
 			});
 		} catch (Exception e) {
@@ -62,21 +113,22 @@ public class ReceptionInboundPortForPlugin extends AbstractInboundPortForPlugin
 	}
 
 	/**
-	 * @see interfaces.ReceptionImplementationI#acceptMessage(MessageI[])
+	 * Transmet au plugin le lot le plus prioritaire en attente
+	 * 
+	 * @param plugin plugin qui reçoit les messages
 	 */
-	@Override
-	public void acceptMessage(MessageI[] ms) throws Exception {
+	private void deliverNext(ReceptionImplementationI plugin) {
+		MessageI[] ms;
+		synchronized (pending) {
+			ms = pending.poll(System.nanoTime() / 1000000);
+		}
+		if (ms == null)
+			return;
 		try {
-			this.owner.runTask(new AbstractComponent.AbstractTask(this.pluginURI) {
-				@Override
-				public void run() {
-					try {
-						((ReceptionImplementationI) this.getTaskProviderReference()).acceptMessage(ms);
-					} catch (Exception e) {
-						e.printStackTrace();
-					}
-				}
-			});
+			if (ms.length == 1)
+				plugin.acceptMessage(ms[0]);
+			else
+				plugin.acceptMessage(ms);
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
@@ -11,6 +11,11 @@ import org.junit.runners.Suite.SuiteClasses;
  *
  */
 @RunWith(Suite.class)
-@SuiteClasses({ TestMessage.class, TestProperties.class, TestTimeStamp.class, TestTopic.class })
+@SuiteClasses({ TestMessage.class, TestProperties.class, TestTimeStamp.class, TestTopic.class,
+		TestMappedLogTopicStorage.class, TestSubscriberQueue.class, TestPropertyFilter.class, TestFilterIndex.class,
+		TestSubscriptionTrie.class, TestRemoteInterest.class, TestSeenCache.class, TestBrokerTopology.class,
+		TestPeerBatcher.class, TestBatchCodec.class, TestPropertyKey.class, TestMessageFactory.class,
+		TestBinaryPayload.class, TestOffHeapTopicStorage.class, TestAgingQueue.class,
+		TestAdaptivePool.class, TestRingBuffer.class, TestPublishTracker.class })
 public class RunTests {
 }
@@ -0,0 +1,117 @@
+package tets;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import components.AdaptivePool;
+
+/**
+ * Tests pour la classe AdaptivePool
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestAdaptivePool {
+
+	// Taches en cours d'exécution
+	private final AtomicInteger active = new AtomicInteger();
+	// Plus grand nombre de taches exécutées en même temps
+	private final AtomicInteger maxActive = new AtomicInteger();
+
+	/**
+	 * Créer un pool dont chaque tache soumise reçoit un nouveau thread
+	 * 
+	 * @param initial  taille cible initiale
+	 * @param max      taille cible maximum
+	 * @param adaptive vrai si la taille cible varie
+	 * @return le pool
+	 */
+	private static AdaptivePool pool(int initial, int max, boolean adaptive) {
+		return new AdaptivePool("test", initial, 1, max, adaptive, task -> new Thread(task).start());
+	}
+
+	/**
+	 * Créer une tache qui attend un signal
+	 * 
+	 * @param release signal qui termine la tache
+	 * @return la tache
+	 */
+	private Runnable blocking(CountDownLatch release) {
+		return () -> {
+			maxActive.accumulateAndGet(active.incrementAndGet(), Math::max);
+			try {
+				release.await();
+			} catch (InterruptedException e) {
+				e.printStackTrace();
+			}
+			active.decrementAndGet();
+		};
+	}
+
+	/**
+	 * Attend que le pool ait exécuté un nombre de taches
+	 * 
+	 * @param pool      pool
+	 * @param completed nombre de taches attendu
+	 */
+	private static void awaitCompleted(AdaptivePool pool, long completed) throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000;
+		while (pool.getStats().getCompleted() < completed && System.currentTimeMillis() < deadline)
+			Thread.sleep(5);
+		Assert.assertEquals(completed, pool.getStats().getCompleted());
+	}
+
+	/**
+	 * Le nombre de taches exécutées en même temps ne dépasse pas la taille cible
+	 * 
+	 * @see components.AdaptivePool#submit(Runnable)
+	 */
+	@Test
+	public void limit() throws Exception {
+		AdaptivePool pool = pool(2, 2, false);
+		CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < 10; i++)
+			pool.submit(blocking(release));
+		Thread.sleep(50);
+		Assert.assertEquals(2, pool.getStats().getRunning());
+		Assert.assertEquals(8, pool.getStats().getPending());
+		Assert.assertFalse(pool.adjust());
+		release.countDown();
+		awaitCompleted(pool, 10);
+		Assert.assertEquals(2, maxActive.get());
+		Assert.assertEquals(0, pool.getStats().getRunning());
+	}
+
+	/**
+	 * La taille cible grandit quand des taches attendent, puis diminue quand les
+	 * threads restent inoccupés
+	 * 
+	 * @see components.AdaptivePool#adjust()
+	 */
+	@Test
+	public void adjust() throws Exception {
+		AdaptivePool pool = pool(1, 8, true);
+		CountDownLatch release = new CountDownLatch(1);
+		for (int i = 0; i < 20; i++)
+			pool.submit(blocking(release));
+		Thread.sleep(20);
+		while (pool.adjust())
+			;
+		Assert.assertEquals(8, pool.getTarget());
+		Thread.sleep(50);
+		Assert.assertEquals(8, active.get());
+		Assert.assertEquals(12, pool.getStats().getPending());
+		release.countDown();
+		awaitCompleted(pool, 20);
+		// la période où les taches ont été exécutées, puis les périodes inoccupées
+		Assert.assertFalse(pool.adjust());
+		while (pool.adjust())
+			;
+		Assert.assertEquals(1, pool.getTarget());
+		Assert.assertEquals(8, maxActive.get());
+	}
+
+}
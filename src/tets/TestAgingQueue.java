@@ -0,0 +1,83 @@
+package tets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import message.AgingQueue;
+import message.Priority;
+
+/**
+ * Tests pour la classe AgingQueue
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestAgingQueue {
+
+	/**
+	 * Sans vieillissement, les priorités sont strictes et l'ordre d'arrivée est
+	 * conservé dans chaque priorité
+	 * 
+	 * @see message.AgingQueue#poll(long)
+	 */
+	@Test
+	public void strict() {
+		AgingQueue<String> queue = new AgingQueue<>(0);
+		for (int i = 0; i < 40; i++)
+			queue.add("l" + i, Priority.LOW, i);
+		queue.add("u0", Priority.URGENT, 100);
+		queue.add("n0", Priority.NORMAL, 100);
+		queue.add("u1", Priority.URGENT, 101);
+		Assert.assertEquals(43, queue.size());
+		Assert.assertEquals(2, queue.size(Priority.URGENT));
+		Assert.assertEquals("u0", queue.poll(1000));
+		Assert.assertEquals("u1", queue.poll(1000));
+		Assert.assertEquals("n0", queue.poll(1000));
+		for (int i = 0; i < 40; i++)
+			Assert.assertEquals("l" + i, queue.poll(1000));
+		Assert.assertNull(queue.poll(1000));
+		Assert.assertTrue(queue.isEmpty());
+	}
+
+	/**
+	 * Un message qui attend assez longtemps passe devant les messages plus
+	 * prioritaires arrivés après lui
+	 * 
+	 * @see message.AgingQueue#poll(long)
+	 */
+	@Test
+	public void aging() {
+		AgingQueue<String> queue = new AgingQueue<>(10);
+		queue.add("l0", Priority.LOW, 0);
+		queue.add("h0", Priority.HIGH, 5);
+		// score de l0 : 0 + 15, score de h0 : 20 + 10
+		Assert.assertEquals("h0", queue.poll(15));
+		queue.add("h1", Priority.HIGH, 30);
+		// score de l0 : 0 + 35, score de h1 : 20 + 5
+		Assert.assertEquals("l0", queue.poll(35));
+		Assert.assertEquals("h1", queue.poll(35));
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.AgingQueue#pollLowest()
+	 * @see message.AgingQueue#lowest()
+	 */
+	@Test
+	public void pollLowest() {
+		AgingQueue<String> queue = new AgingQueue<>(10);
+		Assert.assertNull(queue.lowest());
+		queue.add("h0", Priority.HIGH, 0);
+		queue.add("n0", Priority.NORMAL, 1);
+		queue.add("n1", Priority.NORMAL, 2);
+		Assert.assertEquals(Priority.NORMAL, queue.lowest());
+		Assert.assertEquals("n0", queue.pollLowest());
+		Assert.assertEquals("n1", queue.pollLowest());
+		Assert.assertEquals(Priority.HIGH, queue.lowest());
+		queue.clear();
+		Assert.assertNull(queue.pollLowest());
+		Assert.assertEquals(0, queue.size());
+	}
+
+}
@@ -0,0 +1,193 @@
+package tets;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import interfaces.MessageI;
+import message.BatchCodec;
+import message.BatchCodec.Batch;
+import message.Lz4Block;
+import message.Message;
+import message.Properties;
+
+/**
+ * Tests pour les classes BatchCodec et Lz4Block
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestBatchCodec {
+
+	/**
+	 * Créer un lot de messages avec des propriétés et contenus de tous les types
+	 * 
+	 * @return les messages
+	 */
+	private static MessageI[] messages() {
+		Properties p = new Properties();
+		p.putProp("b", true);
+		p.putProp("y", (byte) -3);
+		p.putProp("c", 'é');
+		p.putProp("d", 1.5);
+		p.putProp("f", 2.5f);
+		p.putProp("i", -42);
+		p.putProp("l", Long.MIN_VALUE);
+		p.putProp("s", (short) 7);
+		p.putProp("str", "valeur");
+		return new MessageI[] { new Message(p, "contenu"), new Message(null, null),
+				new Message(p, new byte[] { 1, 2, 3 }), new Message(null, new int[] { 4, 5 }).setOrigin("broker0") };
+	}
+
+	/**
+	 * Vérifie qu'un lot décodé est identique au lot encodé
+	 * 
+	 * @param ms       messages encodés
+	 * @param topics   topics encodés
+	 * @param compress true si le lot est compressé
+	 */
+	private static void assertRoundTrip(MessageI[] ms, String[] topics, boolean compress) throws Exception {
+		Batch b = BatchCodec.decode(BatchCodec.encode(ms, topics, compress));
+		Assert.assertArrayEquals(topics, b.topics);
+		Assert.assertEquals(ms.length, b.messages.length);
+		for (int i = 0; i < ms.length; i++) {
+			MessageI expected = ms[i], actual = b.messages[i];
+			Assert.assertEquals(expected.getURI(), actual.getURI());
+			Assert.assertEquals(expected.getOrigin(), actual.getOrigin());
+			Assert.assertEquals(expected.getTimeStamp().getTime(), actual.getTimeStamp().getTime());
+			Assert.assertEquals(expected.getTimeStamp().getTimeStamper(), actual.getTimeStamp().getTimeStamper());
+			Assert.assertTrue(Arrays.deepEquals(new Object[] { expected.getPayload() },
+					new Object[] { actual.getPayload() }));
+			if (expected.getProperties() == null) {
+				Assert.assertNull(actual.getProperties());
+			} else {
+				for (String name : new String[] { "b", "y", "c", "d", "f", "i", "l", "s", "str" })
+					Assert.assertEquals(expected.getProperties().getProp(name), actual.getProperties().getProp(name));
+			}
+		}
+	}
+
+	/**
+	 * Renvoie la taille d'un message sérialisé
+	 * 
+	 * @param m message à sérialiser
+	 * @return la taille en octets
+	 */
+	private static int serializedSize(MessageI m) throws Exception {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		try (ObjectOutputStream oos = new ObjectOutputStream(out)) {
+			oos.writeObject(m);
+		}
+		return out.size();
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.BatchCodec#decode(byte[])
+	 */
+	@Test
+	public void roundTrip() throws Exception {
+		String[] topics = { "t1", "t2" };
+		assertRoundTrip(messages(), topics, false);
+		assertRoundTrip(messages(), topics, true);
+		assertRoundTrip(new MessageI[0], new String[0], true);
+	}
+
+	/**
+	 * Le lot encodé est plus petit que les messages sérialisés, et plus petit
+	 * encore une fois compressé
+	 * 
+	 * @see message.BatchCodec#encode(MessageI[], String[], boolean)
+	 */
+	@Test
+	public void size() throws Exception {
+		MessageI[] ms = new MessageI[100];
+		for (int i = 0; i < ms.length; i++) {
+			Properties p = new Properties();
+			p.putProp("temperature", i);
+			ms[i] = new Message(p, "mesure numéro " + i);
+		}
+		int binary = BatchCodec.encode(ms, new String[] { "capteurs" }, false).length;
+		int compressed = BatchCodec.encode(ms, new String[] { "capteurs" }, true).length;
+		int serialized = 0;
+		for (MessageI m : ms)
+			serialized += serializedSize(m);
+		Assert.assertTrue(binary < serialized / 2);
+		Assert.assertTrue(compressed < binary);
+	}
+
+	/**
+	 * Un lot invalide est refusé
+	 * 
+	 * @see message.BatchCodec#decode(byte[])
+	 */
+	@Test(expected = IOException.class)
+	public void invalid() throws Exception {
+		byte[] data = BatchCodec.encode(messages(), new String[] { "t" }, true);
+		BatchCodec.decode(Arrays.copyOf(data, data.length / 2));
+	}
+
+	/**
+	 * Un lot dont la taille décompressée dépasse ce que ses octets peuvent
+	 * contenir est refusé avant d'être alloué
+	 * 
+	 * @see message.BatchCodec#decode(byte[])
+	 */
+	@Test(expected = IOException.class)
+	public void invalidLength() throws Exception {
+		BatchCodec.decode(new byte[] { 'B', 1, 1, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0 });
+	}
+
+	/**
+	 * Un lot qui annonce plus de topics que ses octets peuvent contenir est refusé
+	 * 
+	 * @see message.BatchCodec#decode(byte[])
+	 */
+	@Test(expected = IOException.class)
+	public void invalidTopicCount() throws Exception {
+		BatchCodec.decode(new byte[] { 'B', 1, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07 });
+	}
+
+	/**
+	 * Un lot qui annonce plus de messages que ses octets peuvent contenir est
+	 * refusé
+	 * 
+	 * @see message.BatchCodec#decode(byte[])
+	 */
+	@Test(expected = IOException.class)
+	public void invalidMessageCount() throws Exception {
+		BatchCodec.decode(
+				new byte[] { 'B', 1, 0, 0, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, (byte) 0xFF, 0x07, 0, 0, 0 });
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.Lz4Block#decompress(byte[], int, int, byte[], int, int)
+	 */
+	@Test
+	public void lz4() {
+		Random random = new Random(1);
+		byte[] noise = new byte[5000];
+		random.nextBytes(noise);
+		byte[] repeated = new byte[70000];
+		for (int i = 0; i < repeated.length; i++)
+			repeated[i] = (byte) "abcabcabd".charAt(i % 9);
+		for (byte[] src : new byte[][] { new byte[0], "court".getBytes(), noise, repeated }) {
+			byte[] compressed = new byte[Lz4Block.maxCompressedLength(src.length)];
+			int n = Lz4Block.compress(src, 0, src.length, compressed, 0);
+			byte[] res = new byte[src.length];
+			Lz4Block.decompress(compressed, 0, n, res, 0, src.length);
+			Assert.assertArrayEquals(src, res);
+			if (src == repeated)
+				Assert.assertTrue(n < src.length / 50);
+		}
+	}
+
+}
@@ -0,0 +1,122 @@
+package tets;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import interfaces.MessageI;
+import message.BatchCodec;
+import message.BinaryPayload;
+import message.Message;
+
+/**
+ * Tests pour la classe BinaryPayload
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestBinaryPayload {
+
+	/**
+	 * Créer un buffer direct rempli d'octets croissants
+	 * 
+	 * @param size taille du buffer
+	 * @return le buffer, en position 0
+	 */
+	private static ByteBuffer direct(int size) {
+		ByteBuffer b = ByteBuffer.allocateDirect(size);
+		for (int i = 0; i < size; i++)
+			b.put((byte) i);
+		b.flip();
+		return b;
+	}
+
+	/**
+	 * Les vues partagent la mémoire du buffer et ne le modifient pas
+	 * 
+	 * @see message.BinaryPayload#slice(int, int)
+	 */
+	@Test
+	public void slice() {
+		byte[] bytes = { 0, 1, 2, 3, 4, 5, 6, 7 };
+		BinaryPayload p = BinaryPayload.wrap(bytes, 2, 5);
+		Assert.assertEquals(5, p.size());
+		ByteBuffer view = p.slice(1, 3);
+		Assert.assertTrue(view.isReadOnly());
+		Assert.assertEquals(3, view.remaining());
+		Assert.assertEquals(3, view.get(0));
+		bytes[3] = 42;
+		Assert.assertEquals(42, view.get(0));
+		Assert.assertEquals(5, p.buffer().remaining());
+		try {
+			p.slice(3, 3);
+			Assert.fail("slice hors du contenu");
+		} catch (IndexOutOfBoundsException e) {
+		}
+
+		ByteBuffer b = direct(16);
+		b.position(4);
+		BinaryPayload d = new BinaryPayload(b);
+		Assert.assertEquals(4, b.position());
+		Assert.assertTrue(d.isDirect());
+		Assert.assertEquals(12, d.size());
+		Assert.assertEquals(4, d.buffer().get(0));
+	}
+
+	/**
+	 * Un contenu direct est transmis par la sérialisation des messages
+	 * 
+	 * @see message.BinaryPayload#writeExternal(java.io.ObjectOutput)
+	 */
+	@Test
+	public void serialization() throws Exception {
+		Message m = new Message(null, new BinaryPayload(direct(20000)));
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(m);
+		}
+		Assert.assertTrue(bytes.size() < 20000 + 500);
+		Message copy;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			copy = (Message) in.readObject();
+		}
+		Assert.assertEquals(m.getPayload(), copy.getPayload());
+		Assert.assertFalse(((BinaryPayload) copy.getPayload()).isDirect());
+	}
+
+	/**
+	 * Les contenus d'un lot décodé partagent le tableau du lot
+	 * 
+	 * @see message.BatchCodec#decode(byte[])
+	 */
+	@Test
+	public void batch() throws Exception {
+		byte[] content = new byte[64];
+		for (int i = 0; i < content.length; i++)
+			content[i] = (byte) (100 + i);
+		MessageI[] ms = { new Message(null, BinaryPayload.wrap(content)),
+				new Message(null, new BinaryPayload(direct(3))) };
+		for (boolean compress : new boolean[] { false, true }) {
+			byte[] data = BatchCodec.encode(ms, new String[] { "topic" }, compress);
+			MessageI[] res = BatchCodec.decode(data).messages;
+			Assert.assertEquals(ms[0].getPayload(), res[0].getPayload());
+			Assert.assertEquals(ms[1].getPayload(), res[1].getPayload());
+			if (!compress) {
+				// on cherche le contenu entier : ses octets au dessus de 127 ne peuvent pas
+				// apparaître dans les URIs ni les topics de l'entête
+				int at = 0;
+				while (!Arrays.equals(data, at, at + content.length, content, 0, content.length))
+					at++;
+				data[at] = 1;
+				Assert.assertEquals(1, ((BinaryPayload) res[0].getPayload()).slice(0, 1).get());
+			}
+		}
+	}
+
+}
@@ -0,0 +1,83 @@
+package tets;
+
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import components.BrokerTopology;
+import components.BrokerTopology.Kind;
+
+/**
+ * Tests pour la classe BrokerTopology
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestBrokerTopology {
+
+	/**
+	 * Créer une topologie de Brokers b0, b1 ...
+	 * 
+	 * @param kind forme de la topologie
+	 * @param n    nombre de Brokers
+	 * @return la topologie
+	 */
+	private static BrokerTopology topology(Kind kind, int n) {
+		String[] brokers = new String[n];
+		String[] pips = new String[n];
+		for (int i = 0; i < n; i++) {
+			brokers[i] = "b" + i;
+			pips[i] = "pip" + i;
+		}
+		return BrokerTopology.create(kind, brokers, pips);
+	}
+
+	/**
+	 * Chaque Broker reçoit un message une seule fois, quelle que soit son origine
+	 * 
+	 * @see components.BrokerTopology#nextHops(String, String)
+	 */
+	@Test
+	public void nextHops() {
+		for (Kind kind : Kind.values()) {
+			BrokerTopology topology = topology(kind, 7);
+			for (String origin : topology.getBrokers()) {
+				int received = 1;
+				for (String broker : topology.getBrokers())
+					received += topology.nextHops(broker, origin).size();
+				Assert.assertEquals(7, received);
+			}
+		}
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see components.BrokerTopology#hops(String, String)
+	 */
+	@Test
+	public void hops() {
+		Assert.assertEquals(6, topology(Kind.RING, 7).hops("b0", "b1"));
+		Assert.assertEquals(1, topology(Kind.MESH, 7).hops("b0", "b6"));
+		// b3 et b6 sont des feuilles de l'arbre binaire, de part et d'autre de b0
+		Assert.assertEquals(4, topology(Kind.TREE, 7).hops("b3", "b6"));
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see components.BrokerTopology#reachableThrough(String, String)
+	 */
+	@Test
+	public void reachableThrough() {
+		BrokerTopology topology = topology(Kind.TREE, 7);
+		Assert.assertEquals(List.of("b1", "b2"), topology.nextHops("b0", "b0"));
+		Assert.assertEquals(Set.of("b1", "b3", "b4"), topology.reachableThrough("b1", "b0"));
+		// depuis b3, b0 est atteint en passant par b1
+		Assert.assertEquals(List.of("b1"), topology.nextHops("b3", "b3"));
+		Assert.assertTrue(topology.reachableThrough("b0", "b3").containsAll(Set.of("b2", "b5", "b6")));
+	}
+
+}
@@ -0,0 +1,231 @@
+package tets;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import interfaces.MessageFilterI;
+import interfaces.MessageI;
+import message.FilterIndex;
+import message.Message;
+import message.Properties;
+import message.PropertyFilter;
+
+/**
+ * Tests pour la classe FilterIndex
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestFilterIndex {
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.FilterIndex#match(MessageI[])
+	 */
+	@Test
+	public void match() {
+		Map<String, MessageFilterI> subscriptions = new HashMap<String, MessageFilterI>();
+		subscriptions.put("all", null);
+		subscriptions.put("eq", new PropertyFilter().eq("type", "a"));
+		subscriptions.put("lambda", m -> false);
+		FilterIndex index = new FilterIndex(subscriptions);
+		Assert.assertEquals(1, index.getUnindexedCount());
+
+		Properties properties = new Properties();
+		properties.putProp("type", "a");
+		MessageI[] ms = { new Message(properties, "m1"), new Message(null, "m2") };
+		Map<String, List<MessageI>> res = index.match(ms);
+		Assert.assertEquals(2, res.size());
+		Assert.assertEquals(2, res.get("all").size());
+		Assert.assertEquals(1, res.get("eq").size());
+		Assert.assertEquals(ms[0], res.get("eq").get(0));
+	}
+
+	/**
+	 * Compare l'index au test de chaque filtre sur des filtres et des messages
+	 * aléatoires
+	 * 
+	 * @see message.FilterIndex#match(MessageI[])
+	 */
+	@Test
+	public void matchRandom() {
+		Random random = new Random(42);
+		String[] types = { "a", "b", "c", "d" };
+		Map<String, MessageFilterI> subscriptions = new HashMap<String, MessageFilterI>();
+		for (int i = 0; i < 200; i++) {
+			PropertyFilter filter = new PropertyFilter();
+			switch (i % 4) {
+			case 0:
+				filter.eq("type", types[random.nextInt(types.length)]);
+				break;
+			case 1:
+				filter.in("type", types[random.nextInt(types.length)], types[random.nextInt(types.length)]);
+				break;
+			case 2:
+				int min = random.nextInt(50);
+				filter.range("level", min, min + random.nextInt(50));
+				break;
+			default:
+				filter.eq("type", types[random.nextInt(types.length)]).range("level", null, random.nextInt(100));
+			}
+			subscriptions.put("s" + i, filter);
+		}
+		FilterIndex index = new FilterIndex(subscriptions);
+		Assert.assertEquals(0, index.getUnindexedCount());
+
+		MessageI[] ms = new MessageI[100];
+		for (int i = 0; i < ms.length; i++) {
+			Properties properties = new Properties();
+			properties.putProp("type", types[random.nextInt(types.length)]);
+			properties.putProp("level", random.nextInt(100));
+			ms[i] = new Message(properties, "m" + i);
+		}
+		Map<String, List<MessageI>> res = index.match(ms);
+		for (Map.Entry<String, MessageFilterI> subscription : subscriptions.entrySet()) {
+			List<MessageI> expected = new ArrayList<MessageI>();
+			for (MessageI m : ms)
+				if (subscription.getValue().filter(m))
+					expected.add(m);
+			List<MessageI> actual = res.get(subscription.getKey());
+			Assert.assertEquals(expected, actual == null ? new ArrayList<MessageI>() : actual);
+		}
+	}
+
+	/**
+	 * Compare l'index au test de chaque filtre sur des intervalles qui se
+	 * chevauchent, avec des bornes entières et décimales
+	 * 
+	 * @see message.FilterIndex#match(MessageI[])
+	 */
+	@Test
+	public void matchRanges() {
+		Random random = new Random(7);
+		Map<String, MessageFilterI> subscriptions = new HashMap<String, MessageFilterI>();
+		for (int i = 0; i < 500; i++) {
+			int min = random.nextInt(1000);
+			int max = min + random.nextInt(200);
+			switch (i % 4) {
+			case 0:
+				subscriptions.put("s" + i, new PropertyFilter().range("level", min, max));
+				break;
+			case 1:
+				subscriptions.put("s" + i, new PropertyFilter().range("level", min + 0.5, null));
+				break;
+			case 2:
+				subscriptions.put("s" + i, new PropertyFilter().range("level", null, (long) max));
+				break;
+			default:
+				// intervalle vide
+				subscriptions.put("s" + i, new PropertyFilter().range("level", max + 1, min));
+			}
+		}
+		FilterIndex index = new FilterIndex(subscriptions);
+
+		MessageI[] ms = new MessageI[300];
+		for (int i = 0; i < ms.length; i++) {
+			Properties properties = new Properties();
+			if (i % 3 == 0)
+				properties.putProp("level", random.nextInt(1300) - 100 + 0.5);
+			else
+				properties.putProp("level", random.nextInt(1300) - 100);
+			ms[i] = new Message(properties, "m" + i);
+		}
+		Map<String, List<MessageI>> res = index.match(ms);
+		for (Map.Entry<String, MessageFilterI> subscription : subscriptions.entrySet()) {
+			List<MessageI> expected = new ArrayList<MessageI>();
+			for (MessageI m : ms)
+				if (subscription.getValue().filter(m))
+					expected.add(m);
+			List<MessageI> actual = res.get(subscription.getKey());
+			Assert.assertEquals(expected, actual == null ? new ArrayList<MessageI>() : actual);
+		}
+	}
+
+	/**
+	 * Un index modifié abonné par abonné donne les mêmes résultats que l'index
+	 * construit avec tous les abonnés, et l'index de départ n'est pas modifié
+	 * 
+	 * @see message.FilterIndex#add(String, MessageFilterI)
+	 * @see message.FilterIndex#remove(String, MessageFilterI)
+	 */
+	@Test
+	public void update() {
+		Random random = new Random(3);
+		String[] types = { "a", "b", "c" };
+		Map<String, MessageFilterI> subscriptions = new HashMap<String, MessageFilterI>();
+		FilterIndex index = FilterIndex.EMPTY;
+		for (int i = 0; i < 300; i++) {
+			String subscriber = "s" + random.nextInt(60);
+			MessageFilterI previous = subscriptions.remove(subscriber);
+			if (previous != null)
+				index = index.remove(subscriber, previous);
+			if (random.nextInt(4) == 0)
+				continue;
+			MessageFilterI filter;
+			switch (random.nextInt(4)) {
+			case 0:
+				filter = new PropertyFilter().in("type", types[random.nextInt(3)], types[random.nextInt(3)]);
+				break;
+			case 1:
+				int min = random.nextInt(50);
+				filter = new PropertyFilter().range("level", min, min + random.nextInt(50));
+				break;
+			case 2:
+				filter = new PropertyFilter();
+				break;
+			default:
+				boolean accepted = random.nextBoolean();
+				filter = m -> accepted;
+			}
+			subscriptions.put(subscriber, filter);
+			index = index.add(subscriber, filter);
+		}
+		Assert.assertTrue(FilterIndex.EMPTY.match(new MessageI[] { new Message(null, "m") }).isEmpty());
+
+		MessageI[] ms = new MessageI[100];
+		for (int i = 0; i < ms.length; i++) {
+			Properties properties = new Properties();
+			properties.putProp("type", types[random.nextInt(types.length)]);
+			properties.putProp("level", random.nextInt(100));
+			ms[i] = new Message(properties, "m" + i);
+		}
+		Assert.assertEquals(new FilterIndex(subscriptions).match(ms), index.match(ms));
+	}
+
+	/**
+	 * Les grands entiers sont comparés exactement, sans être arrondis en décimal
+	 * 
+	 * @see message.FilterIndex#match(MessageI[])
+	 */
+	@Test
+	public void matchLongs() {
+		long big = (1L << 53) + 1;
+		Map<String, MessageFilterI> subscriptions = new HashMap<String, MessageFilterI>();
+		subscriptions.put("above", new PropertyFilter().range("id", big, null));
+		subscriptions.put("below", new PropertyFilter().range("id", null, big - 1));
+		subscriptions.put("exact", new PropertyFilter().range("id", big, big));
+		FilterIndex index = new FilterIndex(subscriptions);
+
+		Properties properties = new Properties();
+		properties.putProp("id", big - 1);
+		MessageI[] ms = { new Message(properties, "m") };
+		Map<String, List<MessageI>> res = index.match(ms);
+		Assert.assertEquals(1, res.size());
+		Assert.assertTrue(res.containsKey("below"));
+
+		properties = new Properties();
+		properties.putProp("id", big);
+		ms[0] = new Message(properties, "m");
+		res = index.match(ms);
+		Assert.assertEquals(2, res.size());
+		Assert.assertTrue(res.containsKey("above") && res.containsKey("exact"));
+	}
+
+}
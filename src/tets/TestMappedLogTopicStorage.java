@@ -0,0 +1,148 @@
+package tets;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import interfaces.MessageI;
+import message.MappedLogTopicStorage;
+import message.Message;
+import message.RetentionPolicy;
+
+/**
+ * Tests pour la classe MappedLogTopicStorage
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestMappedLogTopicStorage {
+
+	// taille des segments, petite pour tester le passage d'un segment à l'autre
+	private static final int SEGMENT_SIZE = 4096;
+
+	private File directory;
+
+	@Before
+	public void setUp() throws Exception {
+		directory = Files.createTempDirectory("topic").toFile();
+	}
+
+	@After
+	public void tearDown() {
+		File[] files = directory.listFiles();
+		if (files != null)
+			for (File file : files)
+				file.delete();
+		directory.delete();
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.MappedLogTopicStorage#append(MessageI)
+	 * @see message.MappedLogTopicStorage#read(long, int)
+	 */
+	@Test
+	public void appendRead() throws Exception {
+		MappedLogTopicStorage storage = new MappedLogTopicStorage(directory, SEGMENT_SIZE, RetentionPolicy.UNLIMITED);
+		for (int i = 0; i < 100; i++)
+			Assert.assertEquals(i, storage.append(new Message(null, "m" + i)));
+		Assert.assertTrue(storage.getSegmentCount() > 1);
+		List<MessageI> res = storage.read(10, 50);
+		Assert.assertEquals(50, res.size());
+		for (int i = 0; i < res.size(); i++)
+			Assert.assertEquals("m" + (10 + i), res.get(i).getPayload());
+		storage.close();
+	}
+
+	/**
+	 * Test de la relecture des segments à l'ouverture
+	 * 
+	 * @see message.MappedLogTopicStorage#MappedLogTopicStorage(File, int,
+	 *      RetentionPolicy)
+	 */
+	@Test
+	public void recover() throws Exception {
+		MappedLogTopicStorage storage = new MappedLogTopicStorage(directory, SEGMENT_SIZE, RetentionPolicy.UNLIMITED);
+		for (int i = 0; i < 100; i++)
+			storage.append(new Message(null, "m" + i));
+		storage.close();
+
+		storage = new MappedLogTopicStorage(directory, SEGMENT_SIZE, RetentionPolicy.UNLIMITED);
+		Assert.assertEquals(0, storage.getFirstOffset());
+		Assert.assertEquals(100, storage.getNextOffset());
+		Assert.assertEquals(100, storage.append(new Message(null, "m100")));
+		List<MessageI> res = storage.read(0, Integer.MAX_VALUE);
+		Assert.assertEquals(101, res.size());
+		for (int i = 0; i < res.size(); i++)
+			Assert.assertEquals("m" + i, res.get(i).getPayload());
+		storage.close();
+	}
+
+	/**
+	 * Test de la rétention par nombre de messages
+	 * 
+	 * @see message.MappedLogTopicStorage#evict(long)
+	 */
+	@Test
+	public void retentionMaxCount() throws Exception {
+		MappedLogTopicStorage storage = new MappedLogTopicStorage(directory, SEGMENT_SIZE,
+				new RetentionPolicy(10, 0, 0));
+		for (int i = 0; i < 100; i++)
+			storage.append(new Message(null, "m" + i));
+		Assert.assertEquals(90, storage.getFirstOffset());
+		List<MessageI> res = storage.read(0, Integer.MAX_VALUE);
+		Assert.assertEquals(10, res.size());
+		Assert.assertEquals("m90", res.get(0).getPayload());
+		storage.close();
+	}
+
+	/**
+	 * Les messages supprimés par la politique de rétention ne sont pas relus à la
+	 * réouverture, même si leur segment est toujours présent
+	 * 
+	 * @see message.MappedLogTopicStorage#MappedLogTopicStorage(File, int,
+	 *      RetentionPolicy)
+	 */
+	@Test
+	public void recoverAfterRetention() throws Exception {
+		MappedLogTopicStorage storage = new MappedLogTopicStorage(directory, SEGMENT_SIZE,
+				new RetentionPolicy(10, 0, 0));
+		for (int i = 0; i < 100; i++)
+			storage.append(new Message(null, "m" + i));
+		storage.close();
+
+		storage = new MappedLogTopicStorage(directory, SEGMENT_SIZE, RetentionPolicy.UNLIMITED);
+		Assert.assertEquals(90, storage.getFirstOffset());
+		Assert.assertEquals(100, storage.getNextOffset());
+		List<MessageI> res = storage.read(0, Integer.MAX_VALUE);
+		Assert.assertEquals(10, res.size());
+		Assert.assertEquals("m90", res.get(0).getPayload());
+		storage.close();
+
+		// la politique est appliquée de nouveau à l'ouverture
+		storage = new MappedLogTopicStorage(directory, SEGMENT_SIZE, new RetentionPolicy(5, 0, 0));
+		Assert.assertEquals(95, storage.getFirstOffset());
+		storage.close();
+	}
+
+	/**
+	 * Test de la suppression des messages du journal
+	 * 
+	 * @see message.MappedLogTopicStorage#delete()
+	 */
+	@Test
+	public void delete() throws Exception {
+		MappedLogTopicStorage storage = new MappedLogTopicStorage(directory, SEGMENT_SIZE, RetentionPolicy.UNLIMITED);
+		for (int i = 0; i < 10; i++)
+			storage.append(new Message(null, "m" + i));
+		storage.delete();
+		Assert.assertFalse(directory.exists());
+	}
+
+}
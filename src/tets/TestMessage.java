@@ -1,7 +1,13 @@
 package tets;
 
-import static org.junit.Assert.assertFalse;
-import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.Arrays;
 
 import org.junit.Assert;
 import org.junit.Test;
@@ -65,39 +71,52 @@ public class TestMessage {
 	}
 
 	/**
-	 * Test de la méthode addBroker
+	 * Test des méthodes getOrigin et setOrigin
 	 * 
-	 * @see interfaces.MessageI#addBroker(String)
+	 * @see interfaces.MessageI#getOrigin()
+	 * @see interfaces.MessageI#setOrigin(String)
 	 */
 	@Test
-	public void addBroker() {
+	public void origin() {
 		MessageI m = new Message(null, "");
-		MessageI res = null;
 		String brokerUri = "brokertest";
 		try {
-			res = m.addBroker(brokerUri);
-			assertTrue(res.containsBroker(brokerUri));
+			assertNull(m.getOrigin());
+			assertEquals(m, m.setOrigin(brokerUri));
+			assertEquals(brokerUri, m.getOrigin());
 		} catch (Exception e) {
 			e.printStackTrace();
 		}
 	}
 
 	/**
-	 * Test de la méthode containsBroker
+	 * Un Message sérialisé puis désérialisé est identique
 	 * 
-	 * @see interfaces.MessageI#containsBroker(String)
+	 * @see message.Message#writeExternal(java.io.ObjectOutput)
+	 * @see message.Message#readExternal(java.io.ObjectInput)
 	 */
 	@Test
-	public void containsBroker() {
-		MessageI m = new Message(null, "");
-		MessageI res = null;
-		String brokerUri = "brokertest";
-		try {
-			res = m.addBroker(brokerUri);
-			assertTrue(res.containsBroker(brokerUri));
-			assertFalse(res.containsBroker("blabla"));
-		} catch (Exception e) {
-			e.printStackTrace();
+	public void serialization() throws Exception {
+		Properties properties = new Properties();
+		properties.putProp("i", 42);
+		properties.putProp("s", "valeur");
+		Message m = new Message(properties, new int[] { 1, 2 });
+		m.setOrigin("broker");
+
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(m);
+		}
+		Message copy;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			copy = (Message) in.readObject();
 		}
+		assertEquals(m.getURI(), copy.getURI());
+		assertEquals(m.getOrigin(), copy.getOrigin());
+		assertEquals(m.getTimeStamp().getTime(), copy.getTimeStamp().getTime());
+		assertEquals(m.getTimeStamp().getTimeStamper(), copy.getTimeStamp().getTimeStamper());
+		assertEquals(42, copy.getProperties().getIntProp("i"));
+		assertEquals("valeur", copy.getProperties().getStringProp("s"));
+		Assert.assertTrue(Arrays.equals(new int[] { 1, 2 }, (int[]) copy.getPayload()));
 	}
 }
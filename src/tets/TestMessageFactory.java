@@ -0,0 +1,78 @@
+package tets;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import message.Message;
+import message.MessageFactory;
+import message.Properties;
+
+/**
+ * Tests pour la classe MessageFactory
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestMessageFactory {
+
+	/**
+	 * Les URIs ont le préfixe du publieur et sont toutes différentes
+	 * 
+	 * @see message.MessageFactory#nextURI()
+	 */
+	@Test
+	public void uris() {
+		MessageFactory factory = new MessageFactory("publisher1");
+		Assert.assertTrue(factory.getPrefix().startsWith("publisher1."));
+		Set<String> uris = new HashSet<>();
+		for (int i = 0; i < 1000; i++) {
+			String uri = factory.create(null, i).getURI();
+			Assert.assertTrue(uri.startsWith(factory.getPrefix()));
+			Assert.assertTrue(uris.add(uri));
+		}
+		Assert.assertEquals(1000, factory.getCreated());
+		Assert.assertEquals(factory.getPrefix() + "rs", factory.nextURI());
+		Assert.assertFalse(new MessageFactory("publisher2").nextURI().startsWith(factory.getPrefix()));
+	}
+
+	/**
+	 * Les messages sont datés par l'horloge de la fabrique
+	 * 
+	 * @see message.MessageFactory#create(Properties, java.io.Serializable)
+	 */
+	@Test
+	public void clock() {
+		MessageFactory factory = new MessageFactory("publisher1", () -> 42);
+		Properties p = new Properties();
+		p.putProp("sequence", 1);
+		Message m = factory.create(p, "contenu");
+		Assert.assertEquals(42, m.getTimeStamp().getTime());
+		Assert.assertEquals(MessageFactory.localHost(), m.getTimeStamp().getTimeStamper());
+		Assert.assertTrue(m.getTimeStamp().isInitialized());
+		Assert.assertSame(p, m.getProperties());
+		Assert.assertEquals("contenu", m.getPayload());
+		Assert.assertNull(m.getOrigin());
+	}
+
+	/**
+	 * L'horloge monotone part de l'heure murale et ne recule pas
+	 * 
+	 * @see message.MessageFactory#monotonicClock()
+	 */
+	@Test
+	public void monotonicClock() {
+		long before = System.currentTimeMillis();
+		MessageFactory.Clock clock = MessageFactory.monotonicClock();
+		long last = clock.now();
+		Assert.assertTrue(Math.abs(last - before) < 1000);
+		for (int i = 0; i < 10000; i++) {
+			long now = clock.now();
+			Assert.assertTrue(now >= last);
+			last = now;
+		}
+	}
+
+}
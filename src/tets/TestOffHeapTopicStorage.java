@@ -0,0 +1,204 @@
+package tets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import interfaces.MessageI;
+import message.Message;
+import message.OffHeapArena;
+import message.OffHeapTopicStorage;
+import message.OffHeapUsage;
+import message.Properties;
+import message.RetentionPolicy;
+import message.Topic;
+
+/**
+ * Tests pour les classes OffHeapTopicStorage et OffHeapArena
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestOffHeapTopicStorage {
+
+	// taille des blocs, petite pour tester le passage d'un bloc à l'autre
+	private static final int CHUNK_SIZE = 4096;
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.OffHeapTopicStorage#append(MessageI)
+	 * @see message.OffHeapTopicStorage#read(long, int)
+	 */
+	@Test
+	public void appendRead() throws Exception {
+		OffHeapArena arena = new OffHeapArena(1024 * 1024, CHUNK_SIZE);
+		OffHeapTopicStorage storage = new OffHeapTopicStorage(arena, RetentionPolicy.UNLIMITED);
+		Properties p = new Properties();
+		p.putProp("i", 42);
+		for (int i = 0; i < 100; i++)
+			Assert.assertEquals(i, storage.append(new Message(p, "m" + i)));
+		Assert.assertTrue(storage.getChunkCount() > 1);
+		List<MessageI> res = storage.read(10, 50);
+		Assert.assertEquals(50, res.size());
+		for (int i = 0; i < res.size(); i++) {
+			Assert.assertEquals("m" + (10 + i), res.get(i).getPayload());
+			Assert.assertEquals(42, res.get(i).getProperties().getIntProp("i"));
+		}
+		OffHeapUsage usage = arena.getUsage();
+		Assert.assertEquals(storage.getRetainedBytes(), usage.getRetained());
+		Assert.assertEquals(storage.getChunkCount() * CHUNK_SIZE, usage.getAllocated());
+		storage.close();
+		Assert.assertEquals(0, arena.getUsage().getRetained());
+	}
+
+	/**
+	 * Les blocs dont tous les messages sont supprimés sont rendus à l'arène
+	 * 
+	 * @see message.OffHeapTopicStorage#evict(long)
+	 */
+	@Test
+	public void retentionMaxCount() throws Exception {
+		OffHeapArena arena = new OffHeapArena(1024 * 1024, CHUNK_SIZE);
+		OffHeapTopicStorage storage = new OffHeapTopicStorage(arena, new RetentionPolicy(10, 0, 0));
+		for (int i = 0; i < 1000; i++)
+			storage.append(new Message(null, "m" + i));
+		Assert.assertEquals(990, storage.getFirstOffset());
+		List<MessageI> res = storage.read(0, Integer.MAX_VALUE);
+		Assert.assertEquals(10, res.size());
+		Assert.assertEquals("m990", res.get(0).getPayload());
+		Assert.assertTrue(storage.getChunkCount() <= 2);
+		Assert.assertTrue(arena.getUsage().getAllocated() <= 3 * CHUNK_SIZE);
+		storage.close();
+	}
+
+	/**
+	 * Quand l'arène est pleine, les stockages suppriment leurs messages les plus
+	 * anciens sans dépasser la capacité
+	 * 
+	 * @see message.OffHeapArena#allocate(int)
+	 */
+	@Test
+	public void capacity() throws Exception {
+		OffHeapArena arena = new OffHeapArena(4 * CHUNK_SIZE, CHUNK_SIZE);
+		OffHeapTopicStorage first = new OffHeapTopicStorage(arena, RetentionPolicy.UNLIMITED);
+		OffHeapTopicStorage second = new OffHeapTopicStorage(arena, RetentionPolicy.UNLIMITED);
+		for (int i = 0; i < 2000; i++) {
+			first.append(new Message(null, "m" + i));
+			second.append(new Message(null, "m" + i));
+			Assert.assertTrue(arena.getUsage().getAllocated() <= 4 * CHUNK_SIZE);
+		}
+		Assert.assertEquals(2000, first.getNextOffset());
+		Assert.assertTrue(first.getFirstOffset() > 0);
+		List<MessageI> res = first.read(0, Integer.MAX_VALUE);
+		Assert.assertEquals(2000 - first.getFirstOffset(), res.size());
+		Assert.assertEquals("m1999", res.get(res.size() - 1).getPayload());
+
+		// un message plus grand que la mémoire libre n'est pas conservé
+		OffHeapTopicStorage third = new OffHeapTopicStorage(arena, RetentionPolicy.UNLIMITED);
+		Assert.assertEquals(0, third.append(new Message(null, new byte[2 * CHUNK_SIZE])));
+		Assert.assertEquals(1, third.getFirstOffset());
+		Assert.assertEquals(1, arena.getUsage().getDropped());
+		first.close();
+		second.close();
+		Assert.assertEquals(1, third.append(new Message(null, new byte[2 * CHUNK_SIZE])));
+		Assert.assertEquals(1, third.read(0, 10).size());
+		third.close();
+	}
+
+	/**
+	 * Un message plus grand que l'arène est perdu seul, les messages conservés
+	 * restent lisibles
+	 * 
+	 * @see message.OffHeapTopicStorage#append(MessageI)
+	 */
+	@Test
+	public void largerThanArena() throws Exception {
+		OffHeapArena arena = new OffHeapArena(16 * CHUNK_SIZE, CHUNK_SIZE);
+		OffHeapTopicStorage storage = new OffHeapTopicStorage(arena, RetentionPolicy.UNLIMITED);
+		for (int i = 0; i < 10; i++)
+			storage.append(new Message(null, "m" + i));
+		Assert.assertEquals(10, storage.append(new Message(null, new byte[50 * CHUNK_SIZE])));
+		Assert.assertEquals(0, storage.getFirstOffset());
+		Assert.assertEquals(11, storage.getNextOffset());
+		Assert.assertEquals(1, arena.getUsage().getDropped());
+		// le message perdu est sauté à la lecture, les suivants sont conservés
+		Assert.assertEquals(11, storage.append(new Message(null, "m11")));
+		List<MessageI> res = storage.read(0, Integer.MAX_VALUE);
+		Assert.assertEquals(11, res.size());
+		Assert.assertEquals("m0", res.get(0).getPayload());
+		Assert.assertEquals("m11", res.get(10).getPayload());
+		storage.close();
+	}
+
+	/**
+	 * Un rejeu par petits lots passe les messages perdus sans trou ni doublon :
+	 * l'offset renvoyé compte les messages perdus, un lot qui n'en contient que
+	 * ne termine pas le rejeu
+	 * 
+	 * @see message.Topic#readMessages(long, long, int, List)
+	 */
+	@Test
+	public void replayAcrossDropped() throws Exception {
+		OffHeapArena arena = new OffHeapArena(16 * CHUNK_SIZE, CHUNK_SIZE);
+		OffHeapTopicStorage storage = new OffHeapTopicStorage(arena, RetentionPolicy.UNLIMITED);
+		Topic topic = new Topic(storage);
+		for (int i = 0; i < 3; i++)
+			storage.append(new Message(null, "m" + i));
+		// les offsets 3 et 4 sont perdus
+		storage.append(new Message(null, new byte[50 * CHUNK_SIZE]));
+		storage.append(new Message(null, new byte[50 * CHUNK_SIZE]));
+		for (int i = 5; i < 8; i++)
+			storage.append(new Message(null, "m" + i));
+
+		List<MessageI> res = new ArrayList<>();
+		long offset = 0;
+		int batches = 0;
+		while (offset < 8) {
+			List<MessageI> batch = new ArrayList<>();
+			long next = topic.readMessages(offset, 8, 2, batch);
+			Assert.assertEquals(Math.min(offset + 2, 8), next);
+			res.addAll(batch);
+			offset = next;
+			batches++;
+		}
+		Assert.assertEquals(4, batches);
+		Assert.assertEquals(6, res.size());
+		String[] expected = { "m0", "m1", "m2", "m5", "m6", "m7" };
+		for (int i = 0; i < expected.length; i++)
+			Assert.assertEquals(expected[i], res.get(i).getPayload());
+		storage.close();
+	}
+
+	/**
+	 * Quand la mémoire de l'arène est tenue par d'autres topics, supprimer
+	 * l'historique du topic ne libérerait pas assez de place : seul le nouveau
+	 * message est perdu
+	 * 
+	 * @see message.OffHeapTopicStorage#append(MessageI)
+	 */
+	@Test
+	public void arenaHeldByOthers() throws Exception {
+		OffHeapArena arena = new OffHeapArena(4 * CHUNK_SIZE, CHUNK_SIZE);
+		OffHeapTopicStorage small = new OffHeapTopicStorage(arena, RetentionPolicy.UNLIMITED);
+		OffHeapTopicStorage other = new OffHeapTopicStorage(arena, RetentionPolicy.UNLIMITED);
+		for (int i = 0; i < 5; i++)
+			small.append(new Message(null, "m" + i));
+		Assert.assertEquals(1, small.getChunkCount());
+		// les autres blocs de l'arène sont tenus par un autre topic
+		other.append(new Message(null, new byte[2 * CHUNK_SIZE]));
+		Assert.assertTrue(arena.getAvailable() < CHUNK_SIZE);
+
+		Assert.assertEquals(5, small.append(new Message(null, new byte[2 * CHUNK_SIZE])));
+		Assert.assertEquals(0, small.getFirstOffset());
+		Assert.assertEquals(5, small.read(0, Integer.MAX_VALUE).size());
+		Assert.assertEquals(1, arena.getUsage().getDropped());
+		// l'historique de l'autre topic n'est pas touché non plus
+		Assert.assertEquals(1, other.read(0, 10).size());
+		small.close();
+		other.close();
+	}
+
+}
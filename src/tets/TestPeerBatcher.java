@@ -0,0 +1,109 @@
+package tets;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import interfaces.MessageI;
+import message.Message;
+import message.PeerBatcher;
+
+/**
+ * Tests pour la classe PeerBatcher
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestPeerBatcher {
+
+	// Appels publish reçus par l'autre Broker, sous la forme "topics:messages"
+	private final List<String> sent = new ArrayList<>();
+	// Nombre de délais d'attente planifiés
+	private int timers;
+
+	/**
+	 * Créer un PeerBatcher qui enregistre ses envois
+	 * 
+	 * @param maxMessages nombre de messages qui déclenche l'envoi
+	 * @param maxBytes    taille qui déclenche l'envoi
+	 * @param linger      délai d'attente
+	 * @return le PeerBatcher
+	 */
+	private PeerBatcher batcher(int maxMessages, long maxBytes, long linger) {
+		return new PeerBatcher(maxMessages, maxBytes, linger, (ms, topics) -> {
+			StringBuilder s = new StringBuilder(String.join(",", topics)).append(':');
+			for (MessageI m : ms)
+				s.append(m.getPayload());
+			sent.add(s.toString());
+		}, () -> timers++);
+	}
+
+	/**
+	 * Le lot est envoyé quand il atteint le nombre de messages
+	 * 
+	 * @see message.PeerBatcher#add(MessageI[], String[])
+	 */
+	@Test
+	public void maxMessages() {
+		PeerBatcher batcher = batcher(3, 0, 1000);
+		batcher.add(new MessageI[] { new Message(null, "a") }, new String[] { "t" });
+		batcher.add(new MessageI[] { new Message(null, "b") }, new String[] { "t" });
+		Assert.assertTrue(sent.isEmpty());
+		Assert.assertEquals(1, timers);
+		batcher.add(new MessageI[] { new Message(null, "c") }, new String[] { "t" });
+		Assert.assertEquals(List.of("t:abc"), sent);
+		Assert.assertEquals(0, batcher.getPendingCount());
+	}
+
+	/**
+	 * Le lot est envoyé quand il atteint la taille en octets
+	 * 
+	 * @see message.PeerBatcher#add(MessageI[], String[])
+	 */
+	@Test
+	public void maxBytes() {
+		PeerBatcher batcher = batcher(1000, 1, 1000);
+		batcher.add(new MessageI[] { new Message(null, "a") }, new String[] { "t" });
+		Assert.assertEquals(List.of("t:a"), sent);
+	}
+
+	/**
+	 * Sans délai d'attente, chaque ajout est envoyé immédiatement
+	 * 
+	 * @see message.PeerBatcher#add(MessageI[], String[])
+	 */
+	@Test
+	public void noLinger() {
+		PeerBatcher batcher = batcher(1000, 0, 0);
+		batcher.add(new MessageI[] { new Message(null, "a"), new Message(null, "b") }, new String[] { "t" });
+		Assert.assertEquals(List.of("t:ab"), sent);
+		Assert.assertEquals(0, timers);
+	}
+
+	/**
+	 * Les messages sont regroupés par ensemble de topics
+	 * 
+	 * @see message.PeerBatcher#flush()
+	 */
+	@Test
+	public void flush() {
+		PeerBatcher batcher = batcher(1000, 0, 1000);
+		batcher.add(new MessageI[] { new Message(null, "a") }, new String[] { "t1" });
+		batcher.add(new MessageI[] { new Message(null, "b") }, new String[] { "t1", "t2" });
+		batcher.add(new MessageI[] { new Message(null, "c") }, new String[] { "t1" });
+		batcher.flush();
+		Assert.assertEquals(List.of("t1:ac", "t1,t2:b"), sent);
+		// un lot vide n'est pas envoyé
+		batcher.flush();
+		Assert.assertEquals(2, sent.size());
+
+		Assert.assertEquals(1, batcher.getFlushes());
+		Assert.assertEquals(3, batcher.getSentMessages());
+		Assert.assertEquals(3, batcher.getMaxBatchSize());
+		Assert.assertEquals(3, batcher.getAverageBatchSize(), 0);
+		Assert.assertTrue(batcher.getMaxFlushLatency() >= 0);
+	}
+
+}
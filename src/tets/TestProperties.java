@@ -139,4 +139,47 @@ public class TestProperties {
 		Assert.assertEquals(v, prop.getStringProp(name));
 	}
 
+	/**
+	 * Une propriétée peut être remplacée par une valeur d'un autre type, et les
+	 * tableaux grandissent avec le nombre de propriétées
+	 * 
+	 * @see message.Properties#putProp(String, int)
+	 * @see message.Properties#getProp(String)
+	 */
+	@Test
+	public void replace() {
+		Properties prop = new Properties();
+		for (int i = 0; i < 20; i++)
+			prop.putProp("p" + i, i);
+		prop.putProp("p3", "trois");
+		prop.putProp("p4", 4.5);
+		Assert.assertEquals("trois", prop.getStringProp("p3"));
+		Assert.assertEquals(4.5, prop.getDoubleProp("p4"), 0);
+		Assert.assertEquals(19, prop.getIntProp("p19"));
+		Assert.assertEquals(Integer.valueOf(7), prop.getProp("p7"));
+		Assert.assertNull(prop.getProp("absente"));
+	}
+
+	/**
+	 * Lire une propriétée avec un autre type est refusé
+	 * 
+	 * @see message.Properties#getLongProp(String)
+	 */
+	@Test(expected = RuntimeException.class)
+	public void badType() {
+		Properties prop = new Properties();
+		prop.putProp("i", 1);
+		prop.getLongProp("i");
+	}
+
+	/**
+	 * Lire une propriétée qui n'existe pas est refusé
+	 * 
+	 * @see message.Properties#getIntProp(String)
+	 */
+	@Test(expected = RuntimeException.class)
+	public void missing() {
+		new Properties().getIntProp("absente");
+	}
+
 }
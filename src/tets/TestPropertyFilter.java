@@ -0,0 +1,94 @@
+package tets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import message.Message;
+import message.Properties;
+import message.PropertyFilter;
+
+/**
+ * Tests pour la classe PropertyFilter
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestPropertyFilter {
+
+	/**
+	 * Créer un message avec des propriétés
+	 * 
+	 * @param type  propriété type
+	 * @param level propriété level
+	 * @return le message
+	 */
+	private static Message message(String type, int level) {
+		Properties properties = new Properties();
+		properties.putProp("type", type);
+		properties.putProp("level", level);
+		return new Message(properties, "m");
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.PropertyFilter#eq(String, java.io.Serializable)
+	 */
+	@Test
+	public void eq() {
+		PropertyFilter filter = new PropertyFilter().eq("type", "a");
+		Assert.assertTrue(filter.filter(message("a", 1)));
+		Assert.assertFalse(filter.filter(message("b", 1)));
+		// les entiers sont comparés quelque soit leur type
+		Assert.assertTrue(new PropertyFilter().eq("level", 3L).filter(message("a", 3)));
+		Assert.assertFalse(new PropertyFilter().eq("missing", 3).filter(message("a", 3)));
+		Assert.assertFalse(filter.filter(new Message(null, "m")));
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.PropertyFilter#in(String, java.io.Serializable...)
+	 */
+	@Test
+	public void in() {
+		PropertyFilter filter = new PropertyFilter().in("type", "a", "b");
+		Assert.assertTrue(filter.filter(message("a", 1)));
+		Assert.assertTrue(filter.filter(message("b", 1)));
+		Assert.assertFalse(filter.filter(message("c", 1)));
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.PropertyFilter#range(String, java.io.Serializable,
+	 *      java.io.Serializable)
+	 */
+	@Test
+	public void range() {
+		PropertyFilter filter = new PropertyFilter().range("level", 2, 4);
+		Assert.assertFalse(filter.filter(message("a", 1)));
+		Assert.assertTrue(filter.filter(message("a", 2)));
+		Assert.assertTrue(filter.filter(message("a", 4)));
+		Assert.assertFalse(filter.filter(message("a", 5)));
+		Assert.assertTrue(new PropertyFilter().range("level", 2.5, null).filter(message("a", 3)));
+		Assert.assertTrue(new PropertyFilter().range("type", "a", "c").filter(message("b", 3)));
+		// une chaine n'est pas comparable à un nombre
+		Assert.assertFalse(new PropertyFilter().range("type", 1, null).filter(message("b", 3)));
+	}
+
+	/**
+	 * Test de la conjonction des conditions
+	 * 
+	 * @see message.PropertyFilter#filter(interfaces.MessageI)
+	 */
+	@Test
+	public void conjunction() {
+		PropertyFilter filter = new PropertyFilter().eq("type", "a").range("level", 2, null);
+		Assert.assertTrue(filter.filter(message("a", 3)));
+		Assert.assertFalse(filter.filter(message("a", 1)));
+		Assert.assertFalse(filter.filter(message("b", 3)));
+		Assert.assertTrue(new PropertyFilter().filter(message("b", 3)));
+	}
+
+}
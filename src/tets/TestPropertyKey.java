@@ -0,0 +1,105 @@
+package tets;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import message.Properties;
+import message.PropertyKey;
+
+/**
+ * Tests pour la classe PropertyKey
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestPropertyKey {
+
+	/**
+	 * Un même nom donne toujours la même clé
+	 * 
+	 * @see message.PropertyKey#of(String)
+	 */
+	@Test
+	public void of() {
+		PropertyKey key = PropertyKey.of("temperature");
+		Assert.assertSame(key, PropertyKey.of(new String("temperature")));
+		Assert.assertNotSame(key, PropertyKey.of("humidite"));
+		Assert.assertEquals("temperature", key.getName());
+	}
+
+	/**
+	 * Une clé désérialisée est celle du dictionnaire
+	 * 
+	 * @see message.PropertyKey#of(String)
+	 */
+	@Test
+	public void serialization() throws Exception {
+		PropertyKey key = PropertyKey.of("pression");
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(key);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			Assert.assertSame(key, in.readObject());
+		}
+	}
+
+	/**
+	 * Les accès par clé et par nom désignent la même propriété, quelle que soit
+	 * sa position dans les Properties
+	 * 
+	 * @see message.Properties#getIntProp(PropertyKey)
+	 */
+	@Test
+	public void properties() {
+		PropertyKey key = PropertyKey.of("sequence");
+		Properties first = new Properties();
+		first.putProp(key, 1);
+		Properties second = new Properties();
+		second.putProp("autre", "a");
+		second.putProp("sequence", 2);
+		Assert.assertEquals(1, first.getIntProp("sequence"));
+		Assert.assertEquals(2, second.getIntProp(key));
+		Assert.assertEquals(1, first.getIntProp(key));
+		Assert.assertNull(second.getProp(PropertyKey.of("absente")));
+	}
+
+	/**
+	 * Une fois le dictionnaire plein, les noms reçus n'y sont plus ajoutés : la
+	 * propriété reste accessible par son nom et par la clé du dictionnaire
+	 * 
+	 * @see message.PropertyKey#DICTIONARY_LIMIT
+	 */
+	@Test
+	public void dictionaryLimit() throws Exception {
+		for (int i = 0; PropertyKey.getDictionarySize() < PropertyKey.DICTIONARY_LIMIT; i++)
+			PropertyKey.of("remplissage-" + i);
+		// le nom envoyé est remplacé dans le flux par un nom de même longueur que
+		// cette jvm n'a jamais vu
+		long suffix = System.nanoTime();
+		String name = "inventee" + suffix;
+		Properties sent = new Properties();
+		sent.putProp("envoyee-" + suffix, 7);
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(sent);
+		}
+		byte[] stream = new String(bytes.toByteArray(), StandardCharsets.ISO_8859_1)
+				.replace("envoyee-" + suffix, name).getBytes(StandardCharsets.ISO_8859_1);
+		int size = PropertyKey.getDictionarySize();
+		Properties received;
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(stream))) {
+			received = (Properties) in.readObject();
+		}
+		Assert.assertEquals(size, PropertyKey.getDictionarySize());
+		Assert.assertEquals(7, received.getIntProp(name));
+		Assert.assertEquals(7, received.getProp(PropertyKey.of(name)));
+	}
+
+}
@@ -0,0 +1,89 @@
+package tets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import message.PublishAck;
+import message.PublishAck.Level;
+import message.PublishTracker;
+
+/**
+ * Tests pour la classe PublishTracker
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestPublishTracker {
+
+	/**
+	 * Au niveau APPENDED, l'acquittement est complété dès l'ajout aux topics
+	 * 
+	 * @see message.PublishTracker#appended(int)
+	 */
+	@Test
+	public void appended() throws Exception {
+		PublishTracker tracker = new PublishTracker(Level.APPENDED);
+		Assert.assertFalse(tracker.getAcknowledgement().isDone());
+		tracker.appended(3);
+		PublishAck ack = tracker.getAcknowledgement().getNow(null);
+		Assert.assertEquals(Level.APPENDED, ack.getLevel());
+		Assert.assertEquals(3, ack.getMessages());
+	}
+
+	/**
+	 * Au niveau DELIVERED, l'acquittement attend la fermeture de l'annonce et
+	 * tous les envois annoncés, supprimés compris
+	 * 
+	 * @see message.PublishTracker#seal()
+	 * @see message.PublishTracker#delivered(int)
+	 */
+	@Test
+	public void delivered() throws Exception {
+		PublishTracker tracker = new PublishTracker(Level.DELIVERED);
+		tracker.appended(2);
+		Assert.assertFalse(tracker.getAcknowledgement().isDone());
+		tracker.expect(2);
+		tracker.expect(1);
+		// les envois peuvent être faits avant la fermeture de l'annonce
+		tracker.delivered(2);
+		tracker.dropped(1);
+		Assert.assertFalse(tracker.getAcknowledgement().isDone());
+		tracker.seal();
+		PublishAck ack = tracker.getAcknowledgement().getNow(null);
+		Assert.assertEquals(Level.DELIVERED, ack.getLevel());
+		Assert.assertEquals(2, ack.getMessages());
+		Assert.assertEquals(2, ack.getSubscribers());
+		Assert.assertEquals(1, ack.getDropped());
+	}
+
+	/**
+	 * Une publication sans subscriber est acquittée à la fermeture de l'annonce
+	 * 
+	 * @see message.PublishTracker#seal()
+	 */
+	@Test
+	public void noSubscriber() throws Exception {
+		PublishTracker tracker = new PublishTracker(Level.DELIVERED);
+		tracker.appended(1);
+		tracker.seal();
+		Assert.assertEquals(0, tracker.getAcknowledgement().getNow(null).getSubscribers());
+	}
+
+	/**
+	 * Une publication en erreur complète l'acquittement par l'erreur, les envois
+	 * suivants ne le modifient plus
+	 * 
+	 * @see message.PublishTracker#fail(Throwable)
+	 */
+	@Test
+	public void failed() throws Exception {
+		PublishTracker tracker = new PublishTracker(Level.DELIVERED);
+		tracker.appended(1);
+		tracker.expect(1);
+		tracker.fail(new IllegalStateException());
+		tracker.delivered(1);
+		tracker.seal();
+		Assert.assertTrue(tracker.getAcknowledgement().isCompletedExceptionally());
+	}
+
+}
@@ -0,0 +1,70 @@
+package tets;
+
+import java.util.List;
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import interfaces.MessageI;
+import message.InterestUpdate;
+import message.Message;
+import message.Properties;
+import message.PropertyFilter;
+import message.RemoteInterest;
+
+/**
+ * Tests pour la classe RemoteInterest
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestRemoteInterest {
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.RemoteInterest#match(String, MessageI[])
+	 */
+	@Test
+	public void match() {
+		RemoteInterest interest = new RemoteInterest();
+		interest.apply(new InterestUpdate("b1", "t1", "s1", null, false, 1));
+		interest.apply(new InterestUpdate("b1", "t1", "s2", new PropertyFilter().eq("type", "a"), false, 2));
+		interest.apply(new InterestUpdate("b2", "t1", "s3", new PropertyFilter().eq("type", "a"), false, 1));
+		interest.apply(new InterestUpdate("b2", "capteurs.#", "s4", null, false, 2));
+
+		Properties properties = new Properties();
+		properties.putProp("type", "a");
+		MessageI[] ms = { new Message(null, "m1"), new Message(properties, "m2") };
+
+		Map<String, List<MessageI>> res = interest.match("t1", ms);
+		Assert.assertEquals(2, res.size());
+		// chaque message n'apparait qu'une fois par Broker, dans l'ordre
+		Assert.assertEquals(List.of(ms[0], ms[1]), res.get("b1"));
+		Assert.assertEquals(List.of(ms[1]), res.get("b2"));
+		Assert.assertEquals(List.of(ms[0], ms[1]), interest.match("capteurs.salle1", ms).get("b2"));
+		// aucun Broker n'est intéressé par ce topic
+		Assert.assertTrue(interest.match("t2", ms).isEmpty());
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.RemoteInterest#apply(InterestUpdate)
+	 */
+	@Test
+	public void apply() {
+		RemoteInterest interest = new RemoteInterest();
+		MessageI[] ms = { new Message(null, "m1") };
+		Assert.assertTrue(interest.apply(new InterestUpdate("b1", "t1", "s1", null, false, 1)));
+		Assert.assertTrue(interest.apply(new InterestUpdate("b1", "t1", "s1", null, true, 3)));
+		Assert.assertTrue(interest.match("t1", ms).isEmpty());
+		// l'abonnement arrivé en retard est ignoré
+		Assert.assertFalse(interest.apply(new InterestUpdate("b1", "t1", "s1", null, false, 2)));
+		Assert.assertTrue(interest.match("t1", ms).isEmpty());
+		Assert.assertTrue(interest.apply(new InterestUpdate("b1", "t1", "s1", null, false, 4)));
+		Assert.assertEquals(1, interest.match("t1", ms).size());
+	}
+
+}
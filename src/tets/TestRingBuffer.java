@@ -0,0 +1,143 @@
+package tets;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import message.RingBuffer;
+
+/**
+ * Tests pour la classe RingBuffer
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestRingBuffer {
+
+	// Evénement des tests
+	private static class Event {
+		int producer;
+		long value;
+		long doubled;
+	}
+
+	/**
+	 * Plusieurs producteurs font plusieurs fois le tour d'un petit anneau : un
+	 * étage reçoit tous les événements, ceux de chaque producteur dans l'ordre, et
+	 * l'arrêt attend la fin du traitement
+	 * 
+	 * @see message.RingBuffer#next()
+	 * @see message.RingBuffer#halt()
+	 */
+	@Test
+	public void producers() throws Exception {
+		int producers = 4;
+		int events = 10000;
+		RingBuffer<Event> ring = new RingBuffer<>(64, Event::new);
+		long[] last = new long[producers];
+		long[] received = new long[1];
+		// les assertions sont faites par le thread du test, une erreur arrêterait
+		// l'étage
+		boolean[] ordered = { true };
+		ring.addStage("check", (e, sequence, end) -> {
+			ordered[0] &= last[e.producer] + 1 == e.value;
+			last[e.producer] = e.value;
+			received[0]++;
+		});
+		ring.start("test-");
+
+		List<Thread> threads = new ArrayList<>();
+		for (int p = 0; p < producers; p++) {
+			int producer = p;
+			Thread thread = new Thread(() -> {
+				for (int i = 1; i <= events; i++) {
+					long sequence = ring.next();
+					Event e = ring.get(sequence);
+					e.producer = producer;
+					e.value = i;
+					ring.publish(sequence);
+				}
+			});
+			threads.add(thread);
+			thread.start();
+		}
+		for (Thread thread : threads)
+			thread.join();
+		ring.halt();
+
+		Assert.assertTrue(ordered[0]);
+		Assert.assertEquals(producers * events, received[0]);
+		for (int p = 0; p < producers; p++)
+			Assert.assertEquals(events, last[p]);
+		Assert.assertEquals(0, ring.getBacklog());
+		Assert.assertEquals(producers * events, ring.getStages().get(0).getEvents());
+	}
+
+	/**
+	 * Un étage ne voit un événement qu'après l'étage dont il dépend, avec ce
+	 * qu'il y a écrit, et le dernier événement d'un lot est signalé
+	 * 
+	 * @see message.RingBuffer#addStage(String, message.RingBuffer.Handler,
+	 *      message.RingBuffer.Stage...)
+	 */
+	@Test
+	public void dependencies() throws Exception {
+		RingBuffer<Event> ring = new RingBuffer<>(16, Event::new);
+		AtomicLong sum = new AtomicLong();
+		AtomicLong ends = new AtomicLong();
+		long[] pending = new long[1];
+		boolean[] visible = { true };
+		RingBuffer<Event>.Stage first = ring.addStage("double", (e, sequence, end) -> e.doubled = 2 * e.value);
+		ring.addStage("sum", (e, sequence, end) -> {
+			visible[0] &= e.doubled == 2 * e.value;
+			pending[0] += e.doubled;
+			// les événements d'un lot sont comptés ensemble à sa fin
+			if (end) {
+				sum.addAndGet(pending[0]);
+				pending[0] = 0;
+				ends.incrementAndGet();
+			}
+		}, first);
+		ring.start("test-");
+
+		long expected = 0;
+		for (int i = 1; i <= 1000; i++) {
+			long sequence = ring.next();
+			ring.get(sequence).value = i;
+			ring.publish(sequence);
+			expected += 2 * i;
+		}
+		ring.halt();
+
+		Assert.assertTrue(visible[0]);
+		Assert.assertEquals(expected, sum.get());
+		Assert.assertTrue(ends.get() >= 1 && ends.get() <= 1000);
+		Assert.assertTrue(ring.getStages().get(1).getAverageBatchSize() >= 1);
+	}
+
+	/**
+	 * Une fois l'anneau arrêté, les réservations sont refusées au lieu d'attendre
+	 * une case ou de publier un événement qu'aucun étage ne traiterait
+	 * 
+	 * @see message.RingBuffer#halt()
+	 */
+	@Test(expected = IllegalStateException.class)
+	public void halted() throws Exception {
+		RingBuffer<Event> ring = new RingBuffer<>(4, Event::new);
+		long[] received = new long[1];
+		ring.addStage("count", (e, sequence, end) -> received[0]++);
+		ring.start("test-");
+		for (int i = 0; i < 4; i++)
+			ring.publish(ring.next());
+		ring.halt();
+
+		Assert.assertTrue(ring.isStopped());
+		Assert.assertEquals(4, received[0]);
+		Assert.assertEquals(0, ring.getBacklog());
+		ring.next();
+	}
+
+}
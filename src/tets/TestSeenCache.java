@@ -0,0 +1,47 @@
+package tets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import message.SeenCache;
+
+/**
+ * Tests pour la classe SeenCache
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestSeenCache {
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.SeenCache#add(String, long)
+	 */
+	@Test
+	public void add() {
+		SeenCache cache = new SeenCache(10, 1000);
+		Assert.assertTrue(cache.add("m1", 0));
+		Assert.assertTrue(cache.add("m2", 0));
+		Assert.assertFalse(cache.add("m1", 500));
+		// m1 est oublié après la durée de rétention
+		Assert.assertTrue(cache.add("m1", 1000));
+		Assert.assertEquals(1, cache.size());
+	}
+
+	/**
+	 * Le cache ne dépasse pas sa capacité, les plus anciennes URIs sont oubliées
+	 * 
+	 * @see message.SeenCache#add(String, long)
+	 */
+	@Test
+	public void capacity() {
+		SeenCache cache = new SeenCache(3, 1000);
+		for (int i = 0; i < 5; i++)
+			Assert.assertTrue(cache.add("m" + i, i));
+		Assert.assertEquals(3, cache.size());
+		Assert.assertTrue(cache.add("m0", 5));
+		Assert.assertFalse(cache.add("m4", 5));
+	}
+
+}
@@ -0,0 +1,268 @@
+package tets;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import interfaces.MessageI;
+import message.Message;
+import message.Priority;
+import message.Properties;
+import message.SubscriberQueue;
+import message.SubscriberQueue.OverflowPolicy;
+
+/**
+ * Tests pour la classe SubscriberQueue
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestSubscriberQueue {
+
+	/**
+	 * Créer des messages numérotés
+	 * 
+	 * @param from premier numéro
+	 * @param n    nombre de messages
+	 * @return les messages
+	 */
+	private static List<MessageI> messages(int from, int n) {
+		List<MessageI> ms = new ArrayList<MessageI>();
+		for (int i = from; i < from + n; i++)
+			ms.add(new Message(new Properties(), "m" + i));
+		return ms;
+	}
+
+	/**
+	 * Vide une file et renvoie le contenu des messages
+	 * 
+	 * @param queue file à vider
+	 * @return le contenu des messages, dans l'ordre
+	 */
+	private static List<Object> drain(SubscriberQueue queue) {
+		List<Object> res = new ArrayList<Object>();
+		List<MessageI> ms;
+		while (!(ms = queue.poll(3)).isEmpty())
+			for (MessageI m : ms)
+				res.add(((Message) m).getPayload());
+		return res;
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.SubscriberQueue#offer(List)
+	 */
+	@Test
+	public void offer() throws Exception {
+		AtomicInteger drains = new AtomicInteger();
+		SubscriberQueue queue = new SubscriberQueue(10, OverflowPolicy.DROP_NEWEST, null, drains::incrementAndGet);
+		queue.offer(messages(0, 2));
+		queue.offer(messages(2, 2));
+		// une seule tache est lancée tant que la file n'est pas vidée
+		Assert.assertEquals(1, drains.get());
+		Assert.assertEquals(4, queue.getDepth());
+		Assert.assertEquals(4, drain(queue).size());
+		queue.offer(messages(4, 1));
+		Assert.assertEquals(2, drains.get());
+	}
+
+	/**
+	 * Test de la politique DROP_OLDEST
+	 * 
+	 * @see message.SubscriberQueue.OverflowPolicy#DROP_OLDEST
+	 */
+	@Test
+	public void dropOldest() throws Exception {
+		SubscriberQueue queue = new SubscriberQueue(3, OverflowPolicy.DROP_OLDEST, null, () -> {
+		});
+		List<MessageI> lost = queue.offer(messages(0, 5));
+		Assert.assertEquals(2, queue.getDropped());
+		// les messages retirés de la file sont renvoyés
+		Assert.assertEquals(2, lost.size());
+		Assert.assertEquals("m0", ((Message) lost.get(0)).getPayload());
+		Assert.assertEquals("m1", ((Message) lost.get(1)).getPayload());
+		Assert.assertEquals(List.of("m2", "m3", "m4"), drain(queue));
+	}
+
+	/**
+	 * Test de la politique DROP_NEWEST
+	 * 
+	 * @see message.SubscriberQueue.OverflowPolicy#DROP_NEWEST
+	 */
+	@Test
+	public void dropNewest() throws Exception {
+		SubscriberQueue queue = new SubscriberQueue(3, OverflowPolicy.DROP_NEWEST, null, () -> {
+		});
+		List<MessageI> lost = queue.offer(messages(0, 5));
+		Assert.assertEquals(2, queue.getDropped());
+		Assert.assertEquals(2, lost.size());
+		Assert.assertEquals("m3", ((Message) lost.get(0)).getPayload());
+		Assert.assertEquals(List.of("m0", "m1", "m2"), drain(queue));
+		Assert.assertTrue(queue.offer(messages(5, 1)).isEmpty());
+	}
+
+	/**
+	 * Test de la politique SPILL, l'ordre des messages est conservé
+	 * 
+	 * @see message.SubscriberQueue.OverflowPolicy#SPILL
+	 */
+	@Test
+	public void spill() throws Exception {
+		SubscriberQueue queue = new SubscriberQueue(3, OverflowPolicy.SPILL, null, () -> {
+		});
+		queue.offer(messages(0, 5));
+		queue.offer(messages(5, 5));
+		Assert.assertEquals(7, queue.getSpilled());
+		Assert.assertEquals(10, queue.getDepth());
+		List<Object> res = drain(queue);
+		Assert.assertEquals(10, res.size());
+		for (int i = 0; i < res.size(); i++)
+			Assert.assertEquals("m" + i, res.get(i));
+		queue.close();
+	}
+
+	/**
+	 * Une file qui déborde dans le répertoire d'une file précédente du même
+	 * subscriber, qui n'a pas été fermée, ne relit pas ses messages
+	 * 
+	 * @see message.SubscriberQueue.OverflowPolicy#SPILL
+	 */
+	@Test
+	public void spillDirectory() throws Exception {
+		File directory = Files.createTempDirectory("spill-test").toFile();
+		SubscriberQueue previous = new SubscriberQueue(1, OverflowPolicy.SPILL, directory, () -> {
+		});
+		previous.offer(messages(0, 5));
+		SubscriberQueue queue = new SubscriberQueue(1, OverflowPolicy.SPILL, directory, () -> {
+		});
+		queue.offer(messages(10, 3));
+		List<Object> res = drain(queue);
+		Assert.assertEquals(3, res.size());
+		for (int i = 0; i < res.size(); i++)
+			Assert.assertEquals("m" + (10 + i), res.get(i));
+		queue.close();
+		previous.close();
+		Assert.assertEquals(0, directory.list().length);
+		directory.delete();
+	}
+
+	/**
+	 * Une file en pause rend tous ses messages, y compris ceux écrits sur le
+	 * disque, quand elle est vidée
+	 * 
+	 * @see message.SubscriberQueue#drain()
+	 */
+	@Test
+	public void drainPaused() throws Exception {
+		SubscriberQueue queue = new SubscriberQueue(3, OverflowPolicy.SPILL, null, () -> {
+		});
+		queue.pause();
+		queue.offer(messages(0, 5));
+		Assert.assertTrue(queue.poll(10).isEmpty());
+		List<MessageI> res = queue.drain();
+		Assert.assertEquals(5, res.size());
+		for (int i = 0; i < res.size(); i++)
+			Assert.assertEquals("m" + i, res.get(i).getPayload());
+		Assert.assertEquals(0, queue.getDepth());
+		queue.close();
+	}
+
+	/**
+	 * Test de la politique BLOCK, le publieur attend la tache qui vide la file
+	 * 
+	 * @see message.SubscriberQueue.OverflowPolicy#BLOCK
+	 */
+	@Test
+	public void block() throws Exception {
+		List<Object> received = new ArrayList<Object>();
+		SubscriberQueue[] queue = new SubscriberQueue[1];
+		queue[0] = new SubscriberQueue(2, OverflowPolicy.BLOCK, null, () -> new Thread(() -> {
+			synchronized (received) {
+				received.addAll(drain(queue[0]));
+			}
+		}).start());
+		for (int i = 0; i < 20; i++)
+			queue[0].offer(messages(i, 1));
+		while (queue[0].getDepth() > 0)
+			Thread.sleep(10);
+		Thread.sleep(50);
+		synchronized (received) {
+			Assert.assertEquals(0, queue[0].getDropped());
+			Assert.assertEquals(20, received.size());
+			Assert.assertTrue(queue[0].getMaxDepth() <= 2);
+		}
+	}
+
+	/**
+	 * Avec une attente bornée, la politique BLOCK écrit sur le disque les
+	 * messages d'une file en pause au lieu d'attendre la fin de la pause
+	 * 
+	 * @see message.SubscriberQueue#offer(List, long)
+	 */
+	@Test
+	public void blockBounded() throws Exception {
+		SubscriberQueue queue = new SubscriberQueue(2, OverflowPolicy.BLOCK, null, () -> {
+		});
+		queue.pause();
+		Assert.assertTrue(queue.offer(messages(0, 5), 10).isEmpty());
+		Assert.assertEquals(5, queue.getDepth());
+		Assert.assertEquals(3, queue.getSpilled());
+		Assert.assertEquals(0, queue.getDropped());
+		List<MessageI> res = queue.drain();
+		Assert.assertEquals(5, res.size());
+		for (int i = 0; i < res.size(); i++)
+			Assert.assertEquals("m" + i, res.get(i).getPayload());
+		queue.close();
+	}
+
+	/**
+	 * Les messages sont retirés par priorité, les moins prioritaires sont
+	 * supprimés les premiers quand la file déborde
+	 * 
+	 * @see message.SubscriberQueue#poll(int)
+	 */
+	@Test
+	public void priority() throws Exception {
+		SubscriberQueue queue = new SubscriberQueue(4, OverflowPolicy.DROP_OLDEST, null, 0, () -> {
+		});
+		List<MessageI> ms = messages(0, 3);
+		for (MessageI m : ms)
+			Priority.LOW.apply(m.getProperties());
+		Properties urgent = new Properties();
+		Priority.URGENT.apply(urgent);
+		ms.add(new Message(urgent, "u0"));
+		ms.add(new Message(null, "n0"));
+		Properties high = new Properties();
+		Priority.HIGH.apply(high);
+		ms.add(new Message(high, "h0"));
+		queue.offer(ms);
+		Assert.assertEquals(2, queue.getDropped());
+		Assert.assertEquals(List.of("u0", "h0", "n0", "m2"), drain(queue));
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.SubscriberQueue#pause()
+	 * @see message.SubscriberQueue#resume()
+	 */
+	@Test
+	public void pause() throws Exception {
+		AtomicInteger drains = new AtomicInteger();
+		SubscriberQueue queue = new SubscriberQueue(10, OverflowPolicy.DROP_NEWEST, null, drains::incrementAndGet);
+		queue.pause();
+		queue.offer(messages(0, 2));
+		Assert.assertEquals(0, drains.get());
+		Assert.assertTrue(queue.poll(10).isEmpty());
+		queue.resume();
+		Assert.assertEquals(1, drains.get());
+		Assert.assertEquals(2, drain(queue).size());
+	}
+
+}
@@ -0,0 +1,106 @@
+package tets;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import interfaces.MessageI;
+import message.FilterIndex;
+import message.Message;
+import message.SubscriptionTrie;
+
+/**
+ * Tests pour la classe SubscriptionTrie
+ * 
+ * @author Bello Velly
+ *
+ */
+public class TestSubscriptionTrie {
+
+	/**
+	 * Renvoie les abonnés de l'arbre qui reçoivent un message publié sur un topic
+	 * 
+	 * @param trie  arbre des abonnements
+	 * @param topic topic de publication
+	 * @return les abonnés qui reçoivent le message
+	 */
+	private static Set<String> subscribers(SubscriptionTrie trie, String topic) {
+		MessageI[] ms = { new Message(null, "m") };
+		Set<String> res = new HashSet<String>();
+		for (FilterIndex index : trie.match(topic))
+			res.addAll(index.match(ms).keySet());
+		return res;
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.SubscriptionTrie#isPattern(String)
+	 */
+	@Test
+	public void isPattern() {
+		Assert.assertTrue(SubscriptionTrie.isPattern("a.*.c"));
+		Assert.assertTrue(SubscriptionTrie.isPattern("a/#"));
+		Assert.assertFalse(SubscriptionTrie.isPattern("a.b.c"));
+		Assert.assertFalse(SubscriptionTrie.isPattern("a*b"));
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.SubscriptionTrie#match(String)
+	 */
+	@Test
+	public void match() {
+		SubscriptionTrie trie = new SubscriptionTrie();
+		trie.add("a.*.c", "single", null);
+		trie.add("a.#", "multi", null);
+		trie.add("#", "all", null);
+		trie.add("a/b/c", "exact", null);
+		trie.add("a.b.c", "filtered", m -> false);
+
+		Assert.assertEquals(Set.of("single", "multi", "all", "exact"), subscribers(trie, "a.b.c"));
+		// les points et les slashs sont équivalents
+		Assert.assertEquals(Set.of("single", "multi", "all", "exact"), subscribers(trie, "a/b/c"));
+		Assert.assertEquals(Set.of("multi", "all"), subscribers(trie, "a.b.d"));
+		// le joker multi niveaux correspond aussi à aucun niveau
+		Assert.assertEquals(Set.of("multi", "all"), subscribers(trie, "a"));
+		Assert.assertEquals(Set.of("all"), subscribers(trie, "b.b.c"));
+		Assert.assertEquals(Set.of("multi", "all"), subscribers(trie, "a.b.c.d"));
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.SubscriptionTrie#remove(String, String)
+	 * @see message.SubscriptionTrie#contains(String)
+	 */
+	@Test
+	public void remove() {
+		SubscriptionTrie trie = new SubscriptionTrie();
+		trie.add("a.*.c", "s1", null);
+		trie.add("a.#", "s1", null);
+		trie.add("a.*.c", "s2", null);
+		trie.remove("a.*.c", "s1");
+		Assert.assertTrue(trie.contains("s1"));
+		Assert.assertEquals(Set.of("s1", "s2"), subscribers(trie, "a.b.c"));
+		trie.remove("a.#", "s1");
+		Assert.assertFalse(trie.contains("s1"));
+		Assert.assertEquals(Set.of("s2"), subscribers(trie, "a.b.c"));
+		trie.remove("a.*.c", "s2");
+		Assert.assertTrue(trie.match("a.b.c").isEmpty());
+	}
+
+	/**
+	 * Le joker multi niveaux doit être le dernier niveau
+	 * 
+	 * @see message.SubscriptionTrie#add(String, String, interfaces.MessageFilterI)
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void addInvalid() {
+		new SubscriptionTrie().add("a.#.c", "s", null);
+	}
+
+}
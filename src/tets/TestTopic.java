@@ -1,10 +1,18 @@
 package tets;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
 import org.junit.Assert;
 import org.junit.Test;
 
 import interfaces.MessageFilterI;
 import interfaces.MessageI;
+import message.FilterIndex;
+import message.Message;
+import message.ReplayPosition;
+import message.RetentionPolicy;
 import message.Topic;
 
 /**
@@ -42,6 +50,19 @@ public class TestTopic {
 		Assert.assertTrue(!t.getSubscribers().contains(subscriber));
 	}
 
+	/**
+	 * Test pour
+	 * 
+	 * @see message.Topic#isSubscribed(String)
+	 */
+	@Test
+	public void isSubscribed() {
+		Topic t = new Topic();
+		t.addSubscription("s", null);
+		Assert.assertTrue(t.isSubscribed("s"));
+		Assert.assertFalse(t.isSubscribed("other"));
+	}
+
 	/**
 	 * Test pour
 	 * 
@@ -83,4 +104,175 @@ public class TestTopic {
 		Assert.assertEquals(filter, t.getFilter(subscriber));
 	}
 
+	/**
+	 * Test pour
+	 * 
+	 * @see message.Topic#getSubscriptions()
+	 */
+	@Test
+	public void getSubscriptions() {
+		Topic t = new Topic();
+		MessageFilterI filter = m -> true;
+		t.addSubscription("s1", filter);
+		t.addSubscription("s2", null);
+		Map<String, MessageFilterI> subscriptions = t.getSubscriptions();
+		Assert.assertEquals(2, subscriptions.size());
+		Assert.assertEquals(filter, subscriptions.get("s1"));
+		Assert.assertTrue(subscriptions.containsKey("s2"));
+		// la copie n'est pas modifiée par les abonnements suivants
+		t.removeSubscriber("s1");
+		Assert.assertTrue(subscriptions.containsKey("s1"));
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.Topic#addMessages(MessageI[])
+	 * @see message.Topic#getMessageCount()
+	 */
+	@Test
+	public void addMessages() {
+		Topic t = new Topic();
+		t.addMessage(new Message(null, "m1"));
+		t.addMessages(new MessageI[] { new Message(null, "m2"), new Message(null, "m3") });
+		Assert.assertEquals(3, t.getMessageCount());
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.Topic#getMessages()
+	 */
+	@Test
+	public void getMessages() {
+		Topic t = new Topic();
+		MessageI[] ms = new MessageI[40];
+		for (int i = 0; i < ms.length; i++) {
+			ms[i] = new Message(null, "m" + i);
+			t.addMessage(ms[i]);
+		}
+		List<MessageI> res = t.getMessages();
+		Assert.assertEquals(ms.length, res.size());
+		for (int i = 0; i < ms.length; i++)
+			Assert.assertEquals(ms[i], res.get(i));
+	}
+
+	/**
+	 * Test de la rétention par nombre de messages
+	 * 
+	 * @see message.RetentionPolicy#getMaxCount()
+	 */
+	@Test
+	public void retentionMaxCount() {
+		Topic t = new Topic(new RetentionPolicy(3, 0, 0));
+		MessageI[] ms = new MessageI[10];
+		for (int i = 0; i < ms.length; i++) {
+			ms[i] = new Message(null, "m" + i);
+			t.addMessage(ms[i]);
+		}
+		List<MessageI> res = t.getMessages();
+		Assert.assertEquals(3, res.size());
+		Assert.assertEquals(ms[7], res.get(0));
+		Assert.assertEquals(ms[9], res.get(2));
+	}
+
+	/**
+	 * Test de la rétention par âge des messages
+	 * 
+	 * @see message.RetentionPolicy#getMaxAge()
+	 */
+	@Test
+	public void retentionMaxAge() {
+		Topic t = new Topic(new RetentionPolicy(0, 0, 60000));
+		Message old = new Message(null, "old");
+		old.getTimeStamp().setTime(System.currentTimeMillis() - 120000);
+		Message recent = new Message(null, "recent");
+		t.addMessage(old);
+		t.addMessage(recent);
+		List<MessageI> res = t.getMessages();
+		Assert.assertEquals(1, res.size());
+		Assert.assertEquals(recent, res.get(0));
+	}
+
+	/**
+	 * Test de la rétention par taille des messages
+	 * 
+	 * @see message.RetentionPolicy#getMaxBytes()
+	 */
+	@Test
+	public void retentionMaxBytes() {
+		Topic t = new Topic();
+		for (int i = 0; i < 10; i++)
+			t.addMessage(new Message(null, "m" + i));
+		Assert.assertEquals(0, t.getRetainedBytes());
+		// les tailles sont calculées quand la politique limite la taille
+		t.setRetentionPolicy(new RetentionPolicy(0, 1, 0));
+		Assert.assertEquals(0, t.getMessageCount());
+		t.setRetentionPolicy(new RetentionPolicy(0, 1000000, 0));
+		t.addMessage(new Message(null, "m"));
+		Assert.assertEquals(1, t.getMessageCount());
+		Assert.assertTrue(t.getRetainedBytes() > 0);
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.Topic#publish(MessageI[])
+	 */
+	@Test
+	public void publish() {
+		Topic t = new Topic();
+		t.addSubscription("s", null);
+		MessageI[] ms = { new Message(null, "m") };
+		FilterIndex index = t.publish(ms);
+		Assert.assertEquals(ms[0], index.match(ms).get("s").get(0));
+		Assert.assertEquals(1, t.getMessageCount());
+	}
+
+	/**
+	 * Test des positions de rejeu
+	 * 
+	 * @see message.Topic#addSubscription(String, MessageFilterI, ReplayPosition)
+	 */
+	@Test
+	public void addSubscriptionReplay() {
+		Topic t = new Topic(new RetentionPolicy(8, 0, 0));
+		for (int i = 0; i < 10; i++) {
+			Message m = new Message(null, "m" + i);
+			m.getTimeStamp().setTime(1000 + i);
+			t.addMessage(m);
+		}
+		// les offsets 0 et 1 ont été supprimés par la rétention
+		Assert.assertArrayEquals(new long[] { 2, 10 }, t.addSubscription("s", null, ReplayPosition.EARLIEST));
+		Assert.assertArrayEquals(new long[] { 5, 10 }, t.addSubscription("s", null, ReplayPosition.fromOffset(5)));
+		Assert.assertArrayEquals(new long[] { 7, 10 }, t.addSubscription("s", null, ReplayPosition.fromTime(1007)));
+		Assert.assertArrayEquals(new long[] { 7, 10 }, t.addSubscription("s", null, ReplayPosition.last(3)));
+		Assert.assertArrayEquals(new long[] { 2, 10 }, t.addSubscription("s", null, ReplayPosition.last(100)));
+		Assert.assertArrayEquals(new long[] { 10, 10 }, t.addSubscription("s", null, ReplayPosition.fromOffset(50)));
+		Assert.assertTrue(t.isSubscribed("s"));
+	}
+
+	/**
+	 * Test pour
+	 * 
+	 * @see message.Topic#readMessages(long, long, int, List)
+	 */
+	@Test
+	public void readMessages() {
+		Topic t = new Topic();
+		MessageI[] ms = new MessageI[10];
+		for (int i = 0; i < ms.length; i++) {
+			ms[i] = new Message(null, "m" + i);
+			t.addMessage(ms[i]);
+		}
+		List<MessageI> res = new ArrayList<MessageI>();
+		long next = t.readMessages(2, 8, 4, res);
+		Assert.assertEquals(6, next);
+		next = t.readMessages(next, 8, 4, res);
+		Assert.assertEquals(8, next);
+		Assert.assertEquals(6, res.size());
+		for (int i = 0; i < res.size(); i++)
+			Assert.assertEquals(ms[2 + i], res.get(i));
+	}
+
 }
@@ -0,0 +1,53 @@
+package utils;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+
+/**
+ * Cette classe permet de créer un executor qui lance chaque tache sur un
+ * nouveau thread virtuel. Les threads virtuels n'existent qu'à partir du JDK
+ * 21 : ils sont obtenus par réflexion pour que le projet compile et tourne avec
+ * un JDK plus ancien, qui n'a simplement pas d'executor virtuel.
+ * 
+ * @author Bello Velly
+ */
+public class VirtualThreads {
+
+	/**
+	 * Renvoie vrai si la jvm fournit des threads virtuels
+	 * 
+	 * @return vrai à partir du JDK 21
+	 */
+	public static boolean isAvailable() {
+		try {
+			Thread.class.getMethod("ofVirtual");
+			return true;
+		} catch (NoSuchMethodException e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Crée un executor qui lance chaque tache sur un nouveau thread virtuel
+	 * 
+	 * @param name préfixe du nom des threads, suivi d'un numéro
+	 * @return l'executor, null si la jvm ne fournit pas de threads virtuels
+	 */
+	public static ExecutorService newExecutor(String name) {
+		if (!isAvailable())
+			return null;
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			Class<?> builderClass = Class.forName("java.lang.Thread$Builder$OfVirtual");
+			builder = builderClass.getMethod("name", String.class, long.class).invoke(builder, name, 0L);
+			ThreadFactory factory = (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+			Method newExecutor = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+			return (ExecutorService) newExecutor.invoke(null, factory);
+		} catch (ReflectiveOperationException e) {
+			e.printStackTrace();
+			return null;
+		}
+	}
+}